@@ -0,0 +1,112 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.AuctionQuote;
+import com.stock.engine.core.LongOrderEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An opening burst of {@code orders} crossing orders into an empty {@link LongOrderEngine}, matched
+ * one by one against the same burst collected in a call auction and uncrossed, and the indicative
+ * equilibrium query on the collected book.
+ * <p>
+ * Buys and sells are spread over {@code levels} ticks on both sides of the mid, so most of the
+ * burst crosses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class AuctionBenchmark {
+
+    @Param({"1000", "10000"})
+    public int orders;
+
+    @Param({"100"})
+    public int levels;
+
+    /**
+     * book side implementation, {@code skiplist} or {@code ladder}
+     */
+    @Param({"skiplist", "ladder"})
+    public String book;
+
+    private long[] prices;
+
+    private long[] quantities;
+
+    private boolean[] buys;
+
+    private LongOrderEngine collected;
+
+    private final AuctionQuote quote = new AuctionQuote();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new long[orders];
+        quantities = new long[orders];
+        buys = new boolean[orders];
+        for (int i = 0; i < orders; i++) {
+            prices[i] = Books.MID_TICKS - levels + random.nextInt(2 * levels + 1);
+            quantities[i] = 1 + random.nextInt(Books.ORDER_LOTS);
+            buys[i] = random.nextBoolean();
+        }
+        collected = newEngine();
+        collected.startAuction();
+        submitBurst(collected);
+    }
+
+    @Benchmark
+    public LongOrderEngine continuous() {
+        LongOrderEngine engine = newEngine();
+        submitBurst(engine);
+        return engine;
+    }
+
+    @Benchmark
+    public LongOrderEngine auction() {
+        LongOrderEngine engine = newEngine();
+        engine.startAuction();
+        submitBurst(engine);
+        engine.uncross();
+        return engine;
+    }
+
+    @Benchmark
+    public AuctionQuote indicative() {
+        return collected.getIndicativeAuction(quote);
+    }
+
+    private LongOrderEngine newEngine() {
+        return "ladder".equals(book)
+                ? new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT, Books.toPrice(Books.MID_TICKS - levels),
+                Books.toPrice(Books.MID_TICKS + levels))
+                : new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT);
+    }
+
+    private void submitBurst(LongOrderEngine engine) {
+        for (int i = 0; i < orders; i++) {
+            engine.submitOrder(new LongOrder(prices[i], quantities[i], buys[i] ? OrderDirection.BUY : OrderDirection.SELL));
+        }
+    }
+}
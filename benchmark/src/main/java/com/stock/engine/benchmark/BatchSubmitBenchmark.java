@@ -0,0 +1,91 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.ExecutionPublisher;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.MarketDataPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongOrderEngine#submitOrders(LongOrder[], int, int)} at several batch sizes, with fills and
+ * depth going to running publishers.
+ * <p>
+ * Every invocation submits the same {@value #ORDERS} orders, cut into batches of {@code batchSize},
+ * so the scores are per order and compare directly: a buy taking the oldest order of the best ask,
+ * then a sell putting it back, which keeps the book at its seeded size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class BatchSubmitBenchmark {
+
+    private static final int ORDERS = 256;
+
+    @Param({"1", "16", "256"})
+    public int batchSize;
+
+    @Param({"100"})
+    public int depth;
+
+    private LongOrderEngine engine;
+
+    private ExecutionPublisher executionPublisher;
+
+    private MarketDataPublisher marketDataPublisher;
+
+    private final LongOrder[] orders = new LongOrder[ORDERS];
+
+    @Setup(Level.Iteration)
+    public void setUpBook() {
+        engine = LongOrderEngineBenchmark.newEngine("skiplist", depth);
+        executionPublisher = new ExecutionPublisher(1 << 16);
+        executionPublisher.addListener((report, sequence, endOfBatch) -> {
+        });
+        executionPublisher.start();
+        marketDataPublisher = new MarketDataPublisher(1 << 16);
+        marketDataPublisher.start();
+        engine.setExecutionPublisher(executionPublisher);
+        engine.setMarketDataPublisher(marketDataPublisher);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        executionPublisher.close();
+        marketDataPublisher.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public LongOrder[] takeAndReplenish() {
+        long bestAsk = Books.askTicks(0);
+        for (int i = 0; i < ORDERS; i += 2) {
+            orders[i] = new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.BUY);
+            orders[i + 1] = new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.SELL);
+        }
+        for (int offset = 0; offset < ORDERS; offset += batchSize) {
+            engine.submitOrders(orders, offset, batchSize);
+        }
+        return orders;
+    }
+}
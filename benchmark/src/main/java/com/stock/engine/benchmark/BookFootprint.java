@@ -0,0 +1,95 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LadderBookSide;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OffHeapOrderBook;
+import com.stock.engine.core.OffHeapOrderStore;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+/**
+ * Heap and direct memory per resting order, and full GC pause with the book live, for a
+ * {@link LongOrderEngine} against an {@link OffHeapOrderBook}. Not a JMH benchmark: each run fills
+ * one book in a fresh JVM.
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar com.stock.engine.benchmark.BookFootprint heap|offheap &lt;orders&gt;
+ * </pre>
+ * Orders rest on both sides over {@value #LEVELS} ticks a side, so none of them match.
+ */
+public final class BookFootprint {
+
+    private static final int LEVELS = 10000;
+
+    private static final int GC_RUNS = 3;
+
+    private BookFootprint() {
+    }
+
+    public static void main(String[] args) {
+        boolean offHeap = "offheap".equals(args[0]);
+        int orders = Integer.parseInt(args[1]);
+        long baseline = usedHeapAfterGc();
+        Object book;
+        long offHeapBytes = 0;
+        long n1 = System.nanoTime();
+        if (offHeap) {
+            OffHeapOrderStore store = new OffHeapOrderStore(OffHeapOrderStore.DEFAULT_CHUNK_SLOTS, orders);
+            OffHeapOrderBook offHeapBook = new OffHeapOrderBook(1, 2 * LEVELS, store);
+            for (int i = 1; i <= orders; i++) {
+                boolean buy = (i & 1) == 0;
+                offHeapBook.submitOrder(i, buy ? LEVELS - i % LEVELS : LEVELS + 1 + i % LEVELS, Books.ORDER_LOTS,
+                        buy ? OrderDirection.BUY : OrderDirection.SELL);
+            }
+            offHeapBytes = store.getOffHeapBytes();
+            book = offHeapBook;
+        } else {
+            LongOrderEngine engine = new LongOrderEngine(new Instrument("FOOTPRINT", new BigDecimal("0.01"), BigDecimal.ONE),
+                    new LadderBookSide(OrderDirection.BUY, 1, 2 * LEVELS), new LadderBookSide(OrderDirection.SELL, 1, 2 * LEVELS));
+            for (int i = 1; i <= orders; i++) {
+                boolean buy = (i & 1) == 0;
+                engine.submitOrder(new LongOrder(buy ? LEVELS - i % LEVELS : LEVELS + 1 + i % LEVELS, Books.ORDER_LOTS,
+                        buy ? OrderDirection.BUY : OrderDirection.SELL));
+            }
+            book = engine;
+        }
+        long fillMillis = (System.nanoTime() - n1) / 1_000_000;
+        long heap = usedHeapAfterGc() - baseline;
+        long maxPauseMillis = 0;
+        long totalPauseMillis = 0;
+        for (int i = 0; i < GC_RUNS; i++) {
+            long before = System.nanoTime();
+            System.gc();
+            long pauseMillis = (System.nanoTime() - before) / 1_000_000;
+            maxPauseMillis = Math.max(maxPauseMillis, pauseMillis);
+            totalPauseMillis += pauseMillis;
+        }
+        System.out.printf("%s %d orders: filled in %d ms, heap %d MB (%.1f B/order), off-heap %d MB (%.1f B/order), "
+                        + "full gc avg %d ms max %d ms, gc total %d ms%n",
+                offHeap ? "offheap" : "heap", orders, fillMillis, heap >> 20, (double) heap / orders,
+                offHeapBytes >> 20, (double) offHeapBytes / orders, totalPauseMillis / GC_RUNS, maxPauseMillis,
+                gcMillis());
+        if (book.hashCode() == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+}
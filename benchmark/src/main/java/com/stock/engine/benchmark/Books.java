@@ -0,0 +1,50 @@
+package com.stock.engine.benchmark;
+
+import java.math.BigDecimal;
+
+/**
+ * Shape of the seeded benchmark books: {@code depth} levels a side, one tick apart around a fixed
+ * mid, {@value #ORDERS_PER_LEVEL} orders of {@value #ORDER_LOTS} lots on each level.
+ */
+final class Books {
+
+    /**
+     * mid price in ticks of 0.01
+     */
+    static final long MID_TICKS = 10000;
+
+    static final int ORDERS_PER_LEVEL = 4;
+
+    static final int ORDER_LOTS = 100;
+
+    private Books() {
+    }
+
+    /**
+     * @param level 0 for the best bid
+     * @return bid price in ticks
+     */
+    static long bidTicks(int level) {
+        return MID_TICKS - 1 - level;
+    }
+
+    /**
+     * @param level 0 for the best ask
+     * @return ask price in ticks
+     */
+    static long askTicks(int level) {
+        return MID_TICKS + 1 + level;
+    }
+
+    static BigDecimal toPrice(long ticks) {
+        return BigDecimal.valueOf(ticks, 2);
+    }
+
+    static BigDecimal[] decimals(int count) {
+        BigDecimal[] values = new BigDecimal[count + 1];
+        for (int i = 0; i <= count; i++) {
+            values[i] = BigDecimal.valueOf(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,115 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.gateway.OrderGateway;
+import com.stock.engine.gateway.OrderMessage;
+import com.stock.engine.gateway.ReportMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire-to-match round trips through an {@link OrderGateway} over loopback: a new order and its
+ * cancel, each waiting for its ack, from one blocking client.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class GatewayBenchmark {
+
+    /**
+     * levels a side
+     */
+    @Param({"100"})
+    public int depth;
+
+    /**
+     * whether the gateway thread spins on the selector instead of blocking in it
+     */
+    @Param({"false", "true"})
+    public boolean busySpin;
+
+    private OrderGateway gateway;
+
+    private SocketChannel client;
+
+    private final ByteBuffer request = ByteBuffer.allocateDirect(OrderMessage.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer response = ByteBuffer.allocateDirect(ReportMessage.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final OrderMessage message = new OrderMessage().wrap(request, 0);
+
+    private long clientOrderId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LongOrderEngine engine = LongOrderEngineBenchmark.newEngine("skiplist", depth);
+        gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0), busySpin);
+        gateway.start();
+        client = SocketChannel.open(gateway.getLocalAddress());
+        client.socket().setTcpNoDelay(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        gateway.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public long newAndCancel(OrderFlow flow) throws IOException {
+        int slot = flow.next();
+        int level = flow.levelAt(slot, depth);
+        long orderId = ++clientOrderId;
+        if (flow.isBuyAt(slot)) {
+            message.set(CommandType.NEW_ORDER, OrderDirection.BUY, orderId, Books.bidTicks(level),
+                    flow.quantityAt(slot));
+        } else {
+            message.set(CommandType.NEW_ORDER, OrderDirection.SELL, orderId, Books.askTicks(level),
+                    flow.quantityAt(slot));
+        }
+        roundTrip();
+        message.set(CommandType.CANCEL_ORDER, OrderDirection.BUY, orderId, 0, 0);
+        return roundTrip();
+    }
+
+    private long roundTrip() throws IOException {
+        request.clear();
+        while (request.hasRemaining()) {
+            client.write(request);
+        }
+        response.clear();
+        while (response.hasRemaining()) {
+            if (client.read(response) < 0) {
+                throw new IOException("gateway closed the session");
+            }
+        }
+        return response.getLong(8);
+    }
+}
@@ -0,0 +1,119 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.journal.BookSnapshot;
+import com.stock.engine.journal.JournalingOrderHandler;
+import com.stock.engine.journal.OrderJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journaled matching and snapshot capture of a {@link LongOrderEngine}.
+ * <p>
+ * Each iteration journals into a fresh temporary directory, which is deleted afterwards. Saving,
+ * reading and restoring snapshots of books with millions of orders is in {@link SnapshotBenchmark}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    private static final int LIVE_ORDERS = 1024;
+
+    /**
+     * levels a side
+     */
+    @Param({"100"})
+    public int depth;
+
+    /**
+     * records between two forces, 0 to never force
+     */
+    @Param({"0", "1000"})
+    public int flushEveryRecords;
+
+    private Path directory;
+
+    private OrderJournal journal;
+
+    private JournalingOrderHandler handler;
+
+    private LongOrderEngine engine;
+
+    private final long[] liveOrderIds = new long[LIVE_ORDERS];
+
+    private int oldest;
+
+    private long sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new OrderJournal(directory, OrderJournal.DEFAULT_SEGMENT_SIZE, flushEveryRecords, 0);
+        engine = LongOrderEngineBenchmark.newEngine("skiplist", depth);
+        handler = new JournalingOrderHandler(journal, engine);
+        Arrays.fill(liveOrderIds, 0);
+        oldest = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        handler.close();
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * a journaled passive add, and the journaled cancel of the order added {@value #LIVE_ORDERS}
+     * adds earlier
+     */
+    @Benchmark
+    public boolean journaledAddCancel(OrderFlow flow) {
+        int slot = flow.next();
+        int level = flow.levelAt(slot, depth);
+        LongOrder order = flow.isBuyAt(slot)
+                ? new LongOrder(Books.bidTicks(level), flow.quantityAt(slot), OrderDirection.BUY)
+                : new LongOrder(Books.askTicks(level), flow.quantityAt(slot), OrderDirection.SELL);
+        handler.onOrder(order, sequence++, true);
+        long cancelId = liveOrderIds[oldest];
+        liveOrderIds[oldest] = order.getOrderId();
+        oldest = (oldest + 1) % LIVE_ORDERS;
+        return cancelId != 0 && handler.cancelOrder(cancelId);
+    }
+
+    /**
+     * copy of the whole book, the part of a snapshot that runs on the matcher thread
+     */
+    @Benchmark
+    public BookSnapshot captureSnapshot() {
+        return BookSnapshot.capture(engine, journal.getNextSequence() - 1);
+    }
+}
@@ -0,0 +1,193 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.metrics.EngineMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongOrderEngine}, the single-writer fixed-point engine, on both book side types.
+ * <p>
+ * The engine must only be driven by one thread, so every benchmark here runs single threaded;
+ * multi-producer throughput is the sequencer's business. Adds are paired with cancels to keep
+ * the book at its seeded size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class LongOrderEngineBenchmark {
+
+    static final Instrument INSTRUMENT = new Instrument("BENCH", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    /**
+     * orders the flow keeps resting on top of the seeded book
+     */
+    private static final int LIVE_ORDERS = 1024;
+
+    /**
+     * levels a side
+     */
+    @Param({"10", "100", "1000"})
+    public int depth;
+
+    /**
+     * book side implementation, {@code skiplist} or {@code ladder}
+     */
+    @Param({"skiplist", "ladder"})
+    public String book;
+
+    /**
+     * whether the engine records {@link EngineMetrics}, {@code -p metrics=true} to price them in
+     */
+    @Param({"false"})
+    public boolean metrics;
+
+    private LongOrderEngine engine;
+
+    private final long[] liveOrderIds = new long[LIVE_ORDERS];
+
+    private int liveCount;
+
+    private int oldest;
+
+    @Setup(Level.Iteration)
+    public void setUpBook() {
+        engine = newEngine(book, depth);
+        if (metrics) {
+            engine.setMetrics(new EngineMetrics());
+        }
+        liveCount = 0;
+        oldest = 0;
+    }
+
+    /**
+     * @param book book side implementation
+     * @param depth levels a side
+     * @return engine with the seeded book
+     */
+    static LongOrderEngine newEngine(String book, int depth) {
+        LongOrderEngine engine = "ladder".equals(book)
+                ? new LongOrderEngine(INSTRUMENT, INSTRUMENT.toPrice(Books.bidTicks(depth) - depth),
+                INSTRUMENT.toPrice(Books.askTicks(depth) + depth))
+                : new LongOrderEngine(INSTRUMENT);
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < Books.ORDERS_PER_LEVEL; i++) {
+                engine.submitOrder(new LongOrder(Books.bidTicks(level), Books.ORDER_LOTS, OrderDirection.BUY));
+                engine.submitOrder(new LongOrder(Books.askTicks(level), Books.ORDER_LOTS, OrderDirection.SELL));
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * levels an aggressive order takes out
+     */
+    @State(Scope.Thread)
+    public static class Sweep {
+        @Param({"1", "10"})
+        public int sweptLevels;
+    }
+
+    /**
+     * a resting order on a random level, and the cancel of the order added {@value #LIVE_ORDERS}
+     * adds earlier
+     */
+    @Benchmark
+    public boolean passiveAddCancel(OrderFlow flow) {
+        int slot = flow.next();
+        long orderId = addPassive(flow, slot);
+        boolean cancelled = false;
+        if (liveCount == LIVE_ORDERS) {
+            cancelled = engine.cancelOrder(liveOrderIds[oldest]);
+        } else {
+            liveCount++;
+        }
+        liveOrderIds[oldest] = orderId;
+        oldest = (oldest + 1) % LIVE_ORDERS;
+        return cancelled;
+    }
+
+    /**
+     * 45% passive adds, 45% cancels and 10% quantity reductions of random resting orders
+     */
+    @Benchmark
+    public boolean cancelHeavyMix(OrderFlow flow) {
+        int slot = flow.next();
+        int percentile = flow.percentileAt(slot);
+        if (liveCount == 0 || (percentile < 45 && liveCount < LIVE_ORDERS)) {
+            liveOrderIds[liveCount++] = addPassive(flow, slot);
+            return true;
+        }
+        int index = flow.levelAt(slot, liveCount);
+        long orderId = liveOrderIds[index];
+        if (percentile >= 90) {
+            LongOrder order = engine.getOrder(orderId);
+            if (order.getAvailableQuantity() > 1) {
+                return engine.reduceOrder(orderId, 1);
+            }
+        }
+        liveOrderIds[index] = liveOrderIds[--liveCount];
+        return engine.cancelOrder(orderId);
+    }
+
+    /**
+     * a buy taking out the best {@code sweptLevels} ask levels, then the adds putting them back
+     */
+    @Benchmark
+    public LongOrder sweep(Sweep sweep) {
+        int levels = Math.min(sweep.sweptLevels, depth);
+        LongOrder taker = new LongOrder(Books.askTicks(levels - 1),
+                (long) Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL * levels, OrderDirection.BUY);
+        engine.submitOrder(taker);
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < Books.ORDERS_PER_LEVEL; i++) {
+                engine.submitOrder(new LongOrder(Books.askTicks(level), Books.ORDER_LOTS, OrderDirection.SELL));
+            }
+        }
+        return taker;
+    }
+
+    @Benchmark
+    public Map<BigDecimal, BigDecimal> topOfBook() {
+        return engine.getTopOrders(5, OrderDirection.BUY);
+    }
+
+    /**
+     * best bid straight off the book side, no conversion
+     */
+    @Benchmark
+    public long bestBid() {
+        return engine.getBuyOrders().best().getPrice();
+    }
+
+    private long addPassive(OrderFlow flow, int slot) {
+        int level = flow.levelAt(slot, depth);
+        LongOrder order = flow.isBuyAt(slot)
+                ? new LongOrder(Books.bidTicks(level), flow.quantityAt(slot), OrderDirection.BUY)
+                : new LongOrder(Books.askTicks(level), flow.quantityAt(slot), OrderDirection.SELL);
+        engine.submitOrder(order);
+        return order.getOrderId();
+    }
+}
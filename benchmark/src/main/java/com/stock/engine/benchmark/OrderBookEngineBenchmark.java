@@ -0,0 +1,150 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.OrderBookEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderBookEngine}, the aggregated {@code double}/{@code int} book.
+ * <p>
+ * The book is reseeded every iteration, which also empties the executed order list sweeps keep
+ * appending to. That list is not thread-safe, so only run {@code sweep} with one thread. The
+ * book has no order identity and so no cancel.
+ * <p>
+ * {@code indexed} builds the book over a price band, so depth queries go through its
+ * {@link com.stock.engine.component.DepthIndex} instead of scanning the levels.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class OrderBookEngineBenchmark {
+
+    /**
+     * levels a side
+     */
+    @Param({"10", "100", "1000"})
+    public int depth;
+
+    /**
+     * whether the book keeps a cumulative depth index
+     */
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private OrderBookEngine engine;
+
+    private double[] bidPrices;
+
+    private double[] askPrices;
+
+    @Setup(Level.Trial)
+    public void setUpPrices() {
+        bidPrices = new double[depth + 1];
+        askPrices = new double[depth + 1];
+        for (int level = 0; level <= depth; level++) {
+            bidPrices[level] = Books.bidTicks(level) / 100.0;
+            askPrices[level] = Books.askTicks(level) / 100.0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpBook() {
+        engine = indexed
+                ? new OrderBookEngine(0.01, (Books.MID_TICKS - 2000) / 100.0, (Books.MID_TICKS + 2000) / 100.0)
+                : new OrderBookEngine();
+        for (int level = 0; level < depth; level++) {
+            engine.addBuyOrder(bidPrices[level], Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL);
+            engine.addSellOffer(askPrices[level], Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL);
+        }
+    }
+
+    /**
+     * levels an aggressive order takes out
+     */
+    @State(Scope.Thread)
+    public static class Sweep {
+        @Param({"1", "10"})
+        public int sweptLevels;
+    }
+
+    /**
+     * a resting order on a random level of either side
+     */
+    @Benchmark
+    public void passiveAdd(OrderFlow flow) {
+        int slot = flow.next();
+        int level = flow.levelAt(slot, depth);
+        if (flow.isBuyAt(slot)) {
+            engine.receiveOrder(bidPrices[level], flow.quantityAt(slot), true);
+        } else {
+            engine.receiveOrder(askPrices[level], flow.quantityAt(slot), false);
+        }
+    }
+
+    /**
+     * a buy taking out the best {@code sweptLevels} ask levels, then the adds putting them back
+     */
+    @Benchmark
+    public void sweep(Sweep sweep) {
+        int levels = Math.min(sweep.sweptLevels, depth);
+        engine.receiveOrder(askPrices[levels - 1], Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL * levels, true);
+        for (int level = 0; level < levels; level++) {
+            engine.addSellOffer(askPrices[level], Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL);
+        }
+    }
+
+    /**
+     * bid quantity of the best five levels
+     */
+    @Benchmark
+    public int topOfBook() {
+        return engine.getBidQuantity(bidPrices[5]);
+    }
+
+    /**
+     * bid quantity better than the middle level of the side
+     */
+    @Benchmark
+    public int depthWithin() {
+        return engine.getBidQuantity(bidPrices[depth / 2]);
+    }
+
+    /**
+     * price a buy for half the ask side sweeps to
+     */
+    @Benchmark
+    public double sweepPrice() {
+        return engine.getAskSweepPrice((long) Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL * depth / 2);
+    }
+
+    @Benchmark
+    @Group("addWhileReading")
+    @GroupThreads(3)
+    public void addWhileReadingWriter(OrderFlow flow) {
+        passiveAdd(flow);
+    }
+
+    @Benchmark
+    @Group("addWhileReading")
+    @GroupThreads(1)
+    public int addWhileReadingReader() {
+        return topOfBook();
+    }
+}
@@ -0,0 +1,137 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.Order;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.OrderEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderEngine}, the concurrent {@link BigDecimal} engine.
+ * <p>
+ * The book is reseeded every iteration, since passive adds only ever grow it. The engine has no
+ * cancel, so the cancel-heavy mix lives in {@link LongOrderEngineBenchmark}. Run with {@code -t}
+ * for more submitting threads; {@code addWhileReading} pits three writers against a top-of-book
+ * reader.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class OrderEngineBenchmark {
+
+    /**
+     * levels a side
+     */
+    @Param({"10", "100", "1000"})
+    public int depth;
+
+    private OrderEngine<Order> engine;
+
+    private BigDecimal[] bidPrices;
+
+    private BigDecimal[] askPrices;
+
+    private BigDecimal[] quantities;
+
+    @Setup(Level.Trial)
+    public void setUpPrices() {
+        bidPrices = new BigDecimal[depth + 1];
+        askPrices = new BigDecimal[depth + 1];
+        for (int level = 0; level <= depth; level++) {
+            bidPrices[level] = Books.toPrice(Books.bidTicks(level));
+            askPrices[level] = Books.toPrice(Books.askTicks(level));
+        }
+        quantities = Books.decimals(Math.max(OrderFlow.MAX_LOTS, Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL * depth));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpBook() {
+        engine = new OrderEngine<>();
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < Books.ORDERS_PER_LEVEL; i++) {
+                engine.submitOrder(new Order(bidPrices[level], quantities[Books.ORDER_LOTS], OrderDirection.BUY));
+                engine.submitOrder(new Order(askPrices[level], quantities[Books.ORDER_LOTS], OrderDirection.SELL));
+            }
+        }
+    }
+
+    /**
+     * levels an aggressive order takes out
+     */
+    @State(Scope.Thread)
+    public static class Sweep {
+        @Param({"1", "10"})
+        public int sweptLevels;
+    }
+
+    /**
+     * a resting order on a random level of either side
+     */
+    @Benchmark
+    public void passiveAdd(OrderFlow flow) {
+        int slot = flow.next();
+        int level = flow.levelAt(slot, depth);
+        BigDecimal quantity = quantities[flow.quantityAt(slot)];
+        if (flow.isBuyAt(slot)) {
+            engine.submitOrder(new Order(bidPrices[level], quantity, OrderDirection.BUY));
+        } else {
+            engine.submitOrder(new Order(askPrices[level], quantity, OrderDirection.SELL));
+        }
+    }
+
+    /**
+     * a buy taking out the best {@code sweptLevels} ask levels, then the adds putting them back
+     */
+    @Benchmark
+    public Order sweep(Sweep sweep) {
+        int levels = Math.min(sweep.sweptLevels, depth);
+        // priced at the last swept level, so the price and the quantity both stop the sweep there
+        Order taker = new Order(askPrices[levels - 1], quantities[Books.ORDER_LOTS * Books.ORDERS_PER_LEVEL * levels],
+                OrderDirection.BUY);
+        engine.submitOrder(taker);
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < Books.ORDERS_PER_LEVEL; i++) {
+                engine.submitOrder(new Order(askPrices[level], quantities[Books.ORDER_LOTS], OrderDirection.SELL));
+            }
+        }
+        return taker;
+    }
+
+    @Benchmark
+    public Map<BigDecimal, BigDecimal> topOfBook() {
+        return engine.getTopOrders(5, OrderDirection.BUY);
+    }
+
+    @Benchmark
+    @Group("addWhileReading")
+    @GroupThreads(3)
+    public void addWhileReadingWriter(OrderFlow flow) {
+        passiveAdd(flow);
+    }
+
+    @Benchmark
+    @Group("addWhileReading")
+    @GroupThreads(1)
+    public Map<BigDecimal, BigDecimal> addWhileReadingReader() {
+        return topOfBook();
+    }
+}
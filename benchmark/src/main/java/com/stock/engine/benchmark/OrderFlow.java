@@ -0,0 +1,80 @@
+package com.stock.engine.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+
+/**
+ * Per-thread, precomputed random order flow.
+ * <p>
+ * Every benchmark thread walks its own table, seeded from the thread index, so runs are
+ * reproducible and threads never share a cursor. Slots hold a raw level draw, a quantity and a
+ * percentile for choosing between operations; benchmarks turn them into prices of their book.
+ */
+@State(Scope.Thread)
+public class OrderFlow {
+
+    private static final int SIZE = 1 << 16;
+
+    private static final long SEED = 0x5EED;
+
+    /**
+     * largest order quantity in lots
+     */
+    static final int MAX_LOTS = 100;
+
+    private final int[] levels = new int[SIZE];
+
+    private final int[] quantities = new int[SIZE];
+
+    private final int[] percentiles = new int[SIZE];
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(ThreadParams threadParams) {
+        Random random = new Random(SEED + threadParams.getThreadIndex());
+        for (int i = 0; i < SIZE; i++) {
+            levels[i] = random.nextInt(Integer.MAX_VALUE);
+            quantities[i] = 1 + random.nextInt(MAX_LOTS);
+            percentiles[i] = random.nextInt(100);
+        }
+    }
+
+    /**
+     * @return next slot of the flow
+     */
+    public int next() {
+        cursor = (cursor + 1) & (SIZE - 1);
+        return cursor;
+    }
+
+    /**
+     * @param slot
+     * @param depth number of levels
+     * @return level index in {@code [0, depth)}
+     */
+    public int levelAt(int slot, int depth) {
+        return levels[slot] % depth;
+    }
+
+    public int quantityAt(int slot) {
+        return quantities[slot];
+    }
+
+    /**
+     * @param slot
+     * @return uniform percentile in {@code [0, 100)}
+     */
+    public int percentileAt(int slot) {
+        return percentiles[slot];
+    }
+
+    public boolean isBuyAt(int slot) {
+        return (percentiles[slot] & 1) == 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.component.LongOrderPool;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongOrderEngine} submit and fill with orders borrowed from a {@link LongOrderPool}
+ * against orders created per submit. Run with {@code -prof gc}: on either book side, pooled orders
+ * bring {@code gc.alloc.rate.norm} of {@link #addCancel()} down to nothing once the pool has
+ * warmed up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class PooledOrderBenchmark {
+
+    /**
+     * levels a side
+     */
+    @Param({"10", "1000"})
+    public int depth;
+
+    /**
+     * book side implementation, {@code skiplist} or {@code ladder}
+     */
+    @Param({"skiplist", "ladder"})
+    public String book;
+
+    /**
+     * whether orders come from the pool
+     */
+    @Param({"false", "true"})
+    public boolean pooled;
+
+    private LongOrderEngine engine;
+
+    private LongOrderPool pool;
+
+    @Setup(Level.Iteration)
+    public void setUpBook() {
+        engine = LongOrderEngineBenchmark.newEngine(book, depth);
+        pool = LongOrderPool.current();
+    }
+
+    /**
+     * a buy filling the oldest order of the best ask, then the sell putting it back at the end of
+     * the level queue
+     */
+    @Benchmark
+    public long takeAndReplenish() {
+        engine.submitOrder(order(Books.askTicks(0), OrderDirection.BUY));
+        LongOrder maker = order(Books.askTicks(0), OrderDirection.SELL);
+        engine.submitOrder(maker);
+        return maker.getOrderId();
+    }
+
+    /**
+     * a sell resting on the best ask and its cancel
+     */
+    @Benchmark
+    public boolean addCancel() {
+        LongOrder order = order(Books.askTicks(0), OrderDirection.SELL);
+        engine.submitOrder(order);
+        return engine.cancelOrder(order.getOrderId());
+    }
+
+    private LongOrder order(long price, OrderDirection orderDirection) {
+        return pooled ? pool.borrow(price, Books.ORDER_LOTS, orderDirection)
+                : new LongOrder(price, Books.ORDER_LOTS, orderDirection);
+    }
+}
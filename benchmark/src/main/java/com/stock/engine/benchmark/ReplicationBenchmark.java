@@ -0,0 +1,108 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderHandler;
+import com.stock.engine.replication.ReplicatingOrderHandler;
+import com.stock.engine.replication.ReplicationFollower;
+import com.stock.engine.replication.ReplicationPrimary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching through a {@link ReplicatingOrderHandler} with one follower over loopback, against the
+ * bare engine.
+ * <p>
+ * {@code acks} is the number of acknowledgements a batch waits for: -1 runs without replication,
+ * 0 streams to the follower without waiting, 1 waits for the follower. Every invocation handles
+ * the same {@value #ORDERS} orders, a buy taking the oldest order of the best ask and a sell
+ * putting it back, cut into sequencer batches of {@code batchSize}, so the scores are per order.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class ReplicationBenchmark {
+
+    private static final int ORDERS = 256;
+
+    @Param({"-1", "0", "1"})
+    public int acks;
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    @Param({"100"})
+    public int depth;
+
+    private OrderHandler<LongOrder> handler;
+
+    private ReplicationPrimary primary;
+
+    private ReplicationFollower follower;
+
+    private long sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        LongOrderEngine engine = LongOrderEngineBenchmark.newEngine("skiplist", depth);
+        if (acks < 0) {
+            handler = engine;
+            return;
+        }
+        primary = new ReplicationPrimary(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        primary.setRequiredAcks(acks);
+        primary.start();
+        follower = new ReplicationFollower(LongOrderEngineBenchmark.newEngine("skiplist", depth),
+                primary.getLocalAddress());
+        follower.start();
+        if (!primary.awaitFollowers(1, TimeUnit.SECONDS.toNanos(10))) {
+            throw new IllegalStateException("follower did not join");
+        }
+        handler = new ReplicatingOrderHandler(primary, engine);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (primary != null) {
+            primary.close();
+            follower.close();
+            primary = null;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public long takeAndReplenish() {
+        long bestAsk = Books.askTicks(0);
+        for (int i = 0; i < ORDERS; i += 2) {
+            handler.onOrder(new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.BUY), sequence++,
+                    (i + 1) % batchSize == 0);
+            handler.onOrder(new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.SELL), sequence++,
+                    (i + 2) % batchSize == 0);
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,112 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderSequencer;
+import com.stock.engine.risk.PreTradeRisk;
+import com.stock.engine.risk.RiskLimits;
+import com.stock.engine.risk.RiskStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequenced matching through an {@link OrderSequencer} against the same flow through a
+ * {@link RiskStage} with {@code checkThreads} check threads, {@code 0} for no risk stage.
+ * <p>
+ * Every invocation publishes {@value #ORDERS} orders of {@value #ACCOUNTS} accounts as one burst
+ * and waits for them to be matched: a buy taking the oldest order of the best ask, then a sell
+ * putting it back. Limits are loose enough to pass everything, so both sides match the same orders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class RiskStageBenchmark {
+
+    private static final int ORDERS = 256;
+
+    private static final int ACCOUNTS = 64;
+
+    @Param({"0", "1", "2"})
+    public int checkThreads;
+
+    @Param({"100"})
+    public int depth;
+
+    private OrderSequencer<LongOrder> sequencer;
+
+    private RiskStage stage;
+
+    private final LongOrder[] orders = new LongOrder[ORDERS];
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        LongOrderEngine engine = LongOrderEngineBenchmark.newEngine("skiplist", depth);
+        if (checkThreads == 0) {
+            sequencer = new OrderSequencer<>(1 << 12, engine);
+            sequencer.start();
+            return;
+        }
+        RiskLimits limits = new RiskLimits();
+        limits.setMaxOrderQuantity(Books.ORDER_LOTS);
+        limits.setMaxOpenQuantity(Long.MAX_VALUE / 2);
+        limits.setMaxNotional(Long.MAX_VALUE / 2);
+        limits.setMaxPosition(Long.MAX_VALUE / 2);
+        limits.setPriceBand(depth);
+        PreTradeRisk risk = new PreTradeRisk(engine.getTopOfBook(), limits);
+        engine.setFillListener(risk);
+        stage = new RiskStage(1 << 12, checkThreads, risk, engine);
+        stage.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (sequencer != null) {
+            sequencer.close();
+            sequencer = null;
+        }
+        if (stage != null) {
+            stage.close();
+            stage = null;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public LongOrder[] takeAndReplenish() {
+        long bestAsk = Books.askTicks(0);
+        for (int i = 0; i < ORDERS; i += 2) {
+            orders[i] = new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.BUY);
+            orders[i].setAccountId(1 + i % ACCOUNTS);
+            orders[i + 1] = new LongOrder(bestAsk, Books.ORDER_LOTS, OrderDirection.SELL);
+            orders[i + 1].setAccountId(1 + (i + 1) % ACCOUNTS);
+        }
+        if (stage == null) {
+            sequencer.publish(orders, 0, ORDERS);
+            sequencer.drain();
+        } else {
+            stage.publish(orders, 0, ORDERS);
+            stage.drain();
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,107 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.journal.BookSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link BookSnapshot} of a book with {@code orders} resting orders, spread evenly over
+ * {@value #LEVELS} levels a side: capture on the matcher thread, save to disk, read back and
+ * restore into an empty engine. Each invocation handles the whole book once.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final int LEVELS = 1000;
+
+    @Param({"1000000", "5000000"})
+    public int orders;
+
+    private Path directory;
+
+    private LongOrderEngine engine;
+
+    private BookSnapshot snapshot;
+
+    private Path file;
+
+    private LongOrderEngine restored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        engine = new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT);
+        for (int i = 0; i < orders; i++) {
+            int level = (i >> 1) % LEVELS;
+            engine.submitOrder((i & 1) == 0
+                    ? new LongOrder(Books.bidTicks(level), Books.ORDER_LOTS, OrderDirection.BUY)
+                    : new LongOrder(Books.askTicks(level), Books.ORDER_LOTS, OrderDirection.SELL));
+        }
+        snapshot = BookSnapshot.capture(engine, orders - 1);
+        file = snapshot.save(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void newEngine() {
+        restored = new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BookSnapshot capture() {
+        return BookSnapshot.capture(engine, orders - 1);
+    }
+
+    /**
+     * write and force the file, then move it in place
+     */
+    @Benchmark
+    public Path save() throws IOException {
+        return snapshot.save(directory);
+    }
+
+    @Benchmark
+    public BookSnapshot read() throws IOException {
+        return BookSnapshot.read(file);
+    }
+
+    @Benchmark
+    public LongOrderEngine restore() {
+        snapshot.restore(restored);
+        return restored;
+    }
+}
@@ -0,0 +1,79 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stop order triggering in {@link LongOrderEngine} with {@code stops} sell stops parked.
+ * <p>
+ * {@code cascade}: every stop sits on the price of one resting bid, so each triggered stop sells
+ * into the next bid down and triggers the next stop, one round per stop. {@code burst}: one sell
+ * reaches every stop at once, and the triggered stops sell into a deep bid. Each invocation runs
+ * the whole cascade once, on a book set up again before it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class StopCascadeBenchmark {
+
+    private static final long TOP = 1_000_000;
+
+    @Param({"100000"})
+    public int stops;
+
+    private LongOrderEngine chained;
+
+    private LongOrderEngine spread;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        chained = new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT);
+        spread = new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT);
+        spread.submitOrder(new LongOrder(TOP - stops, stops, OrderDirection.BUY));
+        spread.submitOrder(new LongOrder(TOP, 1, OrderDirection.BUY));
+        for (int i = 0; i < stops; i++) {
+            chained.submitOrder(new LongOrder(TOP - i, 1, OrderDirection.BUY));
+            chained.submitOrder(stop(TOP - i));
+            spread.submitOrder(stop(TOP - i % 1000));
+        }
+    }
+
+    @Benchmark
+    public LongOrderEngine cascade() {
+        chained.submitOrder(new LongOrder(TOP, 1, OrderDirection.SELL));
+        return chained;
+    }
+
+    @Benchmark
+    public LongOrderEngine burst() {
+        spread.submitOrder(new LongOrder(TOP, 1, OrderDirection.SELL));
+        return spread;
+    }
+
+    private static LongOrder stop(long stopPrice) {
+        LongOrder order = new LongOrder(0, null, 0, 1, OrderDirection.SELL, OrderType.STOP);
+        order.setStopPrice(stopPrice);
+        return order;
+    }
+}
@@ -0,0 +1,84 @@
+package com.stock.engine.benchmark;
+
+import com.stock.engine.component.Order;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderEngine;
+import com.stock.engine.workload.WorkloadGenerator;
+import com.stock.engine.workload.WorkloadHandler;
+import com.stock.engine.workload.WorkloadProfile;
+import com.stock.engine.workload.WorkloadReplayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A generated {@link WorkloadProfile} flow of {@value #COMMANDS} commands replayed flat out into an
+ * empty engine: clustered prices, cancels, aggressive orders and a drifting mid instead of the
+ * uniform flow of the other benchmarks. Scores are per command.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+@State(Scope.Benchmark)
+public class WorkloadReplayBenchmark {
+
+    private static final int COMMANDS = 1_000_000;
+
+    /**
+     * {@code long} for {@link LongOrderEngine}, {@code generic} for {@link OrderEngine}, which skips
+     * the cancels
+     */
+    @Param({"long", "generic"})
+    public String engine;
+
+    private Path file;
+
+    private WorkloadReplayer replayer;
+
+    private WorkloadHandler handler;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = Files.createTempFile("workload", ".wkl");
+        new WorkloadGenerator(new WorkloadProfile(), 42).generate(file, COMMANDS);
+        replayer = new WorkloadReplayer(file);
+    }
+
+    @Setup(Level.Invocation)
+    public void newEngine() {
+        handler = "generic".equals(engine)
+                ? WorkloadReplayer.handlerFor(new OrderEngine<Order>(), LongOrderEngineBenchmark.INSTRUMENT)
+                : WorkloadReplayer.handlerFor(new LongOrderEngine(LongOrderEngineBenchmark.INSTRUMENT));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public long replay() {
+        return replayer.replay(handler);
+    }
+}
@@ -1,17 +1,32 @@
 package com.stock.engine;
 
+import com.stock.engine.component.Instrument;
 import com.stock.engine.component.Order;
 import com.stock.engine.component.OrderBookEngine;
 import com.stock.engine.component.RandomDouble;
 import com.stock.engine.component.RandomInt;
 import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
 import com.stock.engine.core.OrderEngine;
+import com.stock.engine.core.OrderSequencer;
+import com.stock.engine.core.SequencedOrderEngine;
+import com.stock.engine.metrics.EngineMetrics;
+import com.stock.engine.workload.WorkloadGenerator;
+import com.stock.engine.workload.WorkloadProfile;
+import com.stock.engine.workload.WorkloadReplayer;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.stream.IntStream;
 
 /**
- * Hello world!
+ * Demo run of the engines. It is a rough end-to-end timing only, use the JMH benchmarks of the
+ * {@code benchmark} module to compare engine changes.
+ * <p>
+ * {@code generate <file> <count>} writes a realistic workload and {@code replay <file> [speed]}
+ * runs it against a {@link LongOrderEngine}, at the recorded rate times {@code speed} or flat out.
  *
  */
 public class App 
@@ -25,8 +40,20 @@ public class App
     }
 
 
-    public static void main( String[] args )
+    public static void main( String[] args ) throws IOException
     {
+        if (args.length > 0 && "pipelined".equals(args[0])) {
+            runPipelined();
+            return;
+        }
+        if (args.length > 2 && "generate".equals(args[0])) {
+            new WorkloadGenerator(new WorkloadProfile(), 42).generate(Paths.get(args[1]), Long.parseLong(args[2]));
+            return;
+        }
+        if (args.length > 1 && "replay".equals(args[0])) {
+            runWorkload(Paths.get(args[1]), args.length > 2 ? Double.parseDouble(args[2]) : 0);
+            return;
+        }
         OrderEngine engine = new OrderEngine();
         long n1 = System.currentTimeMillis();
         int ITERATIONS = 10000000;
@@ -55,4 +82,54 @@ public class App
         engine.printOrderBook();
         engine.reset();
     }
+
+    /**
+     * replay a workload file against a {@link LongOrderEngine}
+     * @param file workload written by {@link WorkloadGenerator}
+     * @param speed 1 for the recorded rate, 0 for the maximum rate
+     */
+    private static void runWorkload(Path file, double speed) throws IOException
+    {
+        WorkloadReplayer replayer = new WorkloadReplayer(file);
+        LongOrderEngine engine = new LongOrderEngine(new Instrument("WORKLOAD", new BigDecimal("0.01"), BigDecimal.ONE));
+        EngineMetrics metrics = new EngineMetrics();
+        engine.setMetrics(metrics);
+        long n1 = System.nanoTime();
+        long count = replayer.replay(WorkloadReplayer.handlerFor(engine), speed);
+        long elapsedNanos = System.nanoTime() - n1;
+        System.out.println(count + " commands in " + elapsedNanos / 1_000_000 + " ms, recorded "
+                + replayer.getDurationNanos() / 1_000_000 + " ms, max lag " + replayer.getMaxLagNanos() / 1000 + " us");
+        System.out.println(metrics.snapshot());
+        engine.printOrderBook();
+    }
+
+    /**
+     * same flow as {@link #main(String[])}, but every order goes through one sequenced matcher thread
+     */
+    private static void runPipelined()
+    {
+        SequencedOrderEngine<Order> engine = new SequencedOrderEngine<>();
+        OrderSequencer<Order> sequencer = new OrderSequencer<>(1 << 16, engine);
+        sequencer.start();
+        long n1 = System.currentTimeMillis();
+        int ITERATIONS = 10000000;
+        IntStream.range(0, ITERATIONS).parallel().forEach(i -> {
+            if (i % 100000 == 0) {
+                System.out.println(i + " orders sent");
+            }
+            double price = randomDouble.nextDouble();
+            int qty = randomInt.nextInt();
+            sequencer.publish(new Order(BigDecimal.valueOf(price), BigDecimal.valueOf(qty),
+                    randomDouble.nextDouble() > 50 ? OrderDirection.BUY : OrderDirection.SELL));
+        });
+        sequencer.close();
+
+        long elapsedTimeMillis = System.currentTimeMillis() - n1;
+        System.out.println("Total execute time:" + elapsedTimeMillis/1000);
+        long elapsedTimeMicros = elapsedTimeMillis * 1000;
+
+        System.out.println(((double)elapsedTimeMicros) / ITERATIONS + " us on average");
+        engine.printOrderBook();
+        engine.reset();
+    }
 }
@@ -9,6 +9,12 @@ import java.util.concurrent.atomic.AtomicReference;
 
 
 public abstract class AbstractOrder {
+    /**
+     * order id, 0 until assigned
+     */
+    @Getter
+    @Setter()
+    protected long orderId;
     /**
      * price
      */
@@ -46,7 +52,21 @@ public abstract class AbstractOrder {
         return false;
     }
 
+    /**
+     * add deal quantity from a single writer thread, no compare and set needed
+     * @param quantity dealt quantity
+     */
+    public void fill(BigDecimal quantity) {
+        dealQuantity.set(dealQuantity.get().add(quantity));
+        availableQuantity = submitQuantity.subtract(dealQuantity.get());
+    }
+
     public AbstractOrder(BigDecimal price, BigDecimal submitQuantity, OrderDirection orderDirection) {
+        this(0, price, submitQuantity, orderDirection);
+    }
+
+    public AbstractOrder(long orderId, BigDecimal price, BigDecimal submitQuantity, OrderDirection orderDirection) {
+        this.orderId = orderId;
         this.price = price;
         this.submitQuantity = submitQuantity;
         this.orderDirection = orderDirection;
@@ -0,0 +1,188 @@
+package com.stock.engine.component;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cumulative depth of one side of an {@link OrderBookEngine} over a fixed tick grid.
+ * <p>
+ * A Fenwick tree holds the quantity of every tick of the band, ordered best price first: ascending
+ * for asks, descending for bids. Changing a level and asking for the quantity better than a price
+ * are both O(log ticks), and so is finding the price a sweep of a given quantity reaches.
+ * <p>
+ * Nodes are updated with atomic adds. Adds commute, so concurrent writers leave the exact sums;
+ * a query running alongside them may miss some of their changes, like a scan of the live book.
+ */
+public class DepthIndex {
+
+    /**
+     * tolerance, in ticks, for prices a double rounding step off the grid
+     */
+    private static final double EPSILON = 1e-6;
+
+    @Getter
+    private final OrderDirection orderDirection;
+
+    @Getter
+    private final double tickSize;
+
+    /**
+     * lowest price of the band
+     */
+    @Getter
+    private final double minPrice;
+
+    /**
+     * highest price of the band
+     */
+    @Getter
+    private final double maxPrice;
+
+    private final boolean buy;
+
+    private final BigDecimal decimalMinPrice;
+
+    private final BigDecimal decimalTickSize;
+
+    private final int size;
+
+    /**
+     * 1-based Fenwick tree over the ticks, best first
+     */
+    private final AtomicLongArray tree;
+
+    /**
+     * @param orderDirection side of the book
+     * @param tickSize price step
+     * @param minPrice lowest price of the band
+     * @param maxPrice highest price of the band
+     */
+    public DepthIndex(OrderDirection orderDirection, double tickSize, double minPrice, double maxPrice) {
+        double ticks = (maxPrice - minPrice) / tickSize;
+        if (!(tickSize > 0) || !(ticks >= 0) || ticks >= Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("invalid price band [" + minPrice + ", " + maxPrice + "] by " + tickSize);
+        }
+        this.orderDirection = orderDirection;
+        this.tickSize = tickSize;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.buy = OrderDirection.BUY.equals(orderDirection);
+        this.decimalMinPrice = BigDecimal.valueOf(minPrice);
+        this.decimalTickSize = BigDecimal.valueOf(tickSize);
+        this.size = (int) Math.round(ticks) + 1;
+        this.tree = new AtomicLongArray(size + 1);
+    }
+
+    /**
+     * @param price
+     * @return whether the price is a tick of the band
+     */
+    public boolean isValidPrice(double price) {
+        double ticks = (price - minPrice) / tickSize;
+        long tick = Math.round(ticks);
+        return tick >= 0 && tick < size && Math.abs(ticks - tick) < EPSILON;
+    }
+
+    /**
+     * change the quantity of a level
+     * @param price tick of the band
+     * @param delta lots added, negative when taken off
+     */
+    public void add(double price, long delta) {
+        if (!isValidPrice(price)) {
+            throw new IllegalArgumentException("price " + price + " is outside the depth index band");
+        }
+        int tick = (int) Math.round((price - minPrice) / tickSize);
+        for (int node = (buy ? size - tick : tick + 1); node <= size; node += node & -node) {
+            tree.getAndAdd(node, delta);
+        }
+    }
+
+    /**
+     * @return quantity of the whole side
+     */
+    public long getTotalQuantity() {
+        return prefix(size);
+    }
+
+    /**
+     * @param price any price, on the grid or not
+     * @return quantity of the levels strictly better than the price
+     */
+    public long getQuantityBetterThan(double price) {
+        double ticks = (price - minPrice) / tickSize;
+        long count = buy ? size - 1 - (long) Math.floor(ticks + EPSILON) : (long) Math.ceil(ticks - EPSILON);
+        return prefix((int) Math.max(0, Math.min(size, count)));
+    }
+
+    /**
+     * @param price any price, on the grid or not
+     * @return quantity of the levels at the price or better
+     */
+    public long getQuantityThrough(double price) {
+        double ticks = (price - minPrice) / tickSize;
+        long count = buy ? size - (long) Math.ceil(ticks - EPSILON) : (long) Math.floor(ticks + EPSILON) + 1;
+        return prefix((int) Math.max(0, Math.min(size, count)));
+    }
+
+    /**
+     * how deep an aggressive order must sweep this side to fill
+     * @param quantity lots to fill
+     * @return worst price the sweep reaches, NaN when the side holds less than the quantity
+     */
+    public double getSweepPrice(long quantity) {
+        if (quantity <= 0) {
+            return Double.NaN;
+        }
+        // binary lifting: the longest prefix still holding less than the quantity
+        int position = 0;
+        long remaining = quantity;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int node = position + step;
+            if (node <= size) {
+                long sum = tree.get(node);
+                if (sum < remaining) {
+                    position = node;
+                    remaining -= sum;
+                }
+            }
+        }
+        if (position == size) {
+            return Double.NaN;
+        }
+        return priceOf(position);
+    }
+
+    /**
+     * @param position 0-based position, best first
+     * @return price of the position as the double nearest the decimal grid price, like the book keys
+     */
+    private double priceOf(int position) {
+        int tick = buy ? size - 1 - position : position;
+        return decimalMinPrice.add(decimalTickSize.multiply(BigDecimal.valueOf(tick))).doubleValue();
+    }
+
+    /**
+     * @param count number of best positions
+     * @return their quantity
+     */
+    private long prefix(int count) {
+        long sum = 0;
+        for (int node = count; node > 0; node -= node & -node) {
+            sum += tree.get(node);
+        }
+        return sum;
+    }
+
+    /**
+     * empty every level
+     */
+    public void clear() {
+        for (int node = 1; node <= size; node++) {
+            tree.set(node, 0);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.stock.engine.component;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point scales of one tradable symbol.
+ * <p>
+ * Prices are carried as a number of ticks and quantities as a number of lots, so matching only
+ * needs {@code long} arithmetic. {@link BigDecimal} is converted here, at the API edge.
+ */
+@Getter
+public class Instrument {
+
+    /**
+     * symbol the scales apply to
+     */
+    private final String symbol;
+
+    /**
+     * smallest price increment
+     */
+    private final BigDecimal tickSize;
+
+    /**
+     * smallest quantity increment
+     */
+    private final BigDecimal lotSize;
+
+    public Instrument(String symbol, BigDecimal tickSize, BigDecimal lotSize) {
+        if (tickSize.signum() < 1 || lotSize.signum() < 1) {
+            throw new IllegalArgumentException("tick size and lot size must be positive");
+        }
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.lotSize = lotSize;
+    }
+
+    public long toTicks(BigDecimal price) {
+        return scale(price, tickSize, "price");
+    }
+
+    public BigDecimal toPrice(long ticks) {
+        return tickSize.multiply(BigDecimal.valueOf(ticks));
+    }
+
+    public long toLots(BigDecimal quantity) {
+        return scale(quantity, lotSize, "quantity");
+    }
+
+    public BigDecimal toQuantity(long lots) {
+        return lotSize.multiply(BigDecimal.valueOf(lots));
+    }
+
+    private static long scale(BigDecimal value, BigDecimal unit, String name) {
+        try {
+            return value.divide(unit).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " " + value + " is not a multiple of " + unit, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Instrument symbol:" + symbol + ", tick size:" + tickSize + ", lot size:" + lotSize;
+    }
+}
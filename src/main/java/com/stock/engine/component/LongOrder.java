@@ -0,0 +1,165 @@
+package com.stock.engine.component;
+
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Order with fixed-point price and quantity, see {@link Instrument}.
+ * <p>
+ * Meant for a single matcher thread: fills are plain {@code long} updates. A resting order is
+ * also a node of the intrusive list of its price level, so it can leave the queue in O(1).
+ * Orders can be recycled through a {@link LongOrderPool}.
+ */
+@Getter
+public class LongOrder {
+    /**
+     * order id, 0 until assigned
+     */
+    @Setter
+    protected long orderId;
+    /**
+     * symbol of the instrument, only needed when the order is routed between books
+     */
+    protected String symbol;
+    /**
+     * account the order trades for, 0 when none
+     */
+    @Setter
+    protected long accountId;
+    /**
+     * price in ticks
+     */
+    protected long price;
+    /**
+     * submit quantity in lots
+     */
+    protected long submitQuantity;
+    /**
+     * deal quantity in lots
+     */
+    protected long dealQuantity;
+    /**
+     * available quantity in lots
+     */
+    protected long availableQuantity;
+    /**
+     * order direction
+     */
+    protected OrderDirection orderDirection;
+    /**
+     * what happens to the part that does not fill on arrival
+     */
+    protected OrderType orderType;
+    /**
+     * price in ticks a trade has to reach to trigger a stop order, 0 for other orders
+     */
+    @Setter
+    protected long stopPrice;
+    /**
+     * previous order of the price level queue, maintained by the level
+     */
+    @Setter
+    protected LongOrder prev;
+    /**
+     * next order of the price level queue, maintained by the level
+     */
+    @Setter
+    protected LongOrder next;
+    /**
+     * pool the order was borrowed from, null when it was created directly
+     */
+    @Getter(AccessLevel.NONE)
+    LongOrderPool pool;
+    /**
+     * whether the order is back in its pool
+     */
+    @Getter(AccessLevel.NONE)
+    boolean free;
+
+    public LongOrder(long price, long submitQuantity, OrderDirection orderDirection) {
+        this(null, price, submitQuantity, orderDirection);
+    }
+
+    public LongOrder(String symbol, long price, long submitQuantity, OrderDirection orderDirection) {
+        this(0, symbol, price, submitQuantity, orderDirection);
+    }
+
+    public LongOrder(long orderId, String symbol, long price, long submitQuantity, OrderDirection orderDirection) {
+        this(orderId, symbol, price, submitQuantity, orderDirection, OrderType.LIMIT);
+    }
+
+    /**
+     * @param orderId
+     * @param symbol
+     * @param price price in ticks, ignored by market orders
+     * @param submitQuantity
+     * @param orderDirection
+     * @param orderType
+     */
+    public LongOrder(long orderId, String symbol, long price, long submitQuantity, OrderDirection orderDirection,
+                     OrderType orderType) {
+        this.orderId = orderId;
+        this.symbol = symbol;
+        this.price = price;
+        this.submitQuantity = submitQuantity;
+        this.orderDirection = orderDirection;
+        this.availableQuantity = submitQuantity;
+        this.orderType = orderType;
+    }
+
+    /**
+     * @return whether the order is a stop order still waiting for its trigger
+     */
+    public boolean isStop() {
+        return OrderType.STOP.equals(orderType) || OrderType.STOP_LIMIT.equals(orderType);
+    }
+
+    /**
+     * turn a triggered stop order into the market or limit order it stands for
+     */
+    public void trigger() {
+        orderType = OrderType.STOP.equals(orderType) ? OrderType.MARKET : OrderType.LIMIT;
+    }
+
+    /**
+     * @param quantity dealt lots
+     */
+    public void fill(long quantity) {
+        dealQuantity += quantity;
+        availableQuantity = submitQuantity - dealQuantity;
+    }
+
+    /**
+     * take lots off the order without dealing them
+     * @param quantity reduced lots
+     */
+    public void reduce(long quantity) {
+        submitQuantity -= quantity;
+        availableQuantity = submitQuantity - dealQuantity;
+    }
+
+    /**
+     * turn the order into a fresh limit order under the same id, for a cancel-replace
+     * @param price new price in ticks
+     * @param quantity new open quantity in lots
+     */
+    public void replace(long price, long quantity) {
+        this.price = price;
+        this.submitQuantity = quantity;
+        this.dealQuantity = 0;
+        this.availableQuantity = quantity;
+        this.orderType = OrderType.LIMIT;
+    }
+
+    @Override
+    public String toString() {
+        return "LongOrder id:" + this.orderId + ", symbol:" + this.symbol + ", account:" + this.accountId
+                + ", price:" + this.price
+                + ", submit quantity:" + this.submitQuantity + ", deal quantity:" + this.dealQuantity
+                + ", availableQuantity:" + this.availableQuantity + ", order direction:" + this.orderDirection
+                + ", order type:" + this.orderType + ", stop price:" + this.stopPrice;
+    }
+}
@@ -0,0 +1,119 @@
+package com.stock.engine.component;
+
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recycles {@link LongOrder}s, one pool per borrowing thread.
+ * <p>
+ * A borrowed order remembers its pool. Once submitted it belongs to the engine, which hands it
+ * back through {@link #release(LongOrder)} when it leaves the book, or when it never rested; the
+ * caller must not touch it after submitting. Execution reports copy what they need from the
+ * orders, so a listener never sees a recycled order. Free orders are
+ * chained through their own {@link LongOrder#getNext()}, so the pool allocates nothing. Orders
+ * released on the owning thread go straight back on its free chain; orders released on another
+ * thread, typically the matcher, go onto a lock-free return stack the owner takes over when its
+ * free chain runs dry.
+ */
+public class LongOrderPool {
+
+    private static final ThreadLocal<LongOrderPool> CURRENT = ThreadLocal.withInitial(LongOrderPool::new);
+
+    private final Thread owner = Thread.currentThread();
+
+    /**
+     * free orders of the owning thread
+     */
+    private LongOrder free;
+
+    /**
+     * orders released by other threads
+     */
+    private final AtomicReference<LongOrder> returned = new AtomicReference<>();
+
+    /**
+     * number of orders the pool had to create
+     */
+    @Getter
+    private long createdCount;
+
+    /**
+     * @return pool of the calling thread
+     */
+    public static LongOrderPool current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param price price in ticks
+     * @param submitQuantity lots
+     * @param orderDirection
+     * @return limit order without an id
+     */
+    public LongOrder borrow(long price, long submitQuantity, OrderDirection orderDirection) {
+        return borrow(0, null, price, submitQuantity, orderDirection, OrderType.LIMIT);
+    }
+
+    /**
+     * take a free order, or create one when there is none; on the owning thread only
+     * @return order set like a new one
+     */
+    public LongOrder borrow(long orderId, String symbol, long price, long submitQuantity, OrderDirection orderDirection,
+                            OrderType orderType) {
+        LongOrder order = free;
+        if (order == null) {
+            order = returned.getAndSet(null);
+        }
+        if (order == null) {
+            createdCount++;
+            order = new LongOrder(orderId, symbol, price, submitQuantity, orderDirection, orderType);
+            order.pool = this;
+            return order;
+        }
+        free = order.next;
+        order.next = null;
+        order.free = false;
+        order.orderId = orderId;
+        order.symbol = symbol;
+        order.accountId = 0;
+        order.price = price;
+        order.stopPrice = 0;
+        order.submitQuantity = submitQuantity;
+        order.dealQuantity = 0;
+        order.availableQuantity = submitQuantity;
+        order.orderDirection = orderDirection;
+        order.orderType = orderType;
+        return order;
+    }
+
+    /**
+     * hand an order back to the pool it was borrowed from; orders that were not borrowed are left
+     * to the GC
+     * @param order order off the book that nothing references any more
+     */
+    public static void release(LongOrder order) {
+        LongOrderPool pool = order.pool;
+        if (pool == null) {
+            return;
+        }
+        if (order.free) {
+            throw new IllegalStateException("order " + order.getOrderId() + " is released twice");
+        }
+        order.free = true;
+        order.prev = null;
+        if (Thread.currentThread() == pool.owner) {
+            order.next = pool.free;
+            pool.free = order;
+            return;
+        }
+        AtomicReference<LongOrder> returned = pool.returned;
+        LongOrder head;
+        do {
+            head = returned.get();
+            order.next = head;
+        } while (!returned.compareAndSet(head, order));
+    }
+}
@@ -16,9 +16,13 @@ public class Order extends AbstractOrder implements Serializable {
         super(price, submitQuantity, orderDirection);
     }
 
+    public Order(long orderId, BigDecimal price, BigDecimal submitQuantity, OrderDirection orderDirection) {
+        super(orderId, price, submitQuantity, orderDirection);
+    }
+
     @Override
     public String toString() {
-        return "Order price:" + this.price
+        return "Order id:" + this.orderId + ", price:" + this.price
                 + ", submit quantity:" + this.submitQuantity + ", deal quantity:" + this.dealQuantity.get()
                 + ", availableQuantity:" + this.availableQuantity + ", order direction:" + this.orderDirection;
     }
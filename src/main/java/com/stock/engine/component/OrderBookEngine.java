@@ -1,4 +1,8 @@
 package com.stock.engine.component;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.metrics.EngineMetrics;
+import com.stock.engine.tape.TradeTape;
+
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -9,25 +13,89 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Aggregated {@code double}/{@code int} book matched from any number of threads with CAS.
+ * <p>
+ * Built over a price band it also keeps a {@link DepthIndex} a side, so cumulative depth and
+ * sweep price queries are O(log ticks) instead of a scan of the book.
+ * <p>
+ * A level taken down to nothing is CAS'd to {@value #REMOVED} before it leaves the map, and
+ * adders never touch a removed level: they help take it out and retry on a fresh one. Every
+ * quantity change of a level is then a single CAS on a live level, mirrored once into the depth
+ * index, so the index holds the exact sums of the map whatever the writers race on.
+ */
 public class OrderBookEngine {
 
+    /**
+     * quantity of a level that has left, or is leaving, the map
+     */
+    private static final int REMOVED = -1;
+
     private Map<Double, AtomicInteger>  buyOrders      = new ConcurrentSkipListMap<>(
             Comparator.reverseOrder());
 
     private Map<Double, AtomicInteger>  sellOrders     = new ConcurrentSkipListMap<>();
 
-    private List<Pair<Double, Integer>> executedOrders = new ArrayList<>();
+    private TradeTape                    tradeTape      = new TradeTape();
+
+    private EngineMetrics                metrics;
+
+    /**
+     * cumulative depth of each side, null when the book has no price band
+     */
+    private final DepthIndex            bidDepth;
+
+    private final DepthIndex            askDepth;
+
+    public OrderBookEngine() {
+        this.bidDepth = null;
+        this.askDepth = null;
+    }
+
+    /**
+     * book indexing its cumulative depth over the band; prices off the band grid are rejected
+     * @param tickSize price step
+     * @param minPrice lowest price of the band
+     * @param maxPrice highest price of the band
+     */
+    public OrderBookEngine(double tickSize, double minPrice, double maxPrice) {
+        this.bidDepth = new DepthIndex(OrderDirection.BUY, tickSize, minPrice, maxPrice);
+        this.askDepth = new DepthIndex(OrderDirection.SELL, tickSize, minPrice, maxPrice);
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * record matching latency, levels swept and CAS retries, take concurrent metrics when orders
+     * come from several threads
+     * @param metrics
+     */
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public TradeTape getTradeTape() {
+        return tradeTape;
+    }
 
-    public int getExecutedOrdersCount() {
-        return executedOrders.size();
+    /**
+     * record fills on another tape, e.g. one spilling to disk
+     * @param tradeTape
+     */
+    public void setTradeTape(TradeTape tradeTape) {
+        this.tradeTape = tradeTape;
+    }
+
+    public long getExecutedOrdersCount() {
+        return tradeTape.getCount();
     }
 
     public void printExecutedBook() {
         System.out.println("");
         System.out.println("____ exec ____ ");
-        for (Pair<Double, Integer> pair : executedOrders) {
-            System.out.println(pair.getRight() + " @ " + pair.getLeft());
-        }
+        System.out.println(tradeTape.summarize());
         System.out.println("______________ ");
     }
 
@@ -51,27 +119,34 @@ public class OrderBookEngine {
     }
 
     public void receiveOrder(double price, int quantity, boolean buy) {
+        checkPrice(price);
+        EngineMetrics metrics = this.metrics;
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        int levels = 0;
         if (buy) {
             // BUY
             Iterator<Double> ask_prices = sellOrders.keySet().iterator();
-            while (ask_prices.hasNext()) {
+            while (quantity > 0 && ask_prices.hasNext()) {
                 Double ask_price = ask_prices.next();
-                if (quantity > 0 && price >= ask_price) {
-                    AtomicInteger ask_quantity = sellOrders.get(ask_price);
-                    if (Objects.isNull(ask_quantity)
-                            || (Objects.nonNull(ask_quantity) && ask_quantity.get() == 0)) {
-                        continue;
-                    }
-                    Integer originalAskQuantity = ask_quantity.get();
-                    if (quantity >= originalAskQuantity && removeSellOrder(ask_price, ask_quantity,
-                            originalAskQuantity, quantity)) {
-                        quantity = quantity - originalAskQuantity;
-                        executedOrders.add(new Pair<>(ask_price, originalAskQuantity));
-                    } else if (removeSellOrder(ask_price, ask_quantity, originalAskQuantity,
-                            quantity)) {
-                        executedOrders.add(new Pair<>(ask_price, quantity));
-                        quantity = 0;
-                    }
+                if (price < ask_price) {
+                    break;
+                }
+                AtomicInteger ask_quantity = sellOrders.get(ask_price);
+                if (Objects.isNull(ask_quantity)
+                        || (Objects.nonNull(ask_quantity) && ask_quantity.get() <= 0)) {
+                    continue;
+                }
+                Integer originalAskQuantity = ask_quantity.get();
+                if (quantity >= originalAskQuantity && removeSellOrder(ask_price, ask_quantity,
+                        originalAskQuantity, quantity)) {
+                    quantity = quantity - originalAskQuantity;
+                    tradeTape.append(ask_price, originalAskQuantity);
+                    levels++;
+                } else if (removeSellOrder(ask_price, ask_quantity, originalAskQuantity,
+                        quantity)) {
+                    tradeTape.append(ask_price, quantity);
+                    quantity = 0;
+                    levels++;
                 }
             }
             if (quantity > 0) {
@@ -79,71 +154,133 @@ public class OrderBookEngine {
             }
         } else {
             Iterator<Double> bid_prices = buyOrders.keySet().iterator();
-            while (bid_prices.hasNext()) {
+            while (quantity > 0 && bid_prices.hasNext()) {
                 Double bid_price = bid_prices.next();
-                if (quantity > 0 && price <= bid_price) {
-                    AtomicInteger bid_quantity = buyOrders.get(bid_price);
-                    if (Objects.isNull(bid_quantity)
-                            || (Objects.nonNull(bid_quantity) && bid_quantity.get() == 0)) {
-                        continue;
-                    }
-                    Integer originalBidQuantity = bid_quantity.get();
-                    if (quantity >= originalBidQuantity
-                            && removeBuyOrder(bid_price, bid_quantity, originalBidQuantity, quantity)) {
-                        quantity = quantity - originalBidQuantity;
-                        executedOrders.add(new Pair<>(bid_price, originalBidQuantity));
-                    } else if (removeBuyOrder(bid_price, bid_quantity, originalBidQuantity,
-                            quantity)) {
-                        executedOrders.add(new Pair<>(bid_price, quantity));
-                        quantity = 0;
-                    }
+                if (price > bid_price) {
+                    break;
+                }
+                AtomicInteger bid_quantity = buyOrders.get(bid_price);
+                if (Objects.isNull(bid_quantity)
+                        || (Objects.nonNull(bid_quantity) && bid_quantity.get() <= 0)) {
+                    continue;
+                }
+                Integer originalBidQuantity = bid_quantity.get();
+                if (quantity >= originalBidQuantity
+                        && removeBuyOrder(bid_price, bid_quantity, originalBidQuantity, quantity)) {
+                    quantity = quantity - originalBidQuantity;
+                    tradeTape.append(bid_price, originalBidQuantity);
+                    levels++;
+                } else if (removeBuyOrder(bid_price, bid_quantity, originalBidQuantity,
+                        quantity)) {
+                    tradeTape.append(bid_price, quantity);
+                    quantity = 0;
+                    levels++;
                 }
             }
             if (quantity > 0) {
                 addSellOffer(price, quantity);
             }
         }
+        if (metrics != null) {
+            metrics.getMatching().record(System.nanoTime() - startNanos);
+            metrics.getOrderCount().increment();
+            if (levels > 0) {
+                metrics.getLevelsSwept().record(levels);
+                metrics.getFillCount().add(levels);
+            }
+        }
     }
 
     public void addBuyOrder(double price, int quantity) {
-        if (Objects.isNull(buyOrders.computeIfPresent(price, (k, oldValue) -> {
-            oldValue.getAndAdd(quantity);
-            return oldValue;
-        }))) {
-            buyOrders.putIfAbsent(price, new AtomicInteger(quantity));
-        }
+        checkPrice(price);
+        add(buyOrders, bidDepth, price, quantity);
     }
 
     public void addSellOffer(double price, int quantity) {
-        if (Objects.isNull(sellOrders.computeIfPresent(price, (k, oldValue) -> {
-            oldValue.getAndAdd(quantity);
-            return oldValue;
-        }))) {
-            sellOrders.putIfAbsent(price, new AtomicInteger(quantity));
+        checkPrice(price);
+        add(sellOrders, askDepth, price, quantity);
+    }
+
+    /**
+     * add to the live level at the price, or put a new one, retrying until one of them sticks
+     */
+    private static void add(Map<Double, AtomicInteger> side, DepthIndex depth, double price, int quantity) {
+        while (true) {
+            AtomicInteger level = side.get(price);
+            if (level == null) {
+                if (side.putIfAbsent(price, new AtomicInteger(quantity)) != null) {
+                    continue;
+                }
+                break;
+            }
+            int levelQuantity = level.get();
+            if (levelQuantity == REMOVED) {
+                side.remove(price, level);
+                continue;
+            }
+            if (level.compareAndSet(levelQuantity, levelQuantity + quantity)) {
+                break;
+            }
+        }
+        if (depth != null) {
+            depth.add(price, quantity);
         }
     }
 
     public boolean removeBuyOrder(double price, AtomicInteger buyQuantity, int originalQuantity,
                                   int quantity) {
+        boolean removed;
         if (originalQuantity <= quantity) {
-            if (buyQuantity.compareAndSet(originalQuantity, 0)) {
-                return buyOrders.remove(price, buyQuantity);
+            removed = take(bidDepth, price, buyQuantity, originalQuantity, REMOVED);
+            if (removed) {
+                buyOrders.remove(price, buyQuantity);
             }
-            return false;
         } else {
-            return buyQuantity.compareAndSet(originalQuantity, originalQuantity - quantity);
+            removed = take(bidDepth, price, buyQuantity, originalQuantity, originalQuantity - quantity);
         }
+        countRetry(removed);
+        return removed;
     }
 
     public boolean removeSellOrder(double price, AtomicInteger sellQuantity, int originalQuantity,
                                    int quantity) {
+        boolean removed;
         if (originalQuantity <= quantity) {
-            if (sellQuantity.compareAndSet(originalQuantity, 0)) {
-                return sellOrders.remove(price, sellQuantity);
+            removed = take(askDepth, price, sellQuantity, originalQuantity, REMOVED);
+            if (removed) {
+                sellOrders.remove(price, sellQuantity);
             }
-            return false;
         } else {
-            return sellQuantity.compareAndSet(originalQuantity, originalQuantity - quantity);
+            removed = take(askDepth, price, sellQuantity, originalQuantity, originalQuantity - quantity);
+        }
+        countRetry(removed);
+        return removed;
+    }
+
+    /**
+     * CAS a live level down to its new quantity, {@link #REMOVED} to take all of it, and mirror
+     * what was taken in the depth index
+     */
+    private static boolean take(DepthIndex depth, double price, AtomicInteger levelQuantity, int originalQuantity,
+                                int newQuantity) {
+        if (originalQuantity <= 0 || !levelQuantity.compareAndSet(originalQuantity, newQuantity)) {
+            return false;
+        }
+        if (depth != null) {
+            depth.add(price, Math.max(newQuantity, 0) - originalQuantity);
+        }
+        return true;
+    }
+
+    private void checkPrice(double price) {
+        if (bidDepth != null && !bidDepth.isValidPrice(price)) {
+            throw new IllegalArgumentException("price " + price + " is outside the book price band");
+        }
+    }
+
+    private void countRetry(boolean removed) {
+        if (!removed && metrics != null) {
+            metrics.getCasRetryCount().increment();
         }
     }
 
@@ -155,11 +292,18 @@ public class OrderBookEngine {
         return buyOrders.size();
     }
 
+    /**
+     * @param bestPrice
+     * @return bid quantity priced above {@code bestPrice}
+     */
     public int getBidQuantity(double bestPrice) {
+        if (bidDepth != null) {
+            return (int) bidDepth.getQuantityBetterThan(bestPrice);
+        }
         int bidQuantity = 0;
         for (double price : buyOrders.keySet()) {
             if (price > bestPrice) {
-                bidQuantity += buyOrders.get(price).get();
+                bidQuantity += quantityOf(buyOrders.get(price));
             }
         }
 
@@ -174,23 +318,78 @@ public class OrderBookEngine {
         return getAskQuantity(Integer.MAX_VALUE);
     }
 
+    /**
+     * @param bestPrice
+     * @return ask quantity priced below {@code bestPrice}
+     */
     public int getAskQuantity(double bestPrice) {
+        if (askDepth != null) {
+            return (int) askDepth.getQuantityBetterThan(bestPrice);
+        }
         int askQuantity = 0;
         for (double price : sellOrders.keySet()) {
             if (price < bestPrice) {
-                askQuantity += sellOrders.get(price).get();
+                askQuantity += quantityOf(sellOrders.get(price));
             }
         }
         return askQuantity;
     }
 
+    /**
+     * how deep a sell must sweep the bids to fill
+     * @param quantity
+     * @return lowest bid price the sweep reaches, NaN when the bids hold less than the quantity
+     */
+    public double getBidSweepPrice(long quantity) {
+        if (bidDepth != null) {
+            return bidDepth.getSweepPrice(quantity);
+        }
+        return sweepPrice(buyOrders, quantity);
+    }
+
+    /**
+     * how deep a buy must sweep the asks to fill
+     * @param quantity
+     * @return highest ask price the sweep reaches, NaN when the asks hold less than the quantity
+     */
+    public double getAskSweepPrice(long quantity) {
+        if (askDepth != null) {
+            return askDepth.getSweepPrice(quantity);
+        }
+        return sweepPrice(sellOrders, quantity);
+    }
+
+    private static double sweepPrice(Map<Double, AtomicInteger> side, long quantity) {
+        if (quantity <= 0) {
+            return Double.NaN;
+        }
+        for (Map.Entry<Double, AtomicInteger> entry : side.entrySet()) {
+            quantity -= quantityOf(entry.getValue());
+            if (quantity <= 0) {
+                return entry.getKey();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @return quantity of a level, 0 once it is gone
+     */
+    private static int quantityOf(AtomicInteger level) {
+        return level == null ? 0 : Math.max(level.get(), 0);
+    }
+
     public void reset() {
         System.out.println("size ask = " + sellOrders.size());
         System.out.println("size bid = " + buyOrders.size());
-        System.out.println("executed orders = " + executedOrders.size());
+        System.out.println("executed orders = " + tradeTape.getCount());
         sellOrders.clear();
         buyOrders.clear();
-        executedOrders.clear();
+        tradeTape.clear();
+        if (bidDepth != null) {
+            bidDepth.clear();
+            askDepth.clear();
+        }
     }
 
 }
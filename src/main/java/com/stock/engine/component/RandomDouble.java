@@ -16,7 +16,7 @@ public class RandomDouble {
 	int counter = 0;
 	
 	public double nextInt() {
-		if(counter == MAX) {
+		if(counter == MAX-1) {
 			counter = 0;
 		}
 		else {
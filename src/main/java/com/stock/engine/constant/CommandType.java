@@ -0,0 +1,38 @@
+package com.stock.engine.constant;
+
+/**
+ * inbound command kinds, with their code in binary records
+ */
+public enum CommandType {
+    NEW_ORDER((byte) 1),
+    CANCEL_ORDER((byte) 2),
+    AMEND_ORDER((byte) 3),
+    START_AUCTION((byte) 4),
+    UNCROSS((byte) 5);
+
+    private static final CommandType[] BY_CODE = new CommandType[128];
+
+    static {
+        for (CommandType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    CommandType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @param code binary code
+     * @return command type, or null for an unknown code
+     */
+    public static CommandType valueOf(byte code) {
+        return code > 0 ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stock.engine.constant;
+
+/**
+ * how an order treats the part it cannot fill on arrival, with its code in binary records; a zero
+ * code is a limit order, so records written before order types existed still read as limits
+ */
+public enum OrderType {
+    /**
+     * the unfilled rest goes on the book at the order price
+     */
+    LIMIT((byte) 0),
+    /**
+     * fill at any price, the unfilled rest is cancelled
+     */
+    MARKET((byte) 1),
+    /**
+     * immediate or cancel: fill up to the order price, the unfilled rest is cancelled
+     */
+    IOC((byte) 2),
+    /**
+     * fill or kill: fill completely up to the order price, or not at all
+     */
+    FOK((byte) 3),
+    /**
+     * parked until a trade reaches the stop price, then a market order
+     */
+    STOP((byte) 4),
+    /**
+     * parked until a trade reaches the stop price, then a limit order
+     */
+    STOP_LIMIT((byte) 5);
+
+    private static final OrderType[] BY_CODE = new OrderType[128];
+
+    static {
+        for (OrderType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    OrderType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @param code binary code
+     * @return order type, or null for an unknown code
+     */
+    public static OrderType valueOf(byte code) {
+        return code >= 0 ? BY_CODE[code] : null;
+    }
+}
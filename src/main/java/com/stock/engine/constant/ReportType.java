@@ -0,0 +1,45 @@
+package com.stock.engine.constant;
+
+/**
+ * outbound report kinds, with their code in binary messages
+ */
+public enum ReportType {
+    /**
+     * command applied
+     */
+    ACK((byte) 16),
+    /**
+     * command refused, nothing changed
+     */
+    REJECT((byte) 17),
+    /**
+     * an order of the session traded
+     */
+    FILL((byte) 18);
+
+    private static final ReportType[] BY_CODE = new ReportType[128];
+
+    static {
+        for (ReportType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    ReportType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @param code binary code
+     * @return report type, or null for an unknown code
+     */
+    public static ReportType valueOf(byte code) {
+        return code > 0 ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.stock.engine.constant;
+
+/**
+ * pre-trade limit an order broke
+ */
+public enum RiskRejection {
+    /**
+     * order larger than the account may send at once
+     */
+    ORDER_QUANTITY,
+    /**
+     * too many lots of the account working on the book
+     */
+    OPEN_QUANTITY,
+    /**
+     * too much notional of the account working on the book
+     */
+    NOTIONAL,
+    /**
+     * the position could grow past its limit if every working order filled
+     */
+    POSITION,
+    /**
+     * limit price too far from the best bid or ask
+     */
+    PRICE_BAND
+}
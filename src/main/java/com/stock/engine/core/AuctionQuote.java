@@ -0,0 +1,31 @@
+package com.stock.engine.core;
+
+import lombok.Getter;
+
+/**
+ * equilibrium of a call auction as computed by {@link LongOrderEngine#getIndicativeAuction(AuctionQuote)};
+ * a caller reuses one quote for every query
+ */
+@Getter
+public class AuctionQuote {
+
+    /**
+     * equilibrium price in ticks, 0 when the book does not cross
+     */
+    long price;
+
+    /**
+     * lots that trade at the equilibrium price
+     */
+    long volume;
+
+    /**
+     * lots left over at the equilibrium price, positive for buyers and negative for sellers
+     */
+    long imbalance;
+
+    @Override
+    public String toString() {
+        return "AuctionQuote price:" + price + ", volume:" + volume + ", imbalance:" + imbalance;
+    }
+}
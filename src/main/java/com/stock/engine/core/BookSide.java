@@ -0,0 +1,63 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+
+/**
+ * One side of a {@link LongOrderEngine} book: price levels in priority order, best first.
+ * <p>
+ * Implementations are single writer and only hold non-empty levels, the engine hands a level
+ * back through {@link #removeLevel(PriceLevel)} once its last order is gone.
+ */
+public interface BookSide {
+
+    /**
+     * @return side of the book
+     */
+    OrderDirection getOrderDirection();
+
+    /**
+     * @param price price in ticks
+     * @return whether an order at this price can rest on this side
+     */
+    boolean isValidPrice(long price);
+
+    /**
+     * @return best level, or null when the side is empty
+     */
+    PriceLevel best();
+
+    /**
+     * @param level current level
+     * @return next level in priority order, or null when {@code level} is the last one
+     */
+    PriceLevel next(PriceLevel level);
+
+    /**
+     * @param price price in ticks
+     * @return level at the price, or null when there is none
+     */
+    PriceLevel get(long price);
+
+    /**
+     * @param price price in ticks
+     * @return level at the price, added to the side if needed
+     */
+    PriceLevel getOrCreate(long price);
+
+    /**
+     * drop an emptied level
+     * @param level
+     */
+    void removeLevel(PriceLevel level);
+
+    /**
+     * @return number of levels
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear();
+}
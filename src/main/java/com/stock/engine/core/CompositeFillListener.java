@@ -0,0 +1,66 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.RiskRejection;
+
+import java.util.Arrays;
+
+/**
+ * {@link FillListener} handing every callback to several listeners in the order they were added.
+ * <p>
+ * An amend is offered to each listener in turn and the first rejection wins, the later listeners
+ * are not asked; listeners that only follow the book never reject.
+ */
+public class CompositeFillListener implements FillListener {
+
+    private final FillListener[] listeners;
+
+    private CompositeFillListener(FillListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * @param first listener called first, may itself be a composite
+     * @param second listener called after it
+     * @return listener calling both
+     */
+    public static CompositeFillListener of(FillListener first, FillListener second) {
+        FillListener[] head = first instanceof CompositeFillListener
+                ? ((CompositeFillListener) first).listeners : new FillListener[]{first};
+        FillListener[] listeners = Arrays.copyOf(head, head.length + 1);
+        listeners[head.length] = second;
+        return new CompositeFillListener(listeners);
+    }
+
+    @Override
+    public void onFill(LongOrder taker, LongOrder maker, long price, long quantity) {
+        for (FillListener listener : listeners) {
+            listener.onFill(taker, maker, price, quantity);
+        }
+    }
+
+    @Override
+    public void onRelease(LongOrder order, long quantity) {
+        for (FillListener listener : listeners) {
+            listener.onRelease(order, quantity);
+        }
+    }
+
+    @Override
+    public void onRestore(LongOrder order) {
+        for (FillListener listener : listeners) {
+            listener.onRestore(order);
+        }
+    }
+
+    @Override
+    public RiskRejection onReplace(LongOrder order, long price, long quantity) {
+        for (FillListener listener : listeners) {
+            RiskRejection rejection = listener.onReplace(order, price, quantity);
+            if (rejection != null) {
+                return rejection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+/**
+ * Price levels of both sides of a book, best first, as of one market data sequence or one book
+ * version. Immutable, so it can be handed to any number of readers.
+ * <p>
+ * A market data subscriber applies the updates with a higher sequence on top of it.
+ */
+public class DepthSnapshot {
+
+    /**
+     * last update sequence or book version the snapshot reflects, -1 when none
+     */
+    @Getter
+    private final long sequence;
+
+    private final long[] bidPrices;
+
+    private final long[] bidQuantities;
+
+    private final long[] askPrices;
+
+    private final long[] askQuantities;
+
+    DepthSnapshot(long sequence, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities) {
+        this.sequence = sequence;
+        this.bidPrices = bidPrices;
+        this.bidQuantities = bidQuantities;
+        this.askPrices = askPrices;
+        this.askQuantities = askQuantities;
+    }
+
+    /**
+     * @param orderDirection
+     * @return number of levels of the side
+     */
+    public int getLevelCount(OrderDirection orderDirection) {
+        return OrderDirection.BUY.equals(orderDirection) ? bidPrices.length : askPrices.length;
+    }
+
+    /**
+     * @param orderDirection
+     * @param level 0 for the best level
+     * @return price in ticks
+     */
+    public long getPrice(OrderDirection orderDirection, int level) {
+        return OrderDirection.BUY.equals(orderDirection) ? bidPrices[level] : askPrices[level];
+    }
+
+    /**
+     * @param orderDirection
+     * @param level 0 for the best level
+     * @return available quantity in lots
+     */
+    public long getQuantity(OrderDirection orderDirection, int level) {
+        return OrderDirection.BUY.equals(orderDirection) ? bidQuantities[level] : askQuantities[level];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DepthSnapshot sequence:").append(sequence).append(", bids:");
+        for (int i = 0; i < bidPrices.length; i++) {
+            builder.append(' ').append(bidQuantities[i]).append('@').append(bidPrices[i]);
+        }
+        builder.append(", asks:");
+        for (int i = 0; i < askPrices.length; i++) {
+            builder.append(' ').append(askQuantities[i]).append('@').append(askPrices[i]);
+        }
+        return builder.toString();
+    }
+}
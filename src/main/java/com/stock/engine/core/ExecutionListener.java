@@ -0,0 +1,15 @@
+package com.stock.engine.core;
+
+/**
+ * consumer of the {@link ExecutionPublisher} stream, always invoked from its dispatcher thread
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * @param report fill, only valid for the duration of the call
+     * @param sequence sequence of the report
+     * @param endOfBatch true for the last report of the current batch
+     */
+    void onExecution(ExecutionReport report, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,238 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.metrics.EngineMetrics;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Execution report stream of a matching engine.
+ * <p>
+ * The matcher fills preallocated {@link ExecutionReport}s of a {@link RingBuffer}, so publishing
+ * a fill allocates nothing. A dispatcher thread hands published reports to every registered
+ * {@link ExecutionListener} in batches. A ring full of unconsumed reports blocks the matcher
+ * instead of growing the heap; every such stall is counted so a slow listener can be detected.
+ */
+public class ExecutionPublisher implements AutoCloseable {
+
+    /**
+     * default dispatcher thread name
+     */
+    public static final String DISPATCHER_THREAD_NAME = "execution-dispatcher";
+
+    private final RingBuffer<ExecutionReport> ringBuffer;
+
+    private final ThreadFactory threadFactory;
+
+    private volatile ExecutionListener[] listeners = new ExecutionListener[0];
+
+    private volatile boolean running;
+
+    private Thread dispatcherThread;
+
+    /**
+     * number of fills that found the ring full and had to wait for the listeners
+     */
+    @Getter
+    private volatile long stallCount;
+
+    /**
+     * number of reports a listener failed on
+     */
+    @Getter
+    private volatile long failedCount;
+
+    /**
+     * last failure raised by a listener
+     */
+    @Getter
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * where fill publication latency goes, none by default
+     */
+    @Getter
+    @Setter
+    private volatile EngineMetrics metrics;
+
+    public ExecutionPublisher(int bufferSize) {
+        this(bufferSize, runnable -> {
+            Thread thread = new Thread(runnable, DISPATCHER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ExecutionPublisher(int bufferSize, ThreadFactory threadFactory) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, ExecutionReport::new);
+        this.threadFactory = threadFactory;
+    }
+
+    public synchronized void addListener(ExecutionListener listener) {
+        ExecutionListener[] current = listeners;
+        ExecutionListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcherThread = threadFactory.newThread(this::dispatchLoop);
+        dispatcherThread.start();
+    }
+
+    /**
+     * publish one fill, called by the single matcher thread
+     * @param taker incoming order
+     * @param maker resting order
+     * @param price fill price in ticks
+     * @param quantity fill quantity in lots
+     * @return sequence of the report
+     */
+    public long publish(LongOrder taker, LongOrder maker, long price, long quantity) {
+        return publish(taker.getOrderId(), maker.getOrderId(), taker.getOrderDirection(), price, quantity,
+                taker.getAvailableQuantity(), maker.getAvailableQuantity());
+    }
+
+    /**
+     * publish one fill from its copied fields, called by the single matcher thread
+     * @param takerOrderId id of the incoming order
+     * @param makerOrderId id of the resting order
+     * @param takerDirection direction of the incoming order
+     * @param price fill price in ticks
+     * @param quantity fill quantity in lots
+     * @param takerAvailableQuantity lots the incoming order still has after the fill
+     * @param makerAvailableQuantity lots the resting order still has after the fill
+     * @return sequence of the report
+     */
+    public long publish(long takerOrderId, long makerOrderId, OrderDirection takerDirection, long price,
+                        long quantity, long takerAvailableQuantity, long makerAvailableQuantity) {
+        if (!running) {
+            throw new IllegalStateException("execution publisher is not running");
+        }
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            stallCount++;
+            sequence = ringBuffer.next();
+        }
+        long publishNanos = metrics == null ? 0 : System.nanoTime();
+        ringBuffer.get(sequence).set(sequence, System.currentTimeMillis(), publishNanos, takerOrderId, makerOrderId,
+                takerDirection, price, quantity, takerAvailableQuantity, makerAvailableQuantity);
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    /**
+     * publish the buffered fills of an engine batch under consecutive sequences, claiming ring space
+     * once per ring-full of fills and reading the clocks once; called by the single matcher thread
+     * @param fills
+     * @return sequence of the last report, or the current cursor when there is no fill
+     */
+    long publish(FillBuffer fills) {
+        if (!running) {
+            throw new IllegalStateException("execution publisher is not running");
+        }
+        long sequence = ringBuffer.getCursor();
+        long timestamp = System.currentTimeMillis();
+        long publishNanos = metrics == null ? 0 : System.nanoTime();
+        for (int index = 0; index < fills.size(); ) {
+            int n = Math.min(fills.size() - index, ringBuffer.getCapacity());
+            if (ringBuffer.remainingCapacity() < n) {
+                stallCount++;
+            }
+            sequence = ringBuffer.next(n);
+            long lo = sequence - n + 1;
+            for (long claimed = lo; claimed <= sequence; claimed++) {
+                fills.copyTo(index++, ringBuffer.get(claimed), claimed, timestamp, publishNanos);
+            }
+            ringBuffer.publish(lo, sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * @return last sequence every listener has seen
+     */
+    public long getSequence() {
+        return ringBuffer.getConsumerSequence();
+    }
+
+    /**
+     * @return number of reports claimed but not yet consumed
+     */
+    public long getBacklog() {
+        return ringBuffer.getCursor() - ringBuffer.getConsumerSequence();
+    }
+
+    /**
+     * wait until every report published before this call has been dispatched
+     */
+    public void drain() {
+        long target = ringBuffer.getCursor();
+        int idle = 0;
+        while (ringBuffer.getConsumerSequence() < target) {
+            idle = RingBuffer.backOff(idle);
+        }
+    }
+
+    /**
+     * dispatch everything already published and stop the dispatcher thread
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = dispatcherThread;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        long next = ringBuffer.getConsumerSequence() + 1;
+        int idle = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            if (available < next) {
+                if (!running && ringBuffer.getCursor() < next) {
+                    return;
+                }
+                idle = RingBuffer.backOff(idle);
+                continue;
+            }
+            idle = 0;
+            ExecutionListener[] current = listeners;
+            EngineMetrics metrics = this.metrics;
+            for (long sequence = next; sequence <= available; sequence++) {
+                ExecutionReport report = ringBuffer.get(sequence);
+                for (ExecutionListener listener : current) {
+                    try {
+                        listener.onExecution(report, sequence, sequence == available);
+                    } catch (RuntimeException e) {
+                        failedCount++;
+                        lastFailure = e;
+                    }
+                }
+                if (metrics != null && report.getPublishNanos() != 0) {
+                    metrics.getFillPublication().record(System.nanoTime() - report.getPublishNanos());
+                }
+            }
+            ringBuffer.setConsumerSequence(available);
+            next = available + 1;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+/**
+ * One fill between an incoming and a resting order.
+ * <p>
+ * Reports are preallocated slots of the {@link ExecutionPublisher} ring and are overwritten once
+ * every listener has seen them: copy what you need, do not keep the report. A report only holds
+ * values copied at the fill, never the orders: by the time a listener sees it, the orders may be
+ * back in their {@link com.stock.engine.component.LongOrderPool} and reused.
+ */
+@Getter
+public class ExecutionReport {
+
+    /**
+     * sequence of the report in the execution stream
+     */
+    private long sequence;
+
+    /**
+     * wall clock time of the fill in milliseconds
+     */
+    private long timestamp;
+
+    /**
+     * id of the incoming order
+     */
+    private long takerOrderId;
+
+    /**
+     * id of the resting order
+     */
+    private long makerOrderId;
+
+    /**
+     * direction of the incoming order
+     */
+    private OrderDirection takerDirection;
+
+    /**
+     * fill price in ticks
+     */
+    private long price;
+
+    /**
+     * fill quantity in lots
+     */
+    private long quantity;
+
+    /**
+     * lots the incoming order still had after the fill
+     */
+    private long takerAvailableQuantity;
+
+    /**
+     * lots the resting order still had after the fill
+     */
+    private long makerAvailableQuantity;
+
+    /**
+     * {@link System#nanoTime()} at publication, 0 when the publisher has no metrics
+     */
+    private long publishNanos;
+
+    void set(long sequence, long timestamp, long publishNanos, LongOrder taker, LongOrder maker, long price,
+             long quantity, long takerAvailableQuantity, long makerAvailableQuantity) {
+        set(sequence, timestamp, publishNanos, taker.getOrderId(), maker.getOrderId(), taker.getOrderDirection(),
+                price, quantity, takerAvailableQuantity, makerAvailableQuantity);
+    }
+
+    void set(long sequence, long timestamp, long publishNanos, long takerOrderId, long makerOrderId,
+             OrderDirection takerDirection, long price, long quantity, long takerAvailableQuantity,
+             long makerAvailableQuantity) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.publishNanos = publishNanos;
+        this.takerOrderId = takerOrderId;
+        this.makerOrderId = makerOrderId;
+        this.takerDirection = takerDirection;
+        this.price = price;
+        this.quantity = quantity;
+        this.takerAvailableQuantity = takerAvailableQuantity;
+        this.makerAvailableQuantity = makerAvailableQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionReport sequence:" + sequence + ", timestamp:" + timestamp
+                + ", taker id:" + takerOrderId + ", maker id:" + makerOrderId
+                + ", taker direction:" + takerDirection + ", price:" + price + ", quantity:" + quantity
+                + ", taker available:" + takerAvailableQuantity + ", maker available:" + makerAvailableQuantity;
+    }
+}
@@ -0,0 +1,63 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+
+import java.util.Arrays;
+
+/**
+ * fills of one engine batch waiting to be published, with the open quantities both orders had
+ * right after each fill; grows as needed and is reused from batch to batch
+ */
+final class FillBuffer {
+
+    private LongOrder[] takers = new LongOrder[64];
+
+    private LongOrder[] makers = new LongOrder[64];
+
+    private long[] prices = new long[64];
+
+    private long[] quantities = new long[64];
+
+    private long[] takerAvailableQuantities = new long[64];
+
+    private long[] makerAvailableQuantities = new long[64];
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(LongOrder taker, LongOrder maker, long price, long quantity) {
+        if (size == prices.length) {
+            int capacity = size << 1;
+            takers = Arrays.copyOf(takers, capacity);
+            makers = Arrays.copyOf(makers, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            takerAvailableQuantities = Arrays.copyOf(takerAvailableQuantities, capacity);
+            makerAvailableQuantities = Arrays.copyOf(makerAvailableQuantities, capacity);
+        }
+        takers[size] = taker;
+        makers[size] = maker;
+        prices[size] = price;
+        quantities[size] = quantity;
+        takerAvailableQuantities[size] = taker.getAvailableQuantity();
+        makerAvailableQuantities[size] = maker.getAvailableQuantity();
+        size++;
+    }
+
+    void copyTo(int index, ExecutionReport report, long sequence, long timestamp, long publishNanos) {
+        report.set(sequence, timestamp, publishNanos, takers[index], makers[index], prices[index], quantities[index],
+                takerAvailableQuantities[index], makerAvailableQuantities[index]);
+    }
+
+    /**
+     * forget the buffered fills and drop the order references
+     */
+    void clear() {
+        Arrays.fill(takers, 0, size, null);
+        Arrays.fill(makers, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,47 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.RiskRejection;
+
+/**
+ * receives every fill synchronously on the matcher thread
+ */
+public interface FillListener {
+
+    /**
+     * @param taker incoming order, already filled
+     * @param maker resting order, already filled
+     * @param price fill price in ticks
+     * @param quantity fill quantity in lots
+     */
+    void onFill(LongOrder taker, LongOrder maker, long price, long quantity);
+
+    /**
+     * lots of an order went away without trading: a cancel, a reduce, or the part of a market,
+     * IOC or FOK order that did not fill
+     * @param order order before it goes back to its pool
+     * @param quantity lots taken off
+     */
+    default void onRelease(LongOrder order, long quantity) {
+    }
+
+    /**
+     * a resting order is about to be replaced by a limit order at a new price or with more lots;
+     * accepting takes the new price and quantity in place of what the order had open
+     * @param order resting order, still unchanged
+     * @param price new price in ticks
+     * @param quantity new open quantity in lots
+     * @return broken limit to reject the amend with, null to accept it
+     */
+    default RiskRejection onReplace(LongOrder order, long price, long quantity) {
+        return null;
+    }
+
+    /**
+     * a working order was put back into the book from a snapshot, without a check; it holds its
+     * available lots at its price again
+     * @param order resting or parked order
+     */
+    default void onRestore(LongOrder order) {
+    }
+}
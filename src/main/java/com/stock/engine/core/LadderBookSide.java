@@ -0,0 +1,185 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * {@link BookSide} for an instrument trading inside a known price band.
+ * <p>
+ * Every tick of the band owns a preallocated {@link PriceLevel} in a flat array indexed by
+ * {@code price - minPrice}, so lookups are O(1) and adding a level allocates nothing. A bitmap
+ * marks the occupied levels; the best level is kept in a cursor and the next occupied level is
+ * found by scanning the bitmap a word at a time.
+ */
+public class LadderBookSide implements BookSide {
+
+    @Getter
+    private final OrderDirection orderDirection;
+
+    /**
+     * lowest price of the band in ticks
+     */
+    @Getter
+    private final long minPrice;
+
+    /**
+     * highest price of the band in ticks
+     */
+    @Getter
+    private final long maxPrice;
+
+    private final boolean buy;
+
+    private final PriceLevel[] levels;
+
+    /**
+     * one bit per level, set while the level holds orders
+     */
+    private final long[] occupied;
+
+    /**
+     * index of the best level, -1 when empty
+     */
+    private int bestIndex = -1;
+
+    private int size;
+
+    /**
+     * @param orderDirection side of the book
+     * @param minPrice lowest price of the band in ticks
+     * @param maxPrice highest price of the band in ticks
+     */
+    public LadderBookSide(OrderDirection orderDirection, long minPrice, long maxPrice) {
+        if (maxPrice < minPrice || maxPrice - minPrice >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid price band [" + minPrice + ", " + maxPrice + "]");
+        }
+        this.orderDirection = orderDirection;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.buy = OrderDirection.BUY.equals(orderDirection);
+        int capacity = (int) (maxPrice - minPrice + 1);
+        this.levels = new PriceLevel[capacity];
+        for (int i = 0; i < capacity; i++) {
+            levels[i] = new PriceLevel(minPrice + i);
+        }
+        this.occupied = new long[(capacity + 63) >>> 6];
+    }
+
+    @Override
+    public boolean isValidPrice(long price) {
+        return price >= minPrice && price <= maxPrice;
+    }
+
+    @Override
+    public PriceLevel best() {
+        return bestIndex < 0 ? null : levels[bestIndex];
+    }
+
+    @Override
+    public PriceLevel next(PriceLevel level) {
+        int index = (int) (level.getPrice() - minPrice);
+        int next = buy ? previousOccupied(index - 1) : nextOccupied(index + 1);
+        return next < 0 ? null : levels[next];
+    }
+
+    @Override
+    public PriceLevel get(long price) {
+        if (!isValidPrice(price)) {
+            return null;
+        }
+        int index = (int) (price - minPrice);
+        return isOccupied(index) ? levels[index] : null;
+    }
+
+    @Override
+    public PriceLevel getOrCreate(long price) {
+        if (!isValidPrice(price)) {
+            throw new IllegalArgumentException("price " + price + " is outside [" + minPrice + ", " + maxPrice + "]");
+        }
+        int index = (int) (price - minPrice);
+        if (!isOccupied(index)) {
+            occupied[index >>> 6] |= 1L << index;
+            size++;
+            if (bestIndex < 0 || (buy ? index > bestIndex : index < bestIndex)) {
+                bestIndex = index;
+            }
+        }
+        return levels[index];
+    }
+
+    @Override
+    public void removeLevel(PriceLevel level) {
+        int index = (int) (level.getPrice() - minPrice);
+        if (!isOccupied(index)) {
+            return;
+        }
+        occupied[index >>> 6] &= ~(1L << index);
+        size--;
+        if (index == bestIndex) {
+            bestIndex = buy ? previousOccupied(index - 1) : nextOccupied(index + 1);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int index = nextOccupied(0); index >= 0; index = nextOccupied(index + 1)) {
+            levels[index].clear();
+        }
+        Arrays.fill(occupied, 0L);
+        bestIndex = -1;
+        size = 0;
+    }
+
+    private boolean isOccupied(int index) {
+        return (occupied[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param from first index to check
+     * @return lowest occupied index at or above {@code from}, -1 when none
+     */
+    private int nextOccupied(int from) {
+        if (from >= levels.length) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = occupied[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == occupied.length) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+
+    /**
+     * @param from first index to check
+     * @return highest occupied index at or below {@code from}, -1 when none
+     */
+    private int previousOccupied(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = occupied[word] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            if (word-- == 0) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+}
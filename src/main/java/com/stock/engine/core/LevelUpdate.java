@@ -0,0 +1,50 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+/**
+ * New aggregate state of one price level, as published by a {@link MarketDataPublisher}.
+ * <p>
+ * Updates are reused slots: copy what you need, do not keep the update.
+ */
+@Getter
+public class LevelUpdate {
+
+    /**
+     * sequence of the change in the market data stream
+     */
+    private long sequence;
+
+    /**
+     * side of the level
+     */
+    private OrderDirection orderDirection;
+
+    /**
+     * price in ticks
+     */
+    private long price;
+
+    /**
+     * available quantity of the level in lots, 0 once the level is gone
+     */
+    private long quantity;
+
+    void set(long sequence, OrderDirection orderDirection, long price, long quantity) {
+        this.sequence = sequence;
+        this.orderDirection = orderDirection;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    void set(LevelUpdate update) {
+        set(update.sequence, update.orderDirection, update.price, update.quantity);
+    }
+
+    @Override
+    public String toString() {
+        return "LevelUpdate sequence:" + sequence + ", direction:" + orderDirection + ", price:" + price
+                + ", quantity:" + quantity;
+    }
+}
@@ -0,0 +1,1080 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.component.LongOrderPool;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.constant.RiskRejection;
+import com.stock.engine.metrics.EngineMetrics;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.collections4.map.LinkedMap;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Fixed-point variant of {@link SequencedOrderEngine}.
+ * <p>
+ * Prices are ticks and quantities are lots of the engine {@link Instrument}, so matching is
+ * plain {@code long} arithmetic; {@link BigDecimal} only appears in the edge methods that
+ * convert through the instrument. Single writer, like {@link SequencedOrderEngine}.
+ * <p>
+ * Each side of the book is a {@link BookSide}: a {@link SkipListBookSide} by default, or a
+ * {@link LadderBookSide} for instruments trading inside a known price band.
+ * <p>
+ * Every order gets an id, and resting orders are indexed by it in an {@link OrderIndex}. With the
+ * intrusive level queues of {@link PriceLevel} that makes cancel, reduce and amend O(1).
+ * <p>
+ * With a {@link MarketDataPublisher} set, every level change is published as it happens, so
+ * depth consumers do not need {@link #getTopOrders(int, OrderDirection)}.
+ * <p>
+ * Orders can also be submitted as a batch, see {@link #submitOrders(LongOrder[], int, int)}; orders
+ * coming through an {@link OrderSequencer} are batched the same way, one sequencer batch at a time.
+ * <p>
+ * Orders borrowed from a {@link LongOrderPool} go back to it once they leave the book, or right
+ * after matching when they never rest, and once the fills of the running batch are published.
+ * <p>
+ * Readers on other threads poll the {@link TopOfBook} and the latest {@link DepthSnapshot} instead
+ * of the book: both are republished after every change, or after every batch, under the book
+ * version, and neither ever blocks the matcher.
+ * <p>
+ * For opening and closing bursts the engine can run a call auction, see {@link #startAuction()}:
+ * limit orders rest without matching, and {@link #uncross()} trades the crossed book at a single
+ * equilibrium price in one batch before continuous matching resumes.
+ * <p>
+ * Stop and stop-limit orders park in a {@link StopBook} per side until a trade reaches their stop
+ * price. Once an incoming order is done matching, the range its trades reached is popped off the
+ * stop books in one go, and the triggered orders are matched one after the other, buy stops first,
+ * each side by stop price and time. Their own trades trigger the next round; triggered orders
+ * never trigger from inside each other's matching, so a cascade runs as a loop, not a recursion.
+ */
+public class LongOrderEngine implements OrderHandler<LongOrder> {
+
+    /**
+     * instrument the book belongs to
+     */
+    @Getter
+    private final Instrument instrument;
+
+    /**
+     * buy order queue
+     */
+    @Getter
+    private final BookSide buyOrders;
+
+    /**
+     * sell order queue
+     */
+    @Getter
+    private final BookSide sellOrders;
+
+    /**
+     * where fills are reported, none by default
+     */
+    @Getter
+    @Setter
+    private ExecutionPublisher executionPublisher;
+
+    /**
+     * called on the matcher thread for every fill and every release of lots, none by default;
+     * {@link #addFillListener(FillListener)} keeps the ones already set
+     */
+    @Getter
+    @Setter
+    private FillListener fillListener;
+
+    /**
+     * where level changes are published, none by default
+     */
+    @Getter
+    @Setter
+    private MarketDataPublisher marketDataPublisher;
+
+    /**
+     * where matching latency, levels swept and fills go, none by default
+     */
+    @Getter
+    @Setter
+    private EngineMetrics metrics;
+
+    /**
+     * resting orders by id
+     */
+    private final OrderIndex orderIndex = new OrderIndex();
+
+    /**
+     * highest order id seen, the next assigned id follows it
+     */
+    @Getter
+    @Setter
+    private long lastOrderId;
+
+    /**
+     * number of the running batch, 0 outside of a batch
+     */
+    private long batch;
+
+    private long lastBatch;
+
+    /**
+     * fills of the running batch, published when it ends
+     */
+    private final FillBuffer fillBuffer = new FillBuffer();
+
+    /**
+     * levels the running batch changed, in order of their first change
+     */
+    private PriceLevel[] changedLevels = new PriceLevel[64];
+
+    private OrderDirection[] changedDirections = new OrderDirection[64];
+
+    private long[] changedPrices = new long[64];
+
+    private long[] changedQuantities = new long[64];
+
+    private int changedCount;
+
+    /**
+     * orders of the running batch to hand back to their pool once its fills are published
+     */
+    private LongOrder[] releasing = new LongOrder[64];
+
+    private int releasingCount;
+
+    /**
+     * best bid and ask for readers on other threads
+     */
+    @Getter
+    private final TopOfBook topOfBook = new TopOfBook();
+
+    /**
+     * number of published book changes, a batch counts as one
+     */
+    @Getter
+    private long bookVersion;
+
+    private boolean bookChanged;
+
+    private long quotedBidPrice;
+
+    private long quotedBidQuantity;
+
+    private long quotedAskPrice;
+
+    private long quotedAskQuantity;
+
+    /**
+     * levels a side of the published depth snapshots, 0 for no snapshots
+     */
+    @Getter
+    @Setter
+    private int depthSnapshotLevels;
+
+    /**
+     * book versions between two depth snapshots
+     */
+    @Getter
+    @Setter
+    private int depthSnapshotInterval = 1;
+
+    /**
+     * latest depth snapshot, its sequence is the book version it was taken at; null before the first
+     */
+    @Getter
+    private volatile DepthSnapshot depthSnapshot;
+
+    private long depthSnapshotVersion;
+
+    /**
+     * whether orders collect for a call auction instead of matching
+     */
+    @Getter
+    private boolean auction;
+
+    /**
+     * crossing levels of the book, bids best first and asks best first, for the auction equilibrium
+     */
+    private long[] crossBidPrices = new long[64];
+
+    private long[] crossBidQuantities = new long[64];
+
+    private long[] crossAskPrices = new long[64];
+
+    private long[] crossAskQuantities = new long[64];
+
+    private final AuctionQuote uncrossQuote = new AuctionQuote();
+
+    /**
+     * parked buy stops, triggered by trades at or above their stop price
+     */
+    @Getter
+    private final StopBook buyStops = new StopBook(OrderDirection.BUY);
+
+    /**
+     * parked sell stops, triggered by trades at or below their stop price
+     */
+    @Getter
+    private final StopBook sellStops = new StopBook(OrderDirection.SELL);
+
+    /**
+     * price of the last trade in ticks, 0 before the first; only set when rebuilding a book
+     */
+    @Getter
+    @Setter
+    private long lastTradePrice;
+
+    /**
+     * whether there were trades since the stop books were last checked
+     */
+    private boolean traded;
+
+    /**
+     * highest and lowest trade price since the stop books were last checked
+     */
+    private long tradeHigh;
+
+    private long tradeLow;
+
+    private boolean triggering;
+
+    public LongOrderEngine(Instrument instrument) {
+        this(instrument, new SkipListBookSide(OrderDirection.BUY), new SkipListBookSide(OrderDirection.SELL));
+    }
+
+    public LongOrderEngine(Instrument instrument, BookSide buyOrders, BookSide sellOrders) {
+        if (!OrderDirection.BUY.equals(buyOrders.getOrderDirection())
+                || !OrderDirection.SELL.equals(sellOrders.getOrderDirection())) {
+            throw new IllegalArgumentException("book sides do not match their direction");
+        }
+        this.instrument = instrument;
+        this.buyOrders = buyOrders;
+        this.sellOrders = sellOrders;
+    }
+
+    /**
+     * engine whose both sides are {@link LadderBookSide}s over the band
+     * @param instrument
+     * @param minPrice lowest price of the band
+     * @param maxPrice highest price of the band
+     */
+    public LongOrderEngine(Instrument instrument, BigDecimal minPrice, BigDecimal maxPrice) {
+        this(instrument,
+                new LadderBookSide(OrderDirection.BUY, instrument.toTicks(minPrice), instrument.toTicks(maxPrice)),
+                new LadderBookSide(OrderDirection.SELL, instrument.toTicks(minPrice), instrument.toTicks(maxPrice)));
+    }
+
+    /**
+     * call another listener after the ones already set, on the matcher thread or before it starts
+     * @param listener
+     */
+    public void addFillListener(FillListener listener) {
+        fillListener = fillListener == null ? listener : CompositeFillListener.of(fillListener, listener);
+    }
+
+    /**
+     * convert an order from the API edge
+     * @param price
+     * @param quantity
+     * @param orderDirection
+     * @return order in ticks and lots
+     */
+    public LongOrder newOrder(BigDecimal price, BigDecimal quantity, OrderDirection orderDirection) {
+        return new LongOrder(instrument.getSymbol(), instrument.toTicks(price), instrument.toLots(quantity), orderDirection);
+    }
+
+    /**
+     * submit an order from the API edge
+     * @param price
+     * @param quantity
+     * @param orderDirection
+     * @return submitted order
+     */
+    public LongOrder submitOrder(BigDecimal price, BigDecimal quantity, OrderDirection orderDirection) {
+        LongOrder order = newOrder(price, quantity, orderDirection);
+        submitOrder(order);
+        return order;
+    }
+
+    /**
+     * convert an order of any type from the API edge
+     * @param price limit price, null for a market order
+     * @param quantity
+     * @param orderDirection
+     * @param orderType
+     * @return order in ticks and lots
+     */
+    public LongOrder newOrder(BigDecimal price, BigDecimal quantity, OrderDirection orderDirection, OrderType orderType) {
+        return new LongOrder(0, instrument.getSymbol(), price == null ? 0 : instrument.toTicks(price),
+                instrument.toLots(quantity), orderDirection, orderType);
+    }
+
+    /**
+     * submit an order of any type from the API edge
+     * @param price limit price, null for a market order
+     * @param quantity
+     * @param orderDirection
+     * @param orderType
+     * @return submitted order, its submit quantity is what it dealt unless it rests
+     */
+    public LongOrder submitOrder(BigDecimal price, BigDecimal quantity, OrderDirection orderDirection,
+                                 OrderType orderType) {
+        LongOrder order = newOrder(price, quantity, orderDirection, orderType);
+        submitOrder(order);
+        return order;
+    }
+
+    /**
+     * orders of one sequencer batch are matched as one engine batch
+     */
+    @Override
+    public void onOrder(LongOrder order, long sequence, boolean endOfBatch) {
+        if (batch == 0) {
+            beginBatch();
+        }
+        try {
+            submitOrder(order);
+        } finally {
+            if (endOfBatch) {
+                endBatch();
+            }
+        }
+    }
+
+    /**
+     * match a burst of orders as a unit. The book ends up exactly as after submitting them one by
+     * one, and the same fills are published in the same order, but fills go to the
+     * {@link ExecutionPublisher} in one claim at the end, and every changed level goes to the
+     * {@link MarketDataPublisher} once with its final quantity instead of once per change.
+     * An order that is rejected stops the batch; the orders before it stay submitted and published.
+     * @param orders
+     * @param offset index of the first order
+     * @param length number of orders
+     */
+    public void submitOrders(LongOrder[] orders, int offset, int length) {
+        boolean outer = batch == 0;
+        if (outer) {
+            beginBatch();
+        }
+        try {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                submitOrder(orders[i]);
+            }
+        } finally {
+            if (outer) {
+                endBatch();
+            }
+        }
+    }
+
+    private void beginBatch() {
+        batch = ++lastBatch;
+    }
+
+    /**
+     * publish what the batch deferred and leave batch mode
+     */
+    private void endBatch() {
+        batch = 0;
+        publishViews();
+        if (fillBuffer.size() > 0) {
+            if (executionPublisher != null) {
+                executionPublisher.publish(fillBuffer);
+            }
+            fillBuffer.clear();
+        }
+        for (int i = 0; i < releasingCount; i++) {
+            LongOrderPool.release(releasing[i]);
+            releasing[i] = null;
+        }
+        releasingCount = 0;
+        if (changedCount > 0) {
+            for (int i = 0; i < changedCount; i++) {
+                changedQuantities[i] = changedLevels[i].getTotalQuantity();
+                changedLevels[i] = null;
+            }
+            if (marketDataPublisher != null) {
+                marketDataPublisher.publish(changedDirections, changedPrices, changedQuantities, changedCount);
+            }
+            changedCount = 0;
+        }
+    }
+
+    /**
+     * give the order the next id unless it already has one
+     * @param order
+     * @return order id
+     */
+    public long assignOrderId(LongOrder order) {
+        long orderId = order.getOrderId();
+        if (orderId == 0) {
+            orderId = ++lastOrderId;
+            order.setOrderId(orderId);
+        } else if (orderId > lastOrderId) {
+            lastOrderId = orderId;
+        }
+        return orderId;
+    }
+
+    /**
+     * match the order against the opposite book in price-time priority and rest the remainder.
+     * Matching only visits the crossing levels, best first, and stops as soon as the order is
+     * filled. A market, IOC or FOK order never rests: the unfilled rest is taken off the order,
+     * which leaves it with its dealt quantity only; a FOK order is checked against the level
+     * aggregates first and killed whole when they cannot fill it. A stop order the last trade
+     * price already reaches is matched right away, any other parks in its {@link StopBook}. During
+     * an auction only limit and stop orders are taken; limit orders rest without matching and stop
+     * orders park. An order from a {@link LongOrderPool} belongs to the engine from now on, unless
+     * it is rejected.
+     * @param order order without an id, or with an id no resting or parked order has
+     */
+    public void submitOrder(LongOrder order) {
+        String rejection = checkOrder(order);
+        if (rejection != null) {
+            throw new IllegalArgumentException(rejection);
+        }
+        boolean buy = OrderDirection.BUY.equals(order.getOrderDirection());
+        boolean stop = order.isStop();
+        boolean market = OrderType.MARKET.equals(order.getOrderType()) || OrderType.STOP.equals(order.getOrderType());
+        BookSide stack = buy ? buyOrders : sellOrders;
+        assignOrderId(order);
+        if (stop) {
+            StopBook stops = buy ? buyStops : sellStops;
+            if (auction || lastTradePrice == 0 || !stops.triggers(order.getStopPrice(), lastTradePrice)) {
+                stops.add(order);
+                orderIndex.put(order);
+                return;
+            }
+            order.trigger();
+        }
+        EngineMetrics metrics = this.metrics;
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        int levels = 0;
+        int fills = 0;
+        BookSide opposite = buy ? sellOrders : buyOrders;
+        if (!auction && (!OrderType.FOK.equals(order.getOrderType()) || isFillable(order, opposite))) {
+            PriceLevel best = opposite.best();
+            while (order.getAvailableQuantity() > 0 && best != null && (market || crosses(order, best))) {
+                fills += matchLevel(order, best);
+                levels++;
+                publishLevel(opposite, best);
+                if (best.isEmpty()) {
+                    opposite.removeLevel(best);
+                }
+                best = opposite.best();
+            }
+        }
+        if (order.getAvailableQuantity() > 0) {
+            if (OrderType.LIMIT.equals(order.getOrderType())) {
+                PriceLevel level = stack.getOrCreate(order.getPrice());
+                level.addLast(order);
+                orderIndex.put(order);
+                publishLevel(stack, level);
+            } else {
+                long unfilled = order.getAvailableQuantity();
+                order.reduce(unfilled);
+                if (fillListener != null) {
+                    fillListener.onRelease(order, unfilled);
+                }
+            }
+        }
+        boolean resting = order.getAvailableQuantity() > 0;
+        if (batch == 0) {
+            publishViews();
+        }
+        if (metrics != null) {
+            metrics.getMatching().record(System.nanoTime() - startNanos);
+            metrics.getOrderCount().increment();
+            if (levels > 0) {
+                metrics.getLevelsSwept().record(levels);
+                metrics.getFillCount().add(fills);
+            }
+        }
+        if (!resting) {
+            recycle(order);
+        }
+        if (traded && !triggering) {
+            triggerStops();
+        }
+    }
+
+    /**
+     * the checks {@link #submitOrder(LongOrder)} runs before it touches the book, for stages that
+     * must only record orders the engine takes
+     * @param order
+     * @return why the engine would reject the order, or null when it would take it
+     */
+    public String checkOrder(LongOrder order) {
+        boolean stop = order.isStop();
+        if (auction && !OrderType.LIMIT.equals(order.getOrderType()) && !stop) {
+            return order.getOrderType() + " order during the auction";
+        }
+        boolean market = OrderType.MARKET.equals(order.getOrderType()) || OrderType.STOP.equals(order.getOrderType());
+        if (!market && !sideOf(order).isValidPrice(order.getPrice())) {
+            return "price " + order.getPrice() + " is outside the book price band";
+        }
+        if (stop && order.getStopPrice() <= 0) {
+            return "stop price " + order.getStopPrice() + " is not valid";
+        }
+        long orderId = order.getOrderId();
+        if (orderId != 0 && orderIndex.get(orderId) != null) {
+            return "order " + orderId + " is already resting";
+        }
+        return null;
+    }
+
+    /**
+     * match the stop orders the trades since the last check reached, until their own trades
+     * trigger no more
+     */
+    private void triggerStops() {
+        triggering = true;
+        try {
+            while (traded) {
+                traded = false;
+                buyStops.trigger(tradeHigh);
+                sellStops.trigger(tradeLow);
+                for (LongOrder order = buyStops.poll(); order != null; order = buyStops.poll()) {
+                    submitTriggered(order);
+                }
+                for (LongOrder order = sellStops.poll(); order != null; order = sellStops.poll()) {
+                    submitTriggered(order);
+                }
+            }
+        } finally {
+            triggering = false;
+        }
+    }
+
+    private void submitTriggered(LongOrder order) {
+        orderIndex.remove(order.getOrderId());
+        order.trigger();
+        submitOrder(order);
+    }
+
+    /**
+     * @return whether the order price reaches the level
+     */
+    private static boolean crosses(LongOrder order, PriceLevel level) {
+        return OrderDirection.BUY.equals(order.getOrderDirection())
+                ? order.getPrice() >= level.getPrice() : order.getPrice() <= level.getPrice();
+    }
+
+    /**
+     * whether the crossing levels hold enough to fill the whole order, from their aggregates alone
+     */
+    private boolean isFillable(LongOrder order, BookSide opposite) {
+        long needed = order.getAvailableQuantity();
+        for (PriceLevel level = opposite.best(); level != null && crosses(order, level); level = opposite.next(level)) {
+            needed -= level.getTotalQuantity();
+            if (needed <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * put an order at the back of its price level without matching, or park a stop order at the
+     * back of its stop price without checking its trigger, for rebuilding a book from a snapshot;
+     * the {@link FillListener} hears of it through {@link FillListener#onRestore(LongOrder)}
+     * @param order
+     */
+    public void restOrder(LongOrder order) {
+        assignOrderId(order);
+        if (fillListener != null) {
+            fillListener.onRestore(order);
+        }
+        if (order.isStop()) {
+            (OrderDirection.BUY.equals(order.getOrderDirection()) ? buyStops : sellStops).add(order);
+            orderIndex.put(order);
+            return;
+        }
+        BookSide stack = sideOf(order);
+        PriceLevel level = stack.getOrCreate(order.getPrice());
+        level.addLast(order);
+        orderIndex.put(order);
+        publishLevel(stack, level);
+        if (batch == 0) {
+            publishViews();
+        }
+    }
+
+    /**
+     * @param orderId
+     * @return resting order, or null
+     */
+    public LongOrder getOrder(long orderId) {
+        return orderIndex.get(orderId);
+    }
+
+    /**
+     * take a resting order off the book, or a parked stop order off its stop book
+     * @param orderId
+     * @return whether the order was resting or parked
+     */
+    public boolean cancelOrder(long orderId) {
+        LongOrder order = orderIndex.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        if (order.isStop()) {
+            (OrderDirection.BUY.equals(order.getOrderDirection()) ? buyStops : sellStops).remove(order);
+            if (fillListener != null) {
+                fillListener.onRelease(order, order.getAvailableQuantity());
+            }
+            recycle(order);
+            return true;
+        }
+        BookSide stack = sideOf(order);
+        PriceLevel level = stack.get(order.getPrice());
+        level.remove(order);
+        publishLevel(stack, level);
+        if (level.isEmpty()) {
+            stack.removeLevel(level);
+        }
+        if (batch == 0) {
+            publishViews();
+        }
+        if (fillListener != null) {
+            fillListener.onRelease(order, order.getAvailableQuantity());
+        }
+        recycle(order);
+        return true;
+    }
+
+    /**
+     * take lots off a resting or parked order, it keeps its queue priority; reducing it to nothing
+     * cancels it
+     * @param orderId
+     * @param quantity lots to take off
+     * @return whether the order was resting or parked
+     */
+    public boolean reduceOrder(long orderId, long quantity) {
+        LongOrder order = orderIndex.get(orderId);
+        if (order == null) {
+            return false;
+        }
+        if (quantity >= order.getAvailableQuantity()) {
+            return cancelOrder(orderId);
+        }
+        if (quantity > 0 && order.isStop()) {
+            (OrderDirection.BUY.equals(order.getOrderDirection()) ? buyStops : sellStops).reduce(order, quantity);
+            if (fillListener != null) {
+                fillListener.onRelease(order, quantity);
+            }
+        } else if (quantity > 0) {
+            BookSide stack = sideOf(order);
+            PriceLevel level = stack.get(order.getPrice());
+            level.reduce(order, quantity);
+            publishLevel(stack, level);
+            if (batch == 0) {
+                publishViews();
+            }
+            if (fillListener != null) {
+                fillListener.onRelease(order, quantity);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * change price and open quantity of a resting order. Lowering the quantity at the same price is
+     * a reduce and keeps queue priority; anything else is a cancel-replace under the same id, which
+     * goes to the back of the queue and may match. The replace reuses the order itself, so a pooled
+     * order stays with its pool, and the {@link FillListener} may reject it, see
+     * {@link FillListener#onReplace(LongOrder, long, long)}.
+     * @param orderId
+     * @param price new price in ticks
+     * @param quantity new open quantity in lots, 0 cancels
+     * @return whether the order was resting
+     */
+    public boolean amendOrder(long orderId, long price, long quantity) {
+        LongOrder order = orderIndex.get(orderId);
+        if (order == null) {
+            return false;
+        }
+        if (order.isStop()) {
+            throw new IllegalArgumentException("stop order " + orderId + " cannot be amended");
+        }
+        if (price == order.getPrice() && quantity <= order.getAvailableQuantity()) {
+            return reduceOrder(orderId, order.getAvailableQuantity() - quantity);
+        }
+        if (quantity <= 0) {
+            return cancelOrder(orderId);
+        }
+        BookSide stack = sideOf(order);
+        if (!stack.isValidPrice(price)) {
+            throw new IllegalArgumentException("price " + price + " is outside the book price band");
+        }
+        if (fillListener != null) {
+            RiskRejection rejection = fillListener.onReplace(order, price, quantity);
+            if (rejection != null) {
+                throw new IllegalArgumentException("amend of order " + orderId + " breaks the " + rejection + " limit");
+            }
+        }
+        PriceLevel level = stack.get(order.getPrice());
+        level.remove(order);
+        publishLevel(stack, level);
+        if (level.isEmpty()) {
+            stack.removeLevel(level);
+        }
+        orderIndex.remove(orderId);
+        order.replace(price, quantity);
+        submitOrder(order);
+        return true;
+    }
+
+    private void publishLevel(BookSide stack, PriceLevel level) {
+        bookChanged = true;
+        if (batch != 0) {
+            if (marketDataPublisher != null && level.batchMark != batch) {
+                level.batchMark = batch;
+                markChanged(stack, level);
+            }
+        } else if (marketDataPublisher != null) {
+            marketDataPublisher.publish(stack.getOrderDirection(), level.getPrice(), level.getTotalQuantity());
+        }
+    }
+
+    private void markChanged(BookSide stack, PriceLevel level) {
+        if (changedCount == changedLevels.length) {
+            int capacity = changedCount << 1;
+            changedLevels = Arrays.copyOf(changedLevels, capacity);
+            changedDirections = Arrays.copyOf(changedDirections, capacity);
+            changedPrices = Arrays.copyOf(changedPrices, capacity);
+            changedQuantities = Arrays.copyOf(changedQuantities, capacity);
+        }
+        changedLevels[changedCount] = level;
+        changedDirections[changedCount] = stack.getOrderDirection();
+        changedPrices[changedCount] = level.getPrice();
+        changedCount++;
+    }
+
+    /**
+     * move to the next book version after a change, republish the quote when the best levels moved
+     * and take a depth snapshot when one is due
+     */
+    private void publishViews() {
+        if (!bookChanged) {
+            return;
+        }
+        bookChanged = false;
+        bookVersion++;
+        PriceLevel bid = buyOrders.best();
+        PriceLevel ask = sellOrders.best();
+        long bidPrice = bid == null ? 0 : bid.getPrice();
+        long bidQuantity = bid == null ? 0 : bid.getTotalQuantity();
+        long askPrice = ask == null ? 0 : ask.getPrice();
+        long askQuantity = ask == null ? 0 : ask.getTotalQuantity();
+        if (bidPrice != quotedBidPrice || bidQuantity != quotedBidQuantity
+                || askPrice != quotedAskPrice || askQuantity != quotedAskQuantity) {
+            quotedBidPrice = bidPrice;
+            quotedBidQuantity = bidQuantity;
+            quotedAskPrice = askPrice;
+            quotedAskQuantity = askQuantity;
+            topOfBook.update(bidPrice, bidQuantity, askPrice, askQuantity, bookVersion);
+        }
+        if (depthSnapshotLevels > 0 && bookVersion - depthSnapshotVersion >= depthSnapshotInterval) {
+            depthSnapshotVersion = bookVersion;
+            depthSnapshot = takeDepthSnapshot(depthSnapshotLevels);
+        }
+    }
+
+    private DepthSnapshot takeDepthSnapshot(int levels) {
+        long[] bidPrices = new long[levels];
+        long[] bidQuantities = new long[levels];
+        long[] askPrices = new long[levels];
+        long[] askQuantities = new long[levels];
+        int bidCount = copyLevels(buyOrders, bidPrices, bidQuantities);
+        int askCount = copyLevels(sellOrders, askPrices, askQuantities);
+        return new DepthSnapshot(bookVersion, Arrays.copyOf(bidPrices, bidCount), Arrays.copyOf(bidQuantities, bidCount),
+                Arrays.copyOf(askPrices, askCount), Arrays.copyOf(askQuantities, askCount));
+    }
+
+    private static int copyLevels(BookSide stack, long[] prices, long[] quantities) {
+        int count = 0;
+        for (PriceLevel level = stack.best(); level != null && count < prices.length; level = stack.next(level)) {
+            prices[count] = level.getPrice();
+            quantities[count] = level.getTotalQuantity();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * hand an order that is done with back to its pool, at the end of the batch when buffered fills
+     * still reference it
+     */
+    private void recycle(LongOrder order) {
+        if (batch == 0 || executionPublisher == null) {
+            LongOrderPool.release(order);
+            return;
+        }
+        if (releasingCount == releasing.length) {
+            releasing = Arrays.copyOf(releasing, releasingCount << 1);
+        }
+        releasing[releasingCount++] = order;
+    }
+
+    private BookSide sideOf(LongOrder order) {
+        return OrderDirection.BUY.equals(order.getOrderDirection()) ? buyOrders : sellOrders;
+    }
+
+    /**
+     * @return number of fills
+     */
+    private int matchLevel(LongOrder order, PriceLevel level) {
+        int fills = 0;
+        while (order.getAvailableQuantity() > 0 && !level.isEmpty()) {
+            LongOrder restingOrder = level.peekFirst();
+            long quantity = Math.min(order.getAvailableQuantity(), restingOrder.getAvailableQuantity());
+            order.fill(quantity);
+            level.fill(restingOrder, quantity);
+            reportFill(order, restingOrder, level.getPrice(), quantity);
+            if (restingOrder.getAvailableQuantity() == 0) {
+                level.pollFirst();
+                orderIndex.remove(restingOrder.getOrderId());
+                recycle(restingOrder);
+            }
+            fills++;
+        }
+        return fills;
+    }
+
+    private void reportFill(LongOrder taker, LongOrder maker, long price, long quantity) {
+        lastTradePrice = price;
+        if (!traded) {
+            traded = true;
+            tradeHigh = price;
+            tradeLow = price;
+        } else if (price > tradeHigh) {
+            tradeHigh = price;
+        } else if (price < tradeLow) {
+            tradeLow = price;
+        }
+        if (batch != 0) {
+            if (executionPublisher != null) {
+                fillBuffer.add(taker, maker, price, quantity);
+            }
+        } else if (executionPublisher != null) {
+            executionPublisher.publish(taker, maker, price, quantity);
+        }
+        if (fillListener != null) {
+            fillListener.onFill(taker, maker, price, quantity);
+        }
+    }
+
+    /**
+     * stop matching: from now on limit orders collect in the book, which may cross, until
+     * {@link #uncross()}; a journaled or replicated engine starts and ends its auctions through
+     * its journaling or replicating handler, so replay and followers collect the same orders
+     */
+    public void startAuction() {
+        auction = true;
+    }
+
+    /**
+     * compute the equilibrium of the auction from the aggregated crossing levels, without changing
+     * the book: the price trading the most lots, then leaving the fewest lots over; remaining ties
+     * go to the highest such price when buyers are left over and to the lowest otherwise. Costs
+     * one pass over the crossing levels, so it is cheap enough to poll during the auction; on the
+     * matcher thread only.
+     * @param quote where the result goes
+     * @return the quote
+     */
+    public AuctionQuote getIndicativeAuction(AuctionQuote quote) {
+        quote.price = 0;
+        quote.volume = 0;
+        quote.imbalance = 0;
+        PriceLevel bestBid = buyOrders.best();
+        PriceLevel bestAsk = sellOrders.best();
+        if (bestBid == null || bestAsk == null || bestBid.getPrice() < bestAsk.getPrice()) {
+            return quote;
+        }
+        int bidCount = collectCrossing(buyOrders, bestAsk.getPrice(), true);
+        int askCount = collectCrossing(sellOrders, bestBid.getPrice(), false);
+        long demand = 0;
+        for (int i = 0; i < bidCount; i++) {
+            demand += crossBidQuantities[i];
+        }
+        long supply = 0;
+        long bestImbalance = 0;
+        int bid = bidCount - 1;
+        int ask = 0;
+        while (ask < askCount || bid >= 0) {
+            long price = ask == askCount ? crossBidPrices[bid]
+                    : bid < 0 ? crossAskPrices[ask] : Math.min(crossAskPrices[ask], crossBidPrices[bid]);
+            while (ask < askCount && crossAskPrices[ask] <= price) {
+                supply += crossAskQuantities[ask++];
+            }
+            long volume = Math.min(demand, supply);
+            long imbalance = demand - supply;
+            if (volume > quote.volume || (volume == quote.volume
+                    && (Math.abs(imbalance) < Math.abs(bestImbalance)
+                    || (Math.abs(imbalance) == Math.abs(bestImbalance) && imbalance > 0)))) {
+                quote.price = price;
+                quote.volume = volume;
+                bestImbalance = imbalance;
+            }
+            while (bid >= 0 && crossBidPrices[bid] <= price) {
+                demand -= crossBidQuantities[bid--];
+            }
+        }
+        quote.imbalance = bestImbalance;
+        return quote;
+    }
+
+    /**
+     * end the auction: trade the crossed book at the equilibrium price of
+     * {@link #getIndicativeAuction(AuctionQuote)}, both sides in price-time priority, then resume
+     * continuous matching. The fills and level changes go out as one batch; of two matched orders
+     * the one that came later is reported as the taker.
+     * @return lots traded
+     */
+    public long uncross() {
+        if (!auction) {
+            throw new IllegalStateException("no auction is running");
+        }
+        AuctionQuote quote = getIndicativeAuction(uncrossQuote);
+        auction = false;
+        long price = quote.getPrice();
+        long remaining = quote.getVolume();
+        if (remaining == 0) {
+            return 0;
+        }
+        boolean outer = batch == 0;
+        if (outer) {
+            beginBatch();
+        }
+        try {
+            PriceLevel bidLevel = buyOrders.best();
+            PriceLevel askLevel = sellOrders.best();
+            while (remaining > 0) {
+                LongOrder buy = bidLevel.peekFirst();
+                LongOrder sell = askLevel.peekFirst();
+                long quantity = Math.min(remaining, Math.min(buy.getAvailableQuantity(), sell.getAvailableQuantity()));
+                bidLevel.fill(buy, quantity);
+                askLevel.fill(sell, quantity);
+                if (buy.getOrderId() > sell.getOrderId()) {
+                    reportFill(buy, sell, price, quantity);
+                } else {
+                    reportFill(sell, buy, price, quantity);
+                }
+                remaining -= quantity;
+                bidLevel = settle(buyOrders, bidLevel, buy);
+                askLevel = settle(sellOrders, askLevel, sell);
+            }
+            if (bidLevel != null) {
+                publishLevel(buyOrders, bidLevel);
+            }
+            if (askLevel != null) {
+                publishLevel(sellOrders, askLevel);
+            }
+        } finally {
+            if (outer) {
+                endBatch();
+            }
+        }
+        if (traded && !triggering) {
+            triggerStops();
+        }
+        return quote.getVolume();
+    }
+
+    /**
+     * take an order of the uncross off its level once filled, and the level off the book once empty
+     * @return level the next order of the side comes from
+     */
+    private PriceLevel settle(BookSide stack, PriceLevel level, LongOrder order) {
+        if (order.getAvailableQuantity() > 0) {
+            return level;
+        }
+        level.pollFirst();
+        orderIndex.remove(order.getOrderId());
+        recycle(order);
+        if (!level.isEmpty()) {
+            return level;
+        }
+        publishLevel(stack, level);
+        stack.removeLevel(level);
+        return stack.best();
+    }
+
+    /**
+     * copy the levels of a side that reach the limit into the crossing arrays, best first
+     * @return number of levels
+     */
+    private int collectCrossing(BookSide stack, long limit, boolean buy) {
+        int count = 0;
+        for (PriceLevel level = stack.best(); level != null && (buy ? level.getPrice() >= limit
+                : level.getPrice() <= limit); level = stack.next(level)) {
+            if (count == (buy ? crossBidPrices : crossAskPrices).length) {
+                if (buy) {
+                    crossBidPrices = Arrays.copyOf(crossBidPrices, count << 1);
+                    crossBidQuantities = Arrays.copyOf(crossBidQuantities, count << 1);
+                } else {
+                    crossAskPrices = Arrays.copyOf(crossAskPrices, count << 1);
+                    crossAskQuantities = Arrays.copyOf(crossAskQuantities, count << 1);
+                }
+            }
+            (buy ? crossBidPrices : crossAskPrices)[count] = level.getPrice();
+            (buy ? crossBidQuantities : crossAskQuantities)[count] = level.getTotalQuantity();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param level number of price levels
+     * @param orderDirection
+     * @return available quantity per price, converted back through the instrument; reads the live
+     * book, so only call it on the matcher thread, other threads read {@link #getDepthSnapshot()}
+     */
+    public Map<BigDecimal, BigDecimal> getTopOrders(int level, OrderDirection orderDirection) {
+        Map<BigDecimal, BigDecimal> result = new LinkedMap<>();
+        BookSide stack = OrderDirection.BUY.equals(orderDirection) ? buyOrders : sellOrders;
+        for (PriceLevel priceLevel = stack.best(); priceLevel != null && result.size() < level;
+             priceLevel = stack.next(priceLevel)) {
+            result.put(instrument.toPrice(priceLevel.getPrice()), instrument.toQuantity(priceLevel.getTotalQuantity()));
+        }
+        return result;
+    }
+
+    public void printOrderBook() {
+        System.out.println("");
+        System.out.println("____ bid ____ ");
+        System.out.println(getTopOrders(10, OrderDirection.BUY));
+        System.out.println("____ask ____ ");
+        System.out.println(getTopOrders(10, OrderDirection.SELL));
+        System.out.println("_____________ ");
+    }
+
+    public void reset() {
+        System.out.println("size ask = " + sellOrders.size());
+        System.out.println("size bid = " + buyOrders.size());
+        if (batch != 0) {
+            endBatch();
+            beginBatch();
+        }
+        if (marketDataPublisher != null) {
+            for (BookSide stack : new BookSide[]{buyOrders, sellOrders}) {
+                for (PriceLevel level = stack.best(); level != null; level = stack.next(level)) {
+                    marketDataPublisher.publish(stack.getOrderDirection(), level.getPrice(), 0);
+                }
+            }
+        }
+        sellOrders.clear();
+        buyOrders.clear();
+        buyStops.clear();
+        sellStops.clear();
+        traded = false;
+        orderIndex.clear();
+        bookChanged = true;
+        if (batch == 0) {
+            publishViews();
+        }
+    }
+}
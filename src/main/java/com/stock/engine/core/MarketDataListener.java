@@ -0,0 +1,13 @@
+package com.stock.engine.core;
+
+/**
+ * receives level updates from a {@link MarketDataPublisher}
+ */
+public interface MarketDataListener {
+
+    /**
+     * @param update level update, only valid during the call
+     * @param endOfBatch whether it is the last update of the current batch
+     */
+    void onUpdate(LevelUpdate update, boolean endOfBatch);
+}
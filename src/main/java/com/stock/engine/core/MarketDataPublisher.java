@@ -0,0 +1,270 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Incremental level 2 market data of a matching engine.
+ * <p>
+ * The matcher publishes the new aggregate quantity of every level it changes into preallocated
+ * {@link LevelUpdate}s of a {@link RingBuffer}. A dispatcher thread applies them to its own copy
+ * of the depth, hands each update to the registered {@link MarketDataListener}s and offers it to
+ * every conflating {@link MarketDataSubscription}. Depth snapshots are served from that copy, so
+ * readers never touch the live book and never slow the matcher down.
+ */
+public class MarketDataPublisher implements AutoCloseable {
+
+    /**
+     * default dispatcher thread name
+     */
+    public static final String DISPATCHER_THREAD_NAME = "market-data-dispatcher";
+
+    private final RingBuffer<LevelUpdate> ringBuffer;
+
+    private final ThreadFactory threadFactory;
+
+    private volatile MarketDataListener[] listeners = new MarketDataListener[0];
+
+    private volatile MarketDataSubscription[] subscriptions = new MarketDataSubscription[0];
+
+    /**
+     * depth as of {@link #appliedSequence}, guarded by this publisher
+     */
+    private final TreeMap<Long, Long> bids = new TreeMap<>(Comparator.reverseOrder());
+
+    private final TreeMap<Long, Long> asks = new TreeMap<>();
+
+    private long appliedSequence = -1;
+
+    private volatile boolean running;
+
+    private Thread dispatcherThread;
+
+    /**
+     * number of level updates that found the ring full and had to wait for the dispatcher
+     */
+    @Getter
+    private volatile long stallCount;
+
+    /**
+     * number of updates a listener failed on
+     */
+    @Getter
+    private volatile long failedCount;
+
+    public MarketDataPublisher(int bufferSize) {
+        this(bufferSize, runnable -> {
+            Thread thread = new Thread(runnable, DISPATCHER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public MarketDataPublisher(int bufferSize, ThreadFactory threadFactory) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, LevelUpdate::new);
+        this.threadFactory = threadFactory;
+    }
+
+    public synchronized void addListener(MarketDataListener listener) {
+        MarketDataListener[] current = listeners;
+        MarketDataListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * @return new conflating subscription, receiving every update from now on
+     */
+    public synchronized MarketDataSubscription subscribe() {
+        MarketDataSubscription subscription = new MarketDataSubscription();
+        MarketDataSubscription[] current = subscriptions;
+        MarketDataSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        return subscription;
+    }
+
+    public synchronized void unsubscribe(MarketDataSubscription subscription) {
+        subscriptions = Arrays.stream(subscriptions).filter(s -> s != subscription)
+                .toArray(MarketDataSubscription[]::new);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcherThread = threadFactory.newThread(this::dispatchLoop);
+        dispatcherThread.start();
+    }
+
+    /**
+     * publish the new state of a level, called by the single matcher thread
+     * @param orderDirection side of the level
+     * @param price price in ticks
+     * @param quantity available quantity in lots, 0 when the level is gone
+     * @return sequence of the update
+     */
+    public long publish(OrderDirection orderDirection, long price, long quantity) {
+        if (!running) {
+            throw new IllegalStateException("market data publisher is not running");
+        }
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            stallCount++;
+            sequence = ringBuffer.next();
+        }
+        ringBuffer.get(sequence).set(sequence, orderDirection, price, quantity);
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    /**
+     * publish the new state of several levels under consecutive sequences, claiming ring space once
+     * per ring-full of updates; called by the single matcher thread
+     * @param orderDirections side of each level
+     * @param prices price of each level in ticks
+     * @param quantities available quantity of each level in lots, 0 when the level is gone
+     * @param count number of levels
+     * @return sequence of the last update, or the current cursor when {@code count} is 0
+     */
+    long publish(OrderDirection[] orderDirections, long[] prices, long[] quantities, int count) {
+        if (!running) {
+            throw new IllegalStateException("market data publisher is not running");
+        }
+        long sequence = ringBuffer.getCursor();
+        for (int index = 0; index < count; ) {
+            int n = Math.min(count - index, ringBuffer.getCapacity());
+            if (ringBuffer.remainingCapacity() < n) {
+                stallCount++;
+            }
+            sequence = ringBuffer.next(n);
+            long lo = sequence - n + 1;
+            for (long claimed = lo; claimed <= sequence; claimed++, index++) {
+                ringBuffer.get(claimed).set(claimed, orderDirections[index], prices[index], quantities[index]);
+            }
+            ringBuffer.publish(lo, sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * @param levels maximum number of levels a side
+     * @return best levels of both sides as of the last dispatched update
+     */
+    public synchronized DepthSnapshot snapshot(int levels) {
+        int bidCount = Math.min(levels, bids.size());
+        int askCount = Math.min(levels, asks.size());
+        long[] bidPrices = new long[bidCount];
+        long[] bidQuantities = new long[bidCount];
+        long[] askPrices = new long[askCount];
+        long[] askQuantities = new long[askCount];
+        copy(bids, bidPrices, bidQuantities);
+        copy(asks, askPrices, askQuantities);
+        return new DepthSnapshot(appliedSequence, bidPrices, bidQuantities, askPrices, askQuantities);
+    }
+
+    /**
+     * @return last sequence every listener and subscription has seen
+     */
+    public long getSequence() {
+        return ringBuffer.getConsumerSequence();
+    }
+
+    /**
+     * wait until every update published before this call has been dispatched
+     */
+    public void drain() {
+        long target = ringBuffer.getCursor();
+        int idle = 0;
+        while (ringBuffer.getConsumerSequence() < target) {
+            idle = RingBuffer.backOff(idle);
+        }
+    }
+
+    /**
+     * dispatch everything already published and stop the dispatcher thread
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = dispatcherThread;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void copy(TreeMap<Long, Long> side, long[] prices, long[] quantities) {
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : side.entrySet()) {
+            if (i == prices.length) {
+                break;
+            }
+            prices[i] = entry.getKey();
+            quantities[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    private void dispatchLoop() {
+        long next = ringBuffer.getConsumerSequence() + 1;
+        int idle = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            if (available < next) {
+                if (!running && ringBuffer.getCursor() < next) {
+                    return;
+                }
+                idle = RingBuffer.backOff(idle);
+                continue;
+            }
+            idle = 0;
+            synchronized (this) {
+                for (long sequence = next; sequence <= available; sequence++) {
+                    apply(ringBuffer.get(sequence));
+                }
+                appliedSequence = available;
+            }
+            MarketDataListener[] currentListeners = listeners;
+            MarketDataSubscription[] currentSubscriptions = subscriptions;
+            for (long sequence = next; sequence <= available; sequence++) {
+                LevelUpdate update = ringBuffer.get(sequence);
+                for (MarketDataListener listener : currentListeners) {
+                    try {
+                        listener.onUpdate(update, sequence == available);
+                    } catch (RuntimeException e) {
+                        failedCount++;
+                    }
+                }
+                for (MarketDataSubscription subscription : currentSubscriptions) {
+                    subscription.offer(update);
+                }
+            }
+            ringBuffer.setConsumerSequence(available);
+            next = available + 1;
+        }
+    }
+
+    private void apply(LevelUpdate update) {
+        TreeMap<Long, Long> side = OrderDirection.BUY.equals(update.getOrderDirection()) ? bids : asks;
+        if (update.getQuantity() == 0) {
+            side.remove(update.getPrice());
+        } else {
+            side.put(update.getPrice(), update.getQuantity());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.stock.engine.core;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conflating, polled view of a {@link MarketDataPublisher} stream.
+ * <p>
+ * The dispatcher keeps only the latest update of every level until the subscriber polls, so a
+ * slow subscriber sees fewer, coarser updates instead of an ever growing backlog; its memory is
+ * bounded by the number of levels that changed between two polls. Updates come out in the order
+ * their level first changed since the previous poll, each carrying the sequence of its latest
+ * change. After taking a {@link DepthSnapshot}, skip updates whose sequence it already covers.
+ * Poll from one thread at a time.
+ */
+public class MarketDataSubscription {
+
+    private Map<Long, LevelUpdate> pending = new LinkedHashMap<>();
+
+    private Map<Long, LevelUpdate> draining = new LinkedHashMap<>();
+
+    private final ArrayDeque<LevelUpdate> free = new ArrayDeque<>();
+
+    /**
+     * number of updates merged into a pending update of the same level
+     */
+    private long conflatedCount;
+
+    MarketDataSubscription() {
+    }
+
+    /**
+     * called by the dispatcher thread
+     */
+    synchronized void offer(LevelUpdate update) {
+        Long key = update.getPrice() << 1 | update.getOrderDirection().ordinal();
+        LevelUpdate conflated = pending.get(key);
+        if (conflated != null) {
+            conflatedCount++;
+        } else {
+            conflated = free.isEmpty() ? new LevelUpdate() : free.poll();
+            pending.put(key, conflated);
+        }
+        conflated.set(update);
+    }
+
+    /**
+     * hand every pending update to the listener, on the calling thread
+     * @param listener
+     * @return number of updates handed over
+     */
+    public int poll(MarketDataListener listener) {
+        Map<Long, LevelUpdate> updates;
+        synchronized (this) {
+            updates = pending;
+            pending = draining;
+            draining = updates;
+        }
+        int count = 0;
+        int size = updates.size();
+        for (LevelUpdate update : updates.values()) {
+            listener.onUpdate(update, ++count == size);
+        }
+        synchronized (this) {
+            free.addAll(updates.values());
+            updates.clear();
+        }
+        return count;
+    }
+
+    public synchronized long getConflatedCount() {
+        return conflatedCount;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.stock.engine.core;
+
+/**
+ * receives every fill of an {@link OffHeapOrderBook} synchronously on the matcher thread; the
+ * orders have no heap objects, so they are passed by id
+ */
+@FunctionalInterface
+public interface OffHeapFillListener {
+
+    /**
+     * @param takerOrderId incoming order
+     * @param makerOrderId resting order
+     * @param price fill price in ticks
+     * @param quantity fill quantity in lots
+     * @param makerAvailableQuantity lots the resting order has left, 0 when it is gone
+     */
+    void onFill(long takerOrderId, long makerOrderId, long price, long quantity, long makerAvailableQuantity);
+}
@@ -0,0 +1,349 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+
+/**
+ * Limit order book for very deep books, matching like {@link LongOrderEngine} but without a heap
+ * object per resting order.
+ * <p>
+ * Resting orders are slots of an {@link OffHeapOrderStore}. Every tick of the price band has a
+ * level made of a head and tail slot, an aggregate quantity and an order count in flat arrays,
+ * and the level queues link slot to slot, so the heap holds the band and nothing that grows with
+ * the number of orders. A bitmap of occupied levels finds the next level like
+ * {@link LadderBookSide}. Orders come in by id, in ticks and lots, and fills go out by id to an
+ * {@link OffHeapFillListener}. Single writer.
+ */
+public class OffHeapOrderBook {
+
+    /**
+     * lowest price of the band in ticks
+     */
+    @Getter
+    private final long minPrice;
+
+    /**
+     * highest price of the band in ticks
+     */
+    @Getter
+    private final long maxPrice;
+
+    @Getter
+    private final OffHeapOrderStore store;
+
+    private final Side bids;
+
+    private final Side asks;
+
+    /**
+     * called for every fill, none by default
+     */
+    @Getter
+    @Setter
+    private OffHeapFillListener fillListener;
+
+    /**
+     * @param minPrice lowest price of the band in ticks
+     * @param maxPrice highest price of the band in ticks
+     * @param store where resting orders go
+     */
+    public OffHeapOrderBook(long minPrice, long maxPrice, OffHeapOrderStore store) {
+        if (maxPrice < minPrice || maxPrice - minPrice >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid price band [" + minPrice + ", " + maxPrice + "]");
+        }
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.store = store;
+        int capacity = (int) (maxPrice - minPrice + 1);
+        this.bids = new Side(true, capacity);
+        this.asks = new Side(false, capacity);
+    }
+
+    public OffHeapOrderBook(long minPrice, long maxPrice) {
+        this(minPrice, maxPrice, new OffHeapOrderStore());
+    }
+
+    /**
+     * @return number of resting orders
+     */
+    public int getOrderCount() {
+        return store.size();
+    }
+
+    /**
+     * match a limit order in price-time priority and rest the remainder
+     * @param orderId id of the order, not 0 and not resting
+     * @param price limit price in ticks
+     * @param quantity lots
+     * @param orderDirection
+     * @return lots left resting, 0 when the order was filled
+     */
+    public long submitOrder(long orderId, long price, long quantity, OrderDirection orderDirection) {
+        if (price < minPrice || price > maxPrice) {
+            throw new IllegalArgumentException("price " + price + " is outside the book price band");
+        }
+        if (orderId == 0 || quantity <= 0) {
+            throw new IllegalArgumentException("order " + orderId + " of " + quantity + " lots is not valid");
+        }
+        if (store.find(orderId) >= 0) {
+            throw new IllegalArgumentException("order " + orderId + " is already resting");
+        }
+        boolean buy = OrderDirection.BUY.equals(orderDirection);
+        Side opposite = buy ? asks : bids;
+        for (int best = opposite.bestIndex; quantity > 0 && best >= 0
+                && (buy ? price >= minPrice + best : price <= minPrice + best); best = opposite.bestIndex) {
+            quantity = matchLevel(orderId, quantity, opposite, best);
+        }
+        if (quantity > 0) {
+            int slot = store.allocate(orderId, price, quantity, orderDirection);
+            (buy ? bids : asks).addLast((int) (price - minPrice), slot);
+        }
+        return quantity;
+    }
+
+    /**
+     * @return lots of the order not filled by the level
+     */
+    private long matchLevel(long orderId, long quantity, Side side, int index) {
+        long price = minPrice + index;
+        while (quantity > 0 && side.counts[index] > 0) {
+            int slot = side.heads[index];
+            long available = store.getAvailableQuantity(slot);
+            long dealt = Math.min(quantity, available);
+            quantity -= dealt;
+            available -= dealt;
+            side.quantities[index] -= dealt;
+            long makerOrderId = store.getOrderId(slot);
+            if (available == 0) {
+                side.unlink(index, slot);
+                store.free(slot);
+            } else {
+                store.setAvailableQuantity(slot, available);
+            }
+            if (fillListener != null) {
+                fillListener.onFill(orderId, makerOrderId, price, dealt, available);
+            }
+        }
+        return quantity;
+    }
+
+    /**
+     * take a resting order off the book
+     * @param orderId
+     * @return whether the order was resting
+     */
+    public boolean cancelOrder(long orderId) {
+        int slot = store.find(orderId);
+        if (slot < 0) {
+            return false;
+        }
+        Side side = sideOf(slot);
+        int index = (int) (store.getPrice(slot) - minPrice);
+        side.quantities[index] -= store.getAvailableQuantity(slot);
+        side.unlink(index, slot);
+        store.free(slot);
+        return true;
+    }
+
+    /**
+     * take lots off a resting order, it keeps its queue priority; reducing it to nothing cancels it
+     * @param orderId
+     * @param quantity lots to take off
+     * @return whether the order was resting
+     */
+    public boolean reduceOrder(long orderId, long quantity) {
+        int slot = store.find(orderId);
+        if (slot < 0) {
+            return false;
+        }
+        long available = store.getAvailableQuantity(slot);
+        if (quantity >= available) {
+            return cancelOrder(orderId);
+        }
+        if (quantity > 0) {
+            store.setAvailableQuantity(slot, available - quantity);
+            sideOf(slot).quantities[(int) (store.getPrice(slot) - minPrice)] -= quantity;
+        }
+        return true;
+    }
+
+    /**
+     * @param orderId
+     * @return available lots of the resting order, -1 when it is not resting
+     */
+    public long getAvailableQuantity(long orderId) {
+        int slot = store.find(orderId);
+        return slot < 0 ? -1 : store.getAvailableQuantity(slot);
+    }
+
+    /**
+     * @param orderDirection
+     * @return best price in ticks, 0 when the side is empty
+     */
+    public long getBestPrice(OrderDirection orderDirection) {
+        int best = side(orderDirection).bestIndex;
+        return best < 0 ? 0 : minPrice + best;
+    }
+
+    /**
+     * @param orderDirection
+     * @param price price in ticks
+     * @return available lots at the price
+     */
+    public long getLevelQuantity(OrderDirection orderDirection, long price) {
+        return price < minPrice || price > maxPrice ? 0 : side(orderDirection).quantities[(int) (price - minPrice)];
+    }
+
+    /**
+     * @param orderDirection
+     * @param price price in ticks
+     * @return resting orders at the price
+     */
+    public int getLevelOrderCount(OrderDirection orderDirection, long price) {
+        return price < minPrice || price > maxPrice ? 0 : side(orderDirection).counts[(int) (price - minPrice)];
+    }
+
+    /**
+     * @param orderDirection
+     * @return number of occupied levels of the side
+     */
+    public int getLevelCount(OrderDirection orderDirection) {
+        return side(orderDirection).size;
+    }
+
+    public void clear() {
+        bids.clear();
+        asks.clear();
+        store.clear();
+    }
+
+    private Side side(OrderDirection orderDirection) {
+        return OrderDirection.BUY.equals(orderDirection) ? bids : asks;
+    }
+
+    private Side sideOf(int slot) {
+        return side(store.getOrderDirection(slot));
+    }
+
+    /**
+     * levels of one side, indexed by {@code price - minPrice}
+     */
+    private final class Side {
+
+        private final boolean buy;
+
+        private final int[] heads;
+
+        private final int[] tails;
+
+        private final long[] quantities;
+
+        private final int[] counts;
+
+        /**
+         * one bit per level, set while the level holds orders
+         */
+        private final long[] occupied;
+
+        private int bestIndex = -1;
+
+        private int size;
+
+        private Side(boolean buy, int capacity) {
+            this.buy = buy;
+            this.heads = new int[capacity];
+            this.tails = new int[capacity];
+            this.quantities = new long[capacity];
+            this.counts = new int[capacity];
+            this.occupied = new long[(capacity + 63) >>> 6];
+        }
+
+        private void addLast(int index, int slot) {
+            if (counts[index] == 0) {
+                heads[index] = slot;
+                occupied[index >>> 6] |= 1L << index;
+                size++;
+                if (bestIndex < 0 || (buy ? index > bestIndex : index < bestIndex)) {
+                    bestIndex = index;
+                }
+            } else {
+                store.setNext(tails[index], slot);
+                store.setPrev(slot, tails[index]);
+            }
+            tails[index] = slot;
+            quantities[index] += store.getAvailableQuantity(slot);
+            counts[index]++;
+        }
+
+        /**
+         * unlink a slot from its level queue; the caller takes its quantity off the level
+         */
+        private void unlink(int index, int slot) {
+            int prev = store.getPrev(slot);
+            int next = store.getNext(slot);
+            if (prev < 0) {
+                heads[index] = next;
+            } else {
+                store.setNext(prev, next);
+            }
+            if (next < 0) {
+                tails[index] = prev;
+            } else {
+                store.setPrev(next, prev);
+            }
+            if (--counts[index] == 0) {
+                quantities[index] = 0;
+                occupied[index >>> 6] &= ~(1L << index);
+                size--;
+                if (index == bestIndex) {
+                    bestIndex = buy ? previousOccupied(index - 1) : nextOccupied(index + 1);
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(counts, 0);
+            Arrays.fill(quantities, 0L);
+            Arrays.fill(occupied, 0L);
+            bestIndex = -1;
+            size = 0;
+        }
+
+        private int nextOccupied(int from) {
+            if (from >= counts.length) {
+                return -1;
+            }
+            int word = from >>> 6;
+            long bits = occupied[word] & (-1L << from);
+            while (true) {
+                if (bits != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++word == occupied.length) {
+                    return -1;
+                }
+                bits = occupied[word];
+            }
+        }
+
+        private int previousOccupied(int from) {
+            if (from < 0) {
+                return -1;
+            }
+            int word = from >>> 6;
+            long bits = occupied[word] & (-1L >>> (63 - (from & 63)));
+            while (true) {
+                if (bits != 0) {
+                    return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                }
+                if (word-- == 0) {
+                    return -1;
+                }
+                bits = occupied[word];
+            }
+        }
+    }
+}
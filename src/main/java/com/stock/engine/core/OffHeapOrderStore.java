@@ -0,0 +1,270 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Resting order state in fixed-size slots of direct memory, addressed by {@code int} slot index.
+ * <p>
+ * Slots live in direct {@link ByteBuffer} chunks of {@code chunkSlots} slots, added as the store
+ * grows, with a {@value #SLOT_SIZE} byte little-endian layout:
+ * <pre>
+ *  0 long order id, 0 while the slot is free
+ *  8 long price in ticks
+ * 16 long submit quantity in lots
+ * 24 long available quantity in lots
+ * 32 int previous slot of the level queue, -1 for none
+ * 36 int next slot of the level queue, or of the free list, -1 for none
+ * 40 int next slot of the id hash chain, -1 for none
+ * 44 byte order direction
+ * </pre>
+ * Freed slots go on a free list and are handed out again before the store grows. The order id
+ * index is a chained hash table whose bucket heads are direct memory too, so the heap only holds
+ * the chunk array, whatever the number of orders. Single writer.
+ */
+public class OffHeapOrderStore {
+
+    public static final int SLOT_SIZE = 48;
+
+    public static final int DEFAULT_CHUNK_SLOTS = 1 << 20;
+
+    private static final int PREV_OFFSET = 32;
+
+    private static final int NEXT_OFFSET = 36;
+
+    private static final int CHAIN_OFFSET = 40;
+
+    private static final int DIRECTION_OFFSET = 44;
+
+    private final int chunkShift;
+
+    private final int chunkMask;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /**
+     * bucket heads of the id index, one int slot index each
+     */
+    private ByteBuffer buckets;
+
+    private int bucketMask;
+
+    /**
+     * slots handed out so far, free or not
+     */
+    @Getter
+    private int highWater;
+
+    private int freeHead = -1;
+
+    /**
+     * number of occupied slots
+     */
+    private int size;
+
+    public OffHeapOrderStore() {
+        this(DEFAULT_CHUNK_SLOTS, 1 << 16);
+    }
+
+    /**
+     * @param chunkSlots slots a chunk, power of 2
+     * @param expectedOrders orders expected to rest at once, sizes the id index
+     */
+    public OffHeapOrderStore(int chunkSlots, int expectedOrders) {
+        if (chunkSlots <= 0 || Integer.bitCount(chunkSlots) != 1 || (long) chunkSlots * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk slots " + chunkSlots + " is not a power of 2 that fits a buffer");
+        }
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSlots);
+        this.chunkMask = chunkSlots - 1;
+        allocateBuckets(Integer.highestOneBit(Math.max(expectedOrders, 8) * 2 - 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return slots the chunks hold
+     */
+    public long getCapacity() {
+        return (long) chunks.length << chunkShift;
+    }
+
+    /**
+     * @return direct memory of the chunks and the id index
+     */
+    public long getOffHeapBytes() {
+        return getCapacity() * SLOT_SIZE + buckets.capacity();
+    }
+
+    /**
+     * take a slot for a new resting order, unlinked from any queue
+     * @param orderId id no other stored order has, not 0
+     * @param price price in ticks
+     * @param quantity submit and available quantity in lots
+     * @param orderDirection
+     * @return slot of the order
+     */
+    public int allocate(long orderId, long price, long quantity, OrderDirection orderDirection) {
+        int slot = freeHead;
+        if (slot >= 0) {
+            freeHead = getNext(slot);
+        } else {
+            if (highWater == Integer.MAX_VALUE) {
+                throw new IllegalStateException("order store is full");
+            }
+            slot = highWater++;
+            if ((slot >>> chunkShift) == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect((chunkMask + 1) * SLOT_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        chunk.putLong(offset, orderId);
+        chunk.putLong(offset + 8, price);
+        chunk.putLong(offset + 16, quantity);
+        chunk.putLong(offset + 24, quantity);
+        chunk.putInt(offset + PREV_OFFSET, -1);
+        chunk.putInt(offset + NEXT_OFFSET, -1);
+        chunk.put(offset + DIRECTION_OFFSET, (byte) orderDirection.ordinal());
+        int bucket = bucketOf(orderId) << 2;
+        chunk.putInt(offset + CHAIN_OFFSET, buckets.getInt(bucket));
+        buckets.putInt(bucket, slot);
+        if (++size > bucketMask + 1) {
+            allocateBuckets((bucketMask + 1) << 1);
+        }
+        return slot;
+    }
+
+    /**
+     * drop a stored order from the id index and recycle its slot; unlink it from its queue first
+     * @param slot
+     */
+    public void free(int slot) {
+        long orderId = getOrderId(slot);
+        int bucket = bucketOf(orderId) << 2;
+        int current = buckets.getInt(bucket);
+        if (current == slot) {
+            buckets.putInt(bucket, getChain(slot));
+        } else {
+            while (getChain(current) != slot) {
+                current = getChain(current);
+            }
+            chunkOf(current).putInt(offsetOf(current) + CHAIN_OFFSET, getChain(slot));
+        }
+        chunkOf(slot).putLong(offsetOf(slot), 0L);
+        setNext(slot, freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    /**
+     * @param orderId
+     * @return slot of the stored order, or -1
+     */
+    public int find(long orderId) {
+        for (int slot = buckets.getInt(bucketOf(orderId) << 2); slot >= 0; slot = getChain(slot)) {
+            if (getOrderId(slot) == orderId) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public long getOrderId(int slot) {
+        return chunkOf(slot).getLong(offsetOf(slot));
+    }
+
+    public long getPrice(int slot) {
+        return chunkOf(slot).getLong(offsetOf(slot) + 8);
+    }
+
+    public long getSubmitQuantity(int slot) {
+        return chunkOf(slot).getLong(offsetOf(slot) + 16);
+    }
+
+    public long getAvailableQuantity(int slot) {
+        return chunkOf(slot).getLong(offsetOf(slot) + 24);
+    }
+
+    public void setAvailableQuantity(int slot, long quantity) {
+        chunkOf(slot).putLong(offsetOf(slot) + 24, quantity);
+    }
+
+    public OrderDirection getOrderDirection(int slot) {
+        return OrderDirection.values()[chunkOf(slot).get(offsetOf(slot) + DIRECTION_OFFSET)];
+    }
+
+    public int getPrev(int slot) {
+        return chunkOf(slot).getInt(offsetOf(slot) + PREV_OFFSET);
+    }
+
+    public void setPrev(int slot, int prev) {
+        chunkOf(slot).putInt(offsetOf(slot) + PREV_OFFSET, prev);
+    }
+
+    public int getNext(int slot) {
+        return chunkOf(slot).getInt(offsetOf(slot) + NEXT_OFFSET);
+    }
+
+    public void setNext(int slot, int next) {
+        chunkOf(slot).putInt(offsetOf(slot) + NEXT_OFFSET, next);
+    }
+
+    /**
+     * free every slot, the chunks are kept for reuse
+     */
+    public void clear() {
+        for (int bucket = 0; bucket <= bucketMask; bucket++) {
+            buckets.putInt(bucket << 2, -1);
+        }
+        freeHead = -1;
+        highWater = 0;
+        size = 0;
+    }
+
+    private int getChain(int slot) {
+        return chunkOf(slot).getInt(offsetOf(slot) + CHAIN_OFFSET);
+    }
+
+    private ByteBuffer chunkOf(int slot) {
+        return chunks[slot >>> chunkShift];
+    }
+
+    private int offsetOf(int slot) {
+        return (slot & chunkMask) * SLOT_SIZE;
+    }
+
+    private int bucketOf(long orderId) {
+        long hash = orderId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & bucketMask;
+    }
+
+    /**
+     * size the id index for {@code count} buckets and rehash the stored orders into it
+     */
+    private void allocateBuckets(int count) {
+        if ((long) count << 2 > Integer.MAX_VALUE) {
+            return;
+        }
+        buckets = ByteBuffer.allocateDirect(count << 2).order(ByteOrder.LITTLE_ENDIAN);
+        bucketMask = count - 1;
+        for (int bucket = 0; bucket < count; bucket++) {
+            buckets.putInt(bucket << 2, -1);
+        }
+        for (int slot = 0; slot < highWater; slot++) {
+            long orderId = getOrderId(slot);
+            if (orderId != 0) {
+                int head = bucketOf(orderId) << 2;
+                chunkOf(slot).putInt(offsetOf(slot) + CHAIN_OFFSET, buckets.getInt(head));
+                buckets.putInt(head, slot);
+            }
+        }
+    }
+}
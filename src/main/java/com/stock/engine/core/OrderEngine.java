@@ -1,29 +1,29 @@
 package com.stock.engine.core;
 
 import com.stock.engine.component.AbstractOrder;
+import com.stock.engine.component.Instrument;
 import com.stock.engine.constant.OrderDirection;
 import lombok.Data;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.collections4.map.LinkedMap;
 
 import java.math.BigDecimal;
-import java.util.Arrays;
 import java.util.Comparator;
 
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Queue;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * author Allen Wu
  * 843475854@qq.com
  * 2020/10/21
+ * <p>
+ * With an {@link ExecutionPublisher} every fill goes out as an {@link ExecutionReport}, in the
+ * ticks and lots of the {@link Instrument}. The publisher takes one matcher thread, so only set it
+ * when orders are submitted from a single thread.
  *
  * @param <T>
  */
@@ -47,18 +47,25 @@ public class OrderEngine<T extends AbstractOrder> {
     private Map<BigDecimal, Queue<T>> sellOrders = new ConcurrentSkipListMap<>(
             Comparator.naturalOrder());
 
+    /**
+     * tick and lot size the fills are reported in, needed with an execution publisher
+     */
+    private Instrument instrument;
+
+    /**
+     * receives every fill, none by default
+     */
+    private ExecutionPublisher executionPublisher;
+
     public Map<BigDecimal, BigDecimal> getTopOrders(int level, OrderDirection orderDirection) {
         Map<BigDecimal, BigDecimal> result = new LinkedMap<>();
-        Set<BigDecimal> prices = orderDirection.equals(OrderDirection.BUY) ? buyOrders.keySet() : sellOrders.keySet();
+        Map<BigDecimal, Queue<T>> stack = orderDirection.equals(OrderDirection.BUY) ? buyOrders : sellOrders;
         int i = 0;
-        for (BigDecimal price : prices) {
+        for (Map.Entry<BigDecimal, Queue<T>> entry : stack.entrySet()) {
             if (i > level) {
                 break;
             }
-            result.put(price,
-                    orderDirection.equals(OrderDirection.BUY) ? buyOrders.get(price).stream()
-                            .map(AbstractOrder::getAvailableQuantity).reduce(BigDecimal.ZERO, BigDecimal::add) : sellOrders.get(price).stream()
-                            .map(AbstractOrder::getAvailableQuantity).reduce(BigDecimal.ZERO, BigDecimal::add));
+            result.put(entry.getKey(), getStackQuantity(entry.getValue()));
             i++;
         }
         return result;
@@ -74,86 +81,111 @@ public class OrderEngine<T extends AbstractOrder> {
     }
 
     /**
-     * submit order;
+     * submit order; only the crossing levels are visited, best first, and matching stops as soon as
+     * the order is filled
      * @param order
      */
     public void submitOrder(T order) {
         if (OrderDirection.BUY.equals(order.getOrderDirection())) {
-            if (MapUtils.isNotEmpty(sellOrders)) {
-                sellOrders.keySet().forEach(sellPrice -> submitOrderToStack(order, sellPrice, sellOrders));
-                if (order.getAvailableQuantity().signum() == 1) {
-                    this.addToStack(order, buyOrders);
-                }
-            } else {
+            matchCrossingLevels(order, sellOrders);
+            if (order.getAvailableQuantity().signum() == 1) {
                 this.addToStack(order, buyOrders);
             }
         } else {
-            if (MapUtils.isNotEmpty(buyOrders)) {
-                buyOrders.keySet().forEach(buyPrice -> submitOrderToStack(order, buyPrice, buyOrders));
-                if (order.getAvailableQuantity().signum() == 1) {
-                    this.addToStack(order, sellOrders);
-                }
-            } else {
+            matchCrossingLevels(order, buyOrders);
+            if (order.getAvailableQuantity().signum() == 1) {
                 this.addToStack(order, sellOrders);
             }
         }
     }
 
-    private void submitOrderToStack(T order, BigDecimal marketPrice, Map<BigDecimal, Queue<T>> stack) {
-        if (order.getAvailableQuantity().signum() < 1) {
-            return;
-        }
-        Boolean priceMatched = false;
-        switch (order.getOrderDirection()) {
-            case BUY:
-                if (order.getPrice().compareTo(marketPrice) == 1) {
-                    priceMatched = true;
-                }
-                break;
-            case SELL:
-                if (order.getPrice().compareTo(marketPrice) <= 0) {
-                    priceMatched = true;
-                }
+    /**
+     * walk the opposite book from its best price while the order still crosses it and has quantity
+     * left
+     * @param order
+     * @param stack opposite book
+     */
+    private void matchCrossingLevels(T order, Map<BigDecimal, Queue<T>> stack) {
+        Iterator<BigDecimal> prices = stack.keySet().iterator();
+        while (order.getAvailableQuantity().signum() == 1 && prices.hasNext()) {
+            BigDecimal marketPrice = prices.next();
+            if (!crosses(order, marketPrice)) {
                 break;
+            }
+            submitOrderToStack(order, marketPrice, stack);
         }
-        if (!priceMatched) {
-            return;
-        }
+    }
+
+    private boolean crosses(T order, BigDecimal marketPrice) {
+        int compare = order.getPrice().compareTo(marketPrice);
+        return OrderDirection.BUY.equals(order.getOrderDirection()) ? compare >= 0 : compare <= 0;
+    }
+
+    private void submitOrderToStack(T order, BigDecimal marketPrice, Map<BigDecimal, Queue<T>> stack) {
         BigDecimal orderDealQuantity = order.getDealQuantity().get();
-        Optional<Queue<T>> priceQueue = Optional.ofNullable(stack.get(marketPrice));
-        if (priceQueue.isEmpty()) {
-            stack.remove(marketPrice, null);
+        Queue<T> priceQueue = stack.get(marketPrice);
+        if (Objects.isNull(priceQueue)) {
             return;
         }
         synchronized (priceQueue) {
-            if (CollectionUtils.isEmpty(priceQueue.get())) {
-                stack.remove(marketPrice, priceQueue.get());
+            if (CollectionUtils.isEmpty(priceQueue)) {
+                stack.remove(marketPrice, priceQueue);
                 return;
             }
-            BigDecimal currentStackQuantity = priceQueue.get().stream().map(AbstractOrder::getAvailableQuantity)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal currentStackQuantity = getStackQuantity(priceQueue);
             if (order.getAvailableQuantity().compareTo(currentStackQuantity) >= 0 &&
                     order.addDealQuantity(orderDealQuantity, currentStackQuantity)) {
-                //TODO Add to executed order;
-                stack.remove(marketPrice, priceQueue.get());
+                fillStackOrders(order, marketPrice, priceQueue, currentStackQuantity);
+                stack.remove(marketPrice, priceQueue);
             } else {
                 order.addDealQuantity(orderDealQuantity,
-                        applyQuantityForStackOrders(priceQueue.get(),
+                        applyQuantityForStackOrders(order, marketPrice, priceQueue,
                                 order.getAvailableQuantity()));
             }
         }
     }
 
+    /**
+     * available quantity of a price level, cached by {@link PriceQueue}
+     * @param priceQueue
+     * @return available quantity
+     */
+    private BigDecimal getStackQuantity(Queue<T> priceQueue) {
+        if (priceQueue instanceof PriceQueue) {
+            return ((PriceQueue<T>) priceQueue).getTotalQuantity();
+        }
+        return priceQueue.stream().map(AbstractOrder::getAvailableQuantity).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
     private void addToStack(T order, Map<BigDecimal, Queue<T>> stack) {
         if (Objects.isNull(stack.computeIfPresent(order.getPrice(), (k, oldValue) -> {
             oldValue.add(order);
             return oldValue;
         }))) {
-            stack.putIfAbsent(order.getPrice(), new ConcurrentLinkedQueue<>(Arrays.asList(order)));
+            stack.putIfAbsent(order.getPrice(), new PriceQueue<>(order));
+        }
+    }
+
+    /**
+     * fill every order of a level the taker took whole, the taker is already filled
+     * @param taker incoming order
+     * @param marketPrice level price
+     * @param orders level queue
+     * @param levelQuantity lots the level had
+     */
+    private void fillStackOrders(T taker, BigDecimal marketPrice, Queue<T> orders, BigDecimal levelQuantity) {
+        BigDecimal takerAvailable = taker.getAvailableQuantity().add(levelQuantity);
+        for (T order : orders) {
+            BigDecimal quantity = order.getAvailableQuantity();
+            order.addDealQuantity(order.getDealQuantity().get(), quantity);
+            takerAvailable = takerAvailable.subtract(quantity);
+            reportFill(taker, order, marketPrice, quantity, takerAvailable);
         }
     }
 
-    private BigDecimal applyQuantityForStackOrders(Queue<T> orders, BigDecimal quantity) {
+    private BigDecimal applyQuantityForStackOrders(T taker, BigDecimal marketPrice, Queue<T> orders,
+                                                   BigDecimal quantity) {
+        BigDecimal takerAvailable = taker.getAvailableQuantity();
         BigDecimal appliedQuantity = BigDecimal.ZERO;
         Iterator<T> tIterator = orders.iterator();
         while (tIterator.hasNext()) {
@@ -163,21 +195,42 @@ public class OrderEngine<T extends AbstractOrder> {
             T order = tIterator.next();
             BigDecimal dealQuantity = order.getDealQuantity().get();
             if (order.getAvailableQuantity().compareTo(quantity) == 1) {
+                BigDecimal filled = quantity;
                 order.addDealQuantity(dealQuantity, quantity);
                 appliedQuantity = appliedQuantity.add(quantity);
                 quantity = BigDecimal.ZERO;
-                //TODO Add to executed order;
+                reportFill(taker, order, marketPrice, filled, takerAvailable.subtract(appliedQuantity));
             } else {
-                appliedQuantity = appliedQuantity.add(order.getAvailableQuantity());
-                quantity = quantity.subtract(order.getAvailableQuantity());
-                order.addDealQuantity(dealQuantity, order.getAvailableQuantity());
+                BigDecimal filled = order.getAvailableQuantity();
+                appliedQuantity = appliedQuantity.add(filled);
+                quantity = quantity.subtract(filled);
+                order.addDealQuantity(dealQuantity, filled);
                 orders.remove(order);
-                //TODO Add to executed order;
+                reportFill(taker, order, marketPrice, filled, takerAvailable.subtract(appliedQuantity));
             }
         }
+        if (orders instanceof PriceQueue) {
+            ((PriceQueue<T>) orders).deal(appliedQuantity);
+        }
         return appliedQuantity;
     }
 
+    /**
+     * @param takerAvailable what the taker has left after this fill
+     */
+    private void reportFill(T taker, T maker, BigDecimal price, BigDecimal quantity, BigDecimal takerAvailable) {
+        ExecutionPublisher executionPublisher = this.executionPublisher;
+        if (executionPublisher == null) {
+            return;
+        }
+        if (instrument == null) {
+            throw new IllegalStateException("fills need an instrument to be reported in ticks and lots");
+        }
+        executionPublisher.publish(taker.getOrderId(), maker.getOrderId(), taker.getOrderDirection(),
+                instrument.toTicks(price), instrument.toLots(quantity), instrument.toLots(takerAvailable),
+                instrument.toLots(maker.getAvailableQuantity()));
+    }
+
     public void reset() {
         System.out.println("size ask = " + sellOrders.size());
         System.out.println("size bid = " + buyOrders.size());
@@ -0,0 +1,24 @@
+package com.stock.engine.core;
+
+/**
+ * consumer side of the {@link OrderSequencer}, always invoked from the single matcher thread
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface OrderHandler<T> {
+
+    /**
+     * handle one sequenced order
+     * @param order published order
+     * @param sequence sequence the order was published with
+     * @param endOfBatch true when no further published order is currently waiting
+     */
+    void onOrder(T order, long sequence, boolean endOfBatch);
+
+    /**
+     * called while no published order is waiting, for work that is due on time rather than on orders
+     */
+    default void onIdle() {
+    }
+}
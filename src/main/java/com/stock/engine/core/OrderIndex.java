@@ -0,0 +1,153 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+
+import java.util.Arrays;
+
+/**
+ * Resting orders by order id, an open-addressing hash table keyed by primitive {@code long}.
+ * <p>
+ * Linear probing over parallel key and value arrays, no boxing and no entry objects. Removal
+ * shifts the following entries of the probe run back instead of leaving tombstones, so lookups
+ * stay short under a cancel-heavy flow. Id 0 is reserved for "no order". Single writer.
+ */
+public class OrderIndex {
+
+    private static final int DEFAULT_CAPACITY = 1 << 12;
+
+    private long[] keys;
+
+    private LongOrder[] values;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeThreshold;
+
+    public OrderIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize orders expected to rest at once
+     */
+    public OrderIndex(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param orderId
+     * @return resting order, or null
+     */
+    public LongOrder get(long orderId) {
+        if (orderId == 0) {
+            return null;
+        }
+        long[] keys = this.keys;
+        for (int index = indexOf(orderId); ; index = (index + 1) & mask) {
+            long key = keys[index];
+            if (key == orderId) {
+                return values[index];
+            }
+            if (key == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param order order with a non-zero id
+     * @return order previously indexed under the id, or null
+     */
+    public LongOrder put(LongOrder order) {
+        long orderId = order.getOrderId();
+        if (orderId == 0) {
+            throw new IllegalArgumentException("order id 0 is reserved");
+        }
+        int index = indexOf(orderId);
+        while (keys[index] != 0) {
+            if (keys[index] == orderId) {
+                LongOrder previous = values[index];
+                values[index] = order;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = orderId;
+        values[index] = order;
+        if (++size > resizeThreshold) {
+            allocate(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @param orderId
+     * @return removed order, or null
+     */
+    public LongOrder remove(long orderId) {
+        // 0 marks an empty slot, it would match the first free slot of the probe
+        if (orderId == 0) {
+            return null;
+        }
+        int index = indexOf(orderId);
+        while (keys[index] != orderId) {
+            if (keys[index] == 0) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+        LongOrder removed = values[index];
+        // backward shift: move later entries of the run into the hole when their home allows it
+        int hole = index;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = indexOf(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long orderId) {
+        long hash = orderId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        LongOrder[] oldValues = values;
+        keys = new long[capacity];
+        values = new LongOrder[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity >> 1;
+        size = 0;
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldValues[i]);
+                }
+            }
+        }
+    }
+}
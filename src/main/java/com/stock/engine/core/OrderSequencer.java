@@ -0,0 +1,246 @@
+package com.stock.engine.core;
+
+import com.stock.engine.metrics.EngineMetrics;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single-writer front-end for order matching.
+ * <p>
+ * Any number of producer threads publish orders into a preallocated {@link RingBuffer}; one
+ * dedicated matcher thread drains it in sequence order and hands each order to the
+ * {@link OrderHandler}. The handler never runs concurrently with itself, so it can match
+ * without locks or CAS and the result only depends on the publish sequence.
+ *
+ * @param <T>
+ */
+public class OrderSequencer<T> implements AutoCloseable {
+
+    /**
+     * default matcher thread name
+     */
+    public static final String MATCHER_THREAD_NAME = "order-matcher";
+
+    private final RingBuffer<Slot<T>> ringBuffer;
+
+    private final OrderHandler<T> handler;
+
+    private final ThreadFactory threadFactory;
+
+    private volatile boolean running;
+
+    private Thread matcherThread;
+
+    /**
+     * number of orders the handler failed on
+     */
+    @Getter
+    private volatile long failedCount;
+
+    /**
+     * last failure raised by the handler
+     */
+    @Getter
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * where submit-to-ack latency and queue depth go, none by default
+     */
+    @Getter
+    @Setter
+    private volatile EngineMetrics metrics;
+
+    public OrderSequencer(int bufferSize, OrderHandler<T> handler) {
+        this(bufferSize, handler, runnable -> {
+            Thread thread = new Thread(runnable, MATCHER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param bufferSize ring size, power of 2
+     * @param handler matching stage
+     * @param threadFactory factory for the matcher thread, the place to pin it to an isolated core
+     */
+    public OrderSequencer(int bufferSize, OrderHandler<T> handler, ThreadFactory threadFactory) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, Slot::new);
+        this.handler = handler;
+        this.threadFactory = threadFactory;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        matcherThread = threadFactory.newThread(this::matchLoop);
+        matcherThread.start();
+    }
+
+    /**
+     * publish an order, waiting while the ring is full
+     * @param order
+     * @return sequence of the order
+     */
+    public long publish(T order) {
+        checkRunning();
+        long sequence = ringBuffer.next();
+        fill(ringBuffer.get(sequence), order);
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    /**
+     * publish a burst of orders under consecutive sequences, claiming ring space once per ring-full
+     * of orders instead of once per order; the matcher sees them in array order, usually in one
+     * handler batch
+     * @param orders
+     * @param offset index of the first order
+     * @param length number of orders
+     * @return sequence of the last order, or the current cursor when {@code length} is 0
+     */
+    public long publish(T[] orders, int offset, int length) {
+        checkRunning();
+        long sequence = ringBuffer.getCursor();
+        long publishNanos = metrics == null ? 0 : System.nanoTime();
+        int end = offset + length;
+        while (offset < end) {
+            int n = Math.min(end - offset, ringBuffer.getCapacity());
+            sequence = ringBuffer.next(n);
+            long lo = sequence - n + 1;
+            for (long claimed = lo; claimed <= sequence; claimed++) {
+                Slot<T> slot = ringBuffer.get(claimed);
+                slot.order = orders[offset++];
+                slot.publishNanos = publishNanos;
+            }
+            ringBuffer.publish(lo, sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * publish an order if the ring has room
+     * @param order
+     * @return sequence of the order, or -1 when the ring is full
+     */
+    public long tryPublish(T order) {
+        checkRunning();
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            return -1;
+        }
+        fill(ringBuffer.get(sequence), order);
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    /**
+     * wait until every order published before this call has been handled
+     */
+    public void drain() {
+        long target = ringBuffer.getCursor();
+        int idle = 0;
+        while (ringBuffer.getConsumerSequence() < target) {
+            idle = RingBuffer.backOff(idle);
+        }
+    }
+
+    /**
+     * @return last sequence handled by the matcher thread
+     */
+    public long getSequence() {
+        return ringBuffer.getConsumerSequence();
+    }
+
+    public long remainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * @return number of orders claimed but not yet handled
+     */
+    public long getBacklog() {
+        return ringBuffer.getCursor() - ringBuffer.getConsumerSequence();
+    }
+
+    /**
+     * stop accepting orders, handle everything already published and stop the matcher thread
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = matcherThread;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void matchLoop() {
+        long next = ringBuffer.getConsumerSequence() + 1;
+        int idle = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            if (available < next) {
+                if (!running && ringBuffer.getCursor() < next) {
+                    return;
+                }
+                try {
+                    handler.onIdle();
+                } catch (RuntimeException e) {
+                    lastFailure = e;
+                }
+                idle = RingBuffer.backOff(idle);
+                continue;
+            }
+            idle = 0;
+            EngineMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.getQueueDepth().record(available - next + 1);
+            }
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot<T> slot = ringBuffer.get(sequence);
+                T order = slot.order;
+                long publishNanos = slot.publishNanos;
+                slot.order = null;
+                try {
+                    handler.onOrder(order, sequence, sequence == available);
+                } catch (RuntimeException e) {
+                    failedCount++;
+                    lastFailure = e;
+                }
+                if (metrics != null && publishNanos != 0) {
+                    metrics.getSubmitToAck().record(System.nanoTime() - publishNanos);
+                }
+            }
+            ringBuffer.setConsumerSequence(available);
+            next = available + 1;
+        }
+    }
+
+    private void fill(Slot<T> slot, T order) {
+        slot.order = order;
+        slot.publishNanos = metrics == null ? 0 : System.nanoTime();
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("sequencer is not running");
+        }
+    }
+
+    private static final class Slot<T> {
+        private T order;
+        private long publishNanos;
+    }
+}
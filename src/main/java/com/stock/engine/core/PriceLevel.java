@@ -0,0 +1,145 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * resting orders at one price of a {@link BookSide}, in time priority
+ * <p>
+ * The orders form an intrusive doubly-linked list through {@link LongOrder#getPrev()} and
+ * {@link LongOrder#getNext()}, so any order leaves the level in O(1) without a scan. The level
+ * keeps its aggregate quantity and order count up to date on add, fill, reduce and removal, so
+ * depth queries never walk the orders. Mutate it through its own methods only.
+ */
+@Getter
+public class PriceLevel {
+
+    /**
+     * price in ticks
+     */
+    private final long price;
+
+    /**
+     * oldest resting order, walk {@link LongOrder#getNext()} from here
+     */
+    private LongOrder head;
+
+    /**
+     * newest resting order
+     */
+    private LongOrder tail;
+
+    /**
+     * available quantity of all resting orders in lots
+     */
+    private long totalQuantity;
+
+    /**
+     * number of resting orders
+     */
+    private int orderCount;
+
+    /**
+     * last batch of the owning {@link LongOrderEngine} that changed the level
+     */
+    @Getter(AccessLevel.NONE)
+    long batchMark;
+
+    public PriceLevel(long price) {
+        this.price = price;
+    }
+
+    public boolean isEmpty() {
+        return orderCount == 0;
+    }
+
+    public void addLast(LongOrder order) {
+        order.setPrev(tail);
+        order.setNext(null);
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.setNext(order);
+        }
+        tail = order;
+        totalQuantity += order.getAvailableQuantity();
+        orderCount++;
+    }
+
+    public LongOrder peekFirst() {
+        return head;
+    }
+
+    public LongOrder peekLast() {
+        return tail;
+    }
+
+    /**
+     * fill a resting order of this level
+     * @param order resting order
+     * @param quantity dealt lots
+     */
+    public void fill(LongOrder order, long quantity) {
+        order.fill(quantity);
+        totalQuantity -= quantity;
+    }
+
+    /**
+     * take lots off a resting order, it keeps its place in the queue
+     * @param order resting order
+     * @param quantity reduced lots, less than its available quantity
+     */
+    public void reduce(LongOrder order, long quantity) {
+        order.reduce(quantity);
+        totalQuantity -= quantity;
+    }
+
+    /**
+     * drop the oldest order, whatever quantity it still has
+     * @return removed order
+     */
+    public LongOrder pollFirst() {
+        LongOrder order = head;
+        if (order != null) {
+            remove(order);
+        }
+        return order;
+    }
+
+    /**
+     * unlink a resting order of this level, whatever quantity it still has
+     * @param order resting order
+     */
+    public void remove(LongOrder order) {
+        LongOrder prev = order.getPrev();
+        LongOrder next = order.getNext();
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.setNext(next);
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.setPrev(prev);
+        }
+        order.setPrev(null);
+        order.setNext(null);
+        totalQuantity -= order.getAvailableQuantity();
+        orderCount--;
+    }
+
+    public void clear() {
+        for (LongOrder order = head; order != null; ) {
+            LongOrder next = order.getNext();
+            order.setPrev(null);
+            order.setNext(null);
+            order = next;
+        }
+        head = null;
+        tail = null;
+        totalQuantity = 0;
+        orderCount = 0;
+    }
+}
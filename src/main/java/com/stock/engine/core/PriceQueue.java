@@ -0,0 +1,84 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.AbstractOrder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Price level queue of {@link OrderEngine} with a running aggregate.
+ * <p>
+ * The available quantity of the level and its order count are updated on {@link #offer},
+ * {@link #remove}, {@link #poll} and {@link #deal} instead of being re-summed on every access.
+ * Updates hold the queue monitor, the same one {@link OrderEngine} matches a level under.
+ *
+ * @param <T>
+ */
+public class PriceQueue<T extends AbstractOrder> extends ConcurrentLinkedQueue<T> {
+    private static final long serialVersionUID = -2466302532542707741L;
+
+    private BigDecimal totalQuantity = BigDecimal.ZERO;
+
+    private int orderCount;
+
+    public PriceQueue() {
+    }
+
+    public PriceQueue(T order) {
+        offer(order);
+    }
+
+    public synchronized BigDecimal getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public synchronized int getOrderCount() {
+        return orderCount;
+    }
+
+    @Override
+    public synchronized boolean offer(T order) {
+        super.offer(order);
+        totalQuantity = totalQuantity.add(order.getAvailableQuantity());
+        orderCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized T poll() {
+        T order = super.poll();
+        if (order != null) {
+            totalQuantity = totalQuantity.subtract(order.getAvailableQuantity());
+            orderCount--;
+        }
+        return order;
+    }
+
+    /**
+     * remove an order with whatever quantity it still has
+     */
+    @Override
+    public synchronized boolean remove(Object o) {
+        if (!super.remove(o)) {
+            return false;
+        }
+        totalQuantity = totalQuantity.subtract(((AbstractOrder) o).getAvailableQuantity());
+        orderCount--;
+        return true;
+    }
+
+    /**
+     * record quantity dealt from orders of this level
+     * @param quantity dealt quantity
+     */
+    public synchronized void deal(BigDecimal quantity) {
+        totalQuantity = totalQuantity.subtract(quantity);
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        totalQuantity = BigDecimal.ZERO;
+        orderCount = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.stock.engine.core;
+
+import lombok.Getter;
+
+/**
+ * best bid and ask as read from a {@link TopOfBook}; a reader reuses one quote for every read
+ */
+@Getter
+public class Quote {
+
+    /**
+     * best bid price in ticks, 0 when there is no bid
+     */
+    long bidPrice;
+
+    /**
+     * available quantity at the best bid in lots, 0 when there is no bid
+     */
+    long bidQuantity;
+
+    /**
+     * best ask price in ticks, 0 when there is no ask
+     */
+    long askPrice;
+
+    /**
+     * available quantity at the best ask in lots, 0 when there is no ask
+     */
+    long askQuantity;
+
+    /**
+     * book version the quote was published at, 0 before the first publication
+     */
+    long sequence;
+
+    @Override
+    public String toString() {
+        return "Quote sequence:" + sequence + ", bid:" + bidQuantity + "@" + bidPrice + ", ask:" + askQuantity
+                + "@" + askPrice;
+    }
+}
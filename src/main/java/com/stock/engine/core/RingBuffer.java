@@ -0,0 +1,183 @@
+package com.stock.engine.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated ring of reusable events, many producers and a single consumer.
+ * <p>
+ * Producers claim a sequence, fill the event stored at that sequence and publish it.
+ * The consumer reads published events strictly in sequence order and releases them by
+ * advancing its own sequence, which is the only thing producers wait on.
+ *
+ * @param <E> event type
+ */
+public class RingBuffer<E> {
+
+    /**
+     * preallocated events
+     */
+    private final Object[] entries;
+
+    private final int mask;
+
+    private final int indexShift;
+
+    /**
+     * lap number of the last publish per slot, used to detect out-of-order publishing
+     */
+    private final AtomicIntegerArray availableFlags;
+
+    /**
+     * highest claimed sequence
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * highest sequence released by the consumer
+     */
+    private final AtomicLong consumerSequence = new AtomicLong(-1);
+
+    public RingBuffer(int capacity, Supplier<E> eventFactory) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        this.entries = new Object[capacity];
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.availableFlags = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = eventFactory.get();
+            availableFlags.set(i, -1);
+        }
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * claim the next sequence, waiting for the consumer while the ring is full
+     * @return claimed sequence
+     */
+    public long next() {
+        long sequence = cursor.getAndIncrement() + 1;
+        long wrapPoint = sequence - entries.length;
+        int idle = 0;
+        while (wrapPoint > consumerSequence.get()) {
+            idle = backOff(idle);
+        }
+        return sequence;
+    }
+
+    /**
+     * claim {@code n} consecutive sequences with a single update of the cursor, waiting for the
+     * consumer while the ring is full
+     * @param n number of sequences, at most the capacity
+     * @return highest claimed sequence, the first one is {@code n - 1} below it
+     */
+    public long next(int n) {
+        if (n < 1 || n > entries.length) {
+            throw new IllegalArgumentException("cannot claim " + n + " of " + entries.length + " slots");
+        }
+        long sequence = cursor.getAndAdd(n) + n;
+        long wrapPoint = sequence - entries.length;
+        int idle = 0;
+        while (wrapPoint > consumerSequence.get()) {
+            idle = backOff(idle);
+        }
+        return sequence;
+    }
+
+    /**
+     * claim the next sequence without waiting
+     * @return claimed sequence, or -1 when the ring is full
+     */
+    public long tryNext() {
+        long current;
+        do {
+            current = cursor.get();
+            if (current + 1 - entries.length > consumerSequence.get()) {
+                return -1;
+            }
+        } while (!cursor.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        availableFlags.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * publish a claimed range
+     * @param lo first sequence
+     * @param hi last sequence, inclusive
+     */
+    public void publish(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            publish(sequence);
+        }
+    }
+
+    public boolean isAvailable(long sequence) {
+        return availableFlags.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * highest sequence from {@code lowerBound} such that every sequence before it is published
+     * @param lowerBound first sequence to check
+     * @return highest contiguous published sequence, or {@code lowerBound - 1} when none
+     */
+    public long getHighestPublished(long lowerBound) {
+        long upperBound = cursor.get();
+        for (long sequence = lowerBound; sequence <= upperBound; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return upperBound;
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public long getConsumerSequence() {
+        return consumerSequence.get();
+    }
+
+    /**
+     * release every slot up to and including {@code sequence} back to the producers
+     * @param sequence last consumed sequence
+     */
+    public void setConsumerSequence(long sequence) {
+        consumerSequence.lazySet(sequence);
+    }
+
+    public long remainingCapacity() {
+        return entries.length - (cursor.get() - consumerSequence.get());
+    }
+
+    /**
+     * spin, then yield, then park, so an idle side does not burn a whole core forever
+     * @param idle number of consecutive idle rounds
+     * @return next idle count
+     */
+    public static int backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1_000L);
+        }
+        return idle + 1;
+    }
+}
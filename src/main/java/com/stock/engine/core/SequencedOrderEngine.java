@@ -0,0 +1,115 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.AbstractOrder;
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.collections4.map.LinkedMap;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Price-time matching for a single writer thread, meant to sit behind an {@link OrderSequencer}.
+ * <p>
+ * Unlike {@link OrderEngine} nothing here is thread safe: books are plain sorted maps of plain
+ * deques and fills are applied without locks or CAS. Query methods must be called from the
+ * matcher thread or after {@link OrderSequencer#drain()}.
+ *
+ * @param <T>
+ */
+public class SequencedOrderEngine<T extends AbstractOrder> implements OrderHandler<T> {
+
+    /**
+     * what exchange the engine running on
+     */
+    @Getter
+    @Setter
+    private String exchangeName;
+
+    /**
+     * buy order queue
+     */
+    @Getter
+    private final NavigableMap<BigDecimal, Deque<T>> buyOrders = new TreeMap<>(Comparator.reverseOrder());
+
+    /**
+     * sell order queue
+     */
+    @Getter
+    private final NavigableMap<BigDecimal, Deque<T>> sellOrders = new TreeMap<>(Comparator.naturalOrder());
+
+    @Override
+    public void onOrder(T order, long sequence, boolean endOfBatch) {
+        submitOrder(order);
+    }
+
+    /**
+     * match the order against the opposite book in price-time priority and rest the remainder
+     * @param order
+     */
+    public void submitOrder(T order) {
+        boolean buy = OrderDirection.BUY.equals(order.getOrderDirection());
+        NavigableMap<BigDecimal, Deque<T>> opposite = buy ? sellOrders : buyOrders;
+        while (order.getAvailableQuantity().signum() == 1 && !opposite.isEmpty()) {
+            Map.Entry<BigDecimal, Deque<T>> best = opposite.firstEntry();
+            int compare = order.getPrice().compareTo(best.getKey());
+            if (buy ? compare < 0 : compare > 0) {
+                break;
+            }
+            matchLevel(order, best.getValue());
+            if (best.getValue().isEmpty()) {
+                opposite.pollFirstEntry();
+            }
+        }
+        if (order.getAvailableQuantity().signum() == 1) {
+            (buy ? buyOrders : sellOrders).computeIfAbsent(order.getPrice(), k -> new ArrayDeque<>()).addLast(order);
+        }
+    }
+
+    private void matchLevel(T order, Deque<T> priceQueue) {
+        while (order.getAvailableQuantity().signum() == 1 && !priceQueue.isEmpty()) {
+            T restingOrder = priceQueue.peekFirst();
+            BigDecimal quantity = order.getAvailableQuantity().min(restingOrder.getAvailableQuantity());
+            order.fill(quantity);
+            restingOrder.fill(quantity);
+            if (restingOrder.getAvailableQuantity().signum() < 1) {
+                priceQueue.pollFirst();
+            }
+        }
+    }
+
+    public Map<BigDecimal, BigDecimal> getTopOrders(int level, OrderDirection orderDirection) {
+        Map<BigDecimal, BigDecimal> result = new LinkedMap<>();
+        NavigableMap<BigDecimal, Deque<T>> stack = OrderDirection.BUY.equals(orderDirection) ? buyOrders : sellOrders;
+        for (Map.Entry<BigDecimal, Deque<T>> entry : stack.entrySet()) {
+            if (result.size() >= level) {
+                break;
+            }
+            result.put(entry.getKey(), entry.getValue().stream()
+                    .map(AbstractOrder::getAvailableQuantity).reduce(BigDecimal.ZERO, BigDecimal::add));
+        }
+        return result;
+    }
+
+    public void printOrderBook() {
+        System.out.println("");
+        System.out.println("____ bid ____ ");
+        System.out.println(getTopOrders(10, OrderDirection.BUY));
+        System.out.println("____ask ____ ");
+        System.out.println(getTopOrders(10, OrderDirection.SELL));
+        System.out.println("_____________ ");
+    }
+
+    public void reset() {
+        System.out.println("size ask = " + sellOrders.size());
+        System.out.println("size bid = " + buyOrders.size());
+        sellOrders.clear();
+        buyOrders.clear();
+    }
+}
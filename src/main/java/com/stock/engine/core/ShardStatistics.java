@@ -0,0 +1,54 @@
+package com.stock.engine.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * load of one {@link ShardedOrderEngine} shard at the time it was taken
+ */
+@Getter
+@AllArgsConstructor
+public class ShardStatistics {
+
+    /**
+     * shard index
+     */
+    private final int shard;
+
+    /**
+     * number of symbols owned by the shard
+     */
+    private final int symbolCount;
+
+    /**
+     * orders routed to the shard
+     */
+    private final long publishedCount;
+
+    /**
+     * orders matched by the shard
+     */
+    private final long matchedCount;
+
+    /**
+     * orders waiting in the shard inbound queue
+     */
+    private final long backlog;
+
+    /**
+     * symbol with the most matched orders, null when the shard is idle
+     */
+    private final String busiestSymbol;
+
+    /**
+     * orders matched for the busiest symbol
+     */
+    private final long busiestSymbolCount;
+
+    @Override
+    public String toString() {
+        return "Shard " + shard + " symbols:" + symbolCount + ", published:" + publishedCount
+                + ", matched:" + matchedCount + ", backlog:" + backlog
+                + ", busiest:" + busiestSymbol + "(" + busiestSymbolCount + ")";
+    }
+}
@@ -0,0 +1,244 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Multi-instrument engine: one {@link LongOrderEngine} per symbol, symbols spread over shards.
+ * <p>
+ * Each shard is an {@link OrderSequencer} with its own inbound ring and matcher thread, and owns
+ * the books of the symbols mapped to it by consistent hashing. Orders are routed by
+ * {@link LongOrder#getSymbol()}; a hot symbol only slows down the shard it lives on.
+ */
+public class ShardedOrderEngine implements AutoCloseable {
+
+    /**
+     * virtual nodes per shard on the hash ring
+     */
+    private static final int VIRTUAL_NODES = 64;
+
+    private final Shard[] shards;
+
+    /**
+     * hash ring point to shard index
+     */
+    private final TreeMap<Integer, Integer> hashRing = new TreeMap<>();
+
+    private final Map<String, SymbolBook> books = new ConcurrentHashMap<>();
+
+    private final Function<Instrument, LongOrderEngine> engineFactory;
+
+    /**
+     * @param shardCount number of matcher threads
+     * @param bufferSize inbound ring size of each shard, power of 2
+     */
+    public ShardedOrderEngine(int shardCount, int bufferSize) {
+        this(shardCount, bufferSize, LongOrderEngine::new);
+    }
+
+    /**
+     * @param shardCount number of matcher threads
+     * @param bufferSize inbound ring size of each shard, power of 2
+     * @param engineFactory creates the book of a newly added instrument
+     */
+    public ShardedOrderEngine(int shardCount, int bufferSize, Function<Instrument, LongOrderEngine> engineFactory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shard count must be positive");
+        }
+        this.engineFactory = engineFactory;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, bufferSize);
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                hashRing.put(mix(i * 0x9E3779B9 + v), i);
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            shard.sequencer.start();
+        }
+    }
+
+    /**
+     * add a book for the instrument on the shard its symbol hashes to
+     * @param instrument
+     * @return book of the instrument
+     */
+    public synchronized LongOrderEngine addInstrument(Instrument instrument) {
+        return books.computeIfAbsent(instrument.getSymbol(), symbol -> {
+            Shard shard = shards[shardOf(symbol)];
+            shard.symbolCount++;
+            return new SymbolBook(engineFactory.apply(instrument), shard);
+        }).engine;
+    }
+
+    /**
+     * @param symbol
+     * @return shard index the symbol is mapped to
+     */
+    public int shardOf(String symbol) {
+        Map.Entry<Integer, Integer> point = hashRing.ceilingEntry(mix(symbol.hashCode()));
+        return point == null ? hashRing.firstEntry().getValue() : point.getValue();
+    }
+
+    /**
+     * route an order to the shard of its symbol, waiting while the shard queue is full
+     * @param order order with a registered symbol
+     * @return sequence of the order in its shard
+     */
+    public long submitOrder(LongOrder order) {
+        Shard shard = getBook(order.getSymbol()).shard;
+        shard.publishedCount.increment();
+        return shard.sequencer.publish(order);
+    }
+
+    /**
+     * route an order from the API edge
+     * @return routed order
+     */
+    public LongOrder submitOrder(String symbol, BigDecimal price, BigDecimal quantity, OrderDirection orderDirection) {
+        LongOrder order = getBook(symbol).engine.newOrder(price, quantity, orderDirection);
+        submitOrder(order);
+        return order;
+    }
+
+    /**
+     * book of a symbol; only read it from its shard, or after {@link #drain()}
+     * @param symbol
+     * @return book, or null when the symbol is unknown
+     */
+    public LongOrderEngine getEngine(String symbol) {
+        SymbolBook book = books.get(symbol);
+        return book == null ? null : book.engine;
+    }
+
+    public Map<BigDecimal, BigDecimal> getTopOrders(String symbol, int level, OrderDirection orderDirection) {
+        return getBook(symbol).engine.getTopOrders(level, orderDirection);
+    }
+
+    /**
+     * @param symbol
+     * @return orders matched for the symbol so far
+     */
+    public long getOrderCount(String symbol) {
+        return getBook(symbol).orderCount;
+    }
+
+    public List<ShardStatistics> getShardStatistics() {
+        List<ShardStatistics> result = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            String busiestSymbol = null;
+            long busiestSymbolCount = 0;
+            for (Map.Entry<String, SymbolBook> entry : books.entrySet()) {
+                SymbolBook book = entry.getValue();
+                if (book.shard == shard && book.orderCount > busiestSymbolCount) {
+                    busiestSymbol = entry.getKey();
+                    busiestSymbolCount = book.orderCount;
+                }
+            }
+            result.add(new ShardStatistics(shard.index, shard.symbolCount, shard.publishedCount.sum(),
+                    shard.matchedCount, shard.sequencer.getBacklog(),
+                    busiestSymbol, busiestSymbolCount));
+        }
+        return result;
+    }
+
+    /**
+     * wait until every shard has matched everything published before this call
+     */
+    public void drain() {
+        for (Shard shard : shards) {
+            shard.sequencer.drain();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.sequencer.close();
+        }
+    }
+
+    private SymbolBook getBook(String symbol) {
+        SymbolBook book = symbol == null ? null : books.get(symbol);
+        if (book == null) {
+            throw new IllegalArgumentException("unknown symbol " + symbol);
+        }
+        return book;
+    }
+
+    /**
+     * spread close hash codes over the ring
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private final class Shard implements OrderHandler<LongOrder> {
+
+        private final int index;
+
+        private final OrderSequencer<LongOrder> sequencer;
+
+        private final LongAdder publishedCount = new LongAdder();
+
+        private volatile long matchedCount;
+
+        private volatile int symbolCount;
+
+        private Shard(int index, int bufferSize) {
+            this.index = index;
+            this.sequencer = new OrderSequencer<>(bufferSize, this, runnable -> {
+                Thread thread = new Thread(runnable, OrderSequencer.MATCHER_THREAD_NAME + "-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void onOrder(LongOrder order, long sequence, boolean endOfBatch) {
+            SymbolBook book = books.get(order.getSymbol());
+            book.engine.submitOrder(order);
+            book.orderCount++;
+            matchedCount++;
+        }
+    }
+
+    private static final class SymbolBook {
+
+        private final LongOrderEngine engine;
+
+        private final Shard shard;
+
+        /**
+         * written by the owning shard only
+         */
+        private volatile long orderCount;
+
+        private SymbolBook(LongOrderEngine engine, Shard shard) {
+            this.engine = engine;
+            this.shard = shard;
+        }
+    }
+}
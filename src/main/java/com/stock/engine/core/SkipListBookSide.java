@@ -0,0 +1,211 @@
+package com.stock.engine.core;
+
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * {@link BookSide} for an instrument without a known price band, kept in a skip list.
+ * <p>
+ * The skip list is keyed by primitive {@code long} over parallel arrays, like {@link OrderIndex}:
+ * node {@code n} holds its key in {@code keys[n]}, its level in {@code levels[n]} and its forward
+ * links in {@code forwards[n * MAX_HEIGHT ...]}, node 0 being the head. Buy prices are negated so
+ * the best level is always the first node. Lookups and inserts box nothing, and nodes of removed
+ * levels are reused, so only a new {@link PriceLevel} and array growth allocate.
+ */
+public class SkipListBookSide implements BookSide {
+
+    private static final int MAX_HEIGHT = 16;
+
+    private static final int HEAD = 0;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Getter
+    private final OrderDirection orderDirection;
+
+    private final boolean buy;
+
+    private long[] keys;
+
+    private PriceLevel[] levels;
+
+    /**
+     * {@code MAX_HEIGHT} links per node, 0 for none; the first link of a free node chains the free list
+     */
+    private int[] forwards;
+
+    /**
+     * last node before the searched key on every height, filled by {@link #search(long)}
+     */
+    private final int[] update = new int[MAX_HEIGHT];
+
+    /**
+     * first node never used
+     */
+    private int nodeCount = 1;
+
+    /**
+     * first free node, 0 when none
+     */
+    private int freeNode;
+
+    /**
+     * number of heights in use
+     */
+    private int height = 1;
+
+    private int size;
+
+    /**
+     * xorshift state for node heights, fixed so a book builds the same way on every run
+     */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    public SkipListBookSide(OrderDirection orderDirection) {
+        this.orderDirection = orderDirection;
+        this.buy = OrderDirection.BUY.equals(orderDirection);
+        this.keys = new long[INITIAL_CAPACITY];
+        this.levels = new PriceLevel[INITIAL_CAPACITY];
+        this.forwards = new int[INITIAL_CAPACITY * MAX_HEIGHT];
+    }
+
+    @Override
+    public boolean isValidPrice(long price) {
+        return true;
+    }
+
+    @Override
+    public PriceLevel best() {
+        int first = forwards[HEAD];
+        return first == 0 ? null : levels[first];
+    }
+
+    @Override
+    public PriceLevel next(PriceLevel level) {
+        long key = keyOf(level.getPrice());
+        int node = search(key);
+        if (node != 0 && keys[node] == key) {
+            node = forwards[node * MAX_HEIGHT];
+        }
+        return node == 0 ? null : levels[node];
+    }
+
+    @Override
+    public PriceLevel get(long price) {
+        long key = keyOf(price);
+        int node = search(key);
+        return node != 0 && keys[node] == key ? levels[node] : null;
+    }
+
+    @Override
+    public PriceLevel getOrCreate(long price) {
+        long key = keyOf(price);
+        int node = search(key);
+        if (node != 0 && keys[node] == key) {
+            return levels[node];
+        }
+        int nodeHeight = randomHeight();
+        for (; height < nodeHeight; height++) {
+            update[height] = HEAD;
+        }
+        node = allocate();
+        PriceLevel level = new PriceLevel(price);
+        keys[node] = key;
+        levels[node] = level;
+        int base = node * MAX_HEIGHT;
+        for (int i = 0; i < nodeHeight; i++) {
+            int link = update[i] * MAX_HEIGHT + i;
+            forwards[base + i] = forwards[link];
+            forwards[link] = node;
+        }
+        size++;
+        return level;
+    }
+
+    @Override
+    public void removeLevel(PriceLevel level) {
+        long key = keyOf(level.getPrice());
+        int node = search(key);
+        if (node == 0 || keys[node] != key || levels[node] != level) {
+            return;
+        }
+        int base = node * MAX_HEIGHT;
+        for (int i = 0; i < height; i++) {
+            int link = update[i] * MAX_HEIGHT + i;
+            if (forwards[link] != node) {
+                break;
+            }
+            forwards[link] = forwards[base + i];
+        }
+        while (height > 1 && forwards[HEAD * MAX_HEIGHT + height - 1] == 0) {
+            height--;
+        }
+        Arrays.fill(forwards, base, base + MAX_HEIGHT, 0);
+        levels[node] = null;
+        forwards[base] = freeNode;
+        freeNode = node;
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(levels, 0, nodeCount, null);
+        Arrays.fill(forwards, 0, nodeCount * MAX_HEIGHT, 0);
+        nodeCount = 1;
+        freeNode = 0;
+        height = 1;
+        size = 0;
+    }
+
+    private long keyOf(long price) {
+        return buy ? -price : price;
+    }
+
+    /**
+     * @return first node at or after the key, or 0
+     */
+    private int search(long key) {
+        int node = HEAD;
+        for (int i = height - 1; i >= 0; i--) {
+            int next;
+            while ((next = forwards[node * MAX_HEIGHT + i]) != 0 && keys[next] < key) {
+                node = next;
+            }
+            update[i] = node;
+        }
+        return forwards[node * MAX_HEIGHT];
+    }
+
+    private int allocate() {
+        if (freeNode != 0) {
+            int node = freeNode;
+            freeNode = forwards[node * MAX_HEIGHT];
+            forwards[node * MAX_HEIGHT] = 0;
+            return node;
+        }
+        if (nodeCount == keys.length) {
+            int capacity = nodeCount << 1;
+            keys = Arrays.copyOf(keys, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            forwards = Arrays.copyOf(forwards, capacity * MAX_HEIGHT);
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * @return 1 plus one more for every coin flip that comes up heads, at most {@code MAX_HEIGHT}
+     */
+    private int randomHeight() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return 1 + Integer.numberOfTrailingZeros((int) seed | 1 << (MAX_HEIGHT - 1));
+    }
+}
@@ -0,0 +1,144 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import lombok.Getter;
+
+/**
+ * Parked stop orders of one side, by stop price in trigger order: lowest first for buy stops,
+ * which trigger when a trade reaches their stop price or above, highest first for sell stops.
+ * <p>
+ * Each stop price is a {@link PriceLevel} in time priority, kept in a {@link SkipListBookSide}
+ * keyed by primitive {@code long} whose best level is the first to trigger: the ordering of a sell
+ * side for buy stops and of a buy side for sell stops. {@link #trigger(long)} takes the levels a
+ * trade price reaches off the front and splices their queues onto the triggered queue, level by
+ * level without visiting the orders, so a cascade costs one skip list removal per stop price. {@link #poll()} then hands the triggered orders out by stop price and
+ * time. Single writer.
+ */
+public class StopBook {
+
+    @Getter
+    private final OrderDirection orderDirection;
+
+    private final BookSide levels;
+
+    /**
+     * parked orders, not counting the triggered ones
+     */
+    @Getter
+    private int orderCount;
+
+    private LongOrder triggeredHead;
+
+    private LongOrder triggeredTail;
+
+    public StopBook(OrderDirection orderDirection) {
+        this.orderDirection = orderDirection;
+        this.levels = new SkipListBookSide(OrderDirection.BUY.equals(orderDirection)
+                ? OrderDirection.SELL : OrderDirection.BUY);
+    }
+
+    /**
+     * park a stop order behind the others of its stop price
+     * @param order
+     */
+    public void add(LongOrder order) {
+        levels.getOrCreate(order.getStopPrice()).addLast(order);
+        orderCount++;
+    }
+
+    /**
+     * @param order parked order
+     */
+    public void remove(LongOrder order) {
+        PriceLevel level = levels.get(order.getStopPrice());
+        level.remove(order);
+        if (level.isEmpty()) {
+            levels.removeLevel(level);
+        }
+        orderCount--;
+    }
+
+    /**
+     * take lots off a parked order, it keeps its place
+     * @param order parked order
+     * @param quantity reduced lots, less than its available quantity
+     */
+    public void reduce(LongOrder order, long quantity) {
+        levels.get(order.getStopPrice()).reduce(order, quantity);
+    }
+
+    /**
+     * @return first stop price level in trigger order, or null
+     */
+    public PriceLevel first() {
+        return levels.best();
+    }
+
+    /**
+     * @param level parked level
+     * @return level after it in trigger order, or null
+     */
+    public PriceLevel next(PriceLevel level) {
+        return levels.next(level);
+    }
+
+    /**
+     * move every order the trade price triggers to the back of the triggered queue
+     * @param tradePrice price in ticks
+     * @return number of triggered orders
+     */
+    public int trigger(long tradePrice) {
+        int count = 0;
+        for (PriceLevel level = levels.best(); level != null && triggers(level.getPrice(), tradePrice);
+             level = levels.best()) {
+            LongOrder head = level.peekFirst();
+            if (triggeredTail == null) {
+                triggeredHead = head;
+            } else {
+                triggeredTail.setNext(head);
+                head.setPrev(triggeredTail);
+            }
+            triggeredTail = level.peekLast();
+            count += level.getOrderCount();
+            levels.removeLevel(level);
+        }
+        orderCount -= count;
+        return count;
+    }
+
+    /**
+     * @return oldest triggered order, unlinked, or null
+     */
+    public LongOrder poll() {
+        LongOrder order = triggeredHead;
+        if (order == null) {
+            return null;
+        }
+        triggeredHead = order.getNext();
+        if (triggeredHead == null) {
+            triggeredTail = null;
+        } else {
+            triggeredHead.setPrev(null);
+        }
+        order.setNext(null);
+        order.setPrev(null);
+        return order;
+    }
+
+    /**
+     * @param stopPrice price in ticks
+     * @param tradePrice price in ticks
+     * @return whether a trade at the trade price triggers a stop of this side at the stop price
+     */
+    public boolean triggers(long stopPrice, long tradePrice) {
+        return OrderDirection.BUY.equals(orderDirection) ? tradePrice >= stopPrice : tradePrice <= stopPrice;
+    }
+
+    public void clear() {
+        levels.clear();
+        orderCount = 0;
+        triggeredHead = null;
+        triggeredTail = null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.stock.engine.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Best bid and ask of a book behind a seqlock, written by the single matcher thread and read by
+ * any number of threads.
+ * <p>
+ * The writer makes the version odd, stores the fields and makes it even again; it never waits
+ * for a reader. A reader copies the fields between two reads of the version and retries while a
+ * write is in progress or slipped in between, so it always gets one consistent quote and never
+ * touches the book itself.
+ */
+public class TopOfBook {
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int BID_PRICE = 0;
+
+    private static final int BID_QUANTITY = 1;
+
+    private static final int ASK_PRICE = 2;
+
+    private static final int ASK_QUANTITY = 3;
+
+    private static final int SEQUENCE = 4;
+
+    /**
+     * even when stable, odd while the writer is storing
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private final long[] values = new long[5];
+
+    /**
+     * publish a new quote, called by the single writer
+     * @param bidPrice best bid in ticks, 0 when there is none
+     * @param bidQuantity lots at the best bid
+     * @param askPrice best ask in ticks, 0 when there is none
+     * @param askQuantity lots at the best ask
+     * @param sequence book version of the quote
+     */
+    public void update(long bidPrice, long bidQuantity, long askPrice, long askQuantity, long sequence) {
+        long current = version.get();
+        version.lazySet(current + 1);
+        VarHandle.storeStoreFence();
+        VALUES.setOpaque(values, BID_PRICE, bidPrice);
+        VALUES.setOpaque(values, BID_QUANTITY, bidQuantity);
+        VALUES.setOpaque(values, ASK_PRICE, askPrice);
+        VALUES.setOpaque(values, ASK_QUANTITY, askQuantity);
+        VALUES.setOpaque(values, SEQUENCE, sequence);
+        version.lazySet(current + 2);
+    }
+
+    /**
+     * copy the current quote, spinning only while a write overlaps the copy
+     * @param quote where the quote goes
+     * @return the quote
+     */
+    public Quote read(Quote quote) {
+        while (true) {
+            long before = version.get();
+            if ((before & 1) == 0) {
+                quote.bidPrice = (long) VALUES.getOpaque(values, BID_PRICE);
+                quote.bidQuantity = (long) VALUES.getOpaque(values, BID_QUANTITY);
+                quote.askPrice = (long) VALUES.getOpaque(values, ASK_PRICE);
+                quote.askQuantity = (long) VALUES.getOpaque(values, ASK_QUANTITY);
+                quote.sequence = (long) VALUES.getOpaque(values, SEQUENCE);
+                VarHandle.loadLoadFence();
+                if (version.get() == before) {
+                    return quote;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return number of updates so far
+     */
+    public long getUpdateCount() {
+        return version.get() >>> 1;
+    }
+}
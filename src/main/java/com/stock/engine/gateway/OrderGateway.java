@@ -0,0 +1,405 @@
+package com.stock.engine.gateway;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.constant.ReportType;
+import com.stock.engine.core.FillListener;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.metrics.EngineMetrics;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Non-blocking TCP order entry gateway in front of one {@link LongOrderEngine}.
+ * <p>
+ * One gateway thread selects over every client session, decodes the {@link OrderMessage}s of
+ * each read with a flyweight, straight from the session buffer, and applies them to the engine
+ * itself: the gateway thread is the single writer of the book, so there is no hand-off between
+ * the wire and matching. Fills and acks are encoded as {@link ReportMessage}s into per-session
+ * buffers, flushed once per select round.
+ * <p>
+ * Client order ids are scoped to their session: the engine order id is the session number
+ * above bit {@value #SESSION_SHIFT} and the client order id below, which is also how fills find
+ * their way back to the session of the resting order. A session whose output buffer stays full
+ * is disconnected rather than buffered without bound. The gateway adds itself to the
+ * {@link FillListener}s of the engine, after any already set, such as a pre-trade risk check.
+ */
+public class OrderGateway implements FillListener, AutoCloseable {
+
+    /**
+     * gateway thread name
+     */
+    public static final String GATEWAY_THREAD_NAME = "order-gateway";
+
+    /**
+     * bits of the engine order id holding the client order id
+     */
+    public static final int SESSION_SHIFT = 40;
+
+    private static final long CLIENT_ORDER_ID_MASK = (1L << SESSION_SHIFT) - 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final LongOrderEngine engine;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final boolean busySpin;
+
+    private final List<Session> sessions = new ArrayList<>();
+
+    private final List<Session> dirtySessions = new ArrayList<>();
+
+    private final OrderMessage orderMessage = new OrderMessage();
+
+    private final ReportMessage reportMessage = new ReportMessage();
+
+    private volatile boolean running;
+
+    private Thread gatewayThread;
+
+    /**
+     * where wire-to-match latency goes: from the read that brought a message in until its ack is
+     * encoded; none by default
+     */
+    @Getter
+    @Setter
+    private volatile EngineMetrics metrics;
+
+    /**
+     * number of messages applied to the engine
+     */
+    @Getter
+    private volatile long messageCount;
+
+    /**
+     * number of rejected messages
+     */
+    @Getter
+    private volatile long rejectCount;
+
+    /**
+     * number of messages the engine failed on other than with a rejection, also counted as rejected
+     */
+    @Getter
+    private volatile long failedCount;
+
+    /**
+     * last failure raised by the engine
+     */
+    @Getter
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * number of sessions dropped because they did not read their reports
+     */
+    @Getter
+    private volatile long slowConsumerCount;
+
+    /**
+     * @param engine book the gateway becomes the single writer of
+     * @param address address to listen on, port 0 for any free port
+     * @param busySpin poll the selector instead of blocking in it, for the lowest latency
+     * @throws IOException
+     */
+    public OrderGateway(LongOrderEngine engine, InetSocketAddress address, boolean busySpin) throws IOException {
+        this.engine = engine;
+        this.busySpin = busySpin;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        engine.addFillListener(this);
+    }
+
+    /**
+     * @return bound address, with the actual port
+     * @throws IOException
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        gatewayThread = new Thread(this::selectLoop, GATEWAY_THREAD_NAME);
+        gatewayThread.setDaemon(true);
+        gatewayThread.start();
+    }
+
+    /**
+     * stop the gateway thread and close every session
+     */
+    @Override
+    public void close() throws IOException {
+        Thread thread;
+        synchronized (this) {
+            thread = gatewayThread;
+            running = false;
+        }
+        if (thread != null) {
+            selector.wakeup();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Session session : sessions) {
+            if (session != null) {
+                session.channel.close();
+            }
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    @Override
+    public void onFill(LongOrder taker, LongOrder maker, long price, long quantity) {
+        report(taker, ReportType.FILL, price, quantity);
+        report(maker, ReportType.FILL, price, quantity);
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                if (busySpin) {
+                    selector.selectNow();
+                } else {
+                    selector.select();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Session session = (Session) key.attachment();
+                        if (key.isReadable()) {
+                            read(session);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            dirtySessions.add(session);
+                        }
+                    }
+                }
+                flushDirtySessions();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("order gateway failed", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Session session = new Session(sessions.size() + 1, channel);
+        sessions.add(session);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+    }
+
+    private void read(Session session) {
+        int read;
+        try {
+            read = session.channel.read(session.input);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            disconnect(session);
+            return;
+        }
+        EngineMetrics metrics = this.metrics;
+        long receivedNanos = metrics == null ? 0 : System.nanoTime();
+        ByteBuffer input = session.input;
+        input.flip();
+        while (input.remaining() >= OrderMessage.SIZE && session.isOpen()) {
+            apply(session, orderMessage.wrap(input, input.position()));
+            input.position(input.position() + OrderMessage.SIZE);
+            if (metrics != null) {
+                metrics.getSubmitToAck().record(System.nanoTime() - receivedNanos);
+            }
+        }
+        input.compact();
+    }
+
+    private void apply(Session session, OrderMessage message) {
+        messageCount++;
+        CommandType type = message.getCommandType();
+        OrderDirection orderDirection = message.getOrderDirection();
+        long clientOrderId = message.getClientOrderId();
+        if (type == null || orderDirection == null || clientOrderId <= 0 || clientOrderId > CLIENT_ORDER_ID_MASK) {
+            reject(session, clientOrderId, orderDirection);
+            return;
+        }
+        long orderId = (long) session.id << SESSION_SHIFT | clientOrderId;
+        try {
+            switch (type) {
+                case NEW_ORDER:
+                    OrderType orderType = message.getOrderType();
+                    if (message.getQuantity() <= 0 || orderType == null) {
+                        reject(session, clientOrderId, orderDirection);
+                        return;
+                    }
+                    LongOrder order = new LongOrder(orderId, engine.getInstrument().getSymbol(), message.getPrice(),
+                            message.getQuantity(), orderDirection, orderType);
+                    engine.submitOrder(order);
+                    report(order, ReportType.ACK, order.getPrice(), 0);
+                    break;
+                case CANCEL_ORDER:
+                    LongOrder cancelled = engine.getOrder(orderId);
+                    if (cancelled == null || !engine.cancelOrder(orderId)) {
+                        reject(session, clientOrderId, orderDirection);
+                        return;
+                    }
+                    encode(session, ReportType.ACK, cancelled.getOrderDirection(), clientOrderId,
+                            cancelled.getPrice(), 0, 0);
+                    break;
+                case AMEND_ORDER:
+                    LongOrder amended = engine.getOrder(orderId);
+                    if (amended == null || !engine.amendOrder(orderId, message.getPrice(), message.getQuantity())) {
+                        reject(session, clientOrderId, orderDirection);
+                        return;
+                    }
+                    LongOrder resting = engine.getOrder(orderId);
+                    encode(session, ReportType.ACK, amended.getOrderDirection(), clientOrderId, message.getPrice(),
+                            0, resting == null ? 0 : resting.getAvailableQuantity());
+                    break;
+                default:
+                    reject(session, clientOrderId, orderDirection);
+            }
+        } catch (IllegalArgumentException e) {
+            reject(session, clientOrderId, orderDirection);
+        } catch (RuntimeException e) {
+            // anything else would end the select loop and take every session down with it
+            failedCount++;
+            lastFailure = e;
+            reject(session, clientOrderId, orderDirection);
+        }
+    }
+
+    private void reject(Session session, long clientOrderId, OrderDirection orderDirection) {
+        rejectCount++;
+        encode(session, ReportType.REJECT, orderDirection == null ? OrderDirection.BUY : orderDirection,
+                clientOrderId, 0, 0, 0);
+    }
+
+    private void report(LongOrder order, ReportType type, long price, long quantity) {
+        int sessionId = (int) (order.getOrderId() >>> SESSION_SHIFT);
+        Session session = sessionId > 0 && sessionId <= sessions.size() ? sessions.get(sessionId - 1) : null;
+        if (session != null) {
+            encode(session, type, order.getOrderDirection(), order.getOrderId() & CLIENT_ORDER_ID_MASK, price,
+                    quantity, order.getAvailableQuantity());
+        }
+    }
+
+    private void encode(Session session, ReportType type, OrderDirection orderDirection, long clientOrderId,
+                        long price, long quantity, long openQuantity) {
+        ByteBuffer output = session.output;
+        if (output.remaining() < ReportMessage.SIZE) {
+            flush(session);
+            if (output.remaining() < ReportMessage.SIZE) {
+                slowConsumerCount++;
+                disconnect(session);
+                return;
+            }
+        }
+        if (output.position() == 0) {
+            dirtySessions.add(session);
+        }
+        reportMessage.wrap(output, output.position())
+                .set(type, orderDirection, clientOrderId, price, quantity, openQuantity);
+        output.position(output.position() + ReportMessage.SIZE);
+    }
+
+    private void flushDirtySessions() {
+        for (int i = 0; i < dirtySessions.size(); i++) {
+            flush(dirtySessions.get(i));
+        }
+        dirtySessions.clear();
+    }
+
+    private void flush(Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        ByteBuffer output = session.output;
+        output.flip();
+        try {
+            session.channel.write(output);
+        } catch (IOException e) {
+            output.clear();
+            disconnect(session);
+            return;
+        }
+        output.compact();
+        int interest = output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (session.key.interestOps() != interest) {
+            session.key.interestOps(interest);
+        }
+    }
+
+    private void disconnect(Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        sessions.set(session.id - 1, null);
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private static final class Session {
+
+        private final int id;
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private SelectionKey key;
+
+        private Session(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+        }
+
+        private boolean isOpen() {
+            return channel.isOpen();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.stock.engine.gateway;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight over one inbound order entry message in a little-endian {@link ByteBuffer}.
+ * <p>
+ * Fixed {@value #SIZE} byte layout:
+ * <pre>
+ *  0 byte command type
+ *  1 byte order direction, ignored by cancels
+ *  2 byte order type of a new order, 0 for a limit
+ *  8 long client order id, positive and unique per session
+ * 16 long price in ticks, ignored by cancels
+ * 24 long quantity in lots, the new open quantity for an amend
+ * </pre>
+ * Reads and writes go straight to the buffer at absolute offsets; one flyweight is re-wrapped
+ * for every message.
+ */
+public class OrderMessage {
+
+    public static final int SIZE = 32;
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    /**
+     * @param buffer little-endian buffer
+     * @param offset start of the message
+     * @return this flyweight
+     */
+    public OrderMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return command type, or null for an unknown code
+     */
+    public CommandType getCommandType() {
+        return CommandType.valueOf(buffer.get(offset));
+    }
+
+    /**
+     * @return order direction, or null for an unknown code
+     */
+    public OrderDirection getOrderDirection() {
+        byte ordinal = buffer.get(offset + 1);
+        return ordinal == 0 ? OrderDirection.BUY : ordinal == 1 ? OrderDirection.SELL : null;
+    }
+
+    /**
+     * @return order type, or null for an unknown code
+     */
+    public OrderType getOrderType() {
+        return OrderType.valueOf(buffer.get(offset + 2));
+    }
+
+    public long getClientOrderId() {
+        return buffer.getLong(offset + 8);
+    }
+
+    public long getPrice() {
+        return buffer.getLong(offset + 16);
+    }
+
+    public long getQuantity() {
+        return buffer.getLong(offset + 24);
+    }
+
+    /**
+     * encode a message at the wrapped offset
+     * @return this flyweight
+     */
+    public OrderMessage set(CommandType type, OrderDirection orderDirection, long clientOrderId, long price,
+                            long quantity) {
+        return set(type, orderDirection, OrderType.LIMIT, clientOrderId, price, quantity);
+    }
+
+    /**
+     * encode a message with an order type at the wrapped offset
+     * @return this flyweight
+     */
+    public OrderMessage set(CommandType type, OrderDirection orderDirection, OrderType orderType, long clientOrderId,
+                            long price, long quantity) {
+        buffer.put(offset, type.getCode());
+        buffer.put(offset + 1, (byte) orderDirection.ordinal());
+        buffer.put(offset + 2, orderType.getCode());
+        buffer.put(offset + 3, (byte) 0);
+        buffer.putInt(offset + 4, 0);
+        buffer.putLong(offset + 8, clientOrderId);
+        buffer.putLong(offset + 16, price);
+        buffer.putLong(offset + 24, quantity);
+        return this;
+    }
+}
@@ -0,0 +1,85 @@
+package com.stock.engine.gateway;
+
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.ReportType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight over one outbound report in a little-endian {@link ByteBuffer}.
+ * <p>
+ * Fixed {@value #SIZE} byte layout:
+ * <pre>
+ *  0 byte report type
+ *  1 byte order direction
+ *  8 long client order id the report is about
+ * 16 long price in ticks: fill price, or order price for acks
+ * 24 long quantity in lots: fill quantity, 0 otherwise
+ * 32 long open quantity of the order afterwards in lots
+ * </pre>
+ * Every command gets exactly one {@link ReportType#ACK} or {@link ReportType#REJECT}; fills of a
+ * new or amended order come before its ack.
+ */
+public class ReportMessage {
+
+    public static final int SIZE = 40;
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    /**
+     * @param buffer little-endian buffer
+     * @param offset start of the message
+     * @return this flyweight
+     */
+    public ReportMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return report type, or null for an unknown code
+     */
+    public ReportType getReportType() {
+        return ReportType.valueOf(buffer.get(offset));
+    }
+
+    public OrderDirection getOrderDirection() {
+        return OrderDirection.values()[buffer.get(offset + 1)];
+    }
+
+    public long getClientOrderId() {
+        return buffer.getLong(offset + 8);
+    }
+
+    public long getPrice() {
+        return buffer.getLong(offset + 16);
+    }
+
+    public long getQuantity() {
+        return buffer.getLong(offset + 24);
+    }
+
+    public long getOpenQuantity() {
+        return buffer.getLong(offset + 32);
+    }
+
+    /**
+     * encode a report at the wrapped offset
+     * @return this flyweight
+     */
+    public ReportMessage set(ReportType type, OrderDirection orderDirection, long clientOrderId, long price,
+                             long quantity, long openQuantity) {
+        buffer.put(offset, type.getCode());
+        buffer.put(offset + 1, (byte) orderDirection.ordinal());
+        buffer.putShort(offset + 2, (short) 0);
+        buffer.putInt(offset + 4, 0);
+        buffer.putLong(offset + 8, clientOrderId);
+        buffer.putLong(offset + 16, price);
+        buffer.putLong(offset + 24, quantity);
+        buffer.putLong(offset + 32, openQuantity);
+        return this;
+    }
+}
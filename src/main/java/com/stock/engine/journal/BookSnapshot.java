@@ -0,0 +1,348 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.BookSide;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.PriceLevel;
+import com.stock.engine.core.StopBook;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Point-in-time copy of every resting and parked stop order of a {@link LongOrderEngine}.
+ * <p>
+ * {@link #capture} copies the book into primitive arrays on the matcher thread, which is a
+ * straight walk of the levels; writing the file can then happen on any thread while matching
+ * goes on. Buy orders come first, then sell orders, each side best level first and each level in
+ * queue order, then buy stops and sell stops, each in trigger order. The file is a
+ * {@value #HEADER_SIZE} byte little-endian header followed by {@value #RECORD_SIZE} byte records:
+ * <pre>
+ * header:  0 int magic, 4 int version, 8 long journal sequence, 16 long timestamp,
+ *         24 int buy order count, 28 int sell order count, 32 long CRC32 of the records,
+ *         40 long last assigned order id, 48 int buy stop count, 52 int sell stop count,
+ *         56 long last trade price in ticks
+ * record:  0 long order id, 8 long price in ticks, 16 long submit quantity in lots,
+ *         24 long available quantity in lots, 32 long account id, 40 long stop price in ticks,
+ *         48 byte order type
+ * </pre>
+ * The journal sequence is the last journaled command the book reflects, so recovery loads the
+ * latest snapshot and only replays the journal after it.
+ */
+public class BookSnapshot {
+
+    public static final int HEADER_SIZE = 64;
+
+    public static final int RECORD_SIZE = 56;
+
+    private static final int MAGIC = 0x534E4150;
+
+    private static final int VERSION = 3;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final int WRITE_BUFFER_SIZE = RECORD_SIZE << 15;
+
+    /**
+     * last journal sequence reflected by the snapshot, -1 when none
+     */
+    @Getter
+    private final long sequence;
+
+    /**
+     * wall clock time of the capture in milliseconds
+     */
+    @Getter
+    private final long timestamp;
+
+    /**
+     * number of buy orders, sell orders follow them
+     */
+    @Getter
+    private final int buyCount;
+
+    /**
+     * number of resting orders, parked stops follow them
+     */
+    @Getter
+    private final int orderCount;
+
+    /**
+     * number of parked buy stops, sell stops follow them
+     */
+    @Getter
+    private final int buyStopCount;
+
+    /**
+     * last order id the engine had assigned
+     */
+    @Getter
+    private final long lastOrderId;
+
+    /**
+     * last trade price in ticks, 0 before the first
+     */
+    @Getter
+    private final long lastTradePrice;
+
+    private final long[] orderIds;
+
+    private final long[] prices;
+
+    private final long[] submitQuantities;
+
+    private final long[] availableQuantities;
+
+    private final long[] accountIds;
+
+    private final long[] stopPrices;
+
+    private final byte[] orderTypes;
+
+    private BookSnapshot(long sequence, long timestamp, int buyCount, int orderCount, int buyStopCount,
+                         long lastOrderId, long lastTradePrice, int recordCount) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.buyCount = buyCount;
+        this.orderCount = orderCount;
+        this.buyStopCount = buyStopCount;
+        this.lastOrderId = lastOrderId;
+        this.lastTradePrice = lastTradePrice;
+        this.orderIds = new long[recordCount];
+        this.prices = new long[recordCount];
+        this.submitQuantities = new long[recordCount];
+        this.availableQuantities = new long[recordCount];
+        this.accountIds = new long[recordCount];
+        this.stopPrices = new long[recordCount];
+        this.orderTypes = new byte[recordCount];
+    }
+
+    /**
+     * @return number of parked stop orders
+     */
+    public int getStopCount() {
+        return prices.length - orderCount;
+    }
+
+    /**
+     * copy the book, on the thread that matches it
+     * @param engine
+     * @param sequence last journal sequence applied to the book
+     * @return consistent copy of the book
+     */
+    public static BookSnapshot capture(LongOrderEngine engine, long sequence) {
+        int buyCount = countOrders(engine.getBuyOrders());
+        int orderCount = buyCount + countOrders(engine.getSellOrders());
+        int buyStopCount = engine.getBuyStops().getOrderCount();
+        BookSnapshot snapshot = new BookSnapshot(sequence, System.currentTimeMillis(), buyCount, orderCount,
+                buyStopCount, engine.getLastOrderId(), engine.getLastTradePrice(),
+                orderCount + buyStopCount + engine.getSellStops().getOrderCount());
+        int index = snapshot.copy(engine.getSellOrders(), snapshot.copy(engine.getBuyOrders(), 0));
+        snapshot.copy(engine.getSellStops(), snapshot.copy(engine.getBuyStops(), index));
+        return snapshot;
+    }
+
+    /**
+     * put every order of the snapshot back into an empty engine, in queue order, and park every
+     * stop order in trigger order; set the {@link com.stock.engine.core.FillListener} first, so a
+     * pre-trade risk check reserves the restored orders again
+     * @param engine
+     */
+    public void restore(LongOrderEngine engine) {
+        String symbol = engine.getInstrument().getSymbol();
+        for (int i = 0; i < prices.length; i++) {
+            boolean buy = i < orderCount ? i < buyCount : i < orderCount + buyStopCount;
+            LongOrder order = new LongOrder(orderIds[i], symbol, prices[i], submitQuantities[i],
+                    buy ? OrderDirection.BUY : OrderDirection.SELL, OrderType.valueOf(orderTypes[i]));
+            order.setAccountId(accountIds[i]);
+            order.setStopPrice(stopPrices[i]);
+            order.fill(submitQuantities[i] - availableQuantities[i]);
+            engine.restOrder(order);
+        }
+        engine.setLastOrderId(Math.max(engine.getLastOrderId(), lastOrderId));
+        engine.setLastTradePrice(lastTradePrice);
+    }
+
+    /**
+     * write the snapshot into the directory, named after the first journal sequence it does not cover
+     * @param directory snapshot directory, created if missing
+     * @return written file
+     * @throws IOException
+     */
+    public Path save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence + 1, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        write(temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the rename only survives a crash once the directory entry is on disk too
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        return file;
+    }
+
+    /**
+     * write the snapshot to a file and force it to disk
+     * @param file
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+            channel.position(HEADER_SIZE);
+            for (int i = 0; i < prices.length; i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    flip(buffer, crc, channel);
+                }
+                buffer.putLong(orderIds[i]).putLong(prices[i]).putLong(submitQuantities[i])
+                        .putLong(availableQuantities[i]).putLong(accountIds[i]).putLong(stopPrices[i]);
+                buffer.put(orderTypes[i]).position(buffer.position() + 7);
+            }
+            flip(buffer, crc, channel);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(timestamp)
+                    .putInt(buyCount).putInt(orderCount - buyCount).putLong(crc.getValue()).putLong(lastOrderId)
+                    .putInt(buyStopCount).putInt(getStopCount() - buyStopCount).putLong(lastTradePrice);
+            buffer.flip();
+            channel.write(buffer, 0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * @param file snapshot file
+     * @return snapshot read from the file
+     * @throws IOException when the file is not a snapshot or its records are corrupt
+     */
+    public static BookSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a book snapshot");
+            }
+            int buyCount = buffer.getInt(24);
+            int orderCount = buyCount + buffer.getInt(28);
+            int buyStopCount = buffer.getInt(48);
+            int recordCount = orderCount + buyStopCount + buffer.getInt(52);
+            if (buffer.limit() != HEADER_SIZE + (long) recordCount * RECORD_SIZE) {
+                throw new IOException(file + " is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(HEADER_SIZE));
+            if (crc.getValue() != buffer.getLong(32)) {
+                throw new IOException(file + " fails its checksum");
+            }
+            BookSnapshot snapshot = new BookSnapshot(buffer.getLong(8), buffer.getLong(16), buyCount, orderCount,
+                    buyStopCount, buffer.getLong(40), buffer.getLong(56), recordCount);
+            for (int i = 0, offset = HEADER_SIZE; i < recordCount; i++, offset += RECORD_SIZE) {
+                snapshot.orderIds[i] = buffer.getLong(offset);
+                snapshot.prices[i] = buffer.getLong(offset + 8);
+                snapshot.submitQuantities[i] = buffer.getLong(offset + 16);
+                snapshot.availableQuantities[i] = buffer.getLong(offset + 24);
+                snapshot.accountIds[i] = buffer.getLong(offset + 32);
+                snapshot.stopPrices[i] = buffer.getLong(offset + 40);
+                snapshot.orderTypes[i] = buffer.get(offset + 48);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * @param directory snapshot directory
+     * @return newest snapshot file, or null when there is none
+     * @throws IOException
+     */
+    public static Path latest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).max(Path::compareTo).orElse(null);
+        }
+    }
+
+    /**
+     * rebuild a book from the latest snapshot and the journal commands after it
+     * @param snapshotDirectory
+     * @param journalDirectory
+     * @param engine empty engine of the journaled instrument
+     * @return number of journal commands replayed on top of the snapshot
+     * @throws IOException
+     */
+    public static long recover(Path snapshotDirectory, Path journalDirectory, LongOrderEngine engine) throws IOException {
+        Path latest = latest(snapshotDirectory);
+        long fromSequence = 0;
+        if (latest != null) {
+            BookSnapshot snapshot = read(latest);
+            snapshot.restore(engine);
+            fromSequence = snapshot.getSequence() + 1;
+        }
+        return OrderJournal.replay(journalDirectory, fromSequence, engine);
+    }
+
+    private static int countOrders(BookSide side) {
+        int count = 0;
+        for (PriceLevel level = side.best(); level != null; level = side.next(level)) {
+            count += level.getOrderCount();
+        }
+        return count;
+    }
+
+    private int copy(BookSide side, int index) {
+        for (PriceLevel level = side.best(); level != null; level = side.next(level)) {
+            index = copy(level, index);
+        }
+        return index;
+    }
+
+    private int copy(StopBook stops, int index) {
+        for (PriceLevel level = stops.first(); level != null; level = stops.next(level)) {
+            index = copy(level, index);
+        }
+        return index;
+    }
+
+    private int copy(PriceLevel level, int index) {
+        for (LongOrder order = level.getHead(); order != null; order = order.getNext()) {
+            orderIds[index] = order.getOrderId();
+            prices[index] = order.getPrice();
+            submitQuantities[index] = order.getSubmitQuantity();
+            availableQuantities[index] = order.getAvailableQuantity();
+            accountIds[index] = order.getAccountId();
+            stopPrices[index] = order.getStopPrice();
+            orderTypes[index] = order.getOrderType().getCode();
+            index++;
+        }
+        return index;
+    }
+
+    private static void flip(ByteBuffer buffer, CRC32 crc, FileChannel channel) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.CommandType;
+
+/**
+ * receives the commands of an {@link OrderJournal} during replay, in journal order
+ */
+@FunctionalInterface
+public interface JournalHandler {
+
+    /**
+     * @param sequence journal sequence of the command
+     * @param timestamp wall clock time the command was journaled, in milliseconds
+     * @param type command type
+     * @param order order decoded from the record
+     */
+    void onCommand(long sequence, long timestamp, CommandType type, LongOrder order);
+}
@@ -0,0 +1,205 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderHandler;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * matching stage that journals every order the engine takes before it reaches the engine, for an
+ * {@link com.stock.engine.core.OrderSequencer}; orders of one sequencer batch share a timestamp.
+ * Orders the engine rejects are not journaled, so replay never trips over them.
+ * <p>
+ * With a snapshot directory it also captures a {@link BookSnapshot} every
+ * {@code snapshotEveryOrders} orders and writes it on a background thread. A capture is skipped
+ * while the previous snapshot is still being written, or while an auction runs.
+ * <p>
+ * Cancels, amends and auction phases go through the handler too, on the matcher thread, so replay
+ * applies them in the same order as the engine did.
+ */
+public class JournalingOrderHandler implements OrderHandler<LongOrder>, AutoCloseable {
+
+    @Getter
+    private final OrderJournal journal;
+
+    @Getter
+    private final LongOrderEngine engine;
+
+    private final Path snapshotDirectory;
+
+    private final int snapshotEveryOrders;
+
+    private final ExecutorService snapshotWriter;
+
+    private Future<?> pendingSnapshot;
+
+    private int ordersSinceSnapshot;
+
+    private long batchTimestamp;
+
+    private boolean batchStarted;
+
+    /**
+     * number of snapshots written
+     */
+    @Getter
+    private volatile long snapshotCount;
+
+    /**
+     * last snapshot write failure
+     */
+    @Getter
+    private volatile IOException lastSnapshotFailure;
+
+    public JournalingOrderHandler(OrderJournal journal, LongOrderEngine engine) {
+        this(journal, engine, null, 0);
+    }
+
+    /**
+     * @param journal
+     * @param engine
+     * @param snapshotDirectory where snapshots go
+     * @param snapshotEveryOrders orders between two snapshots
+     */
+    public JournalingOrderHandler(OrderJournal journal, LongOrderEngine engine, Path snapshotDirectory,
+                                  int snapshotEveryOrders) {
+        this.journal = journal;
+        this.engine = engine;
+        this.snapshotDirectory = snapshotDirectory;
+        this.snapshotEveryOrders = snapshotEveryOrders;
+        this.snapshotWriter = snapshotDirectory == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onOrder(LongOrder order, long sequence, boolean endOfBatch) {
+        if (!batchStarted) {
+            batchTimestamp = System.currentTimeMillis();
+            batchStarted = true;
+        }
+        engine.assignOrderId(order);
+        if (engine.checkOrder(order) == null) {
+            journal.append(CommandType.NEW_ORDER, order, batchTimestamp);
+        }
+        try {
+            // a rejected order still goes to the engine, which throws and closes its batch
+            engine.onOrder(order, sequence, endOfBatch);
+        } finally {
+            if (endOfBatch) {
+                batchStarted = false;
+            }
+        }
+        if (snapshotWriter != null && ++ordersSinceSnapshot >= snapshotEveryOrders) {
+            snapshot();
+        }
+    }
+
+    /**
+     * keep the flush interval of the journal while no order comes in
+     */
+    @Override
+    public void onIdle() {
+        journal.flushIfDue();
+    }
+
+    /**
+     * apply a cancel and journal it if it took an order off the book, on the matcher thread
+     * @param orderId
+     * @return whether the order was resting
+     */
+    public boolean cancelOrder(long orderId) {
+        if (!engine.cancelOrder(orderId)) {
+            return false;
+        }
+        journal.append(CommandType.CANCEL_ORDER, orderId, 0, 0, OrderDirection.BUY, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * apply an amend and journal it if it changed an order, on the matcher thread; a rejected
+     * amend never reaches the journal, so replay cannot trip over it
+     * @param orderId
+     * @param price new price in ticks
+     * @param quantity new open quantity in lots
+     * @return whether the order was resting
+     */
+    public boolean amendOrder(long orderId, long price, long quantity) {
+        if (!engine.amendOrder(orderId, price, quantity)) {
+            return false;
+        }
+        journal.append(CommandType.AMEND_ORDER, orderId, price, quantity, OrderDirection.BUY, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * start a call auction and journal it, on the matcher thread
+     */
+    public void startAuction() {
+        engine.startAuction();
+        journal.append(CommandType.START_AUCTION, 0, 0, 0, OrderDirection.BUY, System.currentTimeMillis());
+    }
+
+    /**
+     * end the call auction and journal it, on the matcher thread
+     * @return lots traded
+     */
+    public long uncross() {
+        long traded = engine.uncross();
+        journal.append(CommandType.UNCROSS, 0, 0, 0, OrderDirection.BUY, System.currentTimeMillis());
+        return traded;
+    }
+
+    /**
+     * capture the book now and write it in the background, unless a write is still running or an
+     * auction is, since a snapshot does not hold the auction state; recovery then starts from the
+     * previous snapshot and replays the auction from the journal
+     * @return whether a snapshot was captured
+     */
+    public boolean snapshot() {
+        if (snapshotWriter == null) {
+            throw new IllegalStateException("no snapshot directory configured");
+        }
+        if ((pendingSnapshot != null && !pendingSnapshot.isDone()) || engine.isAuction()) {
+            return false;
+        }
+        ordersSinceSnapshot = 0;
+        BookSnapshot snapshot = BookSnapshot.capture(engine, journal.getNextSequence() - 1);
+        pendingSnapshot = snapshotWriter.submit(() -> {
+            try {
+                snapshot.save(snapshotDirectory);
+                snapshotCount++;
+            } catch (IOException e) {
+                lastSnapshotFailure = e;
+            }
+        });
+        return true;
+    }
+
+    /**
+     * finish the running snapshot write, then flush the journal
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdown();
+            try {
+                snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.flush();
+    }
+}
@@ -0,0 +1,433 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.component.LongOrderPool;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of inbound commands.
+ * <p>
+ * Records have a fixed {@value #RECORD_SIZE} byte little-endian layout:
+ * <pre>
+ *  0 long sequence
+ *  8 long timestamp
+ * 16 long order id
+ * 24 long price in ticks
+ * 32 long quantity in lots, the new open quantity for an amend
+ * 40 long stop price in ticks of a new stop order, 0 otherwise
+ * 48 long account id of a new order, 0 when none
+ * 56 byte order direction
+ * 57 byte order type of a new order, 0 for a limit
+ * 63 byte command type, written last so a zero type marks the end of the journal
+ * </pre>
+ * Auction commands only carry their type. {@link com.stock.engine.replication.ReplicationPrimary}
+ * streams the same records.
+ * Appending is a store into the mapped segment; {@link MappedByteBuffer#force()} only runs every
+ * {@code flushEveryRecords} records or {@code flushIntervalNanos}, whichever comes first. Appends
+ * only read the clock every {@value #CLOCK_CHECK_RECORDS} records for the interval policy, so the
+ * journaling thread calls {@link #flushIfDue()} while it is idle to keep the interval on a quiet
+ * journal, as {@link JournalingOrderHandler} does. Segments
+ * roll over at a fixed size and are named after their first sequence, so they sort in order.
+ * Single writer.
+ */
+public class OrderJournal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 64;
+
+    public static final int HEADER_SIZE = 48;
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x4A524E4C;
+
+    private static final int VERSION = 2;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final int TYPE_OFFSET = 63;
+
+    private static final int CLOCK_CHECK_RECORDS = 64;
+
+    @Getter
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int flushEveryRecords;
+
+    private final long flushIntervalNanos;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private int position;
+
+    /**
+     * sequence the next record gets
+     */
+    @Getter
+    private long nextSequence;
+
+    private int unflushedRecords;
+
+    private long lastFlushNanos = System.nanoTime();
+
+    /**
+     * number of {@link MappedByteBuffer#force()} calls so far
+     */
+    @Getter
+    private long flushCount;
+
+    /**
+     * @param directory journal directory, created if missing; an existing journal is appended to
+     * @param segmentSize bytes per segment file
+     * @param flushEveryRecords force after this many records, 0 to not flush on count
+     * @param flushIntervalNanos force once this long has passed since the last flush, 0 to not flush on time
+     * @throws IOException
+     */
+    public OrderJournal(Path directory, int segmentSize, int flushEveryRecords, long flushIntervalNanos) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE) {
+            throw new IllegalArgumentException("segment size " + segmentSize + " cannot hold a record");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushEveryRecords = flushEveryRecords;
+        this.flushIntervalNanos = flushIntervalNanos;
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            reopenSegment(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * append a new order command
+     * @param order
+     * @return journal sequence of the command
+     */
+    public long appendOrder(LongOrder order) {
+        return append(CommandType.NEW_ORDER, order, System.currentTimeMillis());
+    }
+
+    /**
+     * append one command, flushing if the policy says so
+     * @param type command type
+     * @param order order fields to record
+     * @param timestamp wall clock time in milliseconds, callers appending a batch can share one
+     * @return journal sequence of the command
+     */
+    public long append(CommandType type, LongOrder order, long timestamp) {
+        return append(type, order.getOrderId(), order.getPrice(), order.getSubmitQuantity(),
+                order.getOrderDirection(), order.getOrderType(), order.getStopPrice(), order.getAccountId(), timestamp);
+    }
+
+    /**
+     * append one command, flushing if the policy says so
+     * @param type command type
+     * @param orderId
+     * @param price price in ticks, 0 when the command has none
+     * @param quantity quantity in lots, 0 when the command has none
+     * @param orderDirection
+     * @param timestamp wall clock time in milliseconds
+     * @return journal sequence of the command
+     */
+    public long append(CommandType type, long orderId, long price, long quantity, OrderDirection orderDirection,
+                       long timestamp) {
+        return append(type, orderId, price, quantity, orderDirection, OrderType.LIMIT, 0, 0, timestamp);
+    }
+
+    /**
+     * append one command, flushing if the policy says so
+     * @param type command type
+     * @param orderId
+     * @param price price in ticks, 0 when the command has none
+     * @param quantity quantity in lots, 0 when the command has none
+     * @param orderDirection
+     * @param orderType
+     * @param stopPrice stop price in ticks, 0 unless a stop order
+     * @param accountId 0 when none
+     * @param timestamp wall clock time in milliseconds
+     * @return journal sequence of the command
+     */
+    public long append(CommandType type, long orderId, long price, long quantity, OrderDirection orderDirection,
+                       OrderType orderType, long stopPrice, long accountId, long timestamp) {
+        if (position + RECORD_SIZE > segmentSize) {
+            rollOver();
+        }
+        long sequence = nextSequence++;
+        int offset = position;
+        putRecord(segment, offset, sequence, timestamp, type, orderId, price, quantity, orderDirection, orderType,
+                stopPrice, accountId);
+        position = offset + RECORD_SIZE;
+        unflushedRecords++;
+        if ((flushEveryRecords > 0 && unflushedRecords >= flushEveryRecords)
+                || (flushIntervalNanos > 0 && (unflushedRecords % CLOCK_CHECK_RECORDS) == 0
+                && System.nanoTime() - lastFlushNanos >= flushIntervalNanos)) {
+            flush();
+        }
+        return sequence;
+    }
+
+    /**
+     * write one record, the command type last
+     * @param buffer little-endian buffer
+     * @param offset where the record starts
+     */
+    public static void putRecord(ByteBuffer buffer, int offset, long sequence, long timestamp, CommandType type,
+                                 long orderId, long price, long quantity, OrderDirection orderDirection,
+                                 OrderType orderType, long stopPrice, long accountId) {
+        buffer.putLong(offset, sequence);
+        buffer.putLong(offset + 8, timestamp);
+        buffer.putLong(offset + 16, orderId);
+        buffer.putLong(offset + 24, price);
+        buffer.putLong(offset + 32, quantity);
+        buffer.putLong(offset + 40, stopPrice);
+        buffer.putLong(offset + 48, accountId);
+        buffer.put(offset + 56, (byte) orderDirection.ordinal());
+        buffer.put(offset + 57, orderType.getCode());
+        buffer.put(offset + TYPE_OFFSET, type.getCode());
+    }
+
+    /**
+     * @param buffer little-endian buffer
+     * @param offset where the record starts
+     * @return command type of the record, null past the end of the journal
+     */
+    public static CommandType getCommandType(ByteBuffer buffer, int offset) {
+        return CommandType.valueOf(buffer.get(offset + TYPE_OFFSET));
+    }
+
+    /**
+     * @param buffer little-endian buffer
+     * @param offset where the record starts
+     * @return new order carrying the order fields of the record
+     */
+    public static LongOrder getOrder(ByteBuffer buffer, int offset) {
+        LongOrder order = new LongOrder(buffer.getLong(offset + 16), null, buffer.getLong(offset + 24),
+                buffer.getLong(offset + 32), OrderDirection.values()[buffer.get(offset + 56)],
+                OrderType.valueOf(buffer.get(offset + 57)));
+        order.setStopPrice(buffer.getLong(offset + 40));
+        order.setAccountId(buffer.getLong(offset + 48));
+        return order;
+    }
+
+    /**
+     * force the appended records if they have waited {@code flushIntervalNanos} since the last flush
+     * @return whether it flushed
+     */
+    public boolean flushIfDue() {
+        if (flushIntervalNanos <= 0 || unflushedRecords == 0
+                || System.nanoTime() - lastFlushNanos < flushIntervalNanos) {
+            return false;
+        }
+        flush();
+        return true;
+    }
+
+    /**
+     * force every appended record to disk
+     */
+    public void flush() {
+        if (unflushedRecords == 0) {
+            return;
+        }
+        segment.force();
+        unflushedRecords = 0;
+        lastFlushNanos = System.nanoTime();
+        flushCount++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * feed every journaled command to the handler, in journal order
+     * @param directory journal directory
+     * @param handler
+     * @return number of replayed commands
+     * @throws IOException
+     */
+    public static long replay(Path directory, JournalHandler handler) throws IOException {
+        return replay(directory, 0, handler);
+    }
+
+    /**
+     * feed the journaled commands from {@code fromSequence} on to the handler, in journal order
+     * @param directory journal directory
+     * @param fromSequence first sequence to replay
+     * @param handler
+     * @return number of replayed commands
+     * @throws IOException
+     */
+    public static long replay(Path directory, long fromSequence, JournalHandler handler) throws IOException {
+        long count = 0;
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                checkHeader(buffer, segments.get(i));
+                for (int offset = HEADER_SIZE; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                    CommandType type = getCommandType(buffer, offset);
+                    if (type == null) {
+                        break;
+                    }
+                    long sequence = buffer.getLong(offset);
+                    if (sequence < fromSequence) {
+                        continue;
+                    }
+                    handler.onCommand(sequence, buffer.getLong(offset + 8), type, getOrder(buffer, offset));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * rebuild a book by applying every journaled command to the engine
+     * @param directory journal directory
+     * @param engine empty engine of the journaled instrument
+     * @return number of replayed commands
+     * @throws IOException
+     */
+    public static long replay(Path directory, LongOrderEngine engine) throws IOException {
+        return replay(directory, 0, engine);
+    }
+
+    /**
+     * apply the journaled commands from {@code fromSequence} on to the engine
+     * @param directory journal directory
+     * @param fromSequence first sequence to replay
+     * @param engine
+     * @return number of replayed commands
+     * @throws IOException
+     */
+    public static long replay(Path directory, long fromSequence, LongOrderEngine engine) throws IOException {
+        return replay(directory, fromSequence, handlerFor(engine));
+    }
+
+    /**
+     * @param engine
+     * @return handler applying each command to the engine the way the primary applied it
+     */
+    public static JournalHandler handlerFor(LongOrderEngine engine) {
+        String symbol = engine.getInstrument().getSymbol();
+        return (sequence, timestamp, type, order) -> {
+            switch (type) {
+                case NEW_ORDER:
+                    LongOrder replayed = LongOrderPool.current().borrow(order.getOrderId(), symbol, order.getPrice(),
+                            order.getSubmitQuantity(), order.getOrderDirection(), order.getOrderType());
+                    replayed.setStopPrice(order.getStopPrice());
+                    replayed.setAccountId(order.getAccountId());
+                    engine.submitOrder(replayed);
+                    break;
+                case CANCEL_ORDER:
+                    engine.cancelOrder(order.getOrderId());
+                    break;
+                case AMEND_ORDER:
+                    engine.amendOrder(order.getOrderId(), order.getPrice(), order.getSubmitQuantity());
+                    break;
+                case START_AUCTION:
+                    engine.startAuction();
+                    break;
+                case UNCROSS:
+                    engine.uncross();
+                    break;
+                default:
+                    break;
+            }
+        };
+    }
+
+    private void rollOver() {
+        try {
+            flush();
+            channel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot roll journal segment over in " + directory, e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(8, RECORD_SIZE);
+        segment.putLong(16, firstSequence);
+        position = HEADER_SIZE;
+        nextSequence = firstSequence;
+    }
+
+    private void reopenSegment(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(channel.size(), segmentSize);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        checkHeader(segment, path);
+        nextSequence = segment.getLong(16);
+        position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= size && segment.get(position + TYPE_OFFSET) != 0) {
+            position += RECORD_SIZE;
+            nextSequence++;
+        }
+    }
+
+    private static void checkHeader(MappedByteBuffer buffer, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != RECORD_SIZE) {
+            throw new IOException(path + " is not a journal segment");
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+}
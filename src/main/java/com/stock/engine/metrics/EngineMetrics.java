@@ -0,0 +1,134 @@
+package com.stock.engine.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation surface of the matching pipeline.
+ * <p>
+ * Components record into it when one is set on them and skip it otherwise, so metrics cost
+ * nothing until they are turned on. Recording is allocation-free; {@link #snapshot()} turns the
+ * cumulative state into the values of the interval since the previous snapshot.
+ */
+public class EngineMetrics {
+
+    /**
+     * nanoseconds from publishing an order into the sequencer until its matching returned
+     */
+    @Getter
+    private final LatencyHistogram submitToAck;
+
+    /**
+     * nanoseconds spent matching and resting one order
+     */
+    @Getter
+    private final LatencyHistogram matching;
+
+    /**
+     * nanoseconds from publishing a fill until every execution listener has seen it
+     */
+    @Getter
+    private final LatencyHistogram fillPublication;
+
+    /**
+     * price levels an aggressive order matched against
+     */
+    @Getter
+    private final LatencyHistogram levelsSwept;
+
+    /**
+     * orders waiting in the sequencer when the matcher picked up a batch
+     */
+    @Getter
+    private final LatencyHistogram queueDepth;
+
+    /**
+     * orders matched
+     */
+    @Getter
+    private final LongAdder orderCount = new LongAdder();
+
+    /**
+     * fills between two orders
+     */
+    @Getter
+    private final LongAdder fillCount = new LongAdder();
+
+    /**
+     * failed compare-and-set attempts on shared book state
+     */
+    @Getter
+    private final LongAdder casRetryCount = new LongAdder();
+
+    private final Interval[] intervals;
+
+    private long lastOrderCount;
+
+    private long lastFillCount;
+
+    private long lastCasRetryCount;
+
+    private long lastSnapshotMillis = System.currentTimeMillis();
+
+    /**
+     * metrics for single-writer stages, each histogram recorded by one thread
+     */
+    public EngineMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent whether several threads record into the same histogram, e.g. when shards
+     *                   share the metrics or the engine takes concurrent submits
+     */
+    public EngineMetrics(boolean concurrent) {
+        this.submitToAck = new LatencyHistogram(concurrent);
+        this.matching = new LatencyHistogram(concurrent);
+        this.fillPublication = new LatencyHistogram(concurrent);
+        this.levelsSwept = new LatencyHistogram(concurrent);
+        this.queueDepth = new LatencyHistogram(concurrent);
+        this.intervals = new Interval[]{new Interval(submitToAck), new Interval(matching),
+                new Interval(fillPublication), new Interval(levelsSwept), new Interval(queueDepth)};
+    }
+
+    /**
+     * @return everything recorded since the previous snapshot
+     */
+    public synchronized MetricsSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        long orders = orderCount.sum();
+        long fills = fillCount.sum();
+        long casRetries = casRetryCount.sum();
+        MetricsSnapshot snapshot = new MetricsSnapshot(now, now - lastSnapshotMillis,
+                orders - lastOrderCount, fills - lastFillCount, casRetries - lastCasRetryCount,
+                intervals[0].next(), intervals[1].next(), intervals[2].next(), intervals[3].next(), intervals[4].next());
+        lastSnapshotMillis = now;
+        lastOrderCount = orders;
+        lastFillCount = fills;
+        lastCasRetryCount = casRetries;
+        return snapshot;
+    }
+
+    private static final class Interval {
+
+        private final LatencyHistogram histogram;
+
+        private long[] previous = new long[LatencyHistogram.BUCKET_COUNT];
+
+        private Interval(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        private HistogramSnapshot next() {
+            long[] current = new long[LatencyHistogram.BUCKET_COUNT];
+            histogram.copyInto(current);
+            long[] delta = new long[LatencyHistogram.BUCKET_COUNT];
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = current[i] - previous[i];
+            }
+            previous = current;
+            return new HistogramSnapshot(delta);
+        }
+    }
+}
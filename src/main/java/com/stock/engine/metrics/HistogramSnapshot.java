@@ -0,0 +1,66 @@
+package com.stock.engine.metrics;
+
+import lombok.Getter;
+
+/**
+ * bucket counts of a {@link LatencyHistogram} over one interval
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+
+    /**
+     * number of recorded values
+     */
+    @Getter
+    private final long totalCount;
+
+    /**
+     * @param counts interval bucket counts, owned by the snapshot from now on
+     */
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return value at or below which the percentile of recorded values fall, 0 when empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return largest recorded value, within the histogram precision, 0 when empty
+     */
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "count:" + totalCount + ", p50:" + getValueAtPercentile(50) + ", p99:" + getValueAtPercentile(99)
+                + ", p99.9:" + getValueAtPercentile(99.9) + ", max:" + getMax();
+    }
+}
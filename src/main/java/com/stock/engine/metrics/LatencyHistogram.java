@@ -0,0 +1,81 @@
+package com.stock.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HDR-style histogram of non-negative {@code long} values, nanoseconds for latencies.
+ * <p>
+ * Values below {@value #LINEAR_LIMIT} get a bucket each. Above that every power of two is split
+ * into {@value #SUB_BUCKET_COUNT} buckets, so a recorded value is off by at most about 3%
+ * whatever its magnitude. The buckets are a fixed array of cumulative counts: recording is an
+ * index computation and one increment, it never allocates. A single-writer histogram increments
+ * with an ordered store, a concurrent one with an atomic add. Readers copy the counts with
+ * {@link #copyInto(long[])} and diff consecutive copies for interval views.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+    /**
+     * linear buckets, then one run of sub-buckets for each shift up to the top bit of a positive long
+     */
+    public static final int BUCKET_COUNT = LINEAR_LIMIT + (62 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final boolean concurrent;
+
+    /**
+     * @param concurrent whether more than one thread records into the histogram
+     */
+    public LatencyHistogram(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * @param value negative values count as 0
+     */
+    public void record(long value) {
+        int index = indexOf(value);
+        if (concurrent) {
+            counts.incrementAndGet(index);
+        } else {
+            counts.lazySet(index, counts.get(index) + 1);
+        }
+    }
+
+    /**
+     * copy the cumulative bucket counts
+     * @param target array of {@link #BUCKET_COUNT} counts
+     */
+    public void copyInto(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] = counts.get(i);
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @param index bucket index
+     * @return largest value that falls into the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long top = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+}
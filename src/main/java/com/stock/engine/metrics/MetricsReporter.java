@@ -0,0 +1,63 @@
+package com.stock.engine.metrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * hands an interval {@link MetricsSnapshot} to a consumer at a fixed rate, on its own thread
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    /**
+     * reporter thread name
+     */
+    public static final String REPORTER_THREAD_NAME = "metrics-reporter";
+
+    private final EngineMetrics metrics;
+
+    private final long intervalMillis;
+
+    private final Consumer<MetricsSnapshot> consumer;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, REPORTER_THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * reporter printing every snapshot
+     * @param metrics
+     * @param intervalMillis
+     */
+    public MetricsReporter(EngineMetrics metrics, long intervalMillis) {
+        this(metrics, intervalMillis, System.out::println);
+    }
+
+    public MetricsReporter(EngineMetrics metrics, long intervalMillis, Consumer<MetricsSnapshot> consumer) {
+        this.metrics = metrics;
+        this.intervalMillis = intervalMillis;
+        this.consumer = consumer;
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(() -> consumer.accept(metrics.snapshot()), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop reporting, after handing over the last interval
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        consumer.accept(metrics.snapshot());
+    }
+}
@@ -0,0 +1,49 @@
+package com.stock.engine.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * engine metrics of one interval, see {@link EngineMetrics}
+ */
+@Getter
+@AllArgsConstructor
+public class MetricsSnapshot {
+
+    /**
+     * wall clock time of the snapshot in milliseconds
+     */
+    private final long timestamp;
+
+    /**
+     * milliseconds since the previous snapshot
+     */
+    private final long intervalMillis;
+
+    private final long orderCount;
+
+    private final long fillCount;
+
+    private final long casRetryCount;
+
+    private final HistogramSnapshot submitToAck;
+
+    private final HistogramSnapshot matching;
+
+    private final HistogramSnapshot fillPublication;
+
+    private final HistogramSnapshot levelsSwept;
+
+    private final HistogramSnapshot queueDepth;
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot timestamp:" + timestamp + ", interval ms:" + intervalMillis
+                + ", orders:" + orderCount + ", fills:" + fillCount + ", cas retries:" + casRetryCount
+                + "\n  submit to ack ns   " + submitToAck
+                + "\n  matching ns        " + matching
+                + "\n  fill publication ns " + fillPublication
+                + "\n  levels swept       " + levelsSwept
+                + "\n  queue depth        " + queueDepth;
+    }
+}
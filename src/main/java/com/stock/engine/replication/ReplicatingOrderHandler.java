@@ -0,0 +1,119 @@
+package com.stock.engine.replication;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderHandler;
+import lombok.Getter;
+
+/**
+ * matching stage that replicates every order before it reaches the engine, for an
+ * {@link com.stock.engine.core.OrderSequencer}; orders of one sequencer batch share a timestamp
+ * <p>
+ * The batch is committed to the {@link ReplicationPrimary} before its last order is matched, so
+ * the fills the engine publishes at the end of the batch only go out once the followers the ack
+ * policy asks for hold every order of it, or once the ack timeout passed. A timed out commit does
+ * not hold the batch back: it is matched anyway, replication falls back to asynchronous for it and
+ * the handler turns {@link #isDegraded()} on until a later commit gets its acks again. Callers that
+ * must only ack clients under the policy check the flag before they do.
+ */
+public class ReplicatingOrderHandler implements OrderHandler<LongOrder> {
+
+    @Getter
+    private final ReplicationPrimary primary;
+
+    @Getter
+    private final LongOrderEngine engine;
+
+    private long batchTimestamp;
+
+    private boolean batchStarted;
+
+    /**
+     * whether the last commit gave up waiting for the acks the policy asks for
+     */
+    @Getter
+    private volatile boolean degraded;
+
+    public ReplicatingOrderHandler(ReplicationPrimary primary, LongOrderEngine engine) {
+        this.primary = primary;
+        this.engine = engine;
+    }
+
+    @Override
+    public void onOrder(LongOrder order, long sequence, boolean endOfBatch) {
+        if (!batchStarted) {
+            batchTimestamp = System.currentTimeMillis();
+            batchStarted = true;
+        }
+        engine.assignOrderId(order);
+        primary.append(CommandType.NEW_ORDER, order.getOrderId(), order.getPrice(), order.getSubmitQuantity(),
+                order.getOrderDirection(), order.getOrderType(), order.getStopPrice(), order.getAccountId(),
+                batchTimestamp);
+        if (endOfBatch) {
+            commit();
+            batchStarted = false;
+        }
+        engine.onOrder(order, sequence, endOfBatch);
+    }
+
+    /**
+     * apply a cancel and replicate it if it took an order off the book, on the matcher thread
+     * @param orderId
+     * @return whether the order was resting
+     */
+    public boolean cancelOrder(long orderId) {
+        if (!engine.cancelOrder(orderId)) {
+            return false;
+        }
+        primary.append(CommandType.CANCEL_ORDER, orderId, 0, 0, OrderDirection.BUY, OrderType.LIMIT, 0, 0,
+                System.currentTimeMillis());
+        commit();
+        return true;
+    }
+
+    /**
+     * apply an amend and replicate it if it changed an order, on the matcher thread
+     * @param orderId
+     * @param price new price in ticks
+     * @param quantity new open quantity in lots
+     * @return whether the order was resting
+     */
+    public boolean amendOrder(long orderId, long price, long quantity) {
+        if (!engine.amendOrder(orderId, price, quantity)) {
+            return false;
+        }
+        primary.append(CommandType.AMEND_ORDER, orderId, price, quantity, OrderDirection.BUY, OrderType.LIMIT, 0, 0,
+                System.currentTimeMillis());
+        commit();
+        return true;
+    }
+
+    /**
+     * start a call auction and replicate it, on the matcher thread
+     */
+    public void startAuction() {
+        engine.startAuction();
+        primary.append(CommandType.START_AUCTION, 0, 0, 0, OrderDirection.BUY, OrderType.LIMIT, 0, 0,
+                System.currentTimeMillis());
+        commit();
+    }
+
+    /**
+     * end the call auction and replicate it, on the matcher thread
+     * @return lots traded
+     */
+    public long uncross() {
+        long traded = engine.uncross();
+        primary.append(CommandType.UNCROSS, 0, 0, 0, OrderDirection.BUY, OrderType.LIMIT, 0, 0,
+                System.currentTimeMillis());
+        commit();
+        return traded;
+    }
+
+    private void commit() {
+        degraded = !primary.commit();
+    }
+}
@@ -0,0 +1,197 @@
+package com.stock.engine.replication;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.journal.JournalHandler;
+import com.stock.engine.journal.OrderJournal;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Hot standby of a {@link ReplicationPrimary}.
+ * <p>
+ * A follower thread applies the streamed commands to its own {@link LongOrderEngine} in sequence
+ * order, exactly as the primary's journal replay would, and acknowledges once per read with the
+ * last sequence it applied, so a burst of commands costs one ack. The engine is the follower
+ * thread's until {@link #promote()}, which stops following and hands the up to date book over to
+ * become the new primary.
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+    /**
+     * default follower thread name
+     */
+    public static final String FOLLOWER_THREAD_NAME = "replication-follower";
+
+    private static final int RECORD_SIZE = ReplicationPrimary.RECORD_SIZE;
+
+    @Getter
+    private final LongOrderEngine engine;
+
+    private final InetSocketAddress primaryAddress;
+
+    private final JournalHandler handler;
+
+    /**
+     * last sequence applied to the engine
+     */
+    @Getter
+    private volatile long appliedSequence;
+
+    /**
+     * number of commands the engine rejected, the primary rejected them the same way
+     */
+    @Getter
+    private volatile long failedCount;
+
+    /**
+     * why following stopped, null while following or after a clean close
+     */
+    @Getter
+    private volatile IOException lastFailure;
+
+    private volatile boolean running;
+
+    private SocketChannel channel;
+
+    private Thread followerThread;
+
+    /**
+     * follower of an empty book
+     * @param engine empty engine of the replicated instrument
+     * @param primaryAddress
+     */
+    public ReplicationFollower(LongOrderEngine engine, InetSocketAddress primaryAddress) {
+        this(engine, primaryAddress, -1);
+    }
+
+    /**
+     * @param engine engine holding the book up to {@code appliedSequence}, e.g. of a follower
+     *               rejoining a promoted primary
+     * @param primaryAddress
+     * @param appliedSequence last sequence the engine reflects, -1 for an empty book
+     */
+    public ReplicationFollower(LongOrderEngine engine, InetSocketAddress primaryAddress, long appliedSequence) {
+        this.engine = engine;
+        this.primaryAddress = primaryAddress;
+        this.handler = OrderJournal.handlerFor(engine);
+        this.appliedSequence = appliedSequence;
+    }
+
+    /**
+     * connect to the primary and start following
+     * @throws IOException when the primary cannot be reached
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        channel = SocketChannel.open(primaryAddress);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ByteBuffer hello = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        hello.putLong(0, appliedSequence);
+        while (hello.hasRemaining()) {
+            channel.write(hello);
+        }
+        running = true;
+        followerThread = new Thread(this::followLoop, FOLLOWER_THREAD_NAME);
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    /**
+     * @return whether the follower thread is still applying the primary's stream
+     */
+    public boolean isFollowing() {
+        Thread thread = followerThread;
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * stop following and take the engine over; a command received only in part is dropped, it was
+     * never acknowledged. Promote the follower with the highest applied sequence.
+     * @return engine, to be driven by the caller from now on
+     */
+    public LongOrderEngine promote() {
+        close();
+        return engine;
+    }
+
+    /**
+     * disconnect and stop the follower thread
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = followerThread;
+            running = false;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void followLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE << 10).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer ack = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        long applied = appliedSequence;
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                long before = applied;
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    applied = apply(buffer, buffer.position(), applied);
+                    buffer.position(buffer.position() + RECORD_SIZE);
+                }
+                buffer.compact();
+                if (applied != before) {
+                    appliedSequence = applied;
+                    ack.clear();
+                    ack.putLong(0, applied);
+                    while (ack.hasRemaining()) {
+                        channel.write(ack);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                lastFailure = e;
+            }
+        }
+    }
+
+    /**
+     * @return sequence of the applied record
+     */
+    private long apply(ByteBuffer buffer, int offset, long applied) throws IOException {
+        long sequence = buffer.getLong(offset);
+        CommandType type = OrderJournal.getCommandType(buffer, offset);
+        if (sequence != applied + 1 || type == null) {
+            throw new IOException("unexpected record " + sequence + " of type " + type + " after " + applied);
+        }
+        try {
+            handler.onCommand(sequence, buffer.getLong(offset + 8), type, OrderJournal.getOrder(buffer, offset));
+        } catch (RuntimeException e) {
+            failedCount++;
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,361 @@
+package com.stock.engine.replication;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.journal.OrderJournal;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Primary side of hot-standby replication: streams the sequenced inbound commands to followers over
+ * TCP.
+ * <p>
+ * The matcher thread appends every command it applies into a batch buffer, in the
+ * {@link OrderJournal} record layout. {@link #commit()} writes the batch to every follower and then
+ * waits until {@code requiredAcks} of them acknowledged its last sequence, so the caller only acks
+ * its clients once that many standbys hold the commands. A follower blocking on a full socket
+ * buffer holds the matcher back.
+ * <p>
+ * A follower opens with the last sequence it applied and is only admitted when that is the last
+ * sequence the primary sent, so every admitted follower holds the same book: a fresh follower
+ * joins before the first command, a promoted follower's peers join its new primary where they left
+ * off. Nothing is ever replayed to catch a follower up.
+ */
+public class ReplicationPrimary implements AutoCloseable {
+
+    /**
+     * default acceptor thread name
+     */
+    public static final String ACCEPTOR_THREAD_NAME = "replication-acceptor";
+
+    public static final int RECORD_SIZE = OrderJournal.RECORD_SIZE;
+
+    private static final int BATCH_SIZE = RECORD_SIZE << 10;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Queue<Follower> joining = new ConcurrentLinkedQueue<>();
+
+    /**
+     * admitted followers, matcher thread only
+     */
+    private Follower[] followers = new Follower[0];
+
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * sequence the next command gets
+     */
+    @Getter
+    private long nextSequence;
+
+    /**
+     * followers that must acknowledge a batch before {@link #commit()} returns, 0 to not wait
+     */
+    @Getter
+    @Setter
+    private int requiredAcks = 1;
+
+    /**
+     * longest {@link #commit()} waits for acknowledgements
+     */
+    @Getter
+    @Setter
+    private long ackTimeoutNanos = 10_000_000L;
+
+    /**
+     * number of admitted followers still connected
+     */
+    @Getter
+    private volatile int followerCount;
+
+    /**
+     * number of commits that gave up waiting for acknowledgements
+     */
+    @Getter
+    private volatile long ackTimeoutCount;
+
+    /**
+     * number of followers turned away because their book was not at the primary sequence
+     */
+    @Getter
+    private volatile long rejectedCount;
+
+    private volatile boolean running;
+
+    private Thread acceptorThread;
+
+    public ReplicationPrimary(InetSocketAddress address) throws IOException {
+        this(address, 0);
+    }
+
+    /**
+     * @param address address to listen on, port 0 for any free port
+     * @param nextSequence sequence of the first command, one past what a promoted follower applied
+     * @throws IOException
+     */
+    public ReplicationPrimary(InetSocketAddress address, long nextSequence) throws IOException {
+        this.nextSequence = nextSequence;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+    }
+
+    /**
+     * @return bound address, with the actual port
+     * @throws IOException
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        acceptorThread = new Thread(this::acceptLoop, ACCEPTOR_THREAD_NAME);
+        acceptorThread.setDaemon(true);
+        acceptorThread.start();
+    }
+
+    /**
+     * add a command to the running batch, on the matcher thread
+     * @param type command type
+     * @param orderId
+     * @param price price in ticks, 0 when the command has none
+     * @param quantity quantity in lots, 0 when the command has none
+     * @param orderDirection
+     * @param orderType
+     * @param stopPrice stop price in ticks, 0 unless a stop order
+     * @param accountId 0 when none
+     * @param timestamp wall clock time in milliseconds
+     * @return sequence of the command
+     */
+    public long append(CommandType type, long orderId, long price, long quantity, OrderDirection orderDirection,
+                       OrderType orderType, long stopPrice, long accountId, long timestamp) {
+        if (batch.remaining() < RECORD_SIZE) {
+            send();
+        }
+        long sequence = nextSequence++;
+        int offset = batch.position();
+        OrderJournal.putRecord(batch, offset, sequence, timestamp, type, orderId, price, quantity, orderDirection,
+                orderType, stopPrice, accountId);
+        batch.position(offset + RECORD_SIZE);
+        return sequence;
+    }
+
+    /**
+     * send the running batch and wait for the acknowledgements the policy asks for
+     * @return whether enough followers acknowledged in time
+     */
+    public boolean commit() {
+        send();
+        return requiredAcks <= 0 || awaitAcks(nextSequence - 1);
+    }
+
+    /**
+     * admit joining followers until {@code count} are connected, on the matcher thread before it
+     * takes traffic
+     * @param count
+     * @param timeoutNanos
+     * @return whether that many followers are connected
+     */
+    public boolean awaitFollowers(int count, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        admitJoining();
+        while (followers.length < count && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(100_000L);
+            admitJoining();
+        }
+        return followers.length >= count;
+    }
+
+    /**
+     * @param sequence
+     * @return number of connected followers that acknowledged the sequence, on the matcher thread
+     */
+    public int getAckCount(long sequence) {
+        int count = 0;
+        for (Follower follower : followers) {
+            if (!follower.closed && follower.ackedSequence >= sequence) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void send() {
+        admitJoining();
+        if (batch.position() == 0) {
+            return;
+        }
+        batch.flip();
+        boolean lost = false;
+        for (Follower follower : followers) {
+            ByteBuffer buffer = batch.duplicate();
+            try {
+                while (buffer.hasRemaining()) {
+                    follower.channel.write(buffer);
+                }
+            } catch (IOException e) {
+                follower.close();
+            }
+            lost |= follower.closed;
+        }
+        batch.clear();
+        if (lost) {
+            followers = Arrays.stream(followers).filter(follower -> !follower.closed).toArray(Follower[]::new);
+            followerCount = followers.length;
+        }
+    }
+
+    private void admitJoining() {
+        Follower follower;
+        while ((follower = joining.poll()) != null) {
+            long sent = nextSequence - 1 - batch.position() / RECORD_SIZE;
+            if (follower.ackedSequence != sent) {
+                follower.close();
+                rejectedCount++;
+                continue;
+            }
+            follower.start();
+            followers = Arrays.copyOf(followers, followers.length + 1);
+            followers[followers.length - 1] = follower;
+            followerCount = followers.length;
+        }
+    }
+
+    private boolean awaitAcks(long sequence) {
+        long deadline = System.nanoTime() + ackTimeoutNanos;
+        int idle = 0;
+        while (getAckCount(sequence) < requiredAcks) {
+            if (System.nanoTime() - deadline >= 0) {
+                ackTimeoutCount++;
+                return false;
+            }
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1_000L);
+            }
+            idle++;
+        }
+        return true;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ByteBuffer hello = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                while (hello.hasRemaining()) {
+                    if (channel.read(hello) < 0) {
+                        throw new IOException("follower closed before its hello");
+                    }
+                }
+                joining.add(new Follower(channel, hello.getLong(0)));
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * stop accepting followers and disconnect every follower
+     */
+    @Override
+    public void close() throws IOException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptorThread;
+            running = false;
+        }
+        serverChannel.close();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Follower follower;
+        while ((follower = joining.poll()) != null) {
+            follower.close();
+        }
+        for (Follower admitted : followers) {
+            admitted.close();
+        }
+        followerCount = 0;
+    }
+
+    /**
+     * connection to one follower; its acknowledgements are read on a thread of their own
+     */
+    private static final class Follower {
+
+        private final SocketChannel channel;
+
+        /**
+         * last sequence the follower applied
+         */
+        private volatile long ackedSequence;
+
+        private volatile boolean closed;
+
+        private Follower(SocketChannel channel, long appliedSequence) {
+            this.channel = channel;
+            this.ackedSequence = appliedSequence;
+        }
+
+        private void start() {
+            Thread thread = new Thread(this::readAcks, "replication-ack-reader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void readAcks() {
+            ByteBuffer ack = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                while (true) {
+                    if (channel.read(ack) < 0) {
+                        break;
+                    }
+                    if (!ack.hasRemaining()) {
+                        ackedSequence = ack.getLong(0);
+                        ack.clear();
+                    }
+                }
+            } catch (IOException e) {
+                // disconnected
+            }
+            close();
+        }
+
+        private void close() {
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.stock.engine.risk;
+
+import com.stock.engine.constant.RiskRejection;
+
+/**
+ * Exposure of every account: open lots per side, open notional and position.
+ * <p>
+ * Accounts are spread over stripes by a hash of their id. A stripe is an open-addressing table
+ * keyed by primitive {@code long} over parallel arrays, like {@link com.stock.engine.core.OrderIndex},
+ * guarded by its own monitor. A check thread that owns a set of stripes only ever meets the
+ * matcher thread, which books fills and releases, and only on the stripe of the account at hand.
+ * Account 0 is reserved for "no account".
+ */
+public class AccountExposure {
+
+    private static final int STRIPE_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    /**
+     * @param stripeCount number of stripes, power of 2
+     */
+    public AccountExposure(int stripeCount) {
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("stripe count must be a power of 2");
+        }
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @param accountId
+     * @return stripe the account lives in
+     */
+    public int stripeOf(long accountId) {
+        return hash(accountId) & mask;
+    }
+
+    /**
+     * @param accountId
+     * @param limits limits of the account, null for the defaults of the check
+     */
+    public void setLimits(long accountId, RiskLimits limits) {
+        checkAccount(accountId);
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            stripe.limits[stripe.indexOf(accountId)] = limits;
+        }
+    }
+
+    /**
+     * check an order against the limits of its account and reserve it when it passes
+     * @param accountId account of the order, not 0
+     * @param buy
+     * @param price limit price in ticks, 0 for a market order
+     * @param quantity lots
+     * @param referencePrice best price of the opposite side in ticks, 0 when unknown
+     * @param defaults limits of an account without its own
+     * @return broken limit, null when the order was reserved
+     */
+    public RiskRejection reserve(long accountId, boolean buy, long price, long quantity, long referencePrice,
+                                 RiskLimits defaults) {
+        return replace(accountId, buy, 0, 0, price, quantity, referencePrice, defaults);
+    }
+
+    /**
+     * check a working order at a new price and quantity, as if what it had open were given back,
+     * and swap its reservation when it passes; nothing changes when it does not
+     * @param accountId account of the order, not 0
+     * @param buy
+     * @param oldPrice price in ticks the order was reserved at
+     * @param oldQuantity lots the order has open
+     * @param price new limit price in ticks, 0 for a market order
+     * @param quantity new lots
+     * @param referencePrice best price of the opposite side in ticks, 0 when unknown
+     * @param defaults limits of an account without its own
+     * @return broken limit, null when the order was reserved at its new price and quantity
+     */
+    public RiskRejection replace(long accountId, boolean buy, long oldPrice, long oldQuantity, long price,
+                                 long quantity, long referencePrice, RiskLimits defaults) {
+        checkAccount(accountId);
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.indexOf(accountId);
+            RiskLimits limits = stripe.limits[index] == null ? defaults : stripe.limits[index];
+            RiskRejection rejection = checkOrder(price, quantity, referencePrice, limits);
+            if (rejection != null) {
+                return rejection;
+            }
+            long openBuy = stripe.openBuyQuantities[index];
+            long openSell = stripe.openSellQuantities[index];
+            if (buy) {
+                openBuy = Math.max(0, openBuy - oldQuantity);
+            } else {
+                openSell = Math.max(0, openSell - oldQuantity);
+            }
+            long openNotional = Math.max(0, stripe.openNotionals[index] - oldQuantity * oldPrice);
+            long limit = limits.getMaxOpenQuantity();
+            if (limit > 0 && openBuy + openSell + quantity > limit) {
+                return RiskRejection.OPEN_QUANTITY;
+            }
+            limit = limits.getMaxNotional();
+            if (limit > 0 && openNotional + quantity * (price == 0 ? referencePrice : price) > limit) {
+                return RiskRejection.NOTIONAL;
+            }
+            limit = limits.getMaxPosition();
+            long position = stripe.positions[index];
+            if (limit > 0 && (buy ? position + openBuy + quantity > limit : openSell + quantity - position > limit)) {
+                return RiskRejection.POSITION;
+            }
+            if (buy) {
+                stripe.openBuyQuantities[index] = openBuy + quantity;
+                stripe.openSellQuantities[index] = openSell;
+            } else {
+                stripe.openBuyQuantities[index] = openBuy;
+                stripe.openSellQuantities[index] = openSell + quantity;
+            }
+            stripe.openNotionals[index] = openNotional + quantity * price;
+            return null;
+        }
+    }
+
+    /**
+     * reserve a working order again without checking it, for orders restored from a snapshot
+     * @param accountId account of the order, 0 for none
+     * @param buy
+     * @param price limit price in ticks, the one it was reserved at
+     * @param quantity open lots
+     */
+    public void restore(long accountId, boolean buy, long price, long quantity) {
+        if (accountId == 0) {
+            return;
+        }
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.indexOf(accountId);
+            if (buy) {
+                stripe.openBuyQuantities[index] += quantity;
+            } else {
+                stripe.openSellQuantities[index] += quantity;
+            }
+            stripe.openNotionals[index] += quantity * price;
+        }
+    }
+
+    /**
+     * the order size and price band limits alone, for orders without an account
+     * @return broken limit, or null
+     */
+    public static RiskRejection checkOrder(long price, long quantity, long referencePrice, RiskLimits limits) {
+        long limit = limits.getMaxOrderQuantity();
+        if (limit > 0 && quantity > limit) {
+            return RiskRejection.ORDER_QUANTITY;
+        }
+        limit = limits.getPriceBand();
+        if (limit > 0 && price != 0 && referencePrice != 0 && Math.abs(price - referencePrice) > limit) {
+            return RiskRejection.PRICE_BAND;
+        }
+        return null;
+    }
+
+    /**
+     * book a fill of an order of the account
+     * @param accountId
+     * @param buy
+     * @param price limit price of the order in ticks, the one it was reserved at
+     * @param quantity lots
+     */
+    public void fill(long accountId, boolean buy, long price, long quantity) {
+        update(accountId, buy, price, quantity, buy ? quantity : -quantity);
+    }
+
+    /**
+     * give back lots of a working order that went away without trading
+     * @param accountId
+     * @param buy
+     * @param price limit price of the order in ticks, the one it was reserved at
+     * @param quantity lots
+     */
+    public void release(long accountId, boolean buy, long price, long quantity) {
+        update(accountId, buy, price, quantity, 0);
+    }
+
+    /**
+     * @param accountId
+     * @param buy
+     * @return working lots of the account on that side
+     */
+    public long getOpenQuantity(long accountId, boolean buy) {
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.find(accountId);
+            return index < 0 ? 0 : buy ? stripe.openBuyQuantities[index] : stripe.openSellQuantities[index];
+        }
+    }
+
+    /**
+     * @param accountId
+     * @return working notional of the account in ticks times lots
+     */
+    public long getOpenNotional(long accountId) {
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.find(accountId);
+            return index < 0 ? 0 : stripe.openNotionals[index];
+        }
+    }
+
+    /**
+     * @param accountId
+     * @return lots bought minus lots sold
+     */
+    public long getPosition(long accountId) {
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.find(accountId);
+            return index < 0 ? 0 : stripe.positions[index];
+        }
+    }
+
+    /**
+     * forget every account, limits included
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.allocate(STRIPE_CAPACITY);
+            }
+        }
+    }
+
+    /**
+     * open lots and notional stop at 0, so fills and releases of an order the check never reserved,
+     * like one that reached the engine without a check, cannot build up room beyond the limits
+     */
+    private void update(long accountId, boolean buy, long price, long quantity, long positionChange) {
+        if (accountId == 0) {
+            return;
+        }
+        Stripe stripe = stripes[stripeOf(accountId)];
+        synchronized (stripe) {
+            int index = stripe.indexOf(accountId);
+            if (buy) {
+                stripe.openBuyQuantities[index] = Math.max(0, stripe.openBuyQuantities[index] - quantity);
+            } else {
+                stripe.openSellQuantities[index] = Math.max(0, stripe.openSellQuantities[index] - quantity);
+            }
+            stripe.openNotionals[index] = Math.max(0, stripe.openNotionals[index] - quantity * price);
+            stripe.positions[index] += positionChange;
+        }
+    }
+
+    private static void checkAccount(long accountId) {
+        if (accountId == 0) {
+            throw new IllegalArgumentException("account id 0 is reserved");
+        }
+    }
+
+    private static int hash(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * accounts of one stripe by id, linear probing; every access holds the stripe monitor
+     */
+    private static final class Stripe {
+
+        private long[] keys;
+
+        private long[] openBuyQuantities;
+
+        private long[] openSellQuantities;
+
+        private long[] openNotionals;
+
+        private long[] positions;
+
+        private RiskLimits[] limits;
+
+        private int tableMask;
+
+        private int size;
+
+        private Stripe() {
+            allocate(STRIPE_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            openBuyQuantities = new long[capacity];
+            openSellQuantities = new long[capacity];
+            openNotionals = new long[capacity];
+            positions = new long[capacity];
+            limits = new RiskLimits[capacity];
+            tableMask = capacity - 1;
+            size = 0;
+        }
+
+        /**
+         * @return index of the account, or -1
+         */
+        private int find(long accountId) {
+            for (int index = slotOf(accountId); ; index = (index + 1) & tableMask) {
+                long key = keys[index];
+                if (key == accountId) {
+                    return index;
+                }
+                if (key == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return index of the account, added with nothing open when it is new
+         */
+        private int indexOf(long accountId) {
+            int index = slotOf(accountId);
+            while (keys[index] != 0) {
+                if (keys[index] == accountId) {
+                    return index;
+                }
+                index = (index + 1) & tableMask;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                return indexOf(accountId);
+            }
+            keys[index] = accountId;
+            size++;
+            return index;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldOpenBuyQuantities = openBuyQuantities;
+            long[] oldOpenSellQuantities = openSellQuantities;
+            long[] oldOpenNotionals = openNotionals;
+            long[] oldPositions = positions;
+            RiskLimits[] oldLimits = limits;
+            allocate(oldKeys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = indexOf(oldKeys[i]);
+                    openBuyQuantities[index] = oldOpenBuyQuantities[i];
+                    openSellQuantities[index] = oldOpenSellQuantities[i];
+                    openNotionals[index] = oldOpenNotionals[i];
+                    positions[index] = oldPositions[i];
+                    limits[index] = oldLimits[i];
+                }
+            }
+        }
+
+        private int slotOf(long accountId) {
+            return Integer.reverse(hash(accountId)) & tableMask;
+        }
+    }
+}
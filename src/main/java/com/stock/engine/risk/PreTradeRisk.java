@@ -0,0 +1,121 @@
+package com.stock.engine.risk;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.RiskRejection;
+import com.stock.engine.core.FillListener;
+import com.stock.engine.core.Quote;
+import com.stock.engine.core.TopOfBook;
+import lombok.Getter;
+
+/**
+ * Pre-trade checks of one book: order size, price band, and the open quantity, notional and
+ * position limits of the order's account.
+ * <p>
+ * {@link #check(LongOrder, Quote)} runs on any thread and reserves what a passing order could
+ * trade in the {@link AccountExposure}. Set as the {@link FillListener} of the engine, it books
+ * fills into positions and gives back what was reserved once it trades or goes away. The price
+ * band is relative to the opposite best price read from the engine's {@link TopOfBook}, so checks
+ * never touch the book. Orders without an account only get the order size and price band checks.
+ * Market orders have no price to reserve: their notional is checked at the reference price, and
+ * not counted afterwards. An amend that replaces a resting order is checked on the matcher thread,
+ * with the lots the order had open given back first. Orders restored from a snapshot are reserved
+ * again as they come back; positions are not in a snapshot and start over at zero.
+ */
+public class PreTradeRisk implements FillListener {
+
+    @Getter
+    private final TopOfBook topOfBook;
+
+    @Getter
+    private final AccountExposure exposure;
+
+    /**
+     * limits of accounts without their own, see {@link AccountExposure#setLimits(long, RiskLimits)}
+     */
+    @Getter
+    private final RiskLimits defaultLimits;
+
+    /**
+     * reference quote of the amend checks, matcher thread only
+     */
+    private final Quote replaceQuote = new Quote();
+
+    public PreTradeRisk(TopOfBook topOfBook, RiskLimits defaultLimits) {
+        this(topOfBook, defaultLimits, new AccountExposure(64));
+    }
+
+    public PreTradeRisk(TopOfBook topOfBook, RiskLimits defaultLimits, AccountExposure exposure) {
+        this.topOfBook = topOfBook;
+        this.defaultLimits = defaultLimits;
+        this.exposure = exposure;
+    }
+
+    /**
+     * check an order and reserve it when it passes
+     * @param order
+     * @param quote where the reference quote is read into, one per calling thread
+     * @return broken limit, null when the order passed
+     */
+    public RiskRejection check(LongOrder order, Quote quote) {
+        boolean buy = OrderDirection.BUY.equals(order.getOrderDirection());
+        long referencePrice = referencePrice(buy, quote);
+        long price = order.getPrice();
+        if (order.getAccountId() == 0) {
+            return AccountExposure.checkOrder(price, order.getSubmitQuantity(), referencePrice, defaultLimits);
+        }
+        return exposure.reserve(order.getAccountId(), buy, price, order.getSubmitQuantity(), referencePrice,
+                defaultLimits);
+    }
+
+    /**
+     * give back the reservation of a checked order that never reached the book
+     * @param order
+     */
+    public void cancel(LongOrder order) {
+        onRelease(order, order.getAvailableQuantity());
+    }
+
+    @Override
+    public RiskRejection onReplace(LongOrder order, long price, long quantity) {
+        boolean buy = OrderDirection.BUY.equals(order.getOrderDirection());
+        long referencePrice = referencePrice(buy, replaceQuote);
+        if (order.getAccountId() == 0) {
+            return AccountExposure.checkOrder(price, quantity, referencePrice, defaultLimits);
+        }
+        return exposure.replace(order.getAccountId(), buy, order.getPrice(), order.getAvailableQuantity(), price,
+                quantity, referencePrice, defaultLimits);
+    }
+
+    @Override
+    public void onFill(LongOrder taker, LongOrder maker, long price, long quantity) {
+        exposure.fill(taker.getAccountId(), OrderDirection.BUY.equals(taker.getOrderDirection()), taker.getPrice(),
+                quantity);
+        exposure.fill(maker.getAccountId(), OrderDirection.BUY.equals(maker.getOrderDirection()), maker.getPrice(),
+                quantity);
+    }
+
+    @Override
+    public void onRelease(LongOrder order, long quantity) {
+        exposure.release(order.getAccountId(), OrderDirection.BUY.equals(order.getOrderDirection()),
+                order.getPrice(), quantity);
+    }
+
+    @Override
+    public void onRestore(LongOrder order) {
+        exposure.restore(order.getAccountId(), OrderDirection.BUY.equals(order.getOrderDirection()),
+                order.getPrice(), order.getAvailableQuantity());
+    }
+
+    /**
+     * @return best price of the opposite side, or of the same side when the opposite one is empty
+     */
+    private long referencePrice(boolean buy, Quote quote) {
+        topOfBook.read(quote);
+        long referencePrice = buy ? quote.getAskPrice() : quote.getBidPrice();
+        if (referencePrice == 0) {
+            referencePrice = buy ? quote.getBidPrice() : quote.getAskPrice();
+        }
+        return referencePrice;
+    }
+}
@@ -0,0 +1,41 @@
+package com.stock.engine.risk;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Pre-trade limits of an account, in ticks and lots; 0 means no limit.
+ * <p>
+ * Set them up before the orders they apply to are published: the check threads read them
+ * without locking.
+ */
+@Getter
+@Setter
+public class RiskLimits {
+
+    /**
+     * lots of a single order
+     */
+    private long maxOrderQuantity;
+
+    /**
+     * lots working on the book, both sides, the checked order included
+     */
+    private long maxOpenQuantity;
+
+    /**
+     * notional working on the book in ticks times lots, the checked order included
+     */
+    private long maxNotional;
+
+    /**
+     * absolute position in lots should every working order of one side fill
+     */
+    private long maxPosition;
+
+    /**
+     * ticks a limit price may be away from the reference price, the best ask for a buy and the
+     * best bid for a sell
+     */
+    private long priceBand;
+}
@@ -0,0 +1,18 @@
+package com.stock.engine.risk;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.RiskRejection;
+
+/**
+ * receives the orders the risk stage turned down, in sequence on the matcher thread
+ */
+@FunctionalInterface
+public interface RiskRejectListener {
+
+    /**
+     * @param order rejected order, still owned by whoever published it
+     * @param sequence sequence the order was published with
+     * @param rejection broken limit
+     */
+    void onReject(LongOrder order, long sequence, RiskRejection rejection);
+}
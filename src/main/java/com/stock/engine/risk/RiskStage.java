@@ -0,0 +1,286 @@
+package com.stock.engine.risk;
+
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.RiskRejection;
+import com.stock.engine.core.OrderHandler;
+import com.stock.engine.core.OrderSequencer;
+import com.stock.engine.core.Quote;
+import com.stock.engine.core.RingBuffer;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link OrderSequencer} with a parallel pre-trade risk stage in front of matching.
+ * <p>
+ * Producers publish into one ring. Every check thread walks the whole ring but only checks the
+ * orders of the accounts in its stripes of the {@link AccountExposure}, so an account is always
+ * checked by the same thread, in sequence, and threads only share the matcher. The matcher
+ * thread follows the slowest check thread and hands the accepted orders to the
+ * {@link OrderHandler} in publish sequence, rejected ones to the {@link RiskRejectListener}.
+ * Matching results still only depend on the publish sequence; which orders pass can also depend
+ * on how far matching got, since fills free up limits.
+ */
+public class RiskStage implements AutoCloseable {
+
+    /**
+     * check thread name prefix, followed by the thread index
+     */
+    public static final String CHECK_THREAD_NAME = "risk-check-";
+
+    private final RingBuffer<Slot> ringBuffer;
+
+    private final PreTradeRisk risk;
+
+    private final OrderHandler<LongOrder> handler;
+
+    private final AtomicLong[] checkedSequences;
+
+    private final Thread[] threads;
+
+    private volatile boolean running;
+
+    /**
+     * called on the matcher thread for every rejected order, none by default
+     */
+    @Getter
+    @Setter
+    private volatile RiskRejectListener rejectListener;
+
+    @Getter
+    private volatile long acceptedCount;
+
+    @Getter
+    private volatile long rejectedCount;
+
+    /**
+     * number of accepted orders the handler failed on
+     */
+    @Getter
+    private volatile long failedCount;
+
+    /**
+     * last failure raised by the handler
+     */
+    @Getter
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * @param bufferSize ring size, power of 2
+     * @param checkThreads number of check threads, at most the stripe count of the exposure
+     * @param risk checks, also the fill listener of the engine behind the handler
+     * @param handler matching stage
+     */
+    public RiskStage(int bufferSize, int checkThreads, PreTradeRisk risk, OrderHandler<LongOrder> handler) {
+        if (checkThreads < 1 || checkThreads > risk.getExposure().getStripeCount()) {
+            throw new IllegalArgumentException("check thread count must be between 1 and the stripe count");
+        }
+        this.ringBuffer = new RingBuffer<>(bufferSize, Slot::new);
+        this.risk = risk;
+        this.handler = handler;
+        this.checkedSequences = new AtomicLong[checkThreads];
+        this.threads = new Thread[checkThreads + 1];
+        for (int i = 0; i < checkThreads; i++) {
+            checkedSequences[i] = new AtomicLong(-1);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < checkedSequences.length; i++) {
+            int index = i;
+            threads[i] = newThread(() -> checkLoop(index), CHECK_THREAD_NAME + i);
+        }
+        threads[checkedSequences.length] = newThread(this::matchLoop, OrderSequencer.MATCHER_THREAD_NAME);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * publish an order, waiting while the ring is full
+     * @param order
+     * @return sequence of the order
+     */
+    public long publish(LongOrder order) {
+        checkRunning();
+        long sequence = ringBuffer.next();
+        ringBuffer.get(sequence).order = order;
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    /**
+     * publish a burst of orders under consecutive sequences
+     * @param orders
+     * @param offset index of the first order
+     * @param length number of orders
+     * @return sequence of the last order, or the current cursor when {@code length} is 0
+     */
+    public long publish(LongOrder[] orders, int offset, int length) {
+        checkRunning();
+        long sequence = ringBuffer.getCursor();
+        int end = offset + length;
+        while (offset < end) {
+            int n = Math.min(end - offset, ringBuffer.getCapacity());
+            sequence = ringBuffer.next(n);
+            long lo = sequence - n + 1;
+            for (long claimed = lo; claimed <= sequence; claimed++) {
+                ringBuffer.get(claimed).order = orders[offset++];
+            }
+            ringBuffer.publish(lo, sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * wait until every order published before this call has been checked and handled
+     */
+    public void drain() {
+        long target = ringBuffer.getCursor();
+        int idle = 0;
+        while (ringBuffer.getConsumerSequence() < target) {
+            idle = RingBuffer.backOff(idle);
+        }
+    }
+
+    /**
+     * @return last sequence handled by the matcher thread
+     */
+    public long getSequence() {
+        return ringBuffer.getConsumerSequence();
+    }
+
+    /**
+     * stop accepting orders, check and handle everything already published and stop the threads
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkLoop(int index) {
+        AtomicLong checked = checkedSequences[index];
+        int threadCount = checkedSequences.length;
+        AccountExposure exposure = risk.getExposure();
+        Quote quote = new Quote();
+        long next = checked.get() + 1;
+        int idle = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            if (available < next) {
+                if (!running && ringBuffer.getCursor() < next) {
+                    return;
+                }
+                idle = RingBuffer.backOff(idle);
+                continue;
+            }
+            idle = 0;
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot slot = ringBuffer.get(sequence);
+                long accountId = slot.order.getAccountId();
+                int owner = accountId == 0 ? (int) (sequence % threadCount) : exposure.stripeOf(accountId) % threadCount;
+                if (owner == index) {
+                    slot.rejection = risk.check(slot.order, quote);
+                }
+            }
+            checked.lazySet(available);
+            next = available + 1;
+        }
+    }
+
+    private void matchLoop() {
+        long next = ringBuffer.getConsumerSequence() + 1;
+        int idle = 0;
+        while (true) {
+            long available = Long.MAX_VALUE;
+            for (AtomicLong checked : checkedSequences) {
+                available = Math.min(available, checked.get());
+            }
+            if (available < next) {
+                if (!running && ringBuffer.getCursor() < next && checkersDone()) {
+                    return;
+                }
+                try {
+                    handler.onIdle();
+                } catch (RuntimeException e) {
+                    lastFailure = e;
+                }
+                idle = RingBuffer.backOff(idle);
+                continue;
+            }
+            idle = 0;
+            long lastAccepted = available;
+            while (lastAccepted >= next && ringBuffer.get(lastAccepted).rejection != null) {
+                lastAccepted--;
+            }
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot slot = ringBuffer.get(sequence);
+                LongOrder order = slot.order;
+                RiskRejection rejection = slot.rejection;
+                slot.order = null;
+                slot.rejection = null;
+                if (rejection == null) {
+                    acceptedCount++;
+                    try {
+                        handler.onOrder(order, sequence, sequence == lastAccepted);
+                    } catch (RuntimeException e) {
+                        risk.cancel(order);
+                        failedCount++;
+                        lastFailure = e;
+                    }
+                } else {
+                    rejectedCount++;
+                    RiskRejectListener rejectListener = this.rejectListener;
+                    if (rejectListener != null) {
+                        rejectListener.onReject(order, sequence, rejection);
+                    }
+                }
+            }
+            ringBuffer.setConsumerSequence(available);
+            next = available + 1;
+        }
+    }
+
+    private boolean checkersDone() {
+        for (int i = 0; i < checkedSequences.length; i++) {
+            if (threads[i].isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("risk stage is not running");
+        }
+    }
+
+    private static final class Slot {
+        private LongOrder order;
+        private RiskRejection rejection;
+    }
+}
@@ -0,0 +1,67 @@
+package com.stock.engine.tape;
+
+import lombok.Getter;
+
+/**
+ * open, high, low, close, volume and VWAP of the trades of a {@link TradeTape} window
+ */
+@Getter
+public class TradeSummary {
+
+    /**
+     * number of trades
+     */
+    private long count;
+
+    /**
+     * traded quantity
+     */
+    private long volume;
+
+    /**
+     * sum of price times quantity
+     */
+    private double notional;
+
+    /**
+     * price of the first trade, NaN when there is none
+     */
+    private double open = Double.NaN;
+
+    private double high = Double.NaN;
+
+    private double low = Double.NaN;
+
+    /**
+     * price of the last trade, NaN when there is none
+     */
+    private double close = Double.NaN;
+
+    /**
+     * @return volume-weighted average price, NaN when nothing traded
+     */
+    public double getVwap() {
+        return volume == 0 ? Double.NaN : notional / volume;
+    }
+
+    void add(double price, long quantity) {
+        if (count == 0) {
+            open = price;
+            high = price;
+            low = price;
+        } else {
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+        }
+        close = price;
+        count++;
+        volume += quantity;
+        notional += price * quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeSummary trades:" + count + ", volume:" + volume + ", open:" + open + ", high:" + high
+                + ", low:" + low + ", close:" + close + ", vwap:" + getVwap();
+    }
+}
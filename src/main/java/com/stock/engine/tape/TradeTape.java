@@ -0,0 +1,355 @@
+package com.stock.engine.tape;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Columnar, bounded record of trades.
+ * <p>
+ * Trades are appended to fixed-size chunks of primitive columns, price, quantity and timestamp;
+ * the sequence of a trade is its position on the tape. Once more than {@code residentChunks} full
+ * chunks are on the heap the oldest one is written to a file of the spill directory and read back
+ * through a read-only memory mapping, and its arrays are reused for the next chunk. Without a spill
+ * directory the oldest chunk is dropped instead, so the heap footprint stays fixed either way.
+ * <p>
+ * Queries scan the columns of the chunks overlapping the time window; timestamps never go
+ * backwards along the tape, so chunks outside the window are skipped without a scan. Appends and
+ * queries are synchronized, which costs an uncontended lock on a single matcher thread.
+ * <p>
+ * A spilled chunk file holds the three columns one after the other, little-endian: {@code size}
+ * double prices, then {@code size} long quantities, then {@code size} long timestamps in
+ * milliseconds.
+ */
+public class TradeTape implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    public static final int DEFAULT_RESIDENT_CHUNKS = 16;
+
+    private static final String SPILL_PREFIX = "tape-";
+
+    private static final String SPILL_SUFFIX = ".dat";
+
+    private final int chunkSize;
+
+    private final int residentChunks;
+
+    private final Path spillDirectory;
+
+    /**
+     * full chunks on the heap, oldest first
+     */
+    private final ArrayDeque<Chunk> resident = new ArrayDeque<>();
+
+    /**
+     * full chunks in spill files, oldest first
+     */
+    private final ArrayDeque<SpilledChunk> spilled = new ArrayDeque<>();
+
+    private Chunk current;
+
+    /**
+     * number of trades ever appended
+     */
+    @Getter
+    private long count;
+
+    /**
+     * number of trades dropped from the tape for lack of a spill directory
+     */
+    @Getter
+    private long droppedCount;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * in-memory tape of the default size, dropping its oldest chunks
+     */
+    public TradeTape() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_RESIDENT_CHUNKS, null);
+    }
+
+    /**
+     * @param chunkSize trades a chunk
+     * @param residentChunks full chunks kept on the heap
+     * @param spillDirectory where older chunks go, created if missing; null to drop them
+     */
+    public TradeTape(int chunkSize, int residentChunks, Path spillDirectory) {
+        if (chunkSize < 1 || residentChunks < 0) {
+            throw new IllegalArgumentException("chunk size must be positive and resident chunks not negative");
+        }
+        this.chunkSize = chunkSize;
+        this.residentChunks = residentChunks;
+        this.spillDirectory = spillDirectory;
+        if (spillDirectory != null) {
+            try {
+                Files.createDirectories(spillDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot create trade tape directory " + spillDirectory, e);
+            }
+        }
+        this.current = new Chunk(0, chunkSize);
+    }
+
+    /**
+     * record a trade now
+     * @param price
+     * @param quantity
+     * @return sequence of the trade
+     */
+    public long append(double price, long quantity) {
+        return append(price, quantity, System.currentTimeMillis());
+    }
+
+    /**
+     * record a trade
+     * @param price
+     * @param quantity
+     * @param timestamp milliseconds, an earlier time than the last trade is recorded as the last time
+     * @return sequence of the trade
+     */
+    public synchronized long append(double price, long quantity, long timestamp) {
+        if (current.size == chunkSize) {
+            rollOver();
+        }
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        int index = current.size++;
+        current.prices[index] = price;
+        current.quantities[index] = quantity;
+        current.timestamps[index] = lastTimestamp;
+        return count++;
+    }
+
+    /**
+     * @return sequence of the oldest trade still on the tape
+     */
+    public synchronized long getFirstSequence() {
+        if (!spilled.isEmpty()) {
+            return spilled.peekFirst().firstSequence;
+        }
+        return resident.isEmpty() ? current.firstSequence : resident.peekFirst().firstSequence;
+    }
+
+    /**
+     * @return number of chunks in spill files
+     */
+    public synchronized int getSpilledChunkCount() {
+        return spilled.size();
+    }
+
+    /**
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return OHLC, volume and VWAP of the trades in the window
+     */
+    public synchronized TradeSummary summarize(long fromMillis, long toMillis) {
+        return scan(fromMillis, toMillis, Double.NaN);
+    }
+
+    /**
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return volume-weighted average price, NaN when nothing traded
+     */
+    public double vwap(long fromMillis, long toMillis) {
+        return summarize(fromMillis, toMillis).getVwap();
+    }
+
+    /**
+     * @param price traded price
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return quantity traded at exactly that price in the window
+     */
+    public synchronized long volumeAt(double price, long fromMillis, long toMillis) {
+        return scan(fromMillis, toMillis, price).getVolume();
+    }
+
+    /**
+     * @return OHLC, volume and VWAP of every trade still on the tape
+     */
+    public TradeSummary summarize() {
+        return summarize(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * drop every trade and delete the spill files, the sequence goes on
+     */
+    public synchronized void clear() {
+        for (SpilledChunk chunk : spilled) {
+            delete(chunk.file);
+        }
+        spilled.clear();
+        resident.clear();
+        current = new Chunk(count, chunkSize);
+    }
+
+    /**
+     * release the spilled chunks, their files stay
+     */
+    @Override
+    public synchronized void close() {
+        spilled.clear();
+        resident.clear();
+    }
+
+    private TradeSummary scan(long fromMillis, long toMillis, double price) {
+        TradeSummary summary = new TradeSummary();
+        for (SpilledChunk chunk : spilled) {
+            if (chunk.lastTimestamp >= fromMillis && chunk.firstTimestamp < toMillis) {
+                chunk.scan(fromMillis, toMillis, price, summary);
+            }
+        }
+        for (Chunk chunk : resident) {
+            chunk.scan(fromMillis, toMillis, price, summary);
+        }
+        current.scan(fromMillis, toMillis, price, summary);
+        return summary;
+    }
+
+    private void rollOver() {
+        resident.addLast(current);
+        Chunk recycled = null;
+        if (resident.size() > residentChunks) {
+            Chunk oldest = resident.pollFirst();
+            if (spillDirectory == null) {
+                droppedCount += oldest.size;
+            } else {
+                spilled.addLast(spill(oldest));
+            }
+            recycled = oldest;
+        }
+        if (recycled == null) {
+            current = new Chunk(count, chunkSize);
+        } else {
+            recycled.firstSequence = count;
+            recycled.size = 0;
+            current = recycled;
+        }
+    }
+
+    private SpilledChunk spill(Chunk chunk) {
+        Path file = spillDirectory.resolve(String.format("%s%020d%s", SPILL_PREFIX, chunk.firstSequence, SPILL_SUFFIX));
+        int size = chunk.size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(size * 24).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asDoubleBuffer().put(chunk.prices, 0, size);
+            buffer.position(size * 8);
+            buffer.asLongBuffer().put(chunk.quantities, 0, size);
+            buffer.position(size * 16);
+            buffer.asLongBuffer().put(chunk.timestamps, 0, size);
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size * 24L);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return new SpilledChunk(file, chunk.firstSequence, size, chunk.timestamps[0], chunk.timestamps[size - 1],
+                    mapped);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot spill trade tape chunk to " + file, e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot delete trade tape chunk " + file, e);
+        }
+    }
+
+    /**
+     * @return whether the price matches the filter, NaN matching any price
+     */
+    private static boolean matches(double filter, double price) {
+        return Double.isNaN(filter) || filter == price;
+    }
+
+    private static final class Chunk {
+        private long firstSequence;
+        private final double[] prices;
+        private final long[] quantities;
+        private final long[] timestamps;
+        private int size;
+
+        private Chunk(long firstSequence, int chunkSize) {
+            this.firstSequence = firstSequence;
+            this.prices = new double[chunkSize];
+            this.quantities = new long[chunkSize];
+            this.timestamps = new long[chunkSize];
+        }
+
+        private void scan(long fromMillis, long toMillis, double price, TradeSummary summary) {
+            if (size == 0 || timestamps[size - 1] < fromMillis || timestamps[0] >= toMillis) {
+                return;
+            }
+            int from = timestamps[0] >= fromMillis ? 0 : lowerBound(fromMillis);
+            for (int i = from; i < size && timestamps[i] < toMillis; i++) {
+                if (matches(price, prices[i])) {
+                    summary.add(prices[i], quantities[i]);
+                }
+            }
+        }
+
+        private int lowerBound(long timestamp) {
+            int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index > 0 && timestamps[index - 1] == timestamp) {
+                index--;
+            }
+            return index;
+        }
+    }
+
+    private static final class SpilledChunk {
+        private final Path file;
+        private final long firstSequence;
+        private final int size;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final MappedByteBuffer buffer;
+
+        private SpilledChunk(Path file, long firstSequence, int size, long firstTimestamp, long lastTimestamp,
+                             MappedByteBuffer buffer) {
+            this.file = file;
+            this.firstSequence = firstSequence;
+            this.size = size;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.buffer = buffer;
+        }
+
+        private void scan(long fromMillis, long toMillis, double price, TradeSummary summary) {
+            int quantities = size * 8;
+            int timestamps = size * 16;
+            for (int i = 0; i < size; i++) {
+                long timestamp = buffer.getLong(timestamps + i * 8);
+                if (timestamp < fromMillis) {
+                    continue;
+                }
+                if (timestamp >= toMillis) {
+                    break;
+                }
+                double tradePrice = buffer.getDouble(i * 8);
+                if (matches(price, tradePrice)) {
+                    summary.add(tradePrice, buffer.getLong(quantities + i * 8));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.stock.engine.workload;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seeded generator of realistic order flow, written to a workload file for a
+ * {@link WorkloadReplayer}.
+ * <p>
+ * Each event is a passive add, a cancel of a random order added earlier or an aggressive order
+ * reaching past the touch, in the ratios of the {@link WorkloadProfile}. Prices follow a mid that
+ * random-walks a tick at a time, so the book drifts and old orders end up deep or crossed. The
+ * same profile and seed always give the same file, so runs on different engines or builds see
+ * identical flow.
+ * <p>
+ * The file is a {@value #HEADER_SIZE} byte little-endian header followed by {@value #RECORD_SIZE}
+ * byte records:
+ * <pre>
+ * header:  0 int magic, 4 int version, 8 long record count, 16 long seed, 24 long starting mid in ticks
+ * record:  0 long nanos since the start of the workload, 8 long order id, 16 long price in ticks,
+ *         24 int quantity in lots, 28 byte command type, 29 byte order direction, 30 byte order type
+ * </pre>
+ */
+public class WorkloadGenerator {
+
+    public static final int HEADER_SIZE = 32;
+
+    public static final int RECORD_SIZE = 32;
+
+    static final int MAGIC = 0x574B4C44;
+
+    static final int VERSION = 1;
+
+    private static final int WRITE_BUFFER_SIZE = RECORD_SIZE << 15;
+
+    private final WorkloadProfile profile;
+
+    private final long seed;
+
+    private final Random random;
+
+    private long mid;
+
+    private long timeNanos;
+
+    private boolean burst;
+
+    private long lastOrderId;
+
+    /**
+     * ids of the passive adds not cancelled yet, some of them may have traded already
+     */
+    private long[] liveOrderIds = new long[1024];
+
+    private int liveCount;
+
+    public WorkloadGenerator(WorkloadProfile profile, long seed) {
+        double total = profile.getAddRatio() + profile.getCancelRatio() + profile.getAggressiveRatio();
+        if (!(total > 0) || profile.getAddRatio() < 0 || profile.getCancelRatio() < 0
+                || profile.getAggressiveRatio() < 0) {
+            throw new IllegalArgumentException("workload ratios must be positive");
+        }
+        this.profile = profile;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.mid = profile.getMidTicks();
+    }
+
+    /**
+     * write {@code count} events to a new workload file
+     * @param file replaced if it exists
+     * @param count number of events
+     * @throws IOException
+     */
+    public void generate(Path file, long count) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(seed).putLong(mid);
+            for (long i = 0; i < count; i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    write(buffer, channel);
+                }
+                next(buffer);
+            }
+            write(buffer, channel);
+        }
+    }
+
+    private void next(ByteBuffer buffer) {
+        advanceClock();
+        if (random.nextDouble() < profile.getMidMoveProbability()) {
+            mid += random.nextBoolean() ? 1 : -1;
+        }
+        double total = profile.getAddRatio() + profile.getCancelRatio() + profile.getAggressiveRatio();
+        double draw = random.nextDouble() * total;
+        if (draw >= profile.getAddRatio() && draw < profile.getAddRatio() + profile.getCancelRatio()
+                && liveCount > 0) {
+            int index = random.nextInt(liveCount);
+            long orderId = liveOrderIds[index];
+            liveOrderIds[index] = liveOrderIds[--liveCount];
+            put(buffer, orderId, 0, 0, CommandType.CANCEL_ORDER, OrderDirection.BUY, OrderType.LIMIT);
+            return;
+        }
+        boolean buy = random.nextBoolean();
+        long orderId = ++lastOrderId;
+        long quantity = nextLots();
+        if (draw >= profile.getAddRatio() + profile.getCancelRatio()) {
+            long reach = geometric(profile.getMeanAggressiveTicks());
+            long price = buy ? mid + 1 + reach : mid - 1 - reach;
+            put(buffer, orderId, price, quantity, CommandType.NEW_ORDER,
+                    buy ? OrderDirection.BUY : OrderDirection.SELL, profile.getAggressiveOrderType());
+            return;
+        }
+        long distance = geometric(profile.getMeanDistanceTicks());
+        long price = buy ? mid - 1 - distance : mid + 1 + distance;
+        if (liveCount == liveOrderIds.length) {
+            liveOrderIds = Arrays.copyOf(liveOrderIds, liveCount << 1);
+        }
+        liveOrderIds[liveCount++] = orderId;
+        put(buffer, orderId, price, quantity, CommandType.NEW_ORDER,
+                buy ? OrderDirection.BUY : OrderDirection.SELL, OrderType.LIMIT);
+    }
+
+    /**
+     * exponential inter-arrival time, faster during a burst
+     */
+    private void advanceClock() {
+        if (burst ? random.nextDouble() < profile.getBurstEndProbability()
+                : random.nextDouble() < profile.getBurstStartProbability()) {
+            burst = !burst;
+        }
+        double mean = profile.getMeanInterArrivalNanos() / (burst ? profile.getBurstRateMultiplier() : 1);
+        timeNanos += (long) (-mean * Math.log(1 - random.nextDouble()));
+    }
+
+    /**
+     * log-normal size around the median, clipped to {@code [1, maxLots]}
+     */
+    private long nextLots() {
+        long lots = Math.round(profile.getMedianLots() * Math.exp(profile.getSizeSigma() * random.nextGaussian()));
+        return Math.max(1, Math.min(profile.getMaxLots(), lots));
+    }
+
+    /**
+     * @param mean mean of the distribution
+     * @return geometric draw in {@code [0, inf)}
+     */
+    private long geometric(double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double p = 1 / (1 + mean);
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private void put(ByteBuffer buffer, long orderId, long price, long quantity, CommandType type,
+                     OrderDirection orderDirection, OrderType orderType) {
+        buffer.putLong(timeNanos).putLong(orderId).putLong(price).putInt((int) quantity)
+                .put(type.getCode()).put((byte) orderDirection.ordinal()).put(orderType.getCode()).put((byte) 0);
+    }
+
+    private static void write(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,23 @@
+package com.stock.engine.workload;
+
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+
+/**
+ * receives the commands of a {@link WorkloadReplayer}, in workload order
+ */
+@FunctionalInterface
+public interface WorkloadHandler {
+
+    /**
+     * @param type new order or cancel
+     * @param orderId id given by the generator, the id to cancel for a cancel
+     * @param price price in ticks, 0 for a cancel
+     * @param quantity quantity in lots, 0 for a cancel
+     * @param orderDirection
+     * @param orderType
+     */
+    void onCommand(CommandType type, long orderId, long price, long quantity, OrderDirection orderDirection,
+                   OrderType orderType);
+}
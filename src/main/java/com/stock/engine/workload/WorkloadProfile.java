@@ -0,0 +1,92 @@
+package com.stock.engine.workload;
+
+import com.stock.engine.constant.OrderType;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Shape of a generated order flow, see {@link WorkloadGenerator}.
+ * <p>
+ * The defaults describe a liquid book: most adds land a few ticks off the touch, sizes are
+ * log-normal around a round lot, four cancels for every five adds, and arrivals come in Poisson
+ * bursts on top of a quiet base rate while the mid drifts a tick at a time.
+ */
+@Getter
+@Setter
+public class WorkloadProfile {
+
+    /**
+     * mid price in ticks the flow starts at
+     */
+    private long midTicks = 10000;
+
+    /**
+     * chance that an event moves the mid one tick up or down
+     */
+    private double midMoveProbability = 0.01;
+
+    /**
+     * relative weight of passive adds
+     */
+    private double addRatio = 0.5;
+
+    /**
+     * relative weight of cancels of resting adds
+     */
+    private double cancelRatio = 0.4;
+
+    /**
+     * relative weight of orders crossing the mid
+     */
+    private double aggressiveRatio = 0.1;
+
+    /**
+     * mean distance of a passive add behind the touch in ticks, geometrically distributed
+     */
+    private double meanDistanceTicks = 4;
+
+    /**
+     * mean number of ticks an aggressive order reaches past the touch, geometrically distributed
+     */
+    private double meanAggressiveTicks = 1;
+
+    /**
+     * what an aggressive order does with its unfilled rest
+     */
+    private OrderType aggressiveOrderType = OrderType.IOC;
+
+    /**
+     * median order size in lots, sizes are log-normal around it
+     */
+    private double medianLots = 100;
+
+    /**
+     * standard deviation of the log of the order size
+     */
+    private double sizeSigma = 1.0;
+
+    /**
+     * largest order size in lots
+     */
+    private long maxLots = 10000;
+
+    /**
+     * mean time between two events outside of bursts, exponentially distributed
+     */
+    private long meanInterArrivalNanos = 20_000;
+
+    /**
+     * how many times faster events arrive during a burst
+     */
+    private double burstRateMultiplier = 20;
+
+    /**
+     * chance per event that a burst starts
+     */
+    private double burstStartProbability = 0.002;
+
+    /**
+     * chance per event that a running burst ends
+     */
+    private double burstEndProbability = 0.02;
+}
@@ -0,0 +1,162 @@
+package com.stock.engine.workload;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrderPool;
+import com.stock.engine.component.Order;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderEngine;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Drives an engine with a workload file written by {@link WorkloadGenerator}.
+ * <p>
+ * The file is memory-mapped and decoded record by record, so replay allocates nothing itself and
+ * does not read the disk on the hot path once the pages are cached. {@link #replay(WorkloadHandler)}
+ * runs at the maximum rate; {@link #replay(WorkloadHandler, double)} keeps to the recorded arrival
+ * times, sped up or slowed down, and tracks how far behind schedule the engine fell. One mapping
+ * covers files up to 2 GB, some 67 million commands.
+ */
+public class WorkloadReplayer {
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * number of records in the file
+     */
+    @Getter
+    private final long count;
+
+    /**
+     * seed the workload was generated with
+     */
+    @Getter
+    private final long seed;
+
+    /**
+     * largest delay of a command behind its scheduled time in the last paced replay
+     */
+    @Getter
+    private long maxLagNanos;
+
+    /**
+     * @param file workload file
+     * @throws IOException when the file is not a complete workload
+     */
+    public WorkloadReplayer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < WorkloadGenerator.HEADER_SIZE || buffer.getInt(0) != WorkloadGenerator.MAGIC
+                || buffer.getInt(4) != WorkloadGenerator.VERSION) {
+            throw new IOException(file + " is not a workload file");
+        }
+        count = buffer.getLong(8);
+        seed = buffer.getLong(16);
+        if (buffer.limit() != WorkloadGenerator.HEADER_SIZE + count * WorkloadGenerator.RECORD_SIZE) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    /**
+     * @return time of the last record relative to the first, in nanos
+     */
+    public long getDurationNanos() {
+        return count == 0 ? 0 : timeAt(count - 1);
+    }
+
+    /**
+     * feed every command to the handler as fast as it takes them
+     * @param handler
+     * @return number of replayed commands
+     */
+    public long replay(WorkloadHandler handler) {
+        for (long i = 0; i < count; i++) {
+            dispatch(i, handler);
+        }
+        return count;
+    }
+
+    /**
+     * feed every command to the handler at its recorded time divided by {@code speed}, spinning
+     * between commands; a handler slower than the schedule gets the next command right away
+     * @param handler
+     * @param speed 1 for the recorded rate, 2 for twice as fast, 0 or less for the maximum rate
+     * @return number of replayed commands
+     */
+    public long replay(WorkloadHandler handler, double speed) {
+        if (speed <= 0) {
+            return replay(handler);
+        }
+        maxLagNanos = 0;
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            long due = startNanos + (long) (timeAt(i) / speed);
+            long now = System.nanoTime();
+            while (now < due) {
+                Thread.onSpinWait();
+                now = System.nanoTime();
+            }
+            maxLagNanos = Math.max(maxLagNanos, now - due);
+            dispatch(i, handler);
+        }
+        return count;
+    }
+
+    /**
+     * @param engine engine to drive, orders keep the ids of the workload and are borrowed from the
+     *               pool of the replaying thread
+     * @return handler submitting new orders and cancelling resting ones
+     */
+    public static WorkloadHandler handlerFor(LongOrderEngine engine) {
+        String symbol = engine.getInstrument().getSymbol();
+        return (type, orderId, price, quantity, orderDirection, orderType) -> {
+            if (CommandType.CANCEL_ORDER.equals(type)) {
+                engine.cancelOrder(orderId);
+            } else {
+                engine.submitOrder(LongOrderPool.current().borrow(orderId, symbol, price, quantity, orderDirection,
+                        orderType));
+            }
+        };
+    }
+
+    /**
+     * @param engine engine to drive, it has no cancel and only limit orders, so cancels are skipped
+     *               and every order rests its rest
+     * @param instrument converts ticks and lots into the decimal prices and quantities of the engine
+     * @return handler submitting new orders
+     */
+    public static WorkloadHandler handlerFor(OrderEngine<Order> engine, Instrument instrument) {
+        return (type, orderId, price, quantity, orderDirection, orderType) -> {
+            if (CommandType.NEW_ORDER.equals(type)) {
+                engine.submitOrder(new Order(orderId, instrument.toPrice(price), instrument.toQuantity(quantity),
+                        orderDirection));
+            }
+        };
+    }
+
+    private long timeAt(long index) {
+        return buffer.getLong(offsetOf(index));
+    }
+
+    private void dispatch(long index, WorkloadHandler handler) {
+        int offset = offsetOf(index);
+        handler.onCommand(CommandType.valueOf(buffer.get(offset + 28)), buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16), buffer.getInt(offset + 24),
+                OrderDirection.values()[buffer.get(offset + 29)], OrderType.valueOf(buffer.get(offset + 30)));
+    }
+
+    private static int offsetOf(long index) {
+        return (int) (WorkloadGenerator.HEADER_SIZE + index * WorkloadGenerator.RECORD_SIZE);
+    }
+}
@@ -0,0 +1,98 @@
+package com.stock.engine.component;
+
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DepthIndexTest {
+
+    @Test
+    public void answerCumulativeQueries() {
+        DepthIndex asks = new DepthIndex(OrderDirection.SELL, 0.01, 9.0, 11.0);
+        asks.add(10.1, 30);
+        asks.add(10.2, 30);
+        asks.add(10.3, 100);
+        Assert.assertEquals(160, asks.getTotalQuantity());
+        Assert.assertEquals(30, asks.getQuantityBetterThan(10.2));
+        Assert.assertEquals(60, asks.getQuantityThrough(10.2));
+        Assert.assertEquals(60, asks.getQuantityBetterThan(10.25));
+        Assert.assertEquals(10.1, asks.getSweepPrice(30), 0);
+        Assert.assertEquals(10.2, asks.getSweepPrice(31), 0);
+        Assert.assertEquals(10.3, asks.getSweepPrice(160), 0);
+        Assert.assertTrue(Double.isNaN(asks.getSweepPrice(161)));
+
+        DepthIndex bids = new DepthIndex(OrderDirection.BUY, 0.01, 9.0, 11.0);
+        bids.add(9.9, 10);
+        bids.add(9.8, 30);
+        bids.add(9.7, 50);
+        bids.add(9.8, -5);
+        Assert.assertEquals(10, bids.getQuantityBetterThan(9.8));
+        Assert.assertEquals(35, bids.getQuantityThrough(9.8));
+        Assert.assertEquals(9.8, bids.getSweepPrice(35), 0);
+        Assert.assertEquals(9.7, bids.getSweepPrice(36), 0);
+        Assert.assertFalse(bids.isValidPrice(9.705));
+        Assert.assertFalse(bids.isValidPrice(11.01));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectPriceOutsideBand() {
+        new OrderBookEngine(0.01, 9.0, 11.0).addBuyOrder(8.99, 100);
+    }
+
+    @Test
+    public void indexMatchesScan() {
+        Random random = new Random(5);
+        OrderBookEngine scanned = new OrderBookEngine();
+        OrderBookEngine indexed = new OrderBookEngine(0.01, 9.0, 11.0);
+        for (int i = 0; i < 5000; i++) {
+            boolean buy = random.nextBoolean();
+            double price = (buy ? 900 + random.nextInt(120) : 980 + random.nextInt(120)) / 100.0;
+            int quantity = 1 + random.nextInt(500);
+            scanned.receiveOrder(price, quantity, buy);
+            indexed.receiveOrder(price, quantity, buy);
+
+            double probe = (950 + random.nextInt(100)) / 100.0;
+            Assert.assertEquals(scanned.getBidQuantity(probe), indexed.getBidQuantity(probe));
+            Assert.assertEquals(scanned.getAskQuantity(probe), indexed.getAskQuantity(probe));
+            long sweep = 1 + random.nextInt(5000);
+            Assert.assertEquals(scanned.getBidSweepPrice(sweep), indexed.getBidSweepPrice(sweep), 0);
+            Assert.assertEquals(scanned.getAskSweepPrice(sweep), indexed.getAskSweepPrice(sweep), 0);
+        }
+        Assert.assertEquals(scanned.getBidQuantity(), indexed.getBidQuantity());
+        Assert.assertEquals(scanned.getAskQuantity(), indexed.getAskQuantity());
+    }
+
+    @Test
+    public void keepTheIndexExactUnderRacingWriters() throws InterruptedException {
+        OrderBookEngine engine = new OrderBookEngine(0.01, 9.0, 11.0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50000; i++) {
+                    engine.receiveOrder((999 + random.nextInt(3)) / 100.0, 1 + random.nextInt(20), random.nextBoolean());
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // sweep both sides through the map: whatever the index holds beyond it would be left over
+        int bids = engine.getBidQuantity();
+        int asks = engine.getAskQuantity();
+        engine.receiveOrder(9.0, bids, false);
+        Assert.assertEquals(0, engine.getBidQuantity());
+        Assert.assertEquals(0, engine.getBidLevel());
+        Assert.assertEquals(asks, engine.getAskQuantity());
+        engine.receiveOrder(11.0, asks, true);
+        Assert.assertEquals(0, engine.getAskQuantity());
+        Assert.assertEquals(0, engine.getAskLevel());
+        Assert.assertEquals(0, engine.getBidQuantity());
+    }
+}
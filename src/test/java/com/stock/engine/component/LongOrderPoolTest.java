@@ -0,0 +1,126 @@
+package com.stock.engine.component;
+
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.ExecutionPublisher;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderSequencer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class LongOrderPoolTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void reachSteadyStateOnTheMatcherThread() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        LongOrderPool pool = new LongOrderPool();
+        for (int i = 0; i < 1000; i++) {
+            engine.submitOrder(pool.borrow(1000, 10, OrderDirection.SELL));
+            engine.submitOrder(pool.borrow(1000, 10, OrderDirection.BUY));
+        }
+        Assert.assertEquals(2, pool.getCreatedCount());
+
+        LongOrder resting = pool.borrow(990, 10, OrderDirection.BUY);
+        engine.submitOrder(resting);
+        Assert.assertNotSame(resting, pool.borrow(990, 10, OrderDirection.BUY));
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertTrue(engine.cancelOrder(resting.getOrderId()));
+        Assert.assertSame(resting, pool.borrow(990, 10, OrderDirection.BUY));
+        Assert.assertEquals(0, resting.getDealQuantity());
+        Assert.assertEquals(0, resting.getOrderId());
+    }
+
+    @Test
+    public void amendInPlaceKeepsTheOrderInItsPool() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        LongOrderPool pool = new LongOrderPool();
+        long created = LongOrderPool.current().getCreatedCount();
+        LongOrder order = pool.borrow(1000, 10, OrderDirection.BUY);
+        engine.submitOrder(order);
+        Assert.assertTrue(engine.amendOrder(order.getOrderId(), 990, 20));
+        Assert.assertSame(order, engine.getOrder(order.getOrderId()));
+        Assert.assertEquals(990, order.getPrice());
+        Assert.assertEquals(20, order.getAvailableQuantity());
+        Assert.assertEquals(created, LongOrderPool.current().getCreatedCount());
+        Assert.assertTrue(engine.cancelOrder(order.getOrderId()));
+        Assert.assertSame(order, pool.borrow(1000, 10, OrderDirection.BUY));
+        Assert.assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectDoubleRelease() {
+        LongOrder order = new LongOrderPool().borrow(1000, 10, OrderDirection.SELL);
+        LongOrderPool.release(order);
+        LongOrderPool.release(order);
+    }
+
+    @Test
+    public void recycleAcrossThreadsAfterBatchedFills() throws InterruptedException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        ExecutionPublisher executionPublisher = new ExecutionPublisher(1 << 10);
+        List<String> fills = Collections.synchronizedList(new ArrayList<>());
+        executionPublisher.addListener((report, sequence, endOfBatch) ->
+                fills.add(report.getTakerOrderId() + ">" + report.getMakerOrderId()));
+        executionPublisher.start();
+        engine.setExecutionPublisher(executionPublisher);
+        OrderSequencer<LongOrder> sequencer = new OrderSequencer<>(1 << 10, engine);
+        sequencer.start();
+
+        LongOrderPool pool = LongOrderPool.current();
+        long created = pool.getCreatedCount();
+        LongOrder[] burst = new LongOrder[64];
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < burst.length; i += 2) {
+                burst[i] = pool.borrow(1000, 10, OrderDirection.SELL);
+                burst[i + 1] = pool.borrow(1000, 10, OrderDirection.BUY);
+            }
+            sequencer.publish(burst, 0, burst.length);
+            sequencer.drain();
+        }
+        sequencer.close();
+        executionPublisher.drain();
+        executionPublisher.close();
+
+        Assert.assertTrue(pool.getCreatedCount() - created <= 2 * burst.length);
+        Assert.assertEquals(50 * burst.length / 2, fills.size());
+        for (int i = 0; i < fills.size(); i++) {
+            Assert.assertEquals((2 * i + 2) + ">" + (2 * i + 1), fills.get(i));
+        }
+    }
+
+    @Test
+    public void keepReportsApartFromRecycledOrders() throws InterruptedException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        ExecutionPublisher executionPublisher = new ExecutionPublisher(1 << 4);
+        CountDownLatch reused = new CountDownLatch(1);
+        List<String> fills = Collections.synchronizedList(new ArrayList<>());
+        executionPublisher.addListener((report, sequence, endOfBatch) -> {
+            try {
+                reused.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            fills.add(report.getTakerOrderId() + ">" + report.getMakerOrderId() + " " + report.getQuantity());
+        });
+        executionPublisher.start();
+        engine.setExecutionPublisher(executionPublisher);
+        LongOrderPool pool = new LongOrderPool();
+        engine.submitOrder(pool.borrow(1, null, 1000, 10, OrderDirection.SELL, OrderType.LIMIT));
+        engine.submitOrder(pool.borrow(2, null, 1000, 10, OrderDirection.BUY, OrderType.LIMIT));
+        engine.submitOrder(pool.borrow(999, null, 900, 5, OrderDirection.BUY, OrderType.LIMIT));
+        engine.submitOrder(pool.borrow(998, null, 900, 5, OrderDirection.BUY, OrderType.LIMIT));
+        Assert.assertEquals(2, pool.getCreatedCount());
+        reused.countDown();
+        executionPublisher.drain();
+        executionPublisher.close();
+        Assert.assertEquals(Collections.singletonList("2>1 10"), fills);
+    }
+}
@@ -0,0 +1,72 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ExecutionPublisherTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void reportEveryFill() {
+        List<String> fills = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        ExecutionPublisher publisher = new ExecutionPublisher(8);
+        publisher.addListener((report, sequence, endOfBatch) -> fills.add(report.getTakerDirection() + " "
+                + report.getQuantity() + "@" + report.getPrice() + " left " + report.getTakerAvailableQuantity()
+                + "/" + report.getMakerAvailableQuantity()));
+        publisher.addListener((report, sequence, endOfBatch) -> sequences.add(sequence));
+        publisher.start();
+
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.setExecutionPublisher(publisher);
+        engine.submitOrder(new LongOrder(1010, 300, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1020, 300, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1020, 500, OrderDirection.BUY));
+        publisher.close();
+
+        Assert.assertEquals(2, fills.size());
+        Assert.assertEquals("BUY 300@1010 left 200/0", fills.get(0));
+        Assert.assertEquals("BUY 200@1020 left 0/100", fills.get(1));
+        Assert.assertEquals(0, sequences.get(0).longValue());
+        Assert.assertEquals(1, sequences.get(1).longValue());
+    }
+
+    @Test
+    public void countStallsOnSlowListener() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutionPublisher publisher = new ExecutionPublisher(2);
+        publisher.addListener((report, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        publisher.start();
+
+        LongOrder taker = new LongOrder(1, 10, OrderDirection.BUY);
+        LongOrder maker = new LongOrder(1, 10, OrderDirection.SELL);
+        Thread matcher = new Thread(() -> {
+            for (int i = 0; i < 4; i++) {
+                publisher.publish(taker, maker, 1, 1);
+            }
+        });
+        matcher.start();
+        while (publisher.getStallCount() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        matcher.join();
+        publisher.close();
+        Assert.assertEquals(3, publisher.getSequence());
+    }
+}
@@ -0,0 +1,532 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LongOrderEngineTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), new BigDecimal("100"));
+
+    @Test
+    public void convertAtTheEdge() {
+        Assert.assertEquals(1005, instrument.toTicks(new BigDecimal("10.05")));
+        Assert.assertEquals(30, instrument.toLots(new BigDecimal("3000")));
+        Assert.assertEquals(0, new BigDecimal("10.05").compareTo(instrument.toPrice(1005)));
+        Assert.assertEquals(0, new BigDecimal("3000").compareTo(instrument.toQuantity(30)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectPriceOffTick() {
+        instrument.toTicks(new BigDecimal("10.055"));
+    }
+
+    @Test
+    public void matchInPriceTimePriority() {
+        assertPriceTimePriority(new LongOrderEngine(instrument));
+    }
+
+    @Test
+    public void matchInPriceTimePriorityOnLadder() {
+        assertPriceTimePriority(new LongOrderEngine(instrument, new BigDecimal("0.00"), new BigDecimal("100.00")));
+    }
+
+    @Test
+    public void scanLadderAcrossBitmapWords() {
+        LadderBookSide bids = new LadderBookSide(OrderDirection.BUY, 0, 10000);
+        bids.getOrCreate(5);
+        bids.getOrCreate(700);
+        bids.getOrCreate(9999);
+        Assert.assertEquals(9999, bids.best().getPrice());
+        Assert.assertEquals(700, bids.next(bids.best()).getPrice());
+        bids.removeLevel(bids.best());
+        bids.removeLevel(bids.get(700));
+        Assert.assertEquals(5, bids.best().getPrice());
+        Assert.assertNull(bids.next(bids.best()));
+        Assert.assertEquals(1, bids.size());
+
+        LadderBookSide asks = new LadderBookSide(OrderDirection.SELL, 0, 10000);
+        asks.getOrCreate(9999);
+        asks.getOrCreate(64);
+        asks.getOrCreate(63);
+        Assert.assertEquals(63, asks.best().getPrice());
+        asks.removeLevel(asks.best());
+        Assert.assertEquals(64, asks.best().getPrice());
+        Assert.assertEquals(9999, asks.next(asks.best()).getPrice());
+    }
+
+    @Test
+    public void skipListSurvivesChurn() {
+        for (OrderDirection orderDirection : OrderDirection.values()) {
+            SkipListBookSide side = new SkipListBookSide(orderDirection);
+            TreeMap<Long, PriceLevel> expected = new TreeMap<>(OrderDirection.BUY.equals(orderDirection)
+                    ? Comparator.<Long>reverseOrder() : Comparator.<Long>naturalOrder());
+            Random random = new Random(7);
+            for (int i = 0; i < 100000; i++) {
+                long price = 1 + random.nextInt(2000);
+                if (random.nextBoolean()) {
+                    PriceLevel level = side.getOrCreate(price);
+                    Assert.assertSame(expected.computeIfAbsent(price, key -> level), level);
+                } else if (expected.containsKey(price)) {
+                    side.removeLevel(expected.remove(price));
+                }
+                Assert.assertSame(expected.get(price), side.get(price));
+            }
+            Assert.assertEquals(expected.size(), side.size());
+            PriceLevel level = side.best();
+            for (PriceLevel value : expected.values()) {
+                Assert.assertSame(value, level);
+                level = side.next(level);
+            }
+            Assert.assertNull(level);
+            side.clear();
+            Assert.assertNull(side.best());
+            Assert.assertNull(side.get(expected.firstKey()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectPriceOutsideLadder() {
+        new LongOrderEngine(instrument, new BigDecimal("0.00"), new BigDecimal("100.00"))
+                .submitOrder(new BigDecimal("100.01"), new BigDecimal("100"), OrderDirection.SELL);
+    }
+
+    @Test
+    public void cancelReduceAndAmend() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        LongOrder first = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("3000"), OrderDirection.SELL);
+        LongOrder second = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("2000"), OrderDirection.SELL);
+        LongOrder third = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("1000"), OrderDirection.SELL);
+        Assert.assertEquals(3, third.getOrderId());
+
+        Assert.assertTrue(engine.cancelOrder(second.getOrderId()));
+        Assert.assertFalse(engine.cancelOrder(second.getOrderId()));
+        PriceLevel level = engine.getSellOrders().best();
+        Assert.assertEquals(2, level.getOrderCount());
+        Assert.assertEquals(40, level.getTotalQuantity());
+        Assert.assertSame(third, first.getNext());
+
+        // reducing keeps the first order at the front of the queue
+        Assert.assertTrue(engine.amendOrder(first.getOrderId(), 1020, 5));
+        Assert.assertSame(first, level.peekFirst());
+        Assert.assertEquals(15, level.getTotalQuantity());
+
+        // growing the quantity sends it behind the third order
+        Assert.assertTrue(engine.amendOrder(first.getOrderId(), 1020, 20));
+        Assert.assertSame(third, level.peekFirst());
+        Assert.assertEquals(first.getOrderId(), level.getTail().getOrderId());
+        Assert.assertEquals(30, level.getTotalQuantity());
+
+        Assert.assertTrue(engine.reduceOrder(third.getOrderId(), 10));
+        Assert.assertNull(engine.getOrder(third.getOrderId()));
+        Assert.assertTrue(engine.amendOrder(first.getOrderId(), 1000, 20));
+        Assert.assertEquals(1000, engine.getSellOrders().best().getPrice());
+        Assert.assertEquals(1, engine.getSellOrders().size());
+
+        LongOrder taker = engine.submitOrder(new BigDecimal("10.0"), new BigDecimal("2000"), OrderDirection.BUY);
+        Assert.assertEquals(0, taker.getAvailableQuantity());
+        Assert.assertNull(engine.getOrder(first.getOrderId()));
+        Assert.assertTrue(engine.getSellOrders().isEmpty());
+    }
+
+    @Test
+    public void indexSurvivesChurn() {
+        OrderIndex index = new OrderIndex(8);
+        Map<Long, LongOrder> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long id = 1 + random.nextInt(5000);
+            if (random.nextBoolean()) {
+                LongOrder order = new LongOrder(id, null, 100, 1, OrderDirection.BUY);
+                Assert.assertSame(expected.put(id, order), index.put(order));
+            } else {
+                Assert.assertSame(expected.remove(id), index.remove(id));
+            }
+        }
+        Assert.assertEquals(expected.size(), index.size());
+        for (long id = 1; id <= 5000; id++) {
+            Assert.assertSame(expected.get(id), index.get(id));
+        }
+    }
+
+    @Test
+    public void ignoreReservedOrderId() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertFalse(engine.cancelOrder(0));
+            Assert.assertFalse(engine.reduceOrder(0, 1));
+            Assert.assertFalse(engine.amendOrder(0, 1000, 5));
+        }
+        OrderIndex index = new OrderIndex(8);
+        Assert.assertNull(index.remove(0));
+        Assert.assertEquals(0, index.size());
+        for (long id = 1; id <= 100; id++) {
+            index.put(new LongOrder(id, null, 100, 1, OrderDirection.BUY));
+        }
+        Assert.assertEquals(100, index.size());
+        Assert.assertNull(index.get(0));
+        Assert.assertNotNull(index.get(100));
+    }
+
+    @Test
+    public void marketIocAndFok() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.submitOrder(new LongOrder(1010, 30, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1020, 30, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1030, 30, OrderDirection.SELL));
+
+        LongOrder fok = new LongOrder(0, null, 1020, 61, OrderDirection.BUY, OrderType.FOK);
+        engine.submitOrder(fok);
+        Assert.assertEquals(0, fok.getDealQuantity());
+        Assert.assertEquals(0, fok.getAvailableQuantity());
+        Assert.assertEquals(3, engine.getSellOrders().size());
+        Assert.assertEquals(30, engine.getSellOrders().best().getTotalQuantity());
+
+        LongOrder ioc = new LongOrder(0, null, 1020, 70, OrderDirection.BUY, OrderType.IOC);
+        engine.submitOrder(ioc);
+        Assert.assertEquals(60, ioc.getDealQuantity());
+        Assert.assertEquals(60, ioc.getSubmitQuantity());
+        Assert.assertNull(engine.getOrder(ioc.getOrderId()));
+        Assert.assertTrue(engine.getBuyOrders().isEmpty());
+        Assert.assertEquals(1030, engine.getSellOrders().best().getPrice());
+
+        LongOrder filled = new LongOrder(0, null, 1030, 20, OrderDirection.BUY, OrderType.FOK);
+        engine.submitOrder(filled);
+        Assert.assertEquals(20, filled.getDealQuantity());
+
+        LongOrder market = engine.submitOrder(null, new BigDecimal("5000"), OrderDirection.BUY, OrderType.MARKET);
+        Assert.assertEquals(10, market.getDealQuantity());
+        Assert.assertEquals(0, market.getAvailableQuantity());
+        Assert.assertTrue(engine.getSellOrders().isEmpty());
+        Assert.assertTrue(engine.getBuyOrders().isEmpty());
+    }
+
+    @Test
+    public void batchMatchesOneByOne() {
+        Random random = new Random(11);
+        int count = 2000;
+        LongOrder[] single = new LongOrder[count];
+        LongOrder[] batched = new LongOrder[count];
+        for (int i = 0; i < count; i++) {
+            long price = 990 + random.nextInt(20);
+            long quantity = 1 + random.nextInt(random.nextInt(10) == 0 ? 500 : 50);
+            OrderDirection direction = random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL;
+            single[i] = new LongOrder(price, quantity, direction);
+            batched[i] = new LongOrder(price, quantity, direction);
+        }
+
+        List<String> singleFills = new ArrayList<>();
+        List<String> batchedFills = new ArrayList<>();
+        LongOrderEngine singleEngine = new LongOrderEngine(instrument);
+        LongOrderEngine batchedEngine = new LongOrderEngine(instrument);
+        try (ExecutionPublisher singlePublisher = new ExecutionPublisher(16);
+             ExecutionPublisher batchedPublisher = new ExecutionPublisher(16);
+             MarketDataPublisher singleDepth = new MarketDataPublisher(16);
+             MarketDataPublisher batchedDepth = new MarketDataPublisher(16)) {
+            singlePublisher.addListener((report, sequence, endOfBatch) -> singleFills.add(fill(report)));
+            batchedPublisher.addListener((report, sequence, endOfBatch) -> batchedFills.add(fill(report)));
+            singlePublisher.start();
+            batchedPublisher.start();
+            singleDepth.start();
+            batchedDepth.start();
+            singleEngine.setExecutionPublisher(singlePublisher);
+            singleEngine.setMarketDataPublisher(singleDepth);
+            batchedEngine.setExecutionPublisher(batchedPublisher);
+            batchedEngine.setMarketDataPublisher(batchedDepth);
+
+            for (LongOrder order : single) {
+                singleEngine.submitOrder(order);
+            }
+            for (int offset = 0; offset < count; offset += 37) {
+                batchedEngine.submitOrders(batched, offset, Math.min(37, count - offset));
+            }
+            singlePublisher.drain();
+            batchedPublisher.drain();
+            singleDepth.drain();
+            batchedDepth.drain();
+
+            Assert.assertFalse(singleFills.isEmpty());
+            Assert.assertEquals(singleFills, batchedFills);
+            for (OrderDirection direction : OrderDirection.values()) {
+                Assert.assertEquals(singleEngine.getTopOrders(100, direction), batchedEngine.getTopOrders(100, direction));
+                DepthSnapshot expected = singleDepth.snapshot(100);
+                DepthSnapshot actual = batchedDepth.snapshot(100);
+                Assert.assertEquals(expected.getLevelCount(direction), actual.getLevelCount(direction));
+                for (int level = 0; level < expected.getLevelCount(direction); level++) {
+                    Assert.assertEquals(expected.getPrice(direction, level), actual.getPrice(direction, level));
+                    Assert.assertEquals(expected.getQuantity(direction, level), actual.getQuantity(direction, level));
+                }
+            }
+            Assert.assertTrue(batchedDepth.getSequence() < singleDepth.getSequence());
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(single[i].getOrderId(), batched[i].getOrderId());
+            Assert.assertEquals(single[i].getAvailableQuantity(), batched[i].getAvailableQuantity());
+        }
+    }
+
+    @Test
+    public void publishQuoteAndDepthForReaders() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.setDepthSnapshotLevels(2);
+        engine.setDepthSnapshotInterval(2);
+        Quote quote = new Quote();
+        Assert.assertEquals(0, engine.getTopOfBook().read(quote).getSequence());
+        Assert.assertNull(engine.getDepthSnapshot());
+
+        engine.submitOrder(new LongOrder(990, 10, OrderDirection.BUY));
+        engine.submitOrder(new LongOrder(1010, 20, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1020, 30, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1030, 40, OrderDirection.SELL));
+        engine.getTopOfBook().read(quote);
+        Assert.assertEquals(990, quote.getBidPrice());
+        Assert.assertEquals(10, quote.getBidQuantity());
+        Assert.assertEquals(1010, quote.getAskPrice());
+        Assert.assertEquals(20, quote.getAskQuantity());
+        Assert.assertEquals(2, quote.getSequence());
+        Assert.assertEquals(2, engine.getTopOfBook().getUpdateCount());
+
+        DepthSnapshot depth = engine.getDepthSnapshot();
+        Assert.assertEquals(4, depth.getSequence());
+        Assert.assertEquals(1, depth.getLevelCount(OrderDirection.BUY));
+        Assert.assertEquals(2, depth.getLevelCount(OrderDirection.SELL));
+        Assert.assertEquals(1020, depth.getPrice(OrderDirection.SELL, 1));
+
+        engine.submitOrders(new LongOrder[]{new LongOrder(1020, 25, OrderDirection.BUY),
+                new LongOrder(1000, 5, OrderDirection.BUY)}, 0, 2);
+        engine.getTopOfBook().read(quote);
+        Assert.assertEquals(1000, quote.getBidPrice());
+        Assert.assertEquals(5, quote.getBidQuantity());
+        Assert.assertEquals(1020, quote.getAskPrice());
+        Assert.assertEquals(25, quote.getAskQuantity());
+        Assert.assertEquals(5, quote.getSequence());
+        Assert.assertSame(depth, engine.getDepthSnapshot());
+
+        Assert.assertTrue(engine.cancelOrder(engine.getSellOrders().best().peekFirst().getOrderId()));
+        Assert.assertEquals(6, engine.getBookVersion());
+        Assert.assertEquals(1030, engine.getTopOfBook().read(quote).getAskPrice());
+        Assert.assertEquals(6, engine.getDepthSnapshot().getSequence());
+        Assert.assertEquals(1000, engine.getDepthSnapshot().getPrice(OrderDirection.BUY, 0));
+        Assert.assertEquals(1, engine.getDepthSnapshot().getLevelCount(OrderDirection.SELL));
+    }
+
+    @Test
+    public void readersNeverSeeTornQuotes() throws InterruptedException {
+        TopOfBook topOfBook = new TopOfBook();
+        topOfBook.update(0, 0, 1, 0, 0);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger torn = new AtomicInteger();
+        Thread[] readers = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                Quote quote = new Quote();
+                while (!done.get()) {
+                    topOfBook.read(quote);
+                    long sequence = quote.getSequence();
+                    if (quote.getBidPrice() != sequence || quote.getBidQuantity() != sequence
+                            || quote.getAskPrice() != sequence + 1 || quote.getAskQuantity() != sequence) {
+                        torn.incrementAndGet();
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        for (long sequence = 1; sequence <= 2_000_000; sequence++) {
+            topOfBook.update(sequence, sequence, sequence + 1, sequence, sequence);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Assert.assertEquals(0, torn.get());
+        Assert.assertEquals(2_000_001, topOfBook.getUpdateCount());
+    }
+
+    private static String fill(ExecutionReport report) {
+        return report.getTakerOrderId() + ">" + report.getMakerOrderId() + " " + report.getQuantity() + "@"
+                + report.getPrice() + " " + report.getTakerAvailableQuantity() + "/" + report.getMakerAvailableQuantity();
+    }
+
+    private void assertPriceTimePriority(LongOrderEngine engine) {
+        engine.submitOrder(new BigDecimal("9.9"), new BigDecimal("1000"), OrderDirection.BUY);
+        engine.submitOrder(new BigDecimal("9.8"), new BigDecimal("3000"), OrderDirection.BUY);
+        engine.submitOrder(new BigDecimal("10.1"), new BigDecimal("3000"), OrderDirection.SELL);
+        LongOrder first = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("3000"), OrderDirection.SELL);
+        LongOrder second = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("3000"), OrderDirection.SELL);
+
+        LongOrder taker = engine.submitOrder(new BigDecimal("10.2"), new BigDecimal("5000"), OrderDirection.BUY);
+        Assert.assertEquals(0, taker.getAvailableQuantity());
+        Assert.assertEquals(10, first.getAvailableQuantity());
+        Assert.assertEquals(30, second.getAvailableQuantity());
+
+        Assert.assertEquals(2, engine.getSellOrders().best().getOrderCount());
+        Assert.assertEquals(40, engine.getSellOrders().best().getTotalQuantity());
+
+        Map<BigDecimal, BigDecimal> asks = engine.getTopOrders(10, OrderDirection.SELL);
+        Assert.assertEquals(1, asks.size());
+        Assert.assertEquals(0, new BigDecimal("4000").compareTo(asks.get(new BigDecimal("10.20"))));
+
+        engine.submitOrder(new BigDecimal("9.8"), new BigDecimal("2000"), OrderDirection.SELL);
+        Map<BigDecimal, BigDecimal> bids = engine.getTopOrders(10, OrderDirection.BUY);
+        Assert.assertEquals(1, bids.size());
+        Assert.assertEquals(0, new BigDecimal("2000").compareTo(bids.get(new BigDecimal("9.80"))));
+    }
+
+    @Test
+    public void uncrossAtTheEquilibriumPrice() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        List<String> fills = new ArrayList<>();
+        engine.setFillListener((taker, maker, price, quantity) ->
+                fills.add(taker.getOrderId() + ">" + maker.getOrderId() + " " + quantity + "@" + price));
+        engine.startAuction();
+        engine.submitOrder(new LongOrder(1002, 30, OrderDirection.BUY));
+        engine.submitOrder(new LongOrder(1001, 20, OrderDirection.BUY));
+        engine.submitOrder(new LongOrder(998, 40, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1000, 20, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(999, 10, OrderDirection.BUY));
+        engine.submitOrder(new LongOrder(1003, 10, OrderDirection.SELL));
+        Assert.assertTrue(fills.isEmpty());
+
+        AuctionQuote quote = engine.getIndicativeAuction(new AuctionQuote());
+        Assert.assertEquals(1000, quote.getPrice());
+        Assert.assertEquals(50, quote.getVolume());
+        Assert.assertEquals(-10, quote.getImbalance());
+
+        Assert.assertEquals(50, engine.uncross());
+        Assert.assertFalse(engine.isAuction());
+        Assert.assertEquals(Arrays.asList("3>1 30@1000", "3>2 10@1000", "4>2 10@1000"), fills);
+        Assert.assertEquals(999, engine.getBuyOrders().best().getPrice());
+        Assert.assertEquals(1000, engine.getSellOrders().best().getPrice());
+        Assert.assertEquals(10, engine.getSellOrders().best().getTotalQuantity());
+
+        engine.submitOrder(new LongOrder(1000, 5, OrderDirection.BUY));
+        Assert.assertEquals("7>4 5@1000", fills.get(fills.size() - 1));
+    }
+
+    @Test
+    public void uncrossTheMostVolume() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            LongOrderEngine engine = new LongOrderEngine(instrument);
+            long[] traded = new long[1];
+            engine.setFillListener((taker, maker, price, quantity) -> traded[0] += quantity);
+            engine.startAuction();
+            long[] bids = new long[40];
+            long[] asks = new long[40];
+            for (int i = 0; i < 50; i++) {
+                int tick = random.nextInt(40);
+                long quantity = 1 + random.nextInt(50);
+                if (random.nextBoolean()) {
+                    bids[tick] += quantity;
+                    engine.submitOrder(new LongOrder(1000 + tick, quantity, OrderDirection.BUY));
+                } else {
+                    asks[tick] += quantity;
+                    engine.submitOrder(new LongOrder(1000 + tick, quantity, OrderDirection.SELL));
+                }
+            }
+            long bestVolume = 0;
+            long bestImbalance = 0;
+            for (int tick = 0; tick < 40; tick++) {
+                long demand = 0;
+                long supply = 0;
+                for (int i = 0; i < 40; i++) {
+                    demand += i >= tick ? bids[i] : 0;
+                    supply += i <= tick ? asks[i] : 0;
+                }
+                long volume = Math.min(demand, supply);
+                if (volume > bestVolume || (volume == bestVolume && Math.abs(demand - supply) < Math.abs(bestImbalance))) {
+                    bestVolume = volume;
+                    bestImbalance = demand - supply;
+                }
+            }
+            AuctionQuote quote = engine.getIndicativeAuction(new AuctionQuote());
+            Assert.assertEquals(bestVolume, quote.getVolume());
+            if (bestVolume > 0) {
+                Assert.assertEquals(Math.abs(bestImbalance), Math.abs(quote.getImbalance()));
+            }
+            Assert.assertEquals(bestVolume, engine.uncross());
+            Assert.assertEquals(bestVolume, traded[0]);
+            PriceLevel bestBid = engine.getBuyOrders().best();
+            PriceLevel bestAsk = engine.getSellOrders().best();
+            Assert.assertTrue(bestBid == null || bestAsk == null || bestBid.getPrice() < bestAsk.getPrice());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectMarketOrdersDuringTheAuction() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.startAuction();
+        engine.submitOrder(new LongOrder(0, null, 0, 10, OrderDirection.BUY, OrderType.MARKET));
+    }
+
+    @Test
+    public void triggerStopsByStopPriceAndTime() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        List<String> fills = new ArrayList<>();
+        engine.setFillListener((taker, maker, price, quantity) ->
+                fills.add(taker.getOrderId() + ">" + maker.getOrderId() + " " + quantity + "@" + price));
+        engine.submitOrder(new LongOrder(1000, 10, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1001, 10, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1002, 10, OrderDirection.SELL));
+        engine.submitOrder(stop(1001, 0, 5, OrderDirection.BUY, OrderType.STOP));
+        engine.submitOrder(stop(1000, 1002, 5, OrderDirection.BUY, OrderType.STOP_LIMIT));
+        engine.submitOrder(stop(1000, 0, 5, OrderDirection.BUY, OrderType.STOP));
+        LongOrder far = stop(1005, 0, 5, OrderDirection.BUY, OrderType.STOP);
+        engine.submitOrder(far);
+        Assert.assertEquals(4, engine.getBuyStops().getOrderCount());
+        Assert.assertTrue(fills.isEmpty());
+
+        engine.submitOrder(new LongOrder(1000, 5, OrderDirection.BUY));
+        Assert.assertEquals(Arrays.asList("8>1 5@1000", "5>1 5@1000", "6>2 5@1001", "4>2 5@1001"), fills);
+        Assert.assertEquals(1, engine.getBuyStops().getOrderCount());
+        Assert.assertEquals(1001, engine.getLastTradePrice());
+        Assert.assertNull(engine.getOrder(4));
+        Assert.assertSame(far, engine.getOrder(7));
+
+        Assert.assertTrue(engine.reduceOrder(7, 2));
+        Assert.assertEquals(3, far.getAvailableQuantity());
+        Assert.assertTrue(engine.cancelOrder(7));
+        Assert.assertEquals(0, engine.getBuyStops().getOrderCount());
+        Assert.assertFalse(engine.cancelOrder(7));
+
+        engine.submitOrder(stop(1001, 0, 5, OrderDirection.BUY, OrderType.STOP));
+        Assert.assertEquals("9>3 5@1002", fills.get(fills.size() - 1));
+    }
+
+    @Test
+    public void cascadeStopsWithoutRecursion() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        int stops = 20000;
+        for (int i = 0; i < stops; i++) {
+            engine.submitOrder(new LongOrder(100000 - i, 1, OrderDirection.BUY));
+            engine.submitOrder(stop(100000 - i, 0, 1, OrderDirection.SELL, OrderType.STOP));
+        }
+        Assert.assertEquals(stops, engine.getSellStops().getOrderCount());
+        engine.submitOrder(new LongOrder(100000, 1, OrderDirection.SELL));
+        Assert.assertEquals(0, engine.getSellStops().getOrderCount());
+        Assert.assertEquals(100000 - stops + 1, engine.getLastTradePrice());
+        Assert.assertNull(engine.getBuyOrders().best());
+    }
+
+    private static LongOrder stop(long stopPrice, long price, long quantity, OrderDirection orderDirection,
+                                  OrderType orderType) {
+        LongOrder order = new LongOrder(0, null, price, quantity, orderDirection, orderType);
+        order.setStopPrice(stopPrice);
+        return order;
+    }
+}
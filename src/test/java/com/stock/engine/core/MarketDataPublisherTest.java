@@ -0,0 +1,73 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MarketDataPublisherTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void publishEveryLevelChange() {
+        List<String> updates = new ArrayList<>();
+        MarketDataPublisher publisher = new MarketDataPublisher(8);
+        publisher.addListener((update, endOfBatch) -> updates.add(update.getOrderDirection() + " "
+                + update.getQuantity() + "@" + update.getPrice()));
+        publisher.start();
+
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.setMarketDataPublisher(publisher);
+        engine.submitOrder(new LongOrder(1010, 300, OrderDirection.SELL));
+        LongOrder resting = new LongOrder(1020, 300, OrderDirection.SELL);
+        engine.submitOrder(resting);
+        engine.submitOrder(new LongOrder(1020, 500, OrderDirection.BUY));
+        engine.cancelOrder(resting.getOrderId());
+        publisher.close();
+
+        Assert.assertEquals(List.of("SELL 300@1010", "SELL 300@1020", "SELL 0@1010", "SELL 100@1020",
+                "SELL 0@1020"), updates);
+    }
+
+    @Test
+    public void conflateForSlowSubscribers() {
+        MarketDataPublisher publisher = new MarketDataPublisher(1024);
+        publisher.start();
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.setMarketDataPublisher(publisher);
+        engine.submitOrder(new LongOrder(990, 10, OrderDirection.BUY));
+
+        publisher.drain();
+        MarketDataSubscription subscription = publisher.subscribe();
+        DepthSnapshot snapshot = publisher.snapshot(10);
+        Assert.assertEquals(0, snapshot.getSequence());
+        Assert.assertEquals(1, snapshot.getLevelCount(OrderDirection.BUY));
+        Assert.assertEquals(10, snapshot.getQuantity(OrderDirection.BUY, 0));
+
+        for (int i = 0; i < 100; i++) {
+            engine.submitOrder(new LongOrder(1000 + i % 3, 5, OrderDirection.SELL));
+        }
+        engine.submitOrder(new LongOrder(990, 10, OrderDirection.BUY));
+        publisher.drain();
+
+        List<String> updates = new ArrayList<>();
+        int polled = subscription.poll((update, endOfBatch) -> updates.add(update.getOrderDirection() + " "
+                + update.getQuantity() + "@" + update.getPrice() + (endOfBatch ? " end" : "")));
+        Assert.assertEquals(4, polled);
+        Assert.assertEquals(List.of("SELL 170@1000", "SELL 165@1001", "SELL 165@1002", "BUY 20@990 end"), updates);
+        Assert.assertEquals(97, subscription.getConflatedCount());
+        Assert.assertEquals(0, subscription.poll((update, endOfBatch) -> { }));
+
+        DepthSnapshot depth = publisher.snapshot(2);
+        Assert.assertEquals(101, depth.getSequence());
+        Assert.assertEquals(2, depth.getLevelCount(OrderDirection.SELL));
+        Assert.assertEquals(1001, depth.getPrice(OrderDirection.SELL, 1));
+        publisher.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OffHeapOrderBookTest {
+
+    @Test
+    public void matchLikeLongOrderEngine() {
+        Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+        LongOrderEngine engine = new LongOrderEngine(instrument, new LadderBookSide(OrderDirection.BUY, 900, 1100),
+                new LadderBookSide(OrderDirection.SELL, 900, 1100));
+        OffHeapOrderStore store = new OffHeapOrderStore(64, 8);
+        OffHeapOrderBook book = new OffHeapOrderBook(900, 1100, store);
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        engine.setFillListener((taker, maker, price, quantity) ->
+                expected.add(taker.getOrderId() + ">" + maker.getOrderId() + " " + quantity + "@" + price
+                        + " " + maker.getAvailableQuantity()));
+        book.setFillListener((taker, maker, price, quantity, makerAvailable) ->
+                actual.add(taker + ">" + maker + " " + quantity + "@" + price + " " + makerAvailable));
+
+        Random random = new Random(17);
+        long orderId = 0;
+        for (int i = 0; i < 20000; i++) {
+            int action = random.nextInt(10);
+            if (action < 2 && orderId > 0) {
+                long target = 1 + random.nextInt((int) orderId);
+                Assert.assertEquals(engine.cancelOrder(target), book.cancelOrder(target));
+            } else if (action < 3 && orderId > 0) {
+                long target = 1 + random.nextInt((int) orderId);
+                long quantity = 1 + random.nextInt(20);
+                Assert.assertEquals(engine.reduceOrder(target, quantity), book.reduceOrder(target, quantity));
+            } else {
+                OrderDirection orderDirection = random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL;
+                long price = 980 + random.nextInt(40);
+                long quantity = 1 + random.nextInt(100);
+                LongOrder order = new LongOrder(++orderId, null, price, quantity, orderDirection);
+                engine.submitOrder(order);
+                Assert.assertEquals(order.getAvailableQuantity(),
+                        book.submitOrder(orderId, price, quantity, orderDirection));
+            }
+        }
+        Assert.assertEquals(expected, actual);
+        for (OrderDirection orderDirection : OrderDirection.values()) {
+            BookSide side = OrderDirection.BUY.equals(orderDirection) ? engine.getBuyOrders() : engine.getSellOrders();
+            Assert.assertEquals(side.size(), book.getLevelCount(orderDirection));
+            Assert.assertEquals(side.best().getPrice(), book.getBestPrice(orderDirection));
+            for (PriceLevel level = side.best(); level != null; level = side.next(level)) {
+                Assert.assertEquals(level.getTotalQuantity(), book.getLevelQuantity(orderDirection, level.getPrice()));
+                Assert.assertEquals(level.getOrderCount(), book.getLevelOrderCount(orderDirection, level.getPrice()));
+            }
+        }
+        for (long id = 1; id <= orderId; id++) {
+            LongOrder order = engine.getOrder(id);
+            Assert.assertEquals(order == null ? -1 : order.getAvailableQuantity(), book.getAvailableQuantity(id));
+        }
+    }
+
+    @Test
+    public void recycleFreedSlots() {
+        OffHeapOrderStore store = new OffHeapOrderStore(16, 8);
+        OffHeapOrderBook book = new OffHeapOrderBook(1, 100, store);
+        for (long orderId = 1; orderId <= 10000; orderId++) {
+            book.submitOrder(orderId, 50, 10, OrderDirection.BUY);
+            if (orderId > 20) {
+                Assert.assertTrue(book.cancelOrder(orderId - 20));
+            }
+        }
+        Assert.assertEquals(20, book.getOrderCount());
+        Assert.assertEquals(21, store.getHighWater());
+        Assert.assertEquals(32, store.getCapacity());
+        Assert.assertEquals(200, book.getLevelQuantity(OrderDirection.BUY, 50));
+
+        Assert.assertEquals(0, book.submitOrder(20000, 50, 200, OrderDirection.SELL));
+        Assert.assertEquals(0, book.getOrderCount());
+        Assert.assertEquals(0, book.getBestPrice(OrderDirection.BUY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectDuplicateId() {
+        OffHeapOrderBook book = new OffHeapOrderBook(1, 100, new OffHeapOrderStore(16, 8));
+        book.submitOrder(1, 50, 10, OrderDirection.BUY);
+        book.submitOrder(1, 40, 10, OrderDirection.BUY);
+    }
+}
@@ -0,0 +1,84 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.Order;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class OrderEngineTest {
+
+    @Test
+    public void keepLevelAggregates() {
+        OrderEngine<Order> engine = new OrderEngine<>();
+        engine.submitOrder(order("10.1", "3000", OrderDirection.SELL));
+        engine.submitOrder(order("10.1", "2000", OrderDirection.SELL));
+        engine.submitOrder(order("10.2", "3000", OrderDirection.SELL));
+
+        PriceQueue<Order> level = (PriceQueue<Order>) engine.getSellOrders().get(new BigDecimal("10.1"));
+        Assert.assertEquals(2, level.getOrderCount());
+        Assert.assertEquals(0, new BigDecimal("5000").compareTo(level.getTotalQuantity()));
+
+        engine.submitOrder(order("10.15", "3500", OrderDirection.BUY));
+        Assert.assertEquals(1, level.getOrderCount());
+        Assert.assertEquals(0, new BigDecimal("1500").compareTo(level.getTotalQuantity()));
+
+        Map<BigDecimal, BigDecimal> asks = engine.getTopOrders(10, OrderDirection.SELL);
+        Assert.assertEquals(0, new BigDecimal("1500").compareTo(asks.get(new BigDecimal("10.1"))));
+        Assert.assertEquals(0, new BigDecimal("3000").compareTo(asks.get(new BigDecimal("10.2"))));
+    }
+
+    @Test
+    public void matchOnlyTheCrossingLevels() {
+        OrderEngine<Order> engine = new OrderEngine<>();
+        engine.submitOrder(order("10.1", "1000", OrderDirection.SELL));
+        engine.submitOrder(order("10.2", "1000", OrderDirection.SELL));
+        engine.submitOrder(order("10.3", "1000", OrderDirection.SELL));
+
+        Order buy = order("10.2", "2500", OrderDirection.BUY);
+        engine.submitOrder(buy);
+        Assert.assertEquals(0, new BigDecimal("500").compareTo(buy.getAvailableQuantity()));
+        Assert.assertEquals(1, engine.getSellOrders().size());
+        Assert.assertTrue(engine.getSellOrders().containsKey(new BigDecimal("10.3")));
+        Assert.assertTrue(engine.getBuyOrders().containsKey(new BigDecimal("10.2")));
+    }
+
+    @Test
+    public void reportEveryFill() {
+        List<String> fills = new ArrayList<>();
+        ExecutionPublisher publisher = new ExecutionPublisher(8);
+        publisher.addListener((report, sequence, endOfBatch) -> fills.add(report.getTakerOrderId() + ">"
+                + report.getMakerOrderId() + " " + report.getQuantity() + "@" + report.getPrice() + " left "
+                + report.getTakerAvailableQuantity() + "/" + report.getMakerAvailableQuantity()));
+        publisher.start();
+        OrderEngine<Order> engine = new OrderEngine<>();
+        engine.setInstrument(new Instrument("TEST", new BigDecimal("0.01"), new BigDecimal("100")));
+        engine.setExecutionPublisher(publisher);
+        engine.submitOrder(order(1, "10.1", "1000", OrderDirection.SELL));
+        engine.submitOrder(order(2, "10.1", "500", OrderDirection.SELL));
+        engine.submitOrder(order(3, "10.2", "1000", OrderDirection.SELL));
+        Order buy = order(4, "10.2", "2000", OrderDirection.BUY);
+        engine.submitOrder(buy);
+        publisher.close();
+
+        Assert.assertEquals(Arrays.asList("4>1 10@1010 left 10/0", "4>2 5@1010 left 5/0", "4>3 5@1020 left 0/5"),
+                fills);
+        Assert.assertEquals(0, BigDecimal.ZERO.compareTo(buy.getAvailableQuantity()));
+    }
+
+    private static Order order(long orderId, String price, String quantity, OrderDirection direction) {
+        Order order = order(price, quantity, direction);
+        order.setOrderId(orderId);
+        return order;
+    }
+
+    private static Order order(String price, String quantity, OrderDirection direction) {
+        return new Order(new BigDecimal(price), new BigDecimal(quantity), direction);
+    }
+}
@@ -0,0 +1,98 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Order;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class OrderSequencerTest {
+
+    @Test
+    public void matchInSequenceOrder() {
+        SequencedOrderEngine<Order> engine = new SequencedOrderEngine<>();
+        try (OrderSequencer<Order> sequencer = new OrderSequencer<>(8, engine)) {
+            sequencer.start();
+            sequencer.publish(order("10.1", "3000", OrderDirection.SELL));
+            sequencer.publish(order("10.2", "3000", OrderDirection.SELL));
+            sequencer.publish(order("9.9", "1000", OrderDirection.BUY));
+            sequencer.publish(order("10.2", "4000", OrderDirection.BUY));
+            sequencer.drain();
+            Assert.assertEquals(3, sequencer.getSequence());
+        }
+
+        Map<BigDecimal, BigDecimal> asks = engine.getTopOrders(10, OrderDirection.SELL);
+        Assert.assertEquals(1, asks.size());
+        Assert.assertEquals(0, new BigDecimal("2000").compareTo(asks.get(new BigDecimal("10.2"))));
+        Map<BigDecimal, BigDecimal> bids = engine.getTopOrders(10, OrderDirection.BUY);
+        Assert.assertEquals(1, bids.size());
+        Assert.assertEquals(0, new BigDecimal("1000").compareTo(bids.get(new BigDecimal("9.9"))));
+    }
+
+    @Test
+    public void handleEveryOrderFromManyProducers() throws InterruptedException {
+        int producers = 4;
+        int ordersPerProducer = 10000;
+        List<Long> sequences = new ArrayList<>();
+        OrderSequencer<Order> sequencer = new OrderSequencer<>(64, (order, sequence, endOfBatch) -> sequences.add(sequence));
+        sequencer.start();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < ordersPerProducer; i++) {
+                    sequencer.publish(order("1", "1", OrderDirection.BUY));
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        sequencer.close();
+
+        Assert.assertEquals(producers * ordersPerProducer, sequences.size());
+        for (int i = 0; i < sequences.size(); i++) {
+            Assert.assertEquals(i, sequences.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void publishBurstLargerThanTheRing() {
+        List<Order> handled = new ArrayList<>();
+        Order[] orders = new Order[20];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = order("1", String.valueOf(i + 1), OrderDirection.BUY);
+        }
+        try (OrderSequencer<Order> sequencer = new OrderSequencer<>(8, (order, sequence, endOfBatch) -> handled.add(order))) {
+            sequencer.start();
+            Assert.assertEquals(17, sequencer.publish(orders, 2, 18));
+            sequencer.drain();
+        }
+        Assert.assertEquals(List.of(orders).subList(2, 20), handled);
+    }
+
+    @Test
+    public void rejectWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        OrderSequencer<Order> sequencer = new OrderSequencer<>(2, (order, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sequencer.start();
+        Assert.assertEquals(0, sequencer.tryPublish(order("1", "1", OrderDirection.BUY)));
+        Assert.assertEquals(1, sequencer.tryPublish(order("1", "1", OrderDirection.BUY)));
+        Assert.assertEquals(-1, sequencer.tryPublish(order("1", "1", OrderDirection.BUY)));
+        release.countDown();
+        sequencer.close();
+    }
+
+    private static Order order(String price, String quantity, OrderDirection direction) {
+        return new Order(new BigDecimal(price), new BigDecimal(quantity), direction);
+    }
+}
@@ -0,0 +1,56 @@
+package com.stock.engine.core;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.constant.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ShardedOrderEngineTest {
+
+    @Test
+    public void routeOrdersBySymbol() {
+        try (ShardedOrderEngine engine = new ShardedOrderEngine(4, 1024)) {
+            for (int i = 0; i < 100; i++) {
+                engine.addInstrument(new Instrument("S" + i, new BigDecimal("0.01"), BigDecimal.ONE));
+            }
+            engine.start();
+            for (int i = 0; i < 100; i++) {
+                engine.submitOrder("S" + i, new BigDecimal("10.00"), new BigDecimal(i + 1), OrderDirection.SELL);
+                engine.submitOrder("S" + i, new BigDecimal("10.00"), BigDecimal.ONE, OrderDirection.BUY);
+            }
+            engine.drain();
+
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(0, new BigDecimal(i).compareTo(engine.getTopOrders("S" + i, 1, OrderDirection.SELL)
+                        .getOrDefault(new BigDecimal("10.00"), BigDecimal.ZERO)));
+                Assert.assertEquals(2, engine.getOrderCount("S" + i));
+                Assert.assertEquals(engine.shardOf("S" + i), engine.shardOf("S" + i));
+            }
+
+            List<ShardStatistics> statistics = engine.getShardStatistics();
+            Assert.assertEquals(4, statistics.size());
+            long matched = 0;
+            int symbols = 0;
+            for (ShardStatistics shard : statistics) {
+                Assert.assertTrue(shard.getSymbolCount() > 0);
+                Assert.assertEquals(shard.getPublishedCount(), shard.getMatchedCount());
+                Assert.assertEquals(0, shard.getBacklog());
+                matched += shard.getMatchedCount();
+                symbols += shard.getSymbolCount();
+            }
+            Assert.assertEquals(200, matched);
+            Assert.assertEquals(100, symbols);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnknownSymbol() {
+        try (ShardedOrderEngine engine = new ShardedOrderEngine(2, 16)) {
+            engine.start();
+            engine.submitOrder("NONE", BigDecimal.ONE, BigDecimal.ONE, OrderDirection.BUY);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.stock.engine.gateway;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.ReportType;
+import com.stock.engine.core.ExecutionPublisher;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.Quote;
+import com.stock.engine.risk.PreTradeRisk;
+import com.stock.engine.risk.RiskLimits;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderGatewayTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void matchOverLoopback() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0), false)) {
+            gateway.start();
+            try (SocketChannel seller = SocketChannel.open(gateway.getLocalAddress());
+                 SocketChannel buyer = SocketChannel.open(gateway.getLocalAddress())) {
+                send(seller, CommandType.NEW_ORDER, OrderDirection.SELL, 1, 1010, 30);
+                send(seller, CommandType.NEW_ORDER, OrderDirection.SELL, 2, 1020, 30);
+                Assert.assertEquals(List.of("ACK 1 1010 0 30", "ACK 2 1020 0 30"), receive(seller, 2));
+
+                // the buyer may reuse client order ids, they are scoped to its session
+                send(buyer, CommandType.NEW_ORDER, OrderDirection.BUY, 1, 1020, 40);
+                Assert.assertEquals(List.of("FILL 1 1010 30 10", "FILL 1 1020 10 0", "ACK 1 1020 0 0"),
+                        receive(buyer, 3));
+                Assert.assertEquals(List.of("FILL 1 1010 30 0", "FILL 2 1020 10 20"), receive(seller, 2));
+
+                send(seller, CommandType.AMEND_ORDER, OrderDirection.SELL, 2, 1020, 5);
+                send(seller, CommandType.CANCEL_ORDER, OrderDirection.SELL, 1, 0, 0);
+                send(seller, CommandType.CANCEL_ORDER, OrderDirection.SELL, 2, 0, 0);
+                Assert.assertEquals(List.of("ACK 2 1020 0 5", "REJECT 1 0 0 0", "ACK 2 1020 0 0"), receive(seller, 3));
+            }
+            Assert.assertEquals(6, gateway.getMessageCount());
+            Assert.assertEquals(1, gateway.getRejectCount());
+        }
+        Assert.assertTrue(engine.getSellOrders().isEmpty());
+    }
+
+    @Test
+    public void rejectWhatTheEngineFailsOn() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.setExecutionPublisher(new ExecutionPublisher(1 << 4));
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0), false)) {
+            gateway.start();
+            try (SocketChannel client = SocketChannel.open(gateway.getLocalAddress())) {
+                send(client, CommandType.NEW_ORDER, OrderDirection.SELL, 1, 1010, 30);
+                send(client, CommandType.NEW_ORDER, OrderDirection.BUY, 2, 1010, 30);
+                send(client, CommandType.NEW_ORDER, OrderDirection.SELL, 3, 1020, 30);
+                Assert.assertEquals(List.of("ACK 1 1010 0 30", "REJECT 2 0 0 0", "ACK 3 1020 0 30"),
+                        receive(client, 3));
+            }
+            Assert.assertEquals(1, gateway.getFailedCount());
+            Assert.assertTrue(gateway.getLastFailure() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void keepTheRiskListenerInFront() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        RiskLimits limits = new RiskLimits();
+        limits.setMaxOpenQuantity(100);
+        PreTradeRisk risk = new PreTradeRisk(engine.getTopOfBook(), limits);
+        engine.setFillListener(risk);
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0), false)) {
+            LongOrder bid = new LongOrder(1000, 60, OrderDirection.BUY);
+            bid.setAccountId(1);
+            Assert.assertNull(risk.check(bid, new Quote()));
+            engine.submitOrder(bid);
+            try {
+                engine.amendOrder(bid.getOrderId(), 1000, 101);
+                Assert.fail("amend past the open quantity limit was taken");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertEquals(60, bid.getAvailableQuantity());
+            }
+            Assert.assertTrue(engine.cancelOrder(bid.getOrderId()));
+            Assert.assertEquals(0, risk.getExposure().getOpenQuantity(1, true));
+        }
+    }
+
+    private static void send(SocketChannel channel, CommandType type, OrderDirection orderDirection,
+                             long clientOrderId, long price, long quantity) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(OrderMessage.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        new OrderMessage().wrap(buffer, 0).set(type, orderDirection, clientOrderId, price, quantity);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static List<String> receive(SocketChannel channel, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * ReportMessage.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("gateway closed the session");
+            }
+        }
+        List<String> reports = new ArrayList<>();
+        ReportMessage report = new ReportMessage();
+        for (int offset = 0; offset < buffer.limit(); offset += ReportMessage.SIZE) {
+            report.wrap(buffer, offset);
+            reports.add(report.getReportType() + " " + report.getClientOrderId() + " " + report.getPrice() + " "
+                    + report.getQuantity() + " " + report.getOpenQuantity());
+        }
+        return reports;
+    }
+}
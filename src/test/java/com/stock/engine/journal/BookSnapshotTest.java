@@ -0,0 +1,143 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.PriceLevel;
+import com.stock.engine.risk.AccountExposure;
+import com.stock.engine.risk.PreTradeRisk;
+import com.stock.engine.risk.RiskLimits;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class BookSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void saveAndRestoreInQueueOrder() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            engine.submitOrder(new LongOrder(1000 + random.nextInt(50), 1 + random.nextInt(100),
+                    random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL));
+        }
+        BookSnapshot snapshot = BookSnapshot.capture(engine, 999);
+        Path file = snapshot.save(folder.getRoot().toPath());
+        Assert.assertEquals(file, BookSnapshot.latest(folder.getRoot().toPath()));
+
+        BookSnapshot loaded = BookSnapshot.read(file);
+        Assert.assertEquals(999, loaded.getSequence());
+        Assert.assertEquals(snapshot.getOrderCount(), loaded.getOrderCount());
+        LongOrderEngine restored = new LongOrderEngine(instrument);
+        loaded.restore(restored);
+
+        PriceLevel expected = engine.getSellOrders().best();
+        PriceLevel actual = restored.getSellOrders().best();
+        Assert.assertEquals(expected.getPrice(), actual.getPrice());
+        Assert.assertEquals(expected.getOrderCount(), actual.getOrderCount());
+        Assert.assertEquals(expected.peekFirst().getAvailableQuantity(), actual.peekFirst().getAvailableQuantity());
+        Assert.assertEquals(expected.peekFirst().getDealQuantity(), actual.peekFirst().getDealQuantity());
+        Assert.assertEquals(engine.getTopOrders(100, OrderDirection.BUY), restored.getTopOrders(100, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(100, OrderDirection.SELL), restored.getTopOrders(100, OrderDirection.SELL));
+    }
+
+    @Test
+    public void keepParkedStopsAndAccounts() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        engine.submitOrder(new LongOrder(1000, 10, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1002, 10, OrderDirection.SELL));
+        engine.submitOrder(new LongOrder(1000, 4, OrderDirection.BUY));
+        LongOrder bid = new LongOrder(990, 10, OrderDirection.BUY);
+        bid.setAccountId(3);
+        engine.submitOrder(bid);
+        engine.submitOrder(stop(1002, 0, 5, OrderDirection.BUY, OrderType.STOP, 4));
+        engine.submitOrder(stop(1001, 1002, 5, OrderDirection.BUY, OrderType.STOP_LIMIT, 5));
+        engine.submitOrder(stop(980, 0, 5, OrderDirection.SELL, OrderType.STOP, 6));
+
+        BookSnapshot loaded = BookSnapshot.read(BookSnapshot.capture(engine, 7).save(folder.getRoot().toPath()));
+        Assert.assertEquals(3, loaded.getOrderCount());
+        Assert.assertEquals(3, loaded.getStopCount());
+        LongOrderEngine restored = new LongOrderEngine(instrument);
+        loaded.restore(restored);
+        Assert.assertEquals(1000, restored.getLastTradePrice());
+        Assert.assertEquals(3, restored.getOrder(bid.getOrderId()).getAccountId());
+        Assert.assertEquals(2, restored.getBuyStops().getOrderCount());
+        Assert.assertEquals(1, restored.getSellStops().getOrderCount());
+        LongOrder parked = restored.getOrder(6);
+        Assert.assertEquals(OrderType.STOP_LIMIT, parked.getOrderType());
+        Assert.assertEquals(1001, parked.getStopPrice());
+        Assert.assertEquals(5, parked.getAccountId());
+
+        LongOrder sweep = new LongOrder(1002, 20, OrderDirection.BUY);
+        engine.submitOrder(sweep);
+        restored.submitOrder(new LongOrder(1002, 20, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.BUY), restored.getTopOrders(10, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.SELL), restored.getTopOrders(10, OrderDirection.SELL));
+        Assert.assertEquals(engine.getBuyStops().getOrderCount(), restored.getBuyStops().getOrderCount());
+    }
+
+    private static LongOrder stop(long stopPrice, long price, long quantity, OrderDirection orderDirection,
+                                  OrderType orderType, long accountId) {
+        LongOrder order = new LongOrder(0, null, price, quantity, orderDirection, orderType);
+        order.setStopPrice(stopPrice);
+        order.setAccountId(accountId);
+        return order;
+    }
+
+    @Test
+    public void reserveRestoredOrdersAgain() throws IOException {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        LongOrder bid = new LongOrder(990, 10, OrderDirection.BUY);
+        bid.setAccountId(3);
+        engine.submitOrder(bid);
+        engine.submitOrder(new LongOrder(990, 4, OrderDirection.SELL));
+        BookSnapshot loaded = BookSnapshot.read(BookSnapshot.capture(engine, 1).save(folder.getRoot().toPath()));
+
+        LongOrderEngine restored = new LongOrderEngine(instrument);
+        PreTradeRisk risk = new PreTradeRisk(restored.getTopOfBook(), new RiskLimits());
+        restored.setFillListener(risk);
+        loaded.restore(restored);
+        AccountExposure exposure = risk.getExposure();
+        Assert.assertEquals(6, exposure.getOpenQuantity(3, true));
+        Assert.assertEquals(5_940, exposure.getOpenNotional(3));
+        restored.submitOrder(new LongOrder(990, 2, OrderDirection.SELL));
+        Assert.assertEquals(4, exposure.getOpenQuantity(3, true));
+        Assert.assertTrue(restored.cancelOrder(bid.getOrderId()));
+        Assert.assertEquals(0, exposure.getOpenQuantity(3, true));
+        Assert.assertEquals(0, exposure.getOpenNotional(3));
+    }
+
+    @Test
+    public void recoverFromSnapshotAndJournalTail() throws IOException {
+        Path journalDirectory = folder.getRoot().toPath().resolve("journal");
+        Path snapshotDirectory = folder.getRoot().toPath().resolve("snapshot");
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        Random random = new Random(11);
+        try (OrderJournal journal = new OrderJournal(journalDirectory, 1 << 16, 0, 0);
+             JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine, snapshotDirectory, 300)) {
+            for (int i = 0; i < 1000; i++) {
+                handler.onOrder(new LongOrder(1000 + random.nextInt(20), 1 + random.nextInt(100),
+                        random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL), i, true);
+            }
+        }
+
+        LongOrderEngine recovered = new LongOrderEngine(instrument);
+        long replayed = BookSnapshot.recover(snapshotDirectory, journalDirectory, recovered);
+        Assert.assertTrue(replayed < 1000);
+        Assert.assertEquals(engine.getTopOrders(100, OrderDirection.BUY), recovered.getTopOrders(100, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(100, OrderDirection.SELL), recovered.getTopOrders(100, OrderDirection.SELL));
+    }
+}
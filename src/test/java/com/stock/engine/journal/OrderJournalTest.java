@@ -0,0 +1,203 @@
+package com.stock.engine.journal;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderSequencer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class OrderJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void replayRebuildsTheBook() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        int segmentSize = OrderJournal.HEADER_SIZE + 10 * OrderJournal.RECORD_SIZE;
+        try (OrderJournal journal = new OrderJournal(directory, segmentSize, 4, 0)) {
+            JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine);
+            for (int i = 0; i < 25; i++) {
+                handler.onOrder(new LongOrder(1000 + i % 7, 10 + i, i % 2 == 0 ? OrderDirection.BUY : OrderDirection.SELL), i, true);
+            }
+            Assert.assertEquals(25, journal.getNextSequence());
+            Assert.assertEquals(7, journal.getFlushCount());
+        }
+        Assert.assertEquals(3, Files.list(directory).count());
+
+        LongOrderEngine replayed = new LongOrderEngine(instrument);
+        Assert.assertEquals(25, OrderJournal.replay(directory, replayed));
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.BUY), replayed.getTopOrders(10, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.SELL), replayed.getTopOrders(10, OrderDirection.SELL));
+    }
+
+    @Test
+    public void replayCancelsAndAmends() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine);
+            for (int i = 0; i < 10; i++) {
+                handler.onOrder(new LongOrder(1000 + i, 10, OrderDirection.SELL), i, true);
+            }
+            Assert.assertTrue(handler.cancelOrder(3));
+            Assert.assertFalse(handler.cancelOrder(3));
+            Assert.assertTrue(handler.amendOrder(5, 1004, 4));
+            Assert.assertTrue(handler.amendOrder(6, 1001, 7));
+            Assert.assertEquals(13, journal.getNextSequence());
+        }
+
+        LongOrderEngine replayed = new LongOrderEngine(instrument);
+        Assert.assertEquals(13, OrderJournal.replay(directory, replayed));
+        Assert.assertEquals(10, replayed.getLastOrderId());
+        Assert.assertNull(replayed.getOrder(3));
+        Assert.assertEquals(1004, replayed.getOrder(5).getPrice());
+        Assert.assertEquals(4, replayed.getOrder(5).getAvailableQuantity());
+        Assert.assertSame(replayed.getOrder(6), replayed.getSellOrders().get(1001).getTail());
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.SELL), replayed.getTopOrders(10, OrderDirection.SELL));
+    }
+
+    @Test
+    public void replayAuctions() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine);
+            handler.onOrder(new LongOrder(1000, 10, OrderDirection.SELL), 0, true);
+            handler.startAuction();
+            handler.onOrder(new LongOrder(1010, 30, OrderDirection.BUY), 1, true);
+            handler.onOrder(new LongOrder(990, 5, OrderDirection.SELL), 2, true);
+            Assert.assertEquals(15, handler.uncross());
+            handler.onOrder(new LongOrder(1010, 5, OrderDirection.SELL), 3, true);
+            Assert.assertEquals(6, journal.getNextSequence());
+        }
+
+        LongOrderEngine replayed = new LongOrderEngine(instrument);
+        Assert.assertEquals(6, OrderJournal.replay(directory, replayed));
+        Assert.assertFalse(replayed.isAuction());
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.BUY), replayed.getTopOrders(10, OrderDirection.BUY));
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.SELL), replayed.getTopOrders(10, OrderDirection.SELL));
+        Assert.assertEquals(10, replayed.getOrder(2).getAvailableQuantity());
+    }
+
+    @Test
+    public void journalOnlyAcceptedOrders() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        LongOrderEngine engine = new LongOrderEngine(instrument, new BigDecimal("0.00"), new BigDecimal("100.00"));
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine);
+            handler.onOrder(new LongOrder(1, null, 1000, 10, OrderDirection.SELL), 0, true);
+            assertRejected(handler, new LongOrder(2, null, 20000, 10, OrderDirection.SELL), 1);
+            assertRejected(handler, new LongOrder(1, null, 1001, 10, OrderDirection.SELL), 2);
+            engine.startAuction();
+            assertRejected(handler, new LongOrder(3, null, 1000, 10, OrderDirection.BUY, OrderType.FOK), 3);
+            handler.onOrder(new LongOrder(4, null, 900, 5, OrderDirection.BUY), 4, true);
+            Assert.assertEquals(2, journal.getNextSequence());
+        }
+
+        LongOrderEngine replayed = new LongOrderEngine(instrument, new BigDecimal("0.00"), new BigDecimal("100.00"));
+        Assert.assertEquals(2, OrderJournal.replay(directory, replayed));
+        Assert.assertEquals(1000, replayed.getOrder(1).getPrice());
+        Assert.assertEquals(5, replayed.getOrder(4).getAvailableQuantity());
+        Assert.assertNull(replayed.getOrder(2));
+    }
+
+    @Test
+    public void replayStopOrders() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            JournalingOrderHandler handler = new JournalingOrderHandler(journal, engine);
+            handler.onOrder(new LongOrder(1000, 10, OrderDirection.SELL), 0, true);
+            handler.onOrder(new LongOrder(1001, 10, OrderDirection.SELL), 1, true);
+            handler.onOrder(stop(1000, 0, 5, OrderDirection.BUY, OrderType.STOP, 7), 2, true);
+            handler.onOrder(stop(1000, 1001, 5, OrderDirection.BUY, OrderType.STOP_LIMIT, 8), 3, true);
+            handler.onOrder(stop(1005, 1006, 5, OrderDirection.BUY, OrderType.STOP_LIMIT, 9), 4, true);
+            handler.onOrder(new LongOrder(1000, 5, OrderDirection.BUY), 5, true);
+            Assert.assertEquals(1, engine.getBuyStops().getOrderCount());
+        }
+
+        LongOrderEngine replayed = new LongOrderEngine(instrument);
+        Assert.assertEquals(6, OrderJournal.replay(directory, replayed));
+        Assert.assertEquals(engine.getLastTradePrice(), replayed.getLastTradePrice());
+        Assert.assertEquals(engine.getTopOrders(10, OrderDirection.SELL), replayed.getTopOrders(10, OrderDirection.SELL));
+        Assert.assertEquals(1, replayed.getBuyStops().getOrderCount());
+        LongOrder parked = replayed.getOrder(5);
+        Assert.assertEquals(1005, parked.getStopPrice());
+        Assert.assertEquals(OrderType.STOP_LIMIT, parked.getOrderType());
+        Assert.assertEquals(9, parked.getAccountId());
+    }
+
+    private static LongOrder stop(long stopPrice, long price, long quantity, OrderDirection orderDirection,
+                                  OrderType orderType, long accountId) {
+        LongOrder order = new LongOrder(0, null, price, quantity, orderDirection, orderType);
+        order.setStopPrice(stopPrice);
+        order.setAccountId(accountId);
+        return order;
+    }
+
+    private static void assertRejected(JournalingOrderHandler handler, LongOrder order, long sequence) {
+        try {
+            handler.onOrder(order, sequence, true);
+            Assert.fail("order " + order.getOrderId() + " was taken");
+        } catch (IllegalArgumentException expected) {
+            // rejected by the engine
+        }
+    }
+
+    @Test
+    public void appendAfterReopen() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            journal.appendOrder(new LongOrder(100, 1, OrderDirection.BUY));
+            journal.appendOrder(new LongOrder(101, 2, OrderDirection.SELL));
+        }
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, 0)) {
+            Assert.assertEquals(2, journal.getNextSequence());
+            journal.appendOrder(new LongOrder(102, 3, OrderDirection.BUY));
+        }
+        List<Long> sequences = new ArrayList<>();
+        List<Long> prices = new ArrayList<>();
+        OrderJournal.replay(directory, 1, (sequence, timestamp, type, order) -> {
+            sequences.add(sequence);
+            prices.add(order.getPrice());
+        });
+        Assert.assertEquals(List.of(1L, 2L), sequences);
+        Assert.assertEquals(List.of(101L, 102L), prices);
+    }
+
+    @Test
+    public void flushAQuietJournalOnTime() throws IOException, InterruptedException {
+        Path directory = folder.getRoot().toPath();
+        try (OrderJournal journal = new OrderJournal(directory, 1 << 16, 0, TimeUnit.MILLISECONDS.toNanos(20));
+             OrderSequencer<LongOrder> sequencer = new OrderSequencer<>(1 << 6,
+                     new JournalingOrderHandler(journal, new LongOrderEngine(instrument)))) {
+            sequencer.start();
+            for (int i = 0; i < 5; i++) {
+                sequencer.publish(new LongOrder(1000 + i, 10, OrderDirection.BUY));
+            }
+            sequencer.drain();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (journal.getFlushCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(1, journal.getFlushCount());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.stock.engine.metrics;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.component.OrderBookEngine;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.core.ExecutionPublisher;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.OrderSequencer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void bucketsKeepRelativePrecision() {
+        for (long value = 0; value < 1_000_000_000L; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestValueOf(index);
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+            Assert.assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+        }
+        Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesOfAnInterval() {
+        EngineMetrics metrics = new EngineMetrics();
+        for (int i = 1; i <= 1000; i++) {
+            metrics.getMatching().record(i * 1000L);
+        }
+        HistogramSnapshot matching = metrics.snapshot().getMatching();
+        Assert.assertEquals(1000, matching.getTotalCount());
+        Assert.assertEquals(500_000, matching.getValueAtPercentile(50), 500_000 / 32);
+        Assert.assertEquals(999_000, matching.getValueAtPercentile(99.9), 999_000 / 32);
+        Assert.assertEquals(1_000_000, matching.getMax(), 1_000_000 / 32);
+
+        metrics.getMatching().record(5);
+        matching = metrics.snapshot().getMatching();
+        Assert.assertEquals(1, matching.getTotalCount());
+        Assert.assertEquals(5, matching.getMax());
+    }
+
+    @Test
+    public void recordThePipeline() {
+        EngineMetrics metrics = new EngineMetrics();
+        LongOrderEngine engine = new LongOrderEngine(new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE));
+        ExecutionPublisher publisher = new ExecutionPublisher(64);
+        publisher.setMetrics(metrics);
+        publisher.start();
+        engine.setExecutionPublisher(publisher);
+        engine.setMetrics(metrics);
+        OrderSequencer<LongOrder> sequencer = new OrderSequencer<>(64, engine);
+        sequencer.setMetrics(metrics);
+        sequencer.start();
+
+        for (int i = 0; i < 5; i++) {
+            sequencer.publish(new LongOrder(1000 + i, 10, OrderDirection.SELL));
+        }
+        sequencer.publish(new LongOrder(1003, 35, OrderDirection.BUY));
+        sequencer.close();
+        publisher.close();
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assert.assertEquals(6, snapshot.getOrderCount());
+        Assert.assertEquals(4, snapshot.getFillCount());
+        Assert.assertEquals(6, snapshot.getSubmitToAck().getTotalCount());
+        Assert.assertEquals(6, snapshot.getMatching().getTotalCount());
+        Assert.assertEquals(4, snapshot.getFillPublication().getTotalCount());
+        Assert.assertEquals(1, snapshot.getLevelsSwept().getTotalCount());
+        Assert.assertEquals(4, snapshot.getLevelsSwept().getMax());
+        Assert.assertTrue(snapshot.getQueueDepth().getTotalCount() > 0);
+        Assert.assertEquals(0, metrics.snapshot().getOrderCount());
+    }
+
+    @Test
+    public void countFailedCompareAndSet() {
+        OrderBookEngine engine = new OrderBookEngine();
+        EngineMetrics metrics = new EngineMetrics(true);
+        engine.setMetrics(metrics);
+        engine.addSellOffer(10.0, 100);
+        engine.receiveOrder(10.0, 40, true);
+        Assert.assertFalse(engine.removeSellOrder(10.0, new AtomicInteger(7), 100, 10));
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assert.assertEquals(1, snapshot.getOrderCount());
+        Assert.assertEquals(1, snapshot.getFillCount());
+        Assert.assertEquals(1, snapshot.getCasRetryCount());
+    }
+}
@@ -0,0 +1,136 @@
+package com.stock.engine.replication;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ReplicationTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), new BigDecimal("100"));
+
+    @Test
+    public void followersMirrorThePrimaryAndTakeOver() throws Exception {
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        LongOrderEngine primaryEngine = new LongOrderEngine(instrument);
+        LongOrderEngine secondEngine = new LongOrderEngine(instrument);
+        ReplicationPrimary primary = new ReplicationPrimary(any);
+        primary.setRequiredAcks(2);
+        primary.setAckTimeoutNanos(TimeUnit.SECONDS.toNanos(5));
+        primary.start();
+        ReplicationFollower first = new ReplicationFollower(new LongOrderEngine(instrument), primary.getLocalAddress());
+        ReplicationFollower second = new ReplicationFollower(secondEngine, primary.getLocalAddress());
+        first.start();
+        second.start();
+        Assert.assertTrue(primary.awaitFollowers(2, TimeUnit.SECONDS.toNanos(5)));
+
+        ReplicatingOrderHandler handler = new ReplicatingOrderHandler(primary, primaryEngine);
+        Random random = new Random(3);
+        long sequence = 0;
+        for (int i = 0; i < 2000; i++) {
+            if (i % 10 == 9 && primaryEngine.getLastOrderId() > 0) {
+                handler.cancelOrder(1 + random.nextInt((int) primaryEngine.getLastOrderId()));
+                continue;
+            }
+            LongOrder order = new LongOrder(990 + random.nextInt(20), 1 + random.nextInt(50),
+                    random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL);
+            handler.onOrder(order, sequence++, i % 7 == 6);
+        }
+        handler.startAuction();
+        handler.onOrder(new LongOrder(1030, 20, OrderDirection.BUY), sequence++, false);
+        handler.onOrder(new LongOrder(970, 20, OrderDirection.SELL), sequence++, true);
+        Assert.assertTrue(handler.uncross() > 0);
+        LongOrder stop = new LongOrder(0, null, 0, 5, OrderDirection.BUY, OrderType.STOP);
+        stop.setStopPrice(2000);
+        stop.setAccountId(4);
+        handler.onOrder(stop, sequence++, false);
+        handler.onOrder(new LongOrder(1000, 1, OrderDirection.BUY), sequence, true);
+        Assert.assertEquals(0, primary.getAckTimeoutCount());
+        long last = primary.getNextSequence() - 1;
+        Assert.assertEquals(last, first.getAppliedSequence());
+        Assert.assertEquals(last, second.getAppliedSequence());
+        Assert.assertEquals(0, first.getFailedCount());
+        assertSameBook(primaryEngine, first.getEngine());
+        LongOrder parked = first.getEngine().getOrder(stop.getOrderId());
+        Assert.assertEquals(2000, parked.getStopPrice());
+        Assert.assertEquals(4, parked.getAccountId());
+
+        primary.close();
+        LongOrderEngine promoted = first.promote();
+        assertSameBook(primaryEngine, promoted);
+        Assert.assertEquals(primaryEngine.getLastOrderId(), promoted.getLastOrderId());
+
+        ReplicationPrimary newPrimary = new ReplicationPrimary(any, first.getAppliedSequence() + 1);
+        newPrimary.start();
+        second.close();
+        ReplicationFollower rejoined = new ReplicationFollower(secondEngine, newPrimary.getLocalAddress(),
+                second.getAppliedSequence());
+        rejoined.start();
+        Assert.assertTrue(newPrimary.awaitFollowers(1, TimeUnit.SECONDS.toNanos(5)));
+        ReplicatingOrderHandler newHandler = new ReplicatingOrderHandler(newPrimary, promoted);
+        LongOrder sweep = new LongOrder(1100, 200, OrderDirection.BUY);
+        newHandler.onOrder(sweep, 0, true);
+        Assert.assertTrue(sweep.getOrderId() > primaryEngine.getLastOrderId());
+        Assert.assertEquals(newPrimary.getNextSequence() - 1, rejoined.getAppliedSequence());
+        assertSameBook(promoted, secondEngine);
+
+        ReplicationFollower stale = new ReplicationFollower(new LongOrderEngine(instrument), newPrimary.getLocalAddress());
+        stale.start();
+        newPrimary.commit();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (newPrimary.getRejectedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            newPrimary.commit();
+        }
+        Assert.assertEquals(1, newPrimary.getRejectedCount());
+        Assert.assertEquals(1, newPrimary.getFollowerCount());
+        stale.close();
+        rejoined.close();
+        newPrimary.close();
+    }
+
+    @Test
+    public void matchAnywayAndFlagDegradedOnAckTimeout() throws Exception {
+        ReplicationPrimary primary = new ReplicationPrimary(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        primary.setAckTimeoutNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        ReplicatingOrderHandler handler = new ReplicatingOrderHandler(primary, engine);
+        Assert.assertFalse(handler.isDegraded());
+
+        handler.onOrder(new LongOrder(1000, 10, OrderDirection.SELL), 0, true);
+        handler.onOrder(new LongOrder(1000, 4, OrderDirection.BUY), 1, true);
+        Assert.assertTrue(handler.isDegraded());
+        Assert.assertEquals(2, primary.getAckTimeoutCount());
+        Assert.assertEquals(6, engine.getSellOrders().best().getTotalQuantity());
+
+        primary.setRequiredAcks(0);
+        Assert.assertTrue(handler.cancelOrder(1));
+        Assert.assertFalse(handler.isDegraded());
+        Assert.assertEquals(2, primary.getAckTimeoutCount());
+        primary.close();
+    }
+
+    private static void assertSameBook(LongOrderEngine expected, LongOrderEngine actual) {
+        for (OrderDirection orderDirection : OrderDirection.values()) {
+            Assert.assertEquals(expected.getTopOrders(Integer.MAX_VALUE, orderDirection),
+                    actual.getTopOrders(Integer.MAX_VALUE, orderDirection));
+        }
+        for (long orderId = 1; orderId <= expected.getLastOrderId(); orderId++) {
+            LongOrder order = expected.getOrder(orderId);
+            LongOrder copy = actual.getOrder(orderId);
+            Assert.assertEquals(order == null, copy == null);
+            if (order != null) {
+                Assert.assertEquals(order.getAvailableQuantity(), copy.getAvailableQuantity());
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.stock.engine.risk;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.component.LongOrder;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.constant.RiskRejection;
+import com.stock.engine.core.LongOrderEngine;
+import com.stock.engine.core.PriceLevel;
+import com.stock.engine.core.Quote;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RiskStageTest {
+
+    private final Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+
+    @Test
+    public void checkLimitsAndFollowFills() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        RiskLimits limits = new RiskLimits();
+        limits.setMaxOrderQuantity(100);
+        limits.setMaxOpenQuantity(150);
+        limits.setMaxPosition(120);
+        limits.setPriceBand(50);
+        PreTradeRisk risk = new PreTradeRisk(engine.getTopOfBook(), limits);
+        engine.setFillListener(risk);
+        AccountExposure exposure = risk.getExposure();
+        Quote quote = new Quote();
+
+        Assert.assertEquals(RiskRejection.ORDER_QUANTITY, risk.check(order(1, 1000, 101, OrderDirection.BUY), quote));
+        LongOrder bid = order(1, 1000, 100, OrderDirection.BUY);
+        Assert.assertNull(risk.check(bid, quote));
+        engine.submitOrder(bid);
+        Assert.assertEquals(RiskRejection.OPEN_QUANTITY, risk.check(order(1, 990, 60, OrderDirection.SELL), quote));
+        Assert.assertEquals(RiskRejection.PRICE_BAND, risk.check(order(2, 949, 10, OrderDirection.SELL), quote));
+        Assert.assertEquals(100, exposure.getOpenQuantity(1, true));
+        Assert.assertEquals(100_000, exposure.getOpenNotional(1));
+
+        LongOrder ask = order(2, 1000, 60, OrderDirection.SELL);
+        Assert.assertNull(risk.check(ask, quote));
+        engine.submitOrder(ask);
+        Assert.assertEquals(40, exposure.getOpenQuantity(1, true));
+        Assert.assertEquals(60, exposure.getPosition(1));
+        Assert.assertEquals(-60, exposure.getPosition(2));
+        Assert.assertEquals(0, exposure.getOpenQuantity(2, false));
+        Assert.assertEquals(RiskRejection.POSITION, risk.check(order(1, 1000, 30, OrderDirection.BUY), quote));
+
+        Assert.assertTrue(engine.reduceOrder(bid.getOrderId(), 30));
+        Assert.assertEquals(10, exposure.getOpenQuantity(1, true));
+        Assert.assertTrue(engine.cancelOrder(bid.getOrderId()));
+        Assert.assertEquals(0, exposure.getOpenQuantity(1, true));
+        Assert.assertEquals(0, exposure.getOpenNotional(1));
+
+        LongOrder ioc = new LongOrder(0, null, 1000, 50, OrderDirection.BUY, OrderType.IOC);
+        ioc.setAccountId(3);
+        Assert.assertNull(risk.check(ioc, quote));
+        engine.submitOrder(ioc);
+        Assert.assertEquals(0, exposure.getOpenQuantity(3, true));
+
+        RiskLimits small = new RiskLimits();
+        small.setMaxNotional(5_000);
+        exposure.setLimits(4, small);
+        Assert.assertEquals(RiskRejection.NOTIONAL, risk.check(order(4, 1000, 6, OrderDirection.BUY), quote));
+        Assert.assertNull(risk.check(order(4, 1000, 5, OrderDirection.BUY), quote));
+    }
+
+    @Test
+    public void checkAmendsThatReplaceTheOrder() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        RiskLimits limits = new RiskLimits();
+        limits.setMaxOpenQuantity(100);
+        PreTradeRisk risk = new PreTradeRisk(engine.getTopOfBook(), limits);
+        engine.setFillListener(risk);
+        AccountExposure exposure = risk.getExposure();
+        LongOrder bid = order(1, 1000, 60, OrderDirection.BUY);
+        Assert.assertNull(risk.check(bid, new Quote()));
+        engine.submitOrder(bid);
+
+        Assert.assertTrue(engine.amendOrder(bid.getOrderId(), 1000, 100));
+        Assert.assertEquals(100, exposure.getOpenQuantity(1, true));
+        try {
+            engine.amendOrder(bid.getOrderId(), 1001, 101);
+            Assert.fail("amend past the open quantity limit was taken");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertSame(bid, engine.getOrder(bid.getOrderId()));
+            Assert.assertEquals(1000, bid.getPrice());
+            Assert.assertEquals(100, bid.getAvailableQuantity());
+        }
+        Assert.assertEquals(100, exposure.getOpenQuantity(1, true));
+
+        Assert.assertTrue(engine.amendOrder(bid.getOrderId(), 990, 50));
+        Assert.assertSame(bid, engine.getOrder(bid.getOrderId()));
+        Assert.assertEquals(50, exposure.getOpenQuantity(1, true));
+        Assert.assertEquals(49_500, exposure.getOpenNotional(1));
+        Assert.assertTrue(engine.cancelOrder(bid.getOrderId()));
+        Assert.assertEquals(0, exposure.getOpenQuantity(1, true));
+        Assert.assertEquals(0, exposure.getOpenNotional(1));
+    }
+
+    @Test
+    public void matchAcceptedOrdersInPublishSequence() {
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        RiskLimits limits = new RiskLimits();
+        limits.setMaxOpenQuantity(500);
+        PreTradeRisk risk = new PreTradeRisk(engine.getTopOfBook(), limits);
+        engine.setFillListener(risk);
+        List<Long> matched = new ArrayList<>();
+        List<Long> rejected = Collections.synchronizedList(new ArrayList<>());
+        RiskStage stage = new RiskStage(1 << 10, 3, risk, (order, sequence, endOfBatch) -> {
+            matched.add(sequence);
+            engine.onOrder(order, sequence, endOfBatch);
+        });
+        List<RiskRejection> rejections = Collections.synchronizedList(new ArrayList<>());
+        stage.setRejectListener((order, sequence, rejection) -> {
+            rejected.add(sequence);
+            rejections.add(rejection);
+        });
+        stage.start();
+        int orders = 20000;
+        for (int i = 0; i < orders; i++) {
+            stage.publish(order(1 + i % 16, 900 - i % 50, 1 + i % 40, OrderDirection.BUY));
+        }
+        stage.close();
+
+        Assert.assertEquals(orders, matched.size() + rejected.size());
+        Assert.assertEquals(matched.size(), stage.getAcceptedCount());
+        Assert.assertEquals(rejected.size(), stage.getRejectedCount());
+        Assert.assertEquals(0, stage.getFailedCount());
+        Assert.assertFalse(rejected.isEmpty());
+        Assert.assertTrue(rejections.stream().allMatch(RiskRejection.OPEN_QUANTITY::equals));
+        for (int i = 1; i < matched.size(); i++) {
+            Assert.assertTrue(matched.get(i) > matched.get(i - 1));
+        }
+        long open = 0;
+        for (long account = 1; account <= 16; account++) {
+            long accountOpen = risk.getExposure().getOpenQuantity(account, true);
+            Assert.assertTrue(accountOpen > 500 - 40 && accountOpen <= 500);
+            open += accountOpen;
+        }
+        long resting = 0;
+        for (PriceLevel level = engine.getBuyOrders().best(); level != null; level = engine.getBuyOrders().next(level)) {
+            resting += level.getTotalQuantity();
+        }
+        Assert.assertEquals(open, resting);
+    }
+
+    private static LongOrder order(long accountId, long price, long quantity, OrderDirection orderDirection) {
+        LongOrder order = new LongOrder(price, quantity, orderDirection);
+        order.setAccountId(accountId);
+        return order;
+    }
+}
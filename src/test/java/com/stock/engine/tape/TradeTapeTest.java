@@ -0,0 +1,100 @@
+package com.stock.engine.tape;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class TradeTapeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void summarizeWindows() {
+        TradeTape tape = new TradeTape();
+        tape.append(10.0, 100, 1000);
+        tape.append(10.5, 300, 1001);
+        tape.append(9.5, 100, 1002);
+        tape.append(10.5, 200, 1005);
+
+        TradeSummary all = tape.summarize();
+        Assert.assertEquals(4, all.getCount());
+        Assert.assertEquals(700, all.getVolume());
+        Assert.assertEquals(10.0, all.getOpen(), 0);
+        Assert.assertEquals(10.5, all.getHigh(), 0);
+        Assert.assertEquals(9.5, all.getLow(), 0);
+        Assert.assertEquals(10.5, all.getClose(), 0);
+        Assert.assertEquals((1000 + 3150 + 950 + 2100) / 700.0, all.getVwap(), 1e-9);
+
+        TradeSummary window = tape.summarize(1001, 1005);
+        Assert.assertEquals(2, window.getCount());
+        Assert.assertEquals(10.5, window.getOpen(), 0);
+        Assert.assertEquals(9.5, window.getClose(), 0);
+        Assert.assertEquals(500, tape.volumeAt(10.5, 0, Long.MAX_VALUE));
+        Assert.assertEquals(300, tape.volumeAt(10.5, 0, 1005));
+        Assert.assertTrue(Double.isNaN(tape.vwap(2000, 3000)));
+    }
+
+    @Test
+    public void spillOldChunks() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("tape");
+        Random random = new Random(5);
+        int trades = 10000;
+        double[] prices = new double[trades];
+        long[] quantities = new long[trades];
+        try (TradeTape tape = new TradeTape(256, 4, directory)) {
+            for (int i = 0; i < trades; i++) {
+                prices[i] = 100 + random.nextInt(10) * 0.5;
+                quantities[i] = 1 + random.nextInt(100);
+                Assert.assertEquals(i, tape.append(prices[i], quantities[i], i / 10));
+            }
+            Assert.assertEquals(trades / 256 - 4, tape.getSpilledChunkCount());
+            Assert.assertEquals(tape.getSpilledChunkCount(), Files.list(directory).count());
+            Assert.assertEquals(0, tape.getFirstSequence());
+
+            long from = 123;
+            long to = 876;
+            double notional = 0;
+            long volume = 0;
+            long volumeAtPrice = 0;
+            for (int i = 0; i < trades; i++) {
+                if (i / 10 >= from && i / 10 < to) {
+                    notional += prices[i] * quantities[i];
+                    volume += quantities[i];
+                    if (prices[i] == 102.5) {
+                        volumeAtPrice += quantities[i];
+                    }
+                }
+            }
+            TradeSummary summary = tape.summarize(from, to);
+            Assert.assertEquals((to - from) * 10, summary.getCount());
+            Assert.assertEquals(volume, summary.getVolume());
+            Assert.assertEquals(notional / volume, summary.getVwap(), 1e-9);
+            Assert.assertEquals(prices[(int) from * 10], summary.getOpen(), 0);
+            Assert.assertEquals(prices[(int) to * 10 - 1], summary.getClose(), 0);
+            Assert.assertEquals(volumeAtPrice, tape.volumeAt(102.5, from, to));
+
+            tape.clear();
+            Assert.assertEquals(0, Files.list(directory).count());
+            Assert.assertEquals(0, tape.summarize().getCount());
+            Assert.assertEquals(trades, tape.append(100, 1, 2000));
+        }
+    }
+
+    @Test
+    public void dropOldChunksWithoutSpillDirectory() {
+        TradeTape tape = new TradeTape(100, 2, null);
+        for (int i = 0; i < 1000; i++) {
+            tape.append(1, 1, i);
+        }
+        Assert.assertEquals(1000, tape.getCount());
+        Assert.assertEquals(700, tape.getDroppedCount());
+        Assert.assertEquals(700, tape.getFirstSequence());
+        Assert.assertEquals(300, tape.summarize().getVolume());
+    }
+}
@@ -0,0 +1,82 @@
+package com.stock.engine.workload;
+
+import com.stock.engine.component.Instrument;
+import com.stock.engine.constant.CommandType;
+import com.stock.engine.constant.OrderDirection;
+import com.stock.engine.constant.OrderType;
+import com.stock.engine.core.LongOrderEngine;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class WorkloadGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generateTheProfile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("flow.wkl");
+        new WorkloadGenerator(new WorkloadProfile(), 1).generate(file, 100000);
+        Assert.assertEquals(WorkloadGenerator.HEADER_SIZE + 100000L * WorkloadGenerator.RECORD_SIZE, Files.size(file));
+
+        WorkloadReplayer replayer = new WorkloadReplayer(file);
+        Assert.assertEquals(100000, replayer.getCount());
+        long[] counts = new long[3];
+        long[] maxDistance = {0};
+        replayer.replay((type, orderId, price, quantity, orderDirection, orderType) -> {
+            if (CommandType.CANCEL_ORDER.equals(type)) {
+                counts[1]++;
+                return;
+            }
+            Assert.assertTrue(quantity >= 1 && quantity <= 10000);
+            counts[OrderType.LIMIT.equals(orderType) ? 0 : 2]++;
+            maxDistance[0] = Math.max(maxDistance[0], Math.abs(price - 10000));
+        });
+        Assert.assertEquals(100000, counts[0] + counts[1] + counts[2]);
+        Assert.assertEquals(0.5, counts[0] / 100000.0, 0.02);
+        Assert.assertEquals(0.4, counts[1] / 100000.0, 0.02);
+        Assert.assertEquals(0.1, counts[2] / 100000.0, 0.02);
+        Assert.assertTrue(maxDistance[0] < 1000);
+        Assert.assertTrue(replayer.getDurationNanos() > 0);
+    }
+
+    @Test
+    public void sameSeedSameFlow() throws IOException {
+        Path first = folder.getRoot().toPath().resolve("first.wkl");
+        Path second = folder.getRoot().toPath().resolve("second.wkl");
+        new WorkloadGenerator(new WorkloadProfile(), 7).generate(first, 5000);
+        new WorkloadGenerator(new WorkloadProfile(), 7).generate(second, 5000);
+        Assert.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        Instrument instrument = new Instrument("TEST", new BigDecimal("0.01"), BigDecimal.ONE);
+        LongOrderEngine engine = new LongOrderEngine(instrument);
+        LongOrderEngine replayed = new LongOrderEngine(instrument);
+        new WorkloadReplayer(first).replay(WorkloadReplayer.handlerFor(engine));
+        new WorkloadReplayer(second).replay(WorkloadReplayer.handlerFor(replayed));
+        Assert.assertFalse(engine.getBuyOrders().isEmpty());
+        for (OrderDirection direction : OrderDirection.values()) {
+            Assert.assertEquals(engine.getTopOrders(100, direction), replayed.getTopOrders(100, direction));
+        }
+    }
+
+    @Test
+    public void pacedReplayKeepsTheRecordedTime() throws IOException {
+        WorkloadProfile profile = new WorkloadProfile();
+        profile.setMeanInterArrivalNanos(100_000);
+        Path file = folder.getRoot().toPath().resolve("paced.wkl");
+        new WorkloadGenerator(profile, 3).generate(file, 500);
+        WorkloadReplayer replayer = new WorkloadReplayer(file);
+
+        long start = System.nanoTime();
+        replayer.replay((type, orderId, price, quantity, orderDirection, orderType) -> {
+        }, 2);
+        Assert.assertTrue(System.nanoTime() - start >= replayer.getDurationNanos() / 2);
+    }
+}